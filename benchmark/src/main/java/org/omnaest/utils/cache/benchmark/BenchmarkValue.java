@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.benchmark;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Simple json serializable value type used by the cache benchmarks
+ * 
+ * @author omnaest
+ */
+public class BenchmarkValue
+{
+    private String payload;
+
+    public BenchmarkValue()
+    {
+        super();
+    }
+
+    public BenchmarkValue(String payload)
+    {
+        super();
+        this.payload = payload;
+    }
+
+    public static BenchmarkValue ofSize(int size)
+    {
+        return new BenchmarkValue(StringUtils.repeat('x', size));
+    }
+
+    public String getPayload()
+    {
+        return this.payload;
+    }
+
+    public void setPayload(String payload)
+    {
+        this.payload = payload;
+    }
+
+}
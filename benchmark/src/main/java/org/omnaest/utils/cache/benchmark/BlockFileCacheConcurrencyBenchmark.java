@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.omnaest.utils.FileUtils;
+import org.omnaest.utils.cache.FlushableCache;
+import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Multi threaded JMH benchmark of the row locking of the {@link RandomAccessLogarithmicBlockFileStorageCache}. With a single row all operations contend
+ * for the same row lock, with many rows the operations on different rows run in parallel. Compare the throughput with "-t 1".
+ * 
+ * @author omnaest
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class BlockFileCacheConcurrencyBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class BlockFileCacheState
+    {
+        @Param({ "false", "true" })
+        private boolean memoryMapped;
+
+        @Param({ "1", "256" })
+        private int hashCapacity;
+
+        private File           directory;
+        private FlushableCache cache;
+        private String[]       keys;
+        private BenchmarkValue value;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException
+        {
+            this.directory = FileUtils.createRandomTempDirectory();
+            RandomAccessLogarithmicBlockFileStorageCache cache = new RandomAccessLogarithmicBlockFileStorageCache(this.directory, this.hashCapacity);
+            this.cache = this.memoryMapped ? cache.withMemoryMappedStorage() : cache;
+            this.value = BenchmarkValue.ofSize(16);
+            this.keys = IntStream.range(0, 1024)
+                                 .mapToObj(index -> "key" + index)
+                                 .toArray(String[]::new);
+            for (String key : this.keys)
+            {
+                this.cache.put(key, this.value);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown()
+        {
+            this.cache.close();
+            org.apache.commons.io.FileUtils.deleteQuietly(this.directory);
+        }
+
+        public String nextKey()
+        {
+            return this.keys[ThreadLocalRandom.current()
+                                              .nextInt(this.keys.length)];
+        }
+    }
+
+    @Benchmark
+    public BenchmarkValue get(BlockFileCacheState state)
+    {
+        return state.cache.get(state.nextKey(), BenchmarkValue.class);
+    }
+
+    @Benchmark
+    public void put(BlockFileCacheState state)
+    {
+        state.cache.put(state.nextKey(), state.value);
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.cache.Cache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single threaded JMH benchmark of the basic {@link Cache} operations
+ * 
+ * @see CacheConcurrencyBenchmark
+ * @author omnaest
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class CacheBenchmark
+{
+    @Benchmark
+    public BenchmarkValue get(CacheState state)
+    {
+        return state.getCache()
+                    .get(state.nextExistingKey(), BenchmarkValue.class);
+    }
+
+    @Benchmark
+    public boolean contains(CacheState state)
+    {
+        return state.getCache()
+                    .contains(state.nextExistingKey());
+    }
+
+    @Benchmark
+    public Class<BenchmarkValue> getType(CacheState state)
+    {
+        return state.getCache()
+                    .getType(state.nextExistingKey());
+    }
+
+    @Benchmark
+    public void put(CacheState state)
+    {
+        state.getCache()
+             .put(state.nextExistingKey(), state.getValue());
+    }
+
+    @Benchmark
+    public BenchmarkValue computeIfAbsentHit(CacheState state)
+    {
+        return state.getCache()
+                    .computeIfAbsent(state.nextExistingKey(), () -> state.getValue(), BenchmarkValue.class);
+    }
+
+    @Benchmark
+    public BenchmarkValue computeIfAbsentMiss(CacheState state)
+    {
+        return state.getCache()
+                    .computeIfAbsent(state.nextMissingKey(), () -> state.getValue(), BenchmarkValue.class);
+    }
+
+    @Benchmark
+    public Set<String> keySet(CacheState state)
+    {
+        return state.getCache()
+                    .keySet();
+    }
+}
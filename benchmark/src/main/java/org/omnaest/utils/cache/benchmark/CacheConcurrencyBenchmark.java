@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.cache.Cache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Multi threaded JMH benchmark of a read heavy and a write heavy mix of {@link Cache} operations
+ * 
+ * @see CacheBenchmark
+ * @author omnaest
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheConcurrencyBenchmark
+{
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(3)
+    public BenchmarkValue readHeavyGet(CacheState state)
+    {
+        return state.getCache()
+                    .get(state.nextExistingKey(), BenchmarkValue.class);
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public void readHeavyPut(CacheState state)
+    {
+        state.getCache()
+             .put(state.nextExistingKey(), state.getValue());
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(1)
+    public BenchmarkValue writeHeavyGet(CacheState state)
+    {
+        return state.getCache()
+                    .get(state.nextExistingKey(), BenchmarkValue.class);
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(3)
+    public BenchmarkValue writeHeavyComputeIfAbsent(CacheState state)
+    {
+        return state.getCache()
+                    .computeIfAbsent(state.nextMissingKey(), () -> state.getValue(), BenchmarkValue.class);
+    }
+}
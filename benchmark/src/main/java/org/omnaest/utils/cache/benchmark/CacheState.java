@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.omnaest.utils.FileUtils;
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.FlushableCache;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Shared benchmark state which creates a prefilled {@link Cache} for each combination of {@link CacheType}, key count and value size. Keys of
+ * {@link #nextMissingKey()} are removed again after each iteration, so the prefilled {@link Cache} does not grow over the iterations.
+ * 
+ * @author omnaest
+ */
+@State(Scope.Benchmark)
+public class CacheState
+{
+    private static final String MISSING_KEY_PREFIX = "missing";
+
+    @Param({ "IN_MEMORY", "JSON_SINGLE_FILE", "JSON_FOLDER_FILES", "BLOCK_FILE", "MAPPED_BLOCK_FILE" })
+    private CacheType           cacheType;
+
+    @Param({ "100", "1000" })
+    private int                 keyCount;
+
+    @Param({ "16", "1024" })
+    private int                 valueSize;
+
+    private File                directory;
+    private Cache               cache;
+    private String[]            keys;
+    private BenchmarkValue      value;
+    private AtomicLong          missingKeyCounter  = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        this.directory = FileUtils.createRandomTempDirectory();
+        this.cache = this.cacheType.create(this.directory);
+        this.value = BenchmarkValue.ofSize(this.valueSize);
+        this.keys = IntStream.range(0, this.keyCount)
+                             .mapToObj(index -> "key" + index)
+                             .toArray(String[]::new);
+        for (String key : this.keys)
+        {
+            this.cache.put(key, this.value);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeMissingKeys()
+    {
+        this.cache.removeAll(this.cache.keySet()
+                                       .stream()
+                                       .filter(key -> key.startsWith(MISSING_KEY_PREFIX))
+                                       .collect(Collectors.toList()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        this.cache.clear();
+        if (this.cache instanceof FlushableCache)
+        {
+            ((FlushableCache) this.cache).close();
+        }
+        org.apache.commons.io.FileUtils.deleteQuietly(this.directory);
+    }
+
+    public Cache getCache()
+    {
+        return this.cache;
+    }
+
+    public BenchmarkValue getValue()
+    {
+        return this.value;
+    }
+
+    /**
+     * Returns a random key of the prefilled key range
+     * 
+     * @return
+     */
+    public String nextExistingKey()
+    {
+        return this.keys[ThreadLocalRandom.current()
+                                          .nextInt(this.keys.length)];
+    }
+
+    /**
+     * Returns a key which has never been returned before and is not part of the prefilled key range, so every access is a miss
+     * 
+     * @return
+     */
+    public String nextMissingKey()
+    {
+        return MISSING_KEY_PREFIX + this.missingKeyCounter.incrementAndGet();
+    }
+}
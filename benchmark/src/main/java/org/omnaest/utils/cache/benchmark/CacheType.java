@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.benchmark;
+
+import java.io.File;
+import java.util.function.Function;
+
+import org.omnaest.utils.CacheUtils;
+import org.omnaest.utils.cache.Cache;
+
+/**
+ * The {@link Cache} implementations under benchmark, each created through {@link CacheUtils}
+ * 
+ * @author omnaest
+ */
+public enum CacheType
+{
+    IN_MEMORY(directory -> CacheUtils.newConcurrentInMemoryCache()),
+    JSON_SINGLE_FILE(directory -> CacheUtils.newJsonFileCache(new File(directory, "cache.json"))),
+    JSON_FOLDER_FILES(directory -> CacheUtils.newJsonFolderCache(directory)),
+    BLOCK_FILE(directory -> CacheUtils.newRandomAccessLogarithmicBlockFileStorageCache(directory, 1024)),
+    MAPPED_BLOCK_FILE(directory -> CacheUtils.newMemoryMappedBlockFileStorageCache(directory, 1024));
+
+    private Function<File, Cache> factory;
+
+    private CacheType(Function<File, Cache> factory)
+    {
+        this.factory = factory;
+    }
+
+    public Cache create(File directory)
+    {
+        return this.factory.apply(directory);
+    }
+}
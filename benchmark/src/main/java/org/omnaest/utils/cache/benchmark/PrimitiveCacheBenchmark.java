@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.omnaest.utils.CacheUtils;
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.LongCache;
+import org.omnaest.utils.cache.UnaryCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the {@link LongCache} against an {@link UnaryCache} of boxed {@link Long} values on top of the in memory {@link Cache}. Run with
+ * "-prof gc" to compare the allocation rates.
+ * 
+ * @author omnaest
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class PrimitiveCacheBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class PrimitiveCacheState
+    {
+        @Param({ "1000", "100000" })
+        private int keyCount;
+
+        private LongCache        longCache;
+        private UnaryCache<Long> boxedCache;
+        private String[]         keys;
+
+        @Setup(Level.Trial)
+        public void setUp()
+        {
+            this.longCache = CacheUtils.newLongCache(this.keyCount);
+            this.boxedCache = CacheUtils.newConcurrentInMemoryCache()
+                                        .asUnaryCache(Long.class);
+            this.keys = IntStream.range(0, this.keyCount)
+                                 .mapToObj(index -> "key" + index)
+                                 .toArray(String[]::new);
+            for (int ii = 0; ii < this.keys.length; ii++)
+            {
+                this.longCache.putLong(this.keys[ii], 1000L + ii);
+                this.boxedCache.put(this.keys[ii], 1000L + ii);
+            }
+        }
+
+        public String nextKey()
+        {
+            return this.keys[ThreadLocalRandom.current()
+                                              .nextInt(this.keys.length)];
+        }
+    }
+
+    @Benchmark
+    public long getLong(PrimitiveCacheState state)
+    {
+        return state.longCache.getLong(state.nextKey(), -1L);
+    }
+
+    @Benchmark
+    public Long getBoxed(PrimitiveCacheState state)
+    {
+        return state.boxedCache.get(state.nextKey());
+    }
+
+    @Benchmark
+    public void putLong(PrimitiveCacheState state)
+    {
+        state.longCache.putLong(state.nextKey(), 1000L);
+    }
+
+    @Benchmark
+    public void putBoxed(PrimitiveCacheState state)
+    {
+        state.boxedCache.put(state.nextKey(), 1000L);
+    }
+}
@@ -35,14 +35,21 @@ package org.omnaest.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Supplier;
 
 import org.apache.commons.io.FileUtils;
 import org.omnaest.utils.cache.Cache;
 import org.omnaest.utils.cache.Cache.EvictionStrategyProvider;
+import org.omnaest.utils.cache.CacheValueCodec;
+import org.omnaest.utils.cache.CacheValueCodec.StandardCacheValueCodec;
 import org.omnaest.utils.cache.CacheWithNativeTypeSupport;
 import org.omnaest.utils.cache.CapacityLimitedCache;
 import org.omnaest.utils.cache.CapacityLimitedUnaryCache;
+import org.omnaest.utils.cache.DoubleCache;
+import org.omnaest.utils.cache.FlushableCache;
+import org.omnaest.utils.cache.IntCache;
+import org.omnaest.utils.cache.LongCache;
 import org.omnaest.utils.cache.UnaryCache;
 import org.omnaest.utils.cache.internal.CacheToUnaryCacheAdapter;
 import org.omnaest.utils.cache.internal.CapacityLimitedCacheWrapper;
@@ -52,6 +59,12 @@ import org.omnaest.utils.cache.internal.JsonFolderFilesCache;
 import org.omnaest.utils.cache.internal.JsonSingleFileCache;
 import org.omnaest.utils.cache.internal.NoOperationCache;
 import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache;
+import org.omnaest.utils.cache.internal.SegmentFileStorage;
+import org.omnaest.utils.cache.internal.offheap.OffHeapCache;
+import org.omnaest.utils.cache.internal.primitive.OpenAddressingDoubleCache;
+import org.omnaest.utils.cache.internal.primitive.OpenAddressingIntCache;
+import org.omnaest.utils.cache.internal.primitive.OpenAddressingLongCache;
+import org.omnaest.utils.duration.TimeDuration;
 import org.omnaest.utils.element.cached.CachedElement;
 
 /**
@@ -84,11 +97,127 @@ public class CacheUtils
         return new ConcurrentHashMapCache();
     }
 
+    /**
+     * Returns a new in memory {@link LongCache} which stores the values as native long values without boxing
+     * 
+     * @return
+     */
+    public static LongCache newLongCache()
+    {
+        return new OpenAddressingLongCache();
+    }
+
+    public static LongCache newLongCache(int expectedSize)
+    {
+        return new OpenAddressingLongCache(expectedSize);
+    }
+
+    /**
+     * Returns a new in memory {@link IntCache} which stores the values as native int values without boxing
+     * 
+     * @return
+     */
+    public static IntCache newIntCache()
+    {
+        return new OpenAddressingIntCache();
+    }
+
+    public static IntCache newIntCache(int expectedSize)
+    {
+        return new OpenAddressingIntCache(expectedSize);
+    }
+
+    /**
+     * Returns a new in memory {@link DoubleCache} which stores the values as native double values without boxing
+     * 
+     * @return
+     */
+    public static DoubleCache newDoubleCache()
+    {
+        return new OpenAddressingDoubleCache();
+    }
+
+    public static DoubleCache newDoubleCache(int expectedSize)
+    {
+        return new OpenAddressingDoubleCache(expectedSize);
+    }
+
+    /**
+     * Returns a new {@link Cache} which holds its values encoded by the {@link StandardCacheValueCodec#BINARY} codec within direct {@link ByteBuffer}s
+     * outside of the java heap. If the given byte capacity is reached, the oldest entries are evicted.
+     * 
+     * @param capacityInBytes
+     * @return
+     */
+    public static Cache newOffHeapCache(long capacityInBytes)
+    {
+        return newOffHeapCache(capacityInBytes, StandardCacheValueCodec.BINARY);
+    }
+
+    /**
+     * Similar to {@link #newOffHeapCache(long)} but with a custom {@link CacheValueCodec}
+     * 
+     * @param capacityInBytes
+     * @param codec
+     * @return
+     */
+    public static Cache newOffHeapCache(long capacityInBytes, CacheValueCodec codec)
+    {
+        return new OffHeapCache(capacityInBytes, codec);
+    }
+
     public static <V> Cache newJsonFileCache(File cacheFile)
     {
         return new JsonSingleFileCache(cacheFile);
     }
 
+    /**
+     * Returns a new json file {@link Cache} in write behind mode, which writes its mutations asynchronously after the given flush interval or as soon as
+     * the given number of mutations is pending
+     * 
+     * @see JsonSingleFileCache#withWriteBehind(TimeDuration, int)
+     * @param cacheFile
+     * @param flushInterval
+     * @param dirtyThreshold
+     * @return
+     */
+    public static FlushableCache newWriteBehindJsonFileCache(File cacheFile, TimeDuration flushInterval, int dirtyThreshold)
+    {
+        return new JsonSingleFileCache(cacheFile).withWriteBehind(flushInterval, dirtyThreshold);
+    }
+
+    /**
+     * Returns a new json file {@link Cache} in journal mode, which appends each mutation as json line to a journal file and compacts the journal into the
+     * cache file, if the journal exceeds twice the size of the cache file
+     * 
+     * @see JsonSingleFileCache#withJournal(double)
+     * @param cacheFile
+     * @return
+     */
+    public static FlushableCache newJournaledJsonFileCache(File cacheFile)
+    {
+        return newJournaledJsonFileCache(cacheFile, 2.0);
+    }
+
+    public static FlushableCache newJournaledJsonFileCache(File cacheFile, double compactionRatio)
+    {
+        return new JsonSingleFileCache(cacheFile).withJournal(compactionRatio);
+    }
+
+    /**
+     * Returns a new json file {@link Cache} which only indexes the byte offsets of the values on load and reads and decodes a value on its first get. The
+     * given number of decoded values is kept, and these instances are shared between gets, so they must not be modified.
+     * 
+     * @see JsonSingleFileCache#withLazyLoading(int)
+     * @param cacheFile
+     * @param decodedCapacity
+     * @return
+     */
+    public static FlushableCache newLazyJsonFileCache(File cacheFile, int decodedCapacity)
+    {
+        return new JsonSingleFileCache(cacheFile).withLazyLoading(decodedCapacity);
+    }
+
     public static <V> Cache newRandomAccessLogarithmicBlockFileStorageCache(File cacheDirectory, int hashCapacity)
     {
         return new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, hashCapacity);
@@ -99,11 +228,122 @@ public class CacheUtils
         return new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, hashCapacity, initialBlockSize);
     }
 
+    /**
+     * Returns a new block file {@link Cache} which stores its rows within memory mapped block files and reads them without any intermediate copy
+     * 
+     * @see RandomAccessLogarithmicBlockFileStorageCache#withMemoryMappedStorage()
+     * @param cacheDirectory
+     * @param hashCapacity
+     * @return
+     */
+    public static FlushableCache newMemoryMappedBlockFileStorageCache(File cacheDirectory, int hashCapacity)
+    {
+        return new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, hashCapacity).withMemoryMappedStorage();
+    }
+
+    public static FlushableCache newMemoryMappedBlockFileStorageCache(File cacheDirectory, int hashCapacity, int initialBlockSize)
+    {
+        return new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, hashCapacity, initialBlockSize).withMemoryMappedStorage();
+    }
+
+    /**
+     * Returns a new block file {@link Cache} whose number of rows grows by linear hashing, starting with the given initial hash capacity
+     * 
+     * @see RandomAccessLogarithmicBlockFileStorageCache#withLinearHashing(int)
+     * @param cacheDirectory
+     * @param initialHashCapacity
+     * @param splitThresholdInBytes
+     * @return
+     */
+    public static FlushableCache newLinearHashingBlockFileStorageCache(File cacheDirectory, int initialHashCapacity, int splitThresholdInBytes)
+    {
+        return new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, initialHashCapacity).withLinearHashing(splitThresholdInBytes);
+    }
+
+    /**
+     * Returns a new block file {@link Cache} which keeps the decoded content of up to the given number of rows in memory and writes every mutated
+     * row through
+     * 
+     * @see RandomAccessLogarithmicBlockFileStorageCache#withRowCache(int, EvictionStrategyProvider)
+     * @param cacheDirectory
+     * @param hashCapacity
+     * @param rowCacheCapacity
+     * @param evictionStrategy
+     * @return
+     */
+    public static FlushableCache newRowCachedBlockFileStorageCache(File cacheDirectory, int hashCapacity, int rowCacheCapacity,
+                                                                   EvictionStrategyProvider evictionStrategy)
+    {
+        return new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, hashCapacity).withRowCache(rowCacheCapacity, evictionStrategy);
+    }
+
     public static <V> CacheWithNativeTypeSupport newJsonFolderCache(File cacheDirectory)
     {
         return new JsonFolderFilesCache(cacheDirectory);
     }
 
+    /**
+     * Returns a new {@link JsonFolderFilesCache} which writes the root index once for all mutations of concurrent threads within the given latency
+     * 
+     * @see JsonFolderFilesCache#withGroupCommit(TimeDuration, int)
+     * @param cacheDirectory
+     * @param maxLatency
+     * @param maxBatchSize
+     * @return
+     */
+    public static CacheWithNativeTypeSupport newGroupCommitJsonFolderCache(File cacheDirectory, TimeDuration maxLatency, int maxBatchSize)
+    {
+        return new JsonFolderFilesCache(cacheDirectory).withGroupCommit(maxLatency, maxBatchSize);
+    }
+
+    /**
+     * Returns a new {@link JsonFolderFilesCache} which appends the changes of its root index to a delta log and checkpoints the delta log into the root
+     * index, if it exceeds the size of the root index
+     * 
+     * @see JsonFolderFilesCache#withDeltaLog(double)
+     * @param cacheDirectory
+     * @return
+     */
+    public static CacheWithNativeTypeSupport newDeltaLogJsonFolderCache(File cacheDirectory)
+    {
+        return newDeltaLogJsonFolderCache(cacheDirectory, 1.0);
+    }
+
+    public static CacheWithNativeTypeSupport newDeltaLogJsonFolderCache(File cacheDirectory, double checkpointRatio)
+    {
+        return new JsonFolderFilesCache(cacheDirectory).withDeltaLog(checkpointRatio);
+    }
+
+    /**
+     * Returns a new {@link JsonFolderFilesCache} which stores its cache files within a two level directory hierarchy instead of a single flat directory
+     * 
+     * @see JsonFolderFilesCache#withShardedLayout(boolean)
+     * @param cacheDirectory
+     * @return
+     */
+    public static CacheWithNativeTypeSupport newShardedJsonFolderCache(File cacheDirectory)
+    {
+        return new JsonFolderFilesCache(cacheDirectory).withShardedLayout(true);
+    }
+
+    /**
+     * Returns a new {@link JsonFolderFilesCache} which packs its values into segment files of up to 64MB and compacts a segment in the background, if at
+     * least half of it is not referenced anymore
+     * 
+     * @see JsonFolderFilesCache#withSegmentStorage(long, double)
+     * @param cacheDirectory
+     * @return
+     */
+    public static CacheWithNativeTypeSupport newSegmentJsonFolderCache(File cacheDirectory)
+    {
+        return newSegmentJsonFolderCache(cacheDirectory, SegmentFileStorage.DEFAULT_MAX_SEGMENT_SIZE, 0.5);
+    }
+
+    public static CacheWithNativeTypeSupport newSegmentJsonFolderCache(File cacheDirectory, long maxSegmentSize, double compactionRatio)
+    {
+        return new JsonFolderFilesCache(cacheDirectory).withSegmentStorage(maxSegmentSize, compactionRatio);
+    }
+
     public static CapacityLimitedCache toCapacityLimitedCache(Cache cache, EvictionStrategyProvider evictionStrategy)
     {
         return new CapacityLimitedCacheWrapper(cache, evictionStrategy);
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Asynchronous view on a {@link Cache}. All operations are executed by an {@link Executor} and return a {@link CompletableFuture}, so the calling thread
+ * does not block on the I/O of the underlying {@link Cache}.
+ * 
+ * @see Cache#asAsyncCache()
+ * @see Cache#asAsyncCache(Executor)
+ * @see AsyncUnaryCache
+ * @author omnaest
+ */
+public interface AsyncCache
+{
+    public <V> CompletableFuture<V> getAsync(String key, Class<V> type);
+
+    /**
+     * Returns all present values of the given keys
+     * 
+     * @param type
+     * @param keys
+     * @return
+     */
+    public <V> CompletableFuture<Map<String, V>> getAllAsync(Class<V> type, Collection<String> keys);
+
+    public CompletableFuture<Boolean> containsAsync(String key);
+
+    public CompletableFuture<Void> putAsync(String key, Object value);
+
+    public <V> CompletableFuture<Void> putAllAsync(Map<String, V> map);
+
+    /**
+     * If the given key is not present the mapping {@link Function} is called to load the value asynchronously. Concurrent calls for the same key share the
+     * same load, as long as they are made on the same {@link AsyncCache} instance.
+     * 
+     * @param key
+     * @param mappingFunction
+     * @param type
+     * @return
+     */
+    public <V> CompletableFuture<V> computeIfAbsentAsync(String key, Function<String, CompletableFuture<V>> mappingFunction, Class<V> type);
+
+    /**
+     * Similar to {@link #computeIfAbsentAsync(String, Function, Class)} for multiple keys
+     * 
+     * @param keys
+     * @param mappingFunction
+     * @param type
+     * @return
+     */
+    public <V> CompletableFuture<Map<String, V>> computeAllIfAbsentAsync(Collection<String> keys, Function<String, CompletableFuture<V>> mappingFunction,
+                                                                         Class<V> type);
+
+    public CompletableFuture<Void> removeAsync(String key);
+
+    public CompletableFuture<Void> removeAllAsync(Iterable<String> keys);
+
+    /**
+     * Returns an {@link AsyncUnaryCache} for the given type which shares the {@link Executor} of this {@link AsyncCache}
+     * 
+     * @param type
+     * @return
+     */
+    public <V> AsyncUnaryCache<V> asAsyncUnaryCache(Class<V> type);
+
+    /**
+     * Returns the underlying blocking {@link Cache}
+     * 
+     * @return
+     */
+    public Cache synchronous();
+}
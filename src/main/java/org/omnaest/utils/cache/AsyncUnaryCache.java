@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Asynchronous view on an {@link UnaryCache}
+ * 
+ * @see AsyncCache
+ * @see UnaryCache#asAsyncUnaryCache()
+ * @see UnaryCache#asAsyncUnaryCache(Executor)
+ * @author omnaest
+ * @param <V>
+ */
+public interface AsyncUnaryCache<V>
+{
+    public CompletableFuture<V> getAsync(String key);
+
+    public CompletableFuture<Map<String, V>> getAllAsync(Collection<String> keys);
+
+    public CompletableFuture<Void> putAsync(String key, V value);
+
+    public CompletableFuture<Void> putAllAsync(Map<String, V> map);
+
+    /**
+     * @see AsyncCache#computeIfAbsentAsync(String, Function, Class)
+     * @param key
+     * @param mappingFunction
+     * @return
+     */
+    public CompletableFuture<V> computeIfAbsentAsync(String key, Function<String, CompletableFuture<V>> mappingFunction);
+
+    /**
+     * @see AsyncCache#computeAllIfAbsentAsync(Collection, Function, Class)
+     * @param keys
+     * @param mappingFunction
+     * @return
+     */
+    public CompletableFuture<Map<String, V>> computeAllIfAbsentAsync(Collection<String> keys, Function<String, CompletableFuture<V>> mappingFunction);
+
+    public CompletableFuture<Void> removeAsync(String key);
+
+    public CompletableFuture<Void> removeAllAsync(Iterable<String> keys);
+
+    /**
+     * Returns the underlying blocking {@link UnaryCache}
+     * 
+     * @return
+     */
+    public UnaryCache<V> synchronous();
+}
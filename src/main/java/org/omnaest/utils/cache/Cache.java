@@ -36,18 +36,32 @@ package org.omnaest.utils.cache;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import org.omnaest.utils.CacheUtils;
 import org.omnaest.utils.CollectorUtils;
 import org.omnaest.utils.MapUtils;
+import org.omnaest.utils.cache.internal.AsyncCacheAdapter;
+import org.omnaest.utils.cache.internal.CacheExecutors;
 import org.omnaest.utils.cache.internal.DurationLimitedCache;
+import org.omnaest.utils.cache.internal.SingleFlightCacheDecorator;
+import org.omnaest.utils.cache.internal.StatsRecordingCacheDecorator;
 import org.omnaest.utils.cache.internal.capacity.EvictionStrategyHandler;
+import org.omnaest.utils.cache.internal.capacity.LeastFrequentlyUsedEvictionStrategy;
+import org.omnaest.utils.cache.internal.capacity.LeastRecentlyUsedEvictionStrategy;
 import org.omnaest.utils.cache.internal.capacity.RandomEvictionStrategy;
+import org.omnaest.utils.cache.internal.capacity.WindowTinyLfuEvictionStrategy;
 import org.omnaest.utils.duration.TimeDuration;
 import org.omnaest.utils.element.bi.BiElement;
 
@@ -114,8 +128,45 @@ public interface Cache extends CacheBase
     }
 
     /**
-     * Returns a new {@link Cache} instance with a capacity limit and a random element eviction strategy
+     * Returns the values of all given keys. All keys which are not present in the {@link Cache} are loaded with a single call of the given bulk loader
+     * {@link Function} and stored in the {@link Cache}. Keys without a value in the result of the bulk loader are not part of the returned {@link Map}.
      * 
+     * @param keys
+     * @param bulkLoader
+     * @param type
+     * @return
+     */
+    public default <V> Map<String, V> computeAllIfAbsent(Collection<String> keys, Function<Set<String>, Map<String, V>> bulkLoader, Class<V> type)
+    {
+        Set<String> distinctKeys = Optional.ofNullable(keys)
+                                           .orElse(Collections.emptyList())
+                                           .stream()
+                                           .filter(Objects::nonNull)
+                                           .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, V> keyToValue = new HashMap<>(this.get(type, distinctKeys));
+        Set<String> missingKeys = distinctKeys.stream()
+                                              .filter(key -> !keyToValue.containsKey(key))
+                                              .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (!missingKeys.isEmpty())
+        {
+            Map<String, V> loadedKeyToValue = Optional.ofNullable(bulkLoader.apply(Collections.unmodifiableSet(missingKeys)))
+                                                      .orElse(Collections.emptyMap())
+                                                      .entrySet()
+                                                      .stream()
+                                                      .filter(entry -> missingKeys.contains(entry.getKey()) && entry.getValue() != null)
+                                                      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            this.putAll(loadedKeyToValue);
+            keyToValue.putAll(loadedKeyToValue);
+        }
+        return distinctKeys.stream()
+                           .filter(keyToValue::containsKey)
+                           .collect(Collectors.toMap(key -> key, keyToValue::get, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Returns a new {@link Cache} instance with a capacity limit and the given {@link EvictionStrategy}
+     * 
+     * @see EvictionStrategy
      * @param capacity
      * @param evictionStrategy
      * @return
@@ -152,33 +203,127 @@ public interface Cache extends CacheBase
     /**
      * Returns a {@link Cache} where the entries are evicted on read after the given {@link TimeDuration}
      * 
+     * @see #asExpiringCache(TimeDuration)
      * @param timeDuration
      * @return
      */
     public default Cache asDurationLimitedCache(TimeDuration timeDuration)
+    {
+        return this.asExpiringCache(timeDuration);
+    }
+
+    /**
+     * Returns an {@link ExpiringCache} where the entries are evicted on read after the given {@link TimeDuration}, which can be configured further
+     * 
+     * @see ExpiringCache#withProactiveExpiry(TimeDuration)
+     * @see ExpiringCache#withRefreshAfterWrite(TimeDuration)
+     * @param timeDuration
+     * @return
+     */
+    public default ExpiringCache asExpiringCache(TimeDuration timeDuration)
     {
         return new DurationLimitedCache(this, timeDuration);
     }
 
+    /**
+     * Returns a {@link Cache} where concurrent {@link #computeIfAbsent(String, Supplier, Class)} calls for the same key execute the {@link Supplier} only once
+     * and all other callers wait for its result
+     * 
+     * @return
+     */
+    public default Cache asSingleFlightCache()
+    {
+        return new SingleFlightCacheDecorator(this);
+    }
+
+    /**
+     * Returns an {@link AsyncCache} view on this {@link Cache}. The operations are executed on virtual threads, if the runtime supports them, otherwise on
+     * a shared pool of daemon threads.
+     * <br>
+     * <br>
+     * Every call returns a new view. Concurrent loads of {@link AsyncCache#computeIfAbsentAsync(String, Function, Class)} are only shared within a single
+     * view, so the view should be kept instead of being created per call.
+     * 
+     * @see #asAsyncCache(Executor)
+     * @return
+     */
+    public default AsyncCache asAsyncCache()
+    {
+        return this.asAsyncCache(CacheExecutors.getAsyncIOExecutor());
+    }
+
+    /**
+     * Returns an {@link AsyncCache} view on this {@link Cache} which executes all operations with the given {@link Executor}
+     * 
+     * @param executor
+     * @return
+     */
+    public default AsyncCache asAsyncCache(Executor executor)
+    {
+        return new AsyncCacheAdapter(this, executor);
+    }
+
+    /**
+     * Returns the {@link CacheStats} of this {@link Cache}. Caches which do not record statistics return {@link CacheStats#empty()}.
+     * 
+     * @see #asStatsRecordingCache()
+     * @return
+     */
+    public default CacheStats getStats()
+    {
+        return CacheStats.empty();
+    }
+
+    /**
+     * Returns a {@link Cache} which records hits, misses, loads and operation latencies into its {@link #getStats()}
+     * 
+     * @return
+     */
+    public default Cache asStatsRecordingCache()
+    {
+        return new StatsRecordingCacheDecorator(this);
+    }
+
     public static interface EvictionStrategyProvider extends Supplier<EvictionStrategyHandler>
     {
     }
 
+    /**
+     * Available {@link EvictionStrategyHandler}s. Each call of {@link #get()} returns a new handler instance, since the handlers track the accesses of a
+     * single cache.
+     * 
+     * @author omnaest
+     */
     public static enum EvictionStrategy implements EvictionStrategyProvider
     {
-        RANDOM(new RandomEvictionStrategy());
+        RANDOM(RandomEvictionStrategy::new),
+
+        /**
+         * Evicts the least recently used keys first
+         */
+        LRU(LeastRecentlyUsedEvictionStrategy::new),
+
+        /**
+         * Evicts the least frequently used keys first
+         */
+        LFU(LeastFrequentlyUsedEvictionStrategy::new),
+
+        /**
+         * Frequency sketch based W-TinyLFU admission and eviction
+         */
+        W_TINY_LFU(WindowTinyLfuEvictionStrategy::new);
 
-        private EvictionStrategyHandler handler;
+        private Supplier<EvictionStrategyHandler> handlerFactory;
 
-        private EvictionStrategy(EvictionStrategyHandler handler)
+        private EvictionStrategy(Supplier<EvictionStrategyHandler> handlerFactory)
         {
-            this.handler = handler;
+            this.handlerFactory = handlerFactory;
         }
 
         @Override
         public EvictionStrategyHandler get()
         {
-            return this.handler;
+            return this.handlerFactory.get();
         }
 
     }
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.duration.TimeDuration;
+
+/**
+ * Immutable snapshot of the statistics of a {@link Cache}
+ * <br>
+ * <br>
+ * Statistics are recorded by {@link Cache#asStatsRecordingCache()} and natively by some cache implementations, e.g. the capacity limited and duration
+ * limited caches. File based caches record the number of bytes they read and write.
+ * 
+ * @see Cache#getStats()
+ * @see UnaryCache#getStats()
+ * @author omnaest
+ */
+public class CacheStats
+{
+    private static final CacheStats          EMPTY = new CacheStats(0, 0, 0, 0, 0, 0, 0, 0, Collections.emptyMap());
+
+    private long                             hitCount;
+    private long                             missCount;
+    private long                             loadSuccessCount;
+    private long                             loadFailureCount;
+    private long                             totalLoadTimeInNanos;
+    private long                             evictionCount;
+    private long                             bytesRead;
+    private long                             bytesWritten;
+    private Map<Operation, LatencyHistogram> operationToLatencyHistogram;
+
+    /**
+     * Cache operations with a recorded {@link LatencyHistogram}
+     * 
+     * @author omnaest
+     */
+    public static enum Operation
+    {
+        GET, PUT, COMPUTE, REMOVE
+    }
+
+    public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTimeInNanos, long evictionCount,
+                      long bytesRead, long bytesWritten, Map<Operation, LatencyHistogram> operationToLatencyHistogram)
+    {
+        super();
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTimeInNanos = totalLoadTimeInNanos;
+        this.evictionCount = evictionCount;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.operationToLatencyHistogram = operationToLatencyHistogram.isEmpty() ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new EnumMap<>(operationToLatencyHistogram));
+    }
+
+    public static CacheStats empty()
+    {
+        return EMPTY;
+    }
+
+    public long getHitCount()
+    {
+        return this.hitCount;
+    }
+
+    public long getMissCount()
+    {
+        return this.missCount;
+    }
+
+    public long getRequestCount()
+    {
+        return this.hitCount + this.missCount;
+    }
+
+    /**
+     * Returns the ratio of hits to all requests or 1.0 if there were no requests
+     * 
+     * @return
+     */
+    public double getHitRatio()
+    {
+        long requestCount = this.getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+
+    public long getLoadSuccessCount()
+    {
+        return this.loadSuccessCount;
+    }
+
+    public long getLoadFailureCount()
+    {
+        return this.loadFailureCount;
+    }
+
+    public long getLoadCount()
+    {
+        return this.loadSuccessCount + this.loadFailureCount;
+    }
+
+    public TimeDuration getTotalLoadTime()
+    {
+        return TimeDuration.of(this.totalLoadTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the average time spent to load a new value
+     * 
+     * @return
+     */
+    public TimeDuration getAverageLoadPenalty()
+    {
+        long loadCount = this.getLoadCount();
+        return TimeDuration.of(loadCount == 0 ? 0 : this.totalLoadTimeInNanos / loadCount, TimeUnit.NANOSECONDS);
+    }
+
+    public long getEvictionCount()
+    {
+        return this.evictionCount;
+    }
+
+    public long getBytesRead()
+    {
+        return this.bytesRead;
+    }
+
+    public long getBytesWritten()
+    {
+        return this.bytesWritten;
+    }
+
+    public LatencyHistogram getLatencyHistogram(Operation operation)
+    {
+        return this.operationToLatencyHistogram.getOrDefault(operation, LatencyHistogram.empty());
+    }
+
+    private boolean hasRecordedRequests()
+    {
+        return this.getRequestCount() > 0 || this.getLoadCount() > 0 || !this.operationToLatencyHistogram.isEmpty();
+    }
+
+    /**
+     * Combines the statistics of a wrapping cache with the statistics of the wrapped cache. Requests are counted by every layer, so the hits, misses,
+     * loads and latencies of the outermost layer which records them are used. Evictions and bytes are specific to each layer and are summed up.
+     * 
+     * @param wrappedCacheStats
+     * @return
+     */
+    public CacheStats combine(CacheStats wrappedCacheStats)
+    {
+        CacheStats requestStats = this.hasRecordedRequests() ? this : wrappedCacheStats;
+        return new CacheStats(requestStats.hitCount, requestStats.missCount, requestStats.loadSuccessCount, requestStats.loadFailureCount,
+                              requestStats.totalLoadTimeInNanos, this.evictionCount + wrappedCacheStats.evictionCount,
+                              this.bytesRead + wrappedCacheStats.bytesRead, this.bytesWritten + wrappedCacheStats.bytesWritten,
+                              requestStats.operationToLatencyHistogram);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheStats [hitCount=" + this.hitCount + ", missCount=" + this.missCount + ", loadSuccessCount=" + this.loadSuccessCount
+                + ", loadFailureCount=" + this.loadFailureCount + ", totalLoadTime=" + this.getTotalLoadTime() + ", evictionCount=" + this.evictionCount
+                + ", bytesRead=" + this.bytesRead + ", bytesWritten=" + this.bytesWritten + ", operationToLatencyHistogram="
+                + this.operationToLatencyHistogram + "]";
+    }
+
+}
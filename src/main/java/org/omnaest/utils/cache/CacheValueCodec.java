@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import org.omnaest.utils.cache.internal.offheap.BinaryCacheValueCodec;
+import org.omnaest.utils.cache.internal.offheap.JsonCacheValueCodec;
+
+/**
+ * Encodes cache values into a byte representation and decodes them back into the requested type
+ * 
+ * @see StandardCacheValueCodec
+ * @author omnaest
+ */
+public interface CacheValueCodec
+{
+    public byte[] encode(Object value);
+
+    public <V> V decode(byte[] data, Class<V> type);
+
+    /**
+     * Available {@link CacheValueCodec}s
+     * 
+     * @author omnaest
+     */
+    public static enum StandardCacheValueCodec implements CacheValueCodec
+    {
+        /**
+         * Encodes all values as UTF-8 json
+         */
+        JSON(new JsonCacheValueCodec()),
+
+        /**
+         * Encodes {@link String}s, byte arrays, numbers and booleans natively and all other values as UTF-8 json
+         */
+        BINARY(new BinaryCacheValueCodec());
+
+        private CacheValueCodec codec;
+
+        private StandardCacheValueCodec(CacheValueCodec codec)
+        {
+            this.codec = codec;
+        }
+
+        @Override
+        public byte[] encode(Object value)
+        {
+            return this.codec.encode(value);
+        }
+
+        @Override
+        public <V> V decode(byte[] data, Class<V> type)
+        {
+            return this.codec.decode(data, type);
+        }
+    }
+}
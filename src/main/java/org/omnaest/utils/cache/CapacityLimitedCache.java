@@ -15,9 +15,76 @@
  ******************************************************************************/
 package org.omnaest.utils.cache;
 
+import java.nio.charset.StandardCharsets;
+
+import org.omnaest.utils.JSONHelper;
+
+/**
+ * {@link Cache} with a limit for the number of entries and optionally for the total weight of all entries
+ * 
+ * @see Cache#withCapacityLimit(int, EvictionStrategyProvider)
+ * @author omnaest
+ */
 public interface CapacityLimitedCache extends Cache
 {
     public CapacityLimitedCache withCapacityLimit(int capacity);
 
+    /**
+     * Limits the total weight of all entries, e.g. to a number of bytes using {@link Weigher#serializedJsonSize()}
+     * 
+     * @param maximumWeight
+     * @param weigher
+     * @return
+     * @throws UnsupportedOperationException
+     *             if the implementation does not support a weight limit
+     */
+    public default CapacityLimitedCache withWeightLimit(long maximumWeight, Weigher weigher)
+    {
+        throw new UnsupportedOperationException("Weight limit is not supported by " + this.getClass()
+                                                                                           .getName());
+    }
+
     public CapacityLimitedCache withEvictionRatio(double ratio);
+
+    /**
+     * Determines the weight of a single cache entry
+     * 
+     * @author omnaest
+     */
+    @FunctionalInterface
+    public static interface Weigher
+    {
+        public long weigh(String key, Object value);
+
+        /**
+         * Returns a {@link Weigher} which approximates the number of bytes of an entry by the size of its json representation. {@link String} and byte[]
+         * values are weighed by their raw size.
+         * 
+         * @return
+         */
+        public static Weigher serializedJsonSize()
+        {
+            return (key, value) ->
+            {
+                long keySize = key != null ? key.length() : 0;
+                if (value == null)
+                {
+                    return keySize;
+                }
+                else if (value instanceof byte[])
+                {
+                    return keySize + ((byte[]) value).length;
+                }
+                else if (value instanceof String)
+                {
+                    return keySize + ((String) value).getBytes(StandardCharsets.UTF_8).length;
+                }
+                else
+                {
+                    return keySize + JSONHelper.serialize(value, false)
+                                               .getBytes(StandardCharsets.UTF_8).length;
+                }
+            };
+        }
+    }
 }
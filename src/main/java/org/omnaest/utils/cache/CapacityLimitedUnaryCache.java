@@ -15,9 +15,25 @@
  ******************************************************************************/
 package org.omnaest.utils.cache;
 
+import org.omnaest.utils.cache.CapacityLimitedCache.Weigher;
+
 public interface CapacityLimitedUnaryCache<V> extends UnaryCache<V>
 {
     public CapacityLimitedUnaryCache<V> withCapacityLimit(int capacity);
 
+    /**
+     * @see CapacityLimitedCache#withWeightLimit(long, Weigher)
+     * @param maximumWeight
+     * @param weigher
+     * @return
+     * @throws UnsupportedOperationException
+     *             if the implementation does not support a weight limit
+     */
+    public default CapacityLimitedUnaryCache<V> withWeightLimit(long maximumWeight, Weigher weigher)
+    {
+        throw new UnsupportedOperationException("Weight limit is not supported by " + this.getClass()
+                                                                                           .getName());
+    }
+
     public CapacityLimitedUnaryCache<V> withEvictionRatio(double ratio);
 }
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import org.omnaest.utils.duration.TimeDuration;
+
+/**
+ * {@link Cache} which evicts its entries after a given {@link TimeDuration}
+ * 
+ * @see Cache#asExpiringCache(TimeDuration)
+ * @author omnaest
+ */
+public interface ExpiringCache extends Cache
+{
+    /**
+     * Activates the proactive expiry, where expired entries are removed from the underlying {@link Cache} in batches, instead of only being hidden on read.
+     * The expiry times are held in an in memory timer wheel, so {@link #size()}, {@link #isEmpty()} and {@link #keySet()} do not need to determine the
+     * age of every entry. The underlying {@link Cache} is scanned once on activation.
+     * <br>
+     * <br>
+     * The expired entries are removed during the cache operations and additionally by a background sweep in the given interval.
+     * 
+     * @param sweepInterval
+     * @return
+     */
+    public ExpiringCache withProactiveExpiry(TimeDuration sweepInterval);
+
+    /**
+     * Similar to {@link #withProactiveExpiry(TimeDuration)} but without a background sweep
+     * 
+     * @return
+     */
+    public ExpiringCache withProactiveExpiry();
+
+    /**
+     * Activates the refresh ahead mode. Entries which are older than the given refresh {@link TimeDuration} are still returned by
+     * {@link #computeIfAbsent(String, Supplier, Class)}, but their {@link Supplier} is additionally executed asynchronously by the given {@link Executor} to
+     * reload the value. Concurrent refreshes of the same key are executed only once.
+     * <br>
+     * <br>
+     * The {@link TimeDuration} of the {@link ExpiringCache} itself stays the hard expiry. Entries older than that are computed synchronously again, like
+     * without the refresh ahead mode.
+     * 
+     * @param refreshAfterWrite
+     *            should be smaller than the hard expiry
+     * @param executor
+     * @return
+     */
+    public ExpiringCache withRefreshAfterWrite(TimeDuration refreshAfterWrite, Executor executor);
+
+    /**
+     * Similar to {@link #withRefreshAfterWrite(TimeDuration, Executor)} using a shared executor of daemon threads
+     * 
+     * @param refreshAfterWrite
+     * @return
+     */
+    public ExpiringCache withRefreshAfterWrite(TimeDuration refreshAfterWrite);
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.omnaest.utils.duration.TimeDuration;
+
+/**
+ * Immutable snapshot of the latency distribution of a single cache operation.
+ * <br>
+ * <br>
+ * The latencies are counted in buckets with power of two nanosecond boundaries, so percentiles are accurate up to a factor of two.
+ * 
+ * @see CacheStats#getLatencyHistogram(CacheStats.Operation)
+ * @author omnaest
+ */
+public class LatencyHistogram
+{
+    public static final int               NUMBER_OF_BUCKETS = 64;
+
+    private static final LatencyHistogram EMPTY             = new LatencyHistogram(new long[NUMBER_OF_BUCKETS], 0);
+
+    private long[]                        bucketCounts;
+    private long                          count;
+    private long                          totalTimeInNanos;
+
+    /**
+     * @param bucketCounts
+     *            the number of latencies per bucket, where bucket i contains all latencies smaller than 2^i nanoseconds and not smaller than 2^(i-1)
+     * @param totalTimeInNanos
+     */
+    public LatencyHistogram(long[] bucketCounts, long totalTimeInNanos)
+    {
+        super();
+        this.bucketCounts = Arrays.copyOf(bucketCounts, NUMBER_OF_BUCKETS);
+        this.count = Arrays.stream(this.bucketCounts)
+                           .sum();
+        this.totalTimeInNanos = totalTimeInNanos;
+    }
+
+    public static LatencyHistogram empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the bucket index of the given latency
+     * 
+     * @param latencyInNanos
+     * @return
+     */
+    public static int determineBucketIndex(long latencyInNanos)
+    {
+        return latencyInNanos <= 0 ? 0 : Math.min(NUMBER_OF_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(latencyInNanos));
+    }
+
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    public TimeDuration getTotalTime()
+    {
+        return TimeDuration.of(this.totalTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public TimeDuration getMean()
+    {
+        return TimeDuration.of(this.count > 0 ? this.totalTimeInNanos / this.count : 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the upper bound of the latency bucket which contains the given percentile
+     * 
+     * @param percentile
+     *            between 0.0 and 1.0, e.g. 0.99
+     * @return
+     */
+    public TimeDuration getPercentile(double percentile)
+    {
+        long threshold = (long) Math.ceil(Math.max(0.0, Math.min(1.0, percentile)) * this.count);
+        long cumulatedCount = 0;
+        for (int bucketIndex = 0; bucketIndex < NUMBER_OF_BUCKETS; bucketIndex++)
+        {
+            cumulatedCount += this.bucketCounts[bucketIndex];
+            if (cumulatedCount >= threshold && cumulatedCount > 0)
+            {
+                return TimeDuration.of(bucketIndex >= 63 ? Long.MAX_VALUE : 1L << bucketIndex, TimeUnit.NANOSECONDS);
+            }
+        }
+        return TimeDuration.of(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns a new {@link LatencyHistogram} with the latencies of this and the given {@link LatencyHistogram}
+     * 
+     * @param other
+     * @return
+     */
+    public LatencyHistogram plus(LatencyHistogram other)
+    {
+        long[] bucketCounts = new long[NUMBER_OF_BUCKETS];
+        for (int bucketIndex = 0; bucketIndex < NUMBER_OF_BUCKETS; bucketIndex++)
+        {
+            bucketCounts[bucketIndex] = this.bucketCounts[bucketIndex] + other.bucketCounts[bucketIndex];
+        }
+        return new LatencyHistogram(bucketCounts, this.totalTimeInNanos + other.totalTimeInNanos);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LatencyHistogram [count=" + this.count + ", mean=" + this.getMean() + ", p50=" + this.getPercentile(0.5) + ", p99=" + this.getPercentile(0.99)
+                + "]";
+    }
+
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link PrimitiveUnaryCache} for {@link Long} values, which offers allocation free access to the native long values.
+ * 
+ * @author omnaest
+ */
+public interface LongCache extends PrimitiveUnaryCache<Long>
+{
+    /**
+     * Returns the long value of the given key or the given default value, if the key is not present
+     * 
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    public long getLong(String key, long defaultValue);
+
+    public void putLong(String key, long value);
+
+    /**
+     * Adds the given delta to the value of the given key and returns the new value. An absent key is handled like a present key with value 0.
+     * 
+     * @param key
+     * @param delta
+     * @return
+     */
+    public long addAndGet(String key, long delta);
+
+    /**
+     * Returns the long value of the given key, if the key is absent the given mapping {@link ToLongFunction} is called once and its result is stored.
+     * 
+     * @param key
+     * @param mappingFunction
+     * @return
+     */
+    public long computeLongIfAbsent(String key, ToLongFunction<String> mappingFunction);
+
+    @Override
+    public LongCache withTimestamps(boolean active);
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache;
+
+import org.omnaest.utils.duration.TimeDuration;
+
+/**
+ * {@link UnaryCache} which stores its values as primitives within open addressing arrays instead of boxed instances.
+ * 
+ * @see LongCache
+ * @see IntCache
+ * @see DoubleCache
+ * @author omnaest
+ * @param <V>
+ */
+public interface PrimitiveUnaryCache<V> extends UnaryCache<V>
+{
+    public boolean contains(String key);
+
+    /**
+     * Returns the {@link TimeDuration} since the last write of the given key or null, if the key is not present or no timestamps are recorded
+     * 
+     * @see #withTimestamps(boolean)
+     * @param key
+     * @return
+     */
+    public TimeDuration getAge(String key);
+
+    /**
+     * Enables or disables the recording of the last write timestamp of each key. The timestamps are held within a parallel primitive array, which is only
+     * allocated if active. Default is inactive.
+     * 
+     * @param active
+     * @return
+     */
+    public PrimitiveUnaryCache<V> withTimestamps(boolean active);
+}
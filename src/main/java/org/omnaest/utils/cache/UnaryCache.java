@@ -36,8 +36,12 @@ package org.omnaest.utils.cache;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
@@ -48,6 +52,9 @@ import org.omnaest.utils.CacheUtils;
 import org.omnaest.utils.MapUtils;
 import org.omnaest.utils.cache.Cache.EvictionStrategyProvider;
 import org.omnaest.utils.cache.UnaryCache.Entry;
+import org.omnaest.utils.cache.internal.AsyncUnaryCacheAdapter;
+import org.omnaest.utils.cache.internal.CacheExecutors;
+import org.omnaest.utils.cache.internal.StatsRecordingUnaryCacheDecorator;
 import org.omnaest.utils.map.CRUDMap;
 
 /**
@@ -82,6 +89,36 @@ public interface UnaryCache<V> extends CacheBase, Iterable<Entry<V>>, Function<S
      */
     public V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction);
 
+    /**
+     * Returns the values of all given keys, where all absent keys are loaded with a single call of the given bulk loader {@link Function}
+     * 
+     * @see Cache#computeAllIfAbsent(Collection, Function, Class)
+     * @param keys
+     * @param bulkLoader
+     * @return
+     */
+    public default Map<String, V> computeAllIfAbsent(Collection<String> keys, Function<Set<String>, Map<String, V>> bulkLoader)
+    {
+        Map<String, V> keyToValue = new LinkedHashMap<>(this.get(keys));
+        Set<String> missingKeys = Optional.ofNullable(keys)
+                                          .orElse(Collections.emptyList())
+                                          .stream()
+                                          .filter(key -> key != null && !keyToValue.containsKey(key))
+                                          .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (!missingKeys.isEmpty())
+        {
+            Map<String, V> loadedKeyToValue = Optional.ofNullable(bulkLoader.apply(Collections.unmodifiableSet(missingKeys)))
+                                                      .orElse(Collections.emptyMap())
+                                                      .entrySet()
+                                                      .stream()
+                                                      .filter(entry -> missingKeys.contains(entry.getKey()) && entry.getValue() != null)
+                                                      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            this.putAll(loadedKeyToValue);
+            keyToValue.putAll(loadedKeyToValue);
+        }
+        return keyToValue;
+    }
+
     public default V computeIfAbsent(String key, Function<String, V> supplierFunction)
     {
         return this.computeIfAbsent(key, () -> supplierFunction.apply(key));
@@ -120,7 +157,7 @@ public interface UnaryCache<V> extends CacheBase, Iterable<Entry<V>>, Function<S
     }
 
     /**
-     * Returns a new {@link Cache} instance with a capacity limit and a random element eviction strategy
+     * Returns a new {@link Cache} instance with a capacity limit and the given {@link EvictionStrategyProvider}
      * 
      * @param capacity
      * @param evictionStrategy
@@ -144,6 +181,49 @@ public interface UnaryCache<V> extends CacheBase, Iterable<Entry<V>>, Function<S
         return key -> this.computeIfAbsent(key, supplierFunction);
     }
 
+    /**
+     * Returns an {@link AsyncUnaryCache} view on this {@link UnaryCache}
+     * 
+     * @see Cache#asAsyncCache()
+     * @return
+     */
+    public default AsyncUnaryCache<V> asAsyncUnaryCache()
+    {
+        return this.asAsyncUnaryCache(CacheExecutors.getAsyncIOExecutor());
+    }
+
+    /**
+     * Returns an {@link AsyncUnaryCache} view on this {@link UnaryCache} which executes all operations with the given {@link Executor}
+     * 
+     * @param executor
+     * @return
+     */
+    public default AsyncUnaryCache<V> asAsyncUnaryCache(Executor executor)
+    {
+        return new AsyncUnaryCacheAdapter<>(this, executor);
+    }
+
+    /**
+     * Returns the {@link CacheStats} of this {@link UnaryCache}
+     * 
+     * @see Cache#getStats()
+     * @return
+     */
+    public default CacheStats getStats()
+    {
+        return CacheStats.empty();
+    }
+
+    /**
+     * Returns an {@link UnaryCache} which records hits, misses, loads and operation latencies into its {@link #getStats()}
+     * 
+     * @return
+     */
+    public default UnaryCache<V> asStatsRecordingCache()
+    {
+        return new StatsRecordingUnaryCacheDecorator<>(this);
+    }
+
     public static interface Entry<V>
     {
         public String getKey();
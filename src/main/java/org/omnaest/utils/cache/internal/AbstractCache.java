@@ -40,6 +40,8 @@ import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
 import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.CacheStats;
+import org.omnaest.utils.cache.internal.stats.StatsCounter;
 
 /**
  * @see Cache
@@ -48,6 +50,9 @@ import org.omnaest.utils.cache.Cache;
  */
 public abstract class AbstractCache implements Cache
 {
+    protected SingleFlight singleFlight = new SingleFlight();
+    protected StatsCounter statsCounter = new StatsCounter();
+
     @Override
     public <V> Supplier<V> getSupplier(String key, Class<V> type)
     {
@@ -96,18 +101,27 @@ public abstract class AbstractCache implements Cache
     @Override
     public <V> V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction, Class<V> type)
     {
-        AtomicBoolean supplied = new AtomicBoolean(false);
-        V result = this.computeIfAbsent(key, () ->
-        {
-            supplied.set(true);
-            return supplier.get();
-        }, type);
-        if (!supplied.get())
+        return this.singleFlight.executeExclusively(key, () ->
         {
-            result = updateFunction.apply(result);
-            this.put(key, result);
-        }
-        return result;
+            AtomicBoolean supplied = new AtomicBoolean(false);
+            V result = this.computeIfAbsent(key, () ->
+            {
+                supplied.set(true);
+                return supplier.get();
+            }, type);
+            if (!supplied.get())
+            {
+                result = updateFunction.apply(result);
+                this.put(key, result);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public CacheStats getStats()
+    {
+        return this.statsCounter.snapshot();
     }
 
     @Override
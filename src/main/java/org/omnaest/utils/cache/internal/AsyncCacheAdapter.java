@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import org.omnaest.utils.cache.AsyncCache;
+import org.omnaest.utils.cache.AsyncUnaryCache;
+import org.omnaest.utils.cache.Cache;
+
+/**
+ * {@link AsyncCache} which executes the operations of a blocking {@link Cache} with an {@link Executor}
+ * 
+ * @author omnaest
+ */
+public class AsyncCacheAdapter implements AsyncCache
+{
+    private Cache            cache;
+    private AsyncCacheLoader loader;
+
+    public AsyncCacheAdapter(Cache cache, Executor executor)
+    {
+        super();
+        this.cache = cache;
+        this.loader = new AsyncCacheLoader(executor);
+    }
+
+    private Executor getExecutor()
+    {
+        return this.loader.getExecutor();
+    }
+
+    @Override
+    public <V> CompletableFuture<V> getAsync(String key, Class<V> type)
+    {
+        return CompletableFuture.supplyAsync(() -> this.cache.get(key, type), this.getExecutor());
+    }
+
+    @Override
+    public <V> CompletableFuture<Map<String, V>> getAllAsync(Class<V> type, Collection<String> keys)
+    {
+        return CompletableFuture.supplyAsync(() -> this.cache.get(type, keys), this.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> containsAsync(String key)
+    {
+        return CompletableFuture.supplyAsync(() -> this.cache.contains(key), this.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(String key, Object value)
+    {
+        return CompletableFuture.runAsync(() -> this.cache.put(key, value), this.getExecutor());
+    }
+
+    @Override
+    public <V> CompletableFuture<Void> putAllAsync(Map<String, V> map)
+    {
+        return CompletableFuture.runAsync(() -> this.cache.putAll(map), this.getExecutor());
+    }
+
+    @Override
+    public <V> CompletableFuture<V> computeIfAbsentAsync(String key, Function<String, CompletableFuture<V>> mappingFunction, Class<V> type)
+    {
+        return this.loader.load(key, () -> this.cache.get(key, type), mappingFunction, value -> this.cache.computeIfAbsent(key, () -> value, type));
+    }
+
+    @Override
+    public <V> CompletableFuture<Map<String, V>> computeAllIfAbsentAsync(Collection<String> keys, Function<String, CompletableFuture<V>> mappingFunction,
+                                                                         Class<V> type)
+    {
+        return AsyncCacheLoader.loadAll(keys, key -> this.computeIfAbsentAsync(key, mappingFunction, type));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(String key)
+    {
+        return CompletableFuture.runAsync(() -> this.cache.remove(key), this.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAllAsync(Iterable<String> keys)
+    {
+        return CompletableFuture.runAsync(() -> this.cache.removeAll(keys), this.getExecutor());
+    }
+
+    @Override
+    public <V> AsyncUnaryCache<V> asAsyncUnaryCache(Class<V> type)
+    {
+        return new AsyncUnaryCacheAdapter<>(this.cache.asUnaryCache(type), this.getExecutor());
+    }
+
+    @Override
+    public Cache synchronous()
+    {
+        return this.cache;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AsyncCacheAdapter [cache=" + this.cache + "]";
+    }
+
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Executes asynchronous loads of cache values, where concurrent loads of the same key share a single {@link CompletableFuture}. The running loads are
+ * tracked per loader instance, so only calls through the same asynchronous view share a load.
+ * 
+ * @author omnaest
+ */
+public class AsyncCacheLoader
+{
+    private Executor                          executor;
+    private Map<String, CompletableFuture<?>> keyToLoad = new ConcurrentHashMap<>();
+
+    public AsyncCacheLoader(Executor executor)
+    {
+        super();
+        this.executor = executor;
+    }
+
+    /**
+     * Reads the value with the given reader and if it is absent, loads it with the given mapping {@link Function} and stores it with the given writer. The
+     * writer returns the value which is finally present in the cache.
+     * 
+     * @param key
+     * @param reader
+     * @param mappingFunction
+     * @param writer
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> load(String key, Supplier<V> reader, Function<String, CompletableFuture<V>> mappingFunction, UnaryOperator<V> writer)
+    {
+        if (key == null)
+        {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existingLoad = (CompletableFuture<V>) this.keyToLoad.putIfAbsent(key, load);
+        if (existingLoad != null)
+        {
+            return existingLoad;
+        }
+
+        CompletableFuture.supplyAsync(reader, this.executor)
+                         .thenCompose(value -> value != null ? CompletableFuture.completedFuture(value)
+                                 : mappingFunction.apply(key)
+                                                  .thenApplyAsync(loadedValue -> loadedValue != null ? writer.apply(loadedValue) : null, this.executor))
+                         .whenComplete((value, exception) ->
+                         {
+                             this.keyToLoad.remove(key, load);
+                             if (exception != null)
+                             {
+                                 // the stages of thenCompose wrap the failure of the mapping function into a CompletionException
+                                 load.completeExceptionally(exception instanceof CompletionException && exception.getCause() != null ? exception.getCause()
+                                         : exception);
+                             }
+                             else
+                             {
+                                 load.complete(value);
+                             }
+                         });
+        return load;
+    }
+
+    /**
+     * Combines the given loads into a single {@link Map} of all non null values
+     * 
+     * @param keys
+     * @param loadFunction
+     * @return
+     */
+    public static <V> CompletableFuture<Map<String, V>> loadAll(Collection<String> keys, Function<String, CompletableFuture<V>> loadFunction)
+    {
+        Map<String, CompletableFuture<V>> keyToLoad = keys.stream()
+                                                          .distinct()
+                                                          .collect(Collectors.toMap(key -> key, loadFunction, (a, b) -> a, LinkedHashMap::new));
+        List<CompletableFuture<V>> loads = keyToLoad.values()
+                                                    .stream()
+                                                    .collect(Collectors.toList());
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture[loads.size()]))
+                                .thenApply(nothing ->
+                                {
+                                    Map<String, V> result = new LinkedHashMap<>();
+                                    keyToLoad.forEach((key, load) ->
+                                    {
+                                        V value = load.join();
+                                        if (value != null)
+                                        {
+                                            result.put(key, value);
+                                        }
+                                    });
+                                    return result;
+                                });
+    }
+
+    public Executor getExecutor()
+    {
+        return this.executor;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import org.omnaest.utils.cache.AsyncUnaryCache;
+import org.omnaest.utils.cache.UnaryCache;
+
+/**
+ * {@link AsyncUnaryCache} which executes the operations of a blocking {@link UnaryCache} with an {@link Executor}
+ * 
+ * @author omnaest
+ * @param <V>
+ */
+public class AsyncUnaryCacheAdapter<V> implements AsyncUnaryCache<V>
+{
+    private UnaryCache<V>    cache;
+    private AsyncCacheLoader loader;
+
+    public AsyncUnaryCacheAdapter(UnaryCache<V> cache, Executor executor)
+    {
+        super();
+        this.cache = cache;
+        this.loader = new AsyncCacheLoader(executor);
+    }
+
+    private Executor getExecutor()
+    {
+        return this.loader.getExecutor();
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(String key)
+    {
+        return CompletableFuture.supplyAsync(() -> this.cache.get(key), this.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Map<String, V>> getAllAsync(Collection<String> keys)
+    {
+        return CompletableFuture.supplyAsync(() -> this.cache.get(keys), this.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(String key, V value)
+    {
+        return CompletableFuture.runAsync(() -> this.cache.put(key, value), this.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> putAllAsync(Map<String, V> map)
+    {
+        return CompletableFuture.runAsync(() -> this.cache.putAll(map), this.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<V> computeIfAbsentAsync(String key, Function<String, CompletableFuture<V>> mappingFunction)
+    {
+        return this.loader.load(key, () -> this.cache.get(key), mappingFunction, value -> this.cache.computeIfAbsent(key, () -> value));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, V>> computeAllIfAbsentAsync(Collection<String> keys, Function<String, CompletableFuture<V>> mappingFunction)
+    {
+        return AsyncCacheLoader.loadAll(keys, key -> this.computeIfAbsentAsync(key, mappingFunction));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(String key)
+    {
+        return CompletableFuture.runAsync(() -> this.cache.remove(key), this.getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAllAsync(Iterable<String> keys)
+    {
+        return CompletableFuture.runAsync(() -> this.cache.removeAll(keys), this.getExecutor());
+    }
+
+    @Override
+    public UnaryCache<V> synchronous()
+    {
+        return this.cache;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AsyncUnaryCacheAdapter [cache=" + this.cache + "]";
+    }
+
+}
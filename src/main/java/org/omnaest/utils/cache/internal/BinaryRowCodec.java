@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.omnaest.utils.cache.CacheValueCodec.StandardCacheValueCodec;
+import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache.DataMap.Content;
+import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache.RowCodec;
+
+/**
+ * Versioned binary {@link RowCodec} of the {@link RandomAccessLogarithmicBlockFileStorageCache}. A row starts with the {@link #MAGIC} byte and the
+ * format version, followed by the table of the type names used within the row and the entries. Every entry consists of the length prefixed UTF-8 key,
+ * the index of its type within the type table, the modification time as epoch millis and the length prefixed value bytes of the
+ * {@link StandardCacheValueCodec#BINARY} codec. All lengths and indexes are written as variable length integers.
+ * <br>
+ * <br>
+ * The value bytes are decoded not before a value is requested, and unchanged values are written back without encoding them again.
+ * 
+ * @author omnaest
+ */
+public class BinaryRowCodec implements RowCodec
+{
+    /**
+     * First byte of every binary row, which never starts a json document
+     */
+    public static final byte  MAGIC     = (byte) 0xB1;
+
+    private static final byte VERSION_1 = 1;
+    private static final long NO_DATE   = Long.MIN_VALUE;
+
+    public static boolean isBinary(ByteBuffer buffer)
+    {
+        return buffer.hasRemaining() && buffer.get(buffer.position()) == MAGIC;
+    }
+
+    @Override
+    public boolean isEncodingOf(ByteBuffer buffer)
+    {
+        return isBinary(buffer);
+    }
+
+    @Override
+    public byte[] encode(Map<String, Content> keyToContent)
+    {
+        Map<String, Integer> typeToIndex = new LinkedHashMap<>();
+        keyToContent.values()
+                    .forEach(content -> typeToIndex.putIfAbsent(content.getType(), typeToIndex.size()));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(MAGIC);
+        outputStream.write(VERSION_1);
+        writeVarInt(outputStream, typeToIndex.size());
+        typeToIndex.keySet()
+                   .forEach(type -> writeBytes(outputStream, type.getBytes(StandardCharsets.UTF_8)));
+        writeVarInt(outputStream, keyToContent.size());
+        keyToContent.forEach((key, content) ->
+        {
+            writeBytes(outputStream, key.getBytes(StandardCharsets.UTF_8));
+            writeVarInt(outputStream, typeToIndex.get(content.getType()));
+            writeLong(outputStream, content.getModifiedDate() != null ? content.getModifiedDate()
+                                                                               .getTime()
+                    : NO_DATE);
+            writeBytes(outputStream, content.getEncodedElement() != null ? content.getEncodedElement()
+                    : StandardCacheValueCodec.BINARY.encode(content.getElement()));
+        });
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public Map<String, Content> decode(ByteBuffer buffer)
+    {
+        ByteBuffer data = buffer.duplicate();
+        if (data.get() != MAGIC)
+        {
+            throw new IllegalStateException("Row is not binary encoded");
+        }
+        byte version = data.get();
+        if (version != VERSION_1)
+        {
+            throw new IllegalStateException("Unsupported binary row format version: " + version);
+        }
+
+        String[] types = new String[readVarInt(data)];
+        for (int ii = 0; ii < types.length; ii++)
+        {
+            types[ii] = new String(readBytes(data), StandardCharsets.UTF_8);
+        }
+
+        int numberOfEntries = readVarInt(data);
+        Map<String, Content> keyToContent = new LinkedHashMap<>(numberOfEntries * 4 / 3 + 1);
+        for (int ii = 0; ii < numberOfEntries; ii++)
+        {
+            String key = new String(readBytes(data), StandardCharsets.UTF_8);
+            String type = types[readVarInt(data)];
+            long modifiedDate = data.getLong();
+            byte[] encodedElement = readBytes(data);
+            keyToContent.put(key, Content.ofEncodedElement(encodedElement, type, modifiedDate != NO_DATE ? new Date(modifiedDate) : null));
+        }
+        return keyToContent;
+    }
+
+    private static void writeBytes(ByteArrayOutputStream outputStream, byte[] bytes)
+    {
+        writeVarInt(outputStream, bytes.length);
+        outputStream.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] readBytes(ByteBuffer data)
+    {
+        byte[] bytes = new byte[readVarInt(data)];
+        data.get(bytes);
+        return bytes;
+    }
+
+    private static void writeLong(ByteArrayOutputStream outputStream, long value)
+    {
+        for (int shift = 56; shift >= 0; shift -= 8)
+        {
+            outputStream.write((int) (value >>> shift));
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream outputStream, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            outputStream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        outputStream.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer data)
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7)
+        {
+            byte current = data.get();
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed variable length integer");
+    }
+}
@@ -15,12 +15,14 @@
  ******************************************************************************/
 package org.omnaest.utils.cache.internal;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
 import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.CacheStats;
 import org.omnaest.utils.duration.TimeDuration;
 
 /**
@@ -55,6 +57,12 @@ public class CacheDecorator implements Cache
         return this.cache.get(key, type);
     }
 
+    @Override
+    public <V> Map<String, V> get(Class<V> type, Collection<String> keys)
+    {
+        return this.cache.get(type, keys);
+    }
+
     @Override
     public <V> Class<V> getType(String key)
     {
@@ -127,6 +135,12 @@ public class CacheDecorator implements Cache
         return this.cache.getAge(key);
     }
 
+    @Override
+    public CacheStats getStats()
+    {
+        return this.cache.getStats();
+    }
+
     @Override
     public String toString()
     {
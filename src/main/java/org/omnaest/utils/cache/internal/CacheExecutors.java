@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared daemon threads for background tasks of the cache implementations, like expiry sweeps or flushes
+ * 
+ * @author omnaest
+ */
+public class CacheExecutors
+{
+    private static final Logger                   LOG       = LoggerFactory.getLogger(CacheExecutors.class);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(1, newDaemonThreadFactory("cache-scheduler"));
+    private static final ExecutorService          WORKERS   = Executors.newCachedThreadPool(newDaemonThreadFactory("cache-worker"));
+    private static final ExecutorService          ASYNC_IO  = newAsyncIOExecutor();
+
+    private CacheExecutors()
+    {
+        super();
+    }
+
+    /**
+     * Returns the shared {@link ScheduledExecutorService} of all cache instances. Tasks should be short, long running tasks should be handed over to another
+     * executor.
+     * 
+     * @return
+     */
+    public static ScheduledExecutorService getScheduler()
+    {
+        return SCHEDULER;
+    }
+
+    /**
+     * Returns the shared {@link ExecutorService} for long running tasks like asynchronous reloads of cache values
+     * 
+     * @return
+     */
+    public static ExecutorService getWorkers()
+    {
+        return WORKERS;
+    }
+
+    /**
+     * Returns the shared {@link ExecutorService} for blocking cache operations of asynchronous cache views. If the runtime supports virtual threads, every
+     * operation runs on its own virtual thread, otherwise the {@link #getWorkers()} are used.
+     * 
+     * @return
+     */
+    public static ExecutorService getAsyncIOExecutor()
+    {
+        return ASYNC_IO;
+    }
+
+    private static ExecutorService newAsyncIOExecutor()
+    {
+        try
+        {
+            // virtual threads are only available from Java 21 on, so they are resolved reflectively
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                                                    .invoke(null);
+        }
+        catch (Exception e)
+        {
+            LOG.debug("Virtual threads are not available, falling back to platform threads for asynchronous cache operations");
+            return WORKERS;
+        }
+    }
+
+    /**
+     * Schedules the given task with a fixed delay. The target is only weakly referenced, so the task does not prevent the target from being garbage
+     * collected and the task cancels itself after the target is gone.
+     * 
+     * @param target
+     * @param task
+     * @param delay
+     * @param timeUnit
+     * @return
+     */
+    public static <T> ScheduledFuture<?> scheduleWeaklyWithFixedDelay(T target, Consumer<T> task, long delay, TimeUnit timeUnit)
+    {
+        WeakReference<T> targetReference = new WeakReference<>(target);
+        AtomicReference<ScheduledFuture<?>> futureReference = new AtomicReference<>();
+        ScheduledFuture<?> future = SCHEDULER.scheduleWithFixedDelay(() ->
+        {
+            T currentTarget = targetReference.get();
+            if (currentTarget == null)
+            {
+                ScheduledFuture<?> currentFuture = futureReference.get();
+                if (currentFuture != null)
+                {
+                    currentFuture.cancel(false);
+                }
+            }
+            else
+            {
+                try
+                {
+                    task.accept(currentTarget);
+                }
+                catch (Exception e)
+                {
+                    LOG.error("Exception executing scheduled cache task", e);
+                }
+            }
+        }, delay, delay, timeUnit);
+        futureReference.set(future);
+        return future;
+    }
+
+    /**
+     * Registers a shutdown hook which executes the given task on the target, if the target has not been garbage collected until then. The returned hook
+     * can be removed again by {@link #removeShutdownTask(Thread)}.
+     * 
+     * @param target
+     * @param task
+     * @return
+     */
+    public static <T> Thread runWeaklyOnShutdown(T target, Consumer<T> task)
+    {
+        WeakReference<T> targetReference = new WeakReference<>(target);
+        Thread hook = new Thread(() ->
+        {
+            T currentTarget = targetReference.get();
+            if (currentTarget != null)
+            {
+                task.accept(currentTarget);
+            }
+        }, "cache-shutdown");
+        Runtime.getRuntime()
+               .addShutdownHook(hook);
+        return hook;
+    }
+
+    public static void removeShutdownTask(Thread hook)
+    {
+        try
+        {
+            Runtime.getRuntime()
+                   .removeShutdownHook(hook);
+        }
+        catch (IllegalStateException e)
+        {
+            // shutdown is already in progress, so the hook runs anyhow
+        }
+    }
+
+    protected static ThreadFactory newDaemonThreadFactory(String name)
+    {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
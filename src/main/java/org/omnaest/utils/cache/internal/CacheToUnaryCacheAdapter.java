@@ -36,10 +36,12 @@ package org.omnaest.utils.cache.internal;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
 import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.CacheStats;
 import org.omnaest.utils.cache.UnaryCache;
 
 /**
@@ -84,6 +86,12 @@ public class CacheToUnaryCacheAdapter<V> implements UnaryCache<V>
         return this.cache.get(this.type, keys);
     }
 
+    @Override
+    public Map<String, V> computeAllIfAbsent(Collection<String> keys, Function<Set<String>, Map<String, V>> bulkLoader)
+    {
+        return this.cache.computeAllIfAbsent(keys, bulkLoader, this.type);
+    }
+
     @Override
     public Supplier<V> getSupplier(String key)
     {
@@ -144,6 +152,12 @@ public class CacheToUnaryCacheAdapter<V> implements UnaryCache<V>
         this.cache.clear();
     }
 
+    @Override
+    public CacheStats getStats()
+    {
+        return this.cache.getStats();
+    }
+
     @Override
     public String toString()
     {
@@ -15,21 +15,30 @@
  ******************************************************************************/
 package org.omnaest.utils.cache.internal;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.CacheStats;
 import org.omnaest.utils.cache.CapacityLimitedCache;
 import org.omnaest.utils.cache.internal.capacity.CacheCapacityLimiter;
+import org.omnaest.utils.cache.internal.stats.StatsCounter;
 
 public class CapacityLimitedCacheWrapper extends CacheDecorator implements CapacityLimitedCache
 {
-    private CacheCapacityLimiter capacityLimiter = new CacheCapacityLimiter(this);
+    private CacheCapacityLimiter capacityLimiter;
+    private StatsCounter         statsCounter = new StatsCounter();
 
     public CapacityLimitedCacheWrapper(Cache cache, EvictionStrategyProvider evictionStrategyProvider)
     {
         super(cache);
+        this.capacityLimiter = new CacheCapacityLimiter(this, key -> cache.get(key, cache.getType(key)));
         this.capacityLimiter.setEvictionStrategy(evictionStrategyProvider.get());
+        this.capacityLimiter.setStatsCounter(this.statsCounter);
     }
 
     @Override
@@ -39,35 +48,121 @@ public class CapacityLimitedCacheWrapper extends CacheDecorator implements Capac
         return this;
     }
 
+    @Override
+    public CapacityLimitedCacheWrapper withWeightLimit(long maximumWeight, Weigher weigher)
+    {
+        this.capacityLimiter.setWeightLimit(maximumWeight, weigher);
+        return this;
+    }
+
+    @Override
+    public <V> V get(String key, Class<V> type)
+    {
+        this.capacityLimiter.notifyRead(key);
+        return this.statsCounter.recordHitOrMiss(super.get(key, type));
+    }
+
+    @Override
+    public <V> Map<String, V> get(Class<V> type, Collection<String> keys)
+    {
+        if (keys != null)
+        {
+            keys.stream()
+                .filter(Objects::nonNull)
+                .forEach(this.capacityLimiter::notifyRead);
+        }
+        return this.statsCounter.recordHitsAndMisses(keys, super.get(type, keys));
+    }
+
     @Override
     public void put(String key, Object value)
     {
-        this.capacityLimiter.incrementCounterAndValidateCapacity();
         super.put(key, value);
+        this.capacityLimiter.notifyWrite(key, value);
     }
 
     @Override
     public <V> void putAll(Map<String, V> map)
     {
-        this.capacityLimiter.incrementCounterAndValidateCapacity(map != null ? map.size() : 0);
         super.putAll(map);
+        if (map != null)
+        {
+            map.forEach(this.capacityLimiter::notifyWrite);
+        }
     }
 
     @Override
     public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
     {
-        this.capacityLimiter.incrementCounterAndValidateCapacity();
-        return super.computeIfAbsent(key, supplier, type);
+        AtomicBoolean loaded = new AtomicBoolean(false);
+        Supplier<V> loader = this.statsCounter.wrapLoader(supplier);
+        V result = super.computeIfAbsent(key, () ->
+        {
+            loaded.set(true);
+            return loader.get();
+        }, type);
+        this.statsCounter.recordHitOrMissByLoad(loaded.get());
+        if (loaded.get())
+        {
+            this.capacityLimiter.notifyWrite(key, result);
+        }
+        else
+        {
+            this.capacityLimiter.notifyRead(key);
+        }
+        return result;
+    }
+
+    @Override
+    public <V> V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction, Class<V> type)
+    {
+        V result = super.computeIfAbsentOrUpdate(key, supplier, updateFunction, type);
+        this.capacityLimiter.notifyWrite(key, result);
+        return result;
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        super.remove(key);
+        this.capacityLimiter.notifyRemove(key);
+    }
+
+    @Override
+    public void removeAll(Iterable<String> keys)
+    {
+        super.removeAll(keys);
+        if (keys != null)
+        {
+            keys.forEach(this.capacityLimiter::notifyRemove);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        this.capacityLimiter.notifyClear();
+    }
+
+    /**
+     * Returns the natively recorded hits, misses, loads and evictions combined with the {@link CacheStats} of the underlying {@link Cache}
+     */
+    @Override
+    public CacheStats getStats()
+    {
+        return this.statsCounter.snapshot()
+                                .combine(super.getStats());
     }
 
     @Override
     public String toString()
     {
-        return "CapacityLimitedCacheWithRandomEviction [capacityLimiter=" + this.capacityLimiter + ", toString()=" + super.toString() + "]";
+        return "CapacityLimitedCacheWrapper [capacityLimiter=" + this.capacityLimiter + ", toString()=" + super.toString() + "]";
     }
 
     @Override
-    public CapacityLimitedCache withEvictionRatio(double ratio)
+    public CapacityLimitedCacheWrapper withEvictionRatio(double ratio)
     {
         this.capacityLimiter.setEvictionRatio(ratio);
         return this;
@@ -15,9 +15,15 @@
  ******************************************************************************/
 package org.omnaest.utils.cache.internal;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import org.omnaest.utils.cache.Cache.EvictionStrategyProvider;
+import org.omnaest.utils.cache.CapacityLimitedCache.Weigher;
 import org.omnaest.utils.cache.CapacityLimitedUnaryCache;
 import org.omnaest.utils.cache.UnaryCache;
 import org.omnaest.utils.cache.internal.capacity.CacheCapacityLimiter;
@@ -25,11 +31,12 @@ import org.omnaest.utils.cache.internal.capacity.EvictionStrategyHandler;
 
 public class CapacityLimitedUnaryCacheWrapper<V> extends UnaryCacheDecorator<V> implements CapacityLimitedUnaryCache<V>
 {
-    private CacheCapacityLimiter capacityLimiter = new CacheCapacityLimiter(this);
+    private CacheCapacityLimiter capacityLimiter;
 
     public CapacityLimitedUnaryCacheWrapper(UnaryCache<V> cache, EvictionStrategyProvider evictionStrategyProvider)
     {
         super(cache);
+        this.capacityLimiter = new CacheCapacityLimiter(this, cache::get);
         this.capacityLimiter.setEvictionStrategy(evictionStrategyProvider.get());
     }
 
@@ -40,24 +47,121 @@ public class CapacityLimitedUnaryCacheWrapper<V> extends UnaryCacheDecorator<V>
         return this;
     }
 
+    @Override
+    public CapacityLimitedUnaryCacheWrapper<V> withWeightLimit(long maximumWeight, Weigher weigher)
+    {
+        this.capacityLimiter.setWeightLimit(maximumWeight, weigher);
+        return this;
+    }
+
     public CapacityLimitedUnaryCacheWrapper<V> withEvictionStrategy(EvictionStrategyHandler evictionStrategy)
     {
         this.capacityLimiter.setEvictionStrategy(evictionStrategy);
         return this;
     }
 
+    @Override
+    public V get(String key)
+    {
+        this.capacityLimiter.notifyRead(key);
+        return super.get(key);
+    }
+
+    @Override
+    public Map<String, V> get(String... keys)
+    {
+        if (keys != null)
+        {
+            for (String key : keys)
+            {
+                if (key != null)
+                {
+                    this.capacityLimiter.notifyRead(key);
+                }
+            }
+        }
+        return super.get(keys);
+    }
+
+    @Override
+    public Map<String, V> get(Collection<String> keys)
+    {
+        if (keys != null)
+        {
+            keys.stream()
+                .filter(Objects::nonNull)
+                .forEach(this.capacityLimiter::notifyRead);
+        }
+        return super.get(keys);
+    }
+
     @Override
     public void put(String key, V value)
     {
-        this.capacityLimiter.incrementCounterAndValidateCapacity();
         super.put(key, value);
+        this.capacityLimiter.notifyWrite(key, value);
+    }
+
+    @Override
+    public void putAll(Map<String, V> map)
+    {
+        super.putAll(map);
+        if (map != null)
+        {
+            map.forEach(this.capacityLimiter::notifyWrite);
+        }
     }
 
     @Override
     public V computeIfAbsent(String key, Supplier<V> supplier)
     {
-        this.capacityLimiter.incrementCounterAndValidateCapacity();
-        return super.computeIfAbsent(key, supplier);
+        AtomicBoolean loaded = new AtomicBoolean(false);
+        V result = super.computeIfAbsent(key, () ->
+        {
+            loaded.set(true);
+            return supplier.get();
+        });
+        if (loaded.get())
+        {
+            this.capacityLimiter.notifyWrite(key, result);
+        }
+        else
+        {
+            this.capacityLimiter.notifyRead(key);
+        }
+        return result;
+    }
+
+    @Override
+    public V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction)
+    {
+        V result = super.computeIfAbsentOrUpdate(key, supplier, updateFunction);
+        this.capacityLimiter.notifyWrite(key, result);
+        return result;
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        super.remove(key);
+        this.capacityLimiter.notifyRemove(key);
+    }
+
+    @Override
+    public void removeAll(Iterable<String> keys)
+    {
+        super.removeAll(keys);
+        if (keys != null)
+        {
+            keys.forEach(this.capacityLimiter::notifyRemove);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        this.capacityLimiter.notifyClear();
     }
 
     @Override
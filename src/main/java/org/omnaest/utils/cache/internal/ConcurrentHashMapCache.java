@@ -34,51 +34,70 @@
 package org.omnaest.utils.cache.internal;
 
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import org.omnaest.utils.duration.TimeDuration;
 
+/**
+ * In memory {@link org.omnaest.utils.cache.Cache} based on a {@link ConcurrentHashMap}. Every key maps to a single immutable {@link Entry} holding the
+ * value and its creation time, so both are always replaced and removed together.
+ * 
+ * @author omnaest
+ */
 @SuppressWarnings("unchecked")
 public class ConcurrentHashMapCache extends AbstractCache
 {
-    private Map<String, ValueHolder> cache = new ConcurrentHashMap<>();
+    private Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private static final class Entry
+    {
+        private final Object value;
+        private final long   creationTime;
+
+        private Entry(Object value)
+        {
+            super();
+            this.value = value;
+            this.creationTime = System.currentTimeMillis();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Entry [value=" + this.value + ", creationTime=" + this.creationTime + "]";
+        }
+    }
 
     @Override
     public <V> V get(String key, Class<V> type)
     {
-        return Optional.ofNullable(key)
-                       .map(this.cache::get)
-                       .map(ValueHolder::getValue)
-                       .map(result -> (V) result)
-                       .orElse(null);
+        Entry entry = key != null ? this.cache.get(key) : null;
+        return entry != null ? (V) entry.value : null;
     }
 
     @Override
     public boolean contains(String key)
     {
-        return Optional.ofNullable(key)
-                       .map(this.cache::containsKey)
-                       .orElse(false);
+        return key != null && this.cache.containsKey(key);
     }
 
     @Override
     public TimeDuration getAge(String key)
     {
-        long creationTime = Optional.ofNullable(this.cache.get(key))
-                                    .map(holder -> holder.getCreationTime())
-                                    .orElseGet(() -> System.currentTimeMillis());
-        long age = System.currentTimeMillis() - creationTime;
-        return TimeDuration.of(age, TimeUnit.MILLISECONDS);
+        long currentTime = System.currentTimeMillis();
+        Entry entry = key != null ? this.cache.get(key) : null;
+        long creationTime = entry != null ? entry.creationTime : currentTime;
+        return TimeDuration.of(currentTime - creationTime, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void put(String key, Object value)
     {
-        this.cache.put(key, new ValueHolder(value));
+        this.cache.put(key, new Entry(value));
     }
 
     @Override
@@ -86,18 +105,25 @@ public class ConcurrentHashMapCache extends AbstractCache
     {
         if (map != null)
         {
-            map.forEach((key, value) ->
-            {
-                this.cache.put(key, new ValueHolder(value));
-            });
+            map.forEach(this::put);
         }
     }
 
     @Override
     public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
     {
-        return (V) this.cache.computeIfAbsent(key, (id) -> new ValueHolder(supplier.get()))
-                             .getValue();
+        Entry entry = this.cache.get(key);
+        if (entry == null)
+        {
+            entry = this.cache.computeIfAbsent(key, (id) -> new Entry(supplier.get()));
+        }
+        return (V) entry.value;
+    }
+
+    @Override
+    public <V> V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction, Class<V> type)
+    {
+        return (V) this.cache.compute(key, (id, entry) -> new Entry(entry != null ? updateFunction.apply((V) entry.value) : supplier.get())).value;
     }
 
     @Override
@@ -109,9 +135,8 @@ public class ConcurrentHashMapCache extends AbstractCache
     @Override
     public <V> Class<V> getType(String key)
     {
-        return this.cache.containsKey(key) ? (Class<V>) this.cache.get(key)
-                                                                  .getClass()
-                : null;
+        Entry entry = key != null ? this.cache.get(key) : null;
+        return entry != null && entry.value != null ? (Class<V>) entry.value.getClass() : null;
     }
 
     @Override
@@ -121,39 +146,15 @@ public class ConcurrentHashMapCache extends AbstractCache
     }
 
     @Override
-    public String toString()
+    public void clear()
     {
-        return "ConcurrentHashMapCache [cache=" + this.cache + "]";
+        this.cache.clear();
     }
 
-    private static class ValueHolder
+    @Override
+    public String toString()
     {
-        private Object value;
-        private long   creationTime;
-
-        public ValueHolder(Object value)
-        {
-            super();
-            this.value = value;
-            this.creationTime = System.currentTimeMillis();
-        }
-
-        public Object getValue()
-        {
-            return this.value;
-        }
-
-        public long getCreationTime()
-        {
-            return this.creationTime;
-        }
-
-        @Override
-        public String toString()
-        {
-            return "ValueHolder [value=" + this.value + ", creationTime=" + this.creationTime + "]";
-        }
-
+        return "ConcurrentHashMapCache [cache=" + this.cache + "]";
     }
 
 }
@@ -15,24 +15,64 @@
  ******************************************************************************/
 package org.omnaest.utils.cache.internal;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.CacheStats;
+import org.omnaest.utils.cache.ExpiringCache;
+import org.omnaest.utils.cache.internal.expiry.TimerWheel;
+import org.omnaest.utils.cache.internal.stats.StatsCounter;
 import org.omnaest.utils.duration.TimeDuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * {@link Cache} wrapper which enforces an eviction of single keys after a given {@link TimeDuration}
+ * <br>
+ * <br>
+ * By default expired entries are only hidden on read. With {@link #withProactiveExpiry(TimeDuration)} the expiry times are indexed in a {@link TimerWheel}
+ * and expired entries are removed from the underlying {@link Cache} in batches.
+ * <br>
+ * <br>
+ * With {@link #withRefreshAfterWrite(TimeDuration, Executor)} stale entries are served while their value is reloaded asynchronously.
  * 
  * @author omnaest
  */
-public class DurationLimitedCache implements Cache
+public class DurationLimitedCache implements ExpiringCache
 {
-    private Cache        cache;
-    private TimeDuration duration;
+    private static final Logger                  LOG                = LoggerFactory.getLogger(DurationLimitedCache.class);
+
+    private static final int                     TICKS_PER_DURATION = 64;
+
+    private Cache                                cache;
+    private TimeDuration                         duration;
+
+    private volatile TimerWheel                  expiryWheel        = null;
+    private ReadWriteLock                        expiryLock         = new ReentrantReadWriteLock();
+    private ScheduledFuture<?>                   sweeper            = null;
+    private AtomicBoolean                        sweepPending       = new AtomicBoolean(false);
+
+    private TimeDuration                         refreshAfterWrite  = null;
+    private Executor                             refreshExecutor    = null;
+    private Map<String, CompletableFuture<Void>> keyToLoad          = new ConcurrentHashMap<>();
+
+    private StatsCounter                         statsCounter       = new StatsCounter();
 
     public DurationLimitedCache(Cache cache, TimeDuration duration)
     {
@@ -41,17 +81,235 @@ public class DurationLimitedCache implements Cache
         this.duration = duration;
     }
 
+    @Override
+    public DurationLimitedCache withProactiveExpiry()
+    {
+        if (this.expiryWheel == null)
+        {
+            long now = System.currentTimeMillis();
+            long durationInMillis = this.getDurationInMillis();
+            TimerWheel expiryWheel = new TimerWheel(durationInMillis / TICKS_PER_DURATION, now);
+            for (String key : this.cache.keySet())
+            {
+                TimeDuration age = this.cache.getAge(key);
+                long ageInMillis = age != null ? age.as(TimeUnit.MILLISECONDS) : 0;
+                expiryWheel.schedule(key, now - ageInMillis + durationInMillis);
+            }
+            this.expiryWheel = expiryWheel;
+            this.sweep();
+        }
+        return this;
+    }
+
+    @Override
+    public DurationLimitedCache withProactiveExpiry(TimeDuration sweepInterval)
+    {
+        this.withProactiveExpiry();
+        if (this.sweeper != null)
+        {
+            this.sweeper.cancel(false);
+        }
+        this.sweeper = CacheExecutors.scheduleWeaklyWithFixedDelay(this, DurationLimitedCache::sweepInBackground, sweepInterval.as(TimeUnit.MILLISECONDS),
+                                                                    TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    @Override
+    public DurationLimitedCache withRefreshAfterWrite(TimeDuration refreshAfterWrite, Executor executor)
+    {
+        this.refreshExecutor = executor;
+        this.refreshAfterWrite = refreshAfterWrite;
+        return this;
+    }
+
+    @Override
+    public DurationLimitedCache withRefreshAfterWrite(TimeDuration refreshAfterWrite)
+    {
+        return this.withRefreshAfterWrite(refreshAfterWrite, CacheExecutors.getWorkers());
+    }
+
+    private boolean isRefreshAhead()
+    {
+        return this.refreshAfterWrite != null;
+    }
+
+    /**
+     * Reloads the value of the given key asynchronously, if no load of the same key is already running. The refreshed value is stored even if the old value
+     * has expired in the meantime, as callers waiting for the refresh rely on it.
+     * 
+     * @param key
+     * @param supplier
+     */
+    private <V> void refresh(String key, Supplier<V> supplier)
+    {
+        CompletableFuture<Void> refresh = new CompletableFuture<>();
+        if (this.keyToLoad.putIfAbsent(key, refresh) == null)
+        {
+            Runnable operation = () ->
+            {
+                try
+                {
+                    V value = supplier.get();
+                    if (value != null)
+                    {
+                        this.put(key, value);
+                    }
+                }
+                catch (Exception e)
+                {
+                    LOG.warn("Failed to refresh cache value of key: " + key, e);
+                }
+                finally
+                {
+                    this.keyToLoad.remove(key, refresh);
+                    refresh.complete(null);
+                }
+            };
+            try
+            {
+                this.refreshExecutor.execute(operation);
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOG.warn("Refresh of cache value rejected for key: " + key, e);
+                this.keyToLoad.remove(key, refresh);
+                refresh.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Waits for a running load or refresh of the given key, so a caller does not compute an expired value in parallel
+     * 
+     * @param key
+     */
+    private void awaitLoad(String key)
+    {
+        CompletableFuture<Void> load = this.keyToLoad.get(key);
+        if (load != null)
+        {
+            load.join();
+        }
+    }
+
+    private long getDurationInMillis()
+    {
+        return this.duration.as(TimeUnit.MILLISECONDS);
+    }
+
+    private boolean isProactiveExpiry()
+    {
+        return this.expiryWheel != null;
+    }
+
+    /**
+     * Removes all expired entries from the underlying {@link Cache}
+     */
+    protected void sweep()
+    {
+        if (this.isProactiveExpiry())
+        {
+            this.expiryLock.writeLock()
+                           .lock();
+            try
+            {
+                Set<String> expiredKeys = this.expiryWheel.advance(System.currentTimeMillis());
+                if (!expiredKeys.isEmpty())
+                {
+                    this.cache.removeAll(expiredKeys);
+                    this.statsCounter.recordEvictions(expiredKeys.size());
+                }
+            }
+            finally
+            {
+                this.expiryLock.writeLock()
+                               .unlock();
+            }
+        }
+    }
+
+    /**
+     * Hands a {@link #sweep()} over to the {@link CacheExecutors#getWorkers()}, so the shared scheduler thread is not blocked by the removal of expired entries
+     */
+    private void sweepInBackground()
+    {
+        if (this.sweepPending.compareAndSet(false, true))
+        {
+            try
+            {
+                CacheExecutors.getWorkers()
+                              .execute(() ->
+                              {
+                                  try
+                                  {
+                                      this.sweep();
+                                  }
+                                  finally
+                                  {
+                                      this.sweepPending.set(false);
+                                  }
+                              });
+            }
+            catch (RejectedExecutionException e)
+            {
+                LOG.warn("Sweep of expired cache entries rejected", e);
+                this.sweepPending.set(false);
+            }
+        }
+    }
+
+    private void scheduleExpiry(String key)
+    {
+        this.expiryWheel.schedule(key, System.currentTimeMillis() + this.getDurationInMillis());
+    }
+
+    private boolean isActive(String key)
+    {
+        return this.expiryWheel.isActive(key, System.currentTimeMillis());
+    }
+
+    private <R> R executeWrite(Supplier<R> operation)
+    {
+        this.expiryLock.readLock()
+                       .lock();
+        try
+        {
+            return operation.get();
+        }
+        finally
+        {
+            this.expiryLock.readLock()
+                           .unlock();
+        }
+    }
+
     @Override
     public void remove(String key)
     {
-        this.cache.remove(key);
+        if (this.isProactiveExpiry())
+        {
+            this.executeWrite(() ->
+            {
+                this.cache.remove(key);
+                this.expiryWheel.cancel(key);
+                return null;
+            });
+        }
+        else
+        {
+            this.cache.remove(key);
+        }
     }
 
     @Override
     public boolean contains(String key)
     {
-        if (this.cache.getAge(key)
-                      .isSmallerThan(this.duration))
+        if (this.isProactiveExpiry())
+        {
+            return this.isActive(key);
+        }
+        else if (this.cache.getAge(key)
+                           .isSmallerThan(this.duration))
         {
             return this.cache.contains(key);
         }
@@ -64,42 +322,101 @@ public class DurationLimitedCache implements Cache
     @Override
     public void removeAll(Iterable<String> keys)
     {
-        this.cache.removeAll(keys);
+        if (this.isProactiveExpiry())
+        {
+            this.executeWrite(() ->
+            {
+                this.cache.removeAll(keys);
+                if (keys != null)
+                {
+                    keys.forEach(this.expiryWheel::cancel);
+                }
+                return null;
+            });
+        }
+        else
+        {
+            this.cache.removeAll(keys);
+        }
     }
 
     @Override
     public Set<String> keySet()
     {
-        return this.cache.keySet()
-                         .stream()
-                         .filter(key -> this.getAge(key)
-                                            .isSmallerThan(this.duration))
-                         .collect(Collectors.toSet());
+        if (this.isProactiveExpiry())
+        {
+            this.sweep();
+            return this.expiryWheel.keySet();
+        }
+        else
+        {
+            return this.cache.keySet()
+                             .stream()
+                             .filter(key -> this.getAge(key)
+                                                .isSmallerThan(this.duration))
+                             .collect(Collectors.toSet());
+        }
     }
 
     @Override
     public boolean isEmpty()
     {
-        return this.cache.isEmpty();
+        if (this.isProactiveExpiry())
+        {
+            return this.size() == 0;
+        }
+        else
+        {
+            return this.cache.isEmpty();
+        }
     }
 
     @Override
     public int size()
     {
-        return this.cache.size();
+        if (this.isProactiveExpiry())
+        {
+            this.sweep();
+            return this.expiryWheel.size();
+        }
+        else
+        {
+            return this.cache.size();
+        }
     }
 
     @Override
     public void clear()
     {
-        this.cache.clear();
+        if (this.isProactiveExpiry())
+        {
+            this.executeWrite(() ->
+            {
+                this.cache.clear();
+                this.expiryWheel.clear();
+                return null;
+            });
+        }
+        else
+        {
+            this.cache.clear();
+        }
     }
 
     @Override
     public <V> V get(String key, Class<V> type)
     {
-        if (this.cache.getAge(key)
-                      .isSmallerThan(this.duration))
+        return this.statsCounter.recordHitOrMiss(this.getIfNotExpired(key, type));
+    }
+
+    private <V> V getIfNotExpired(String key, Class<V> type)
+    {
+        if (this.isProactiveExpiry())
+        {
+            return this.isActive(key) ? this.cache.get(key, type) : null;
+        }
+        else if (this.cache.getAge(key)
+                           .isSmallerThan(this.duration))
         {
             return this.cache.get(key, type);
         }
@@ -109,6 +426,23 @@ public class DurationLimitedCache implements Cache
         }
     }
 
+    @Override
+    public <V> Map<String, V> get(Class<V> type, Collection<String> keys)
+    {
+        if (this.isProactiveExpiry())
+        {
+            return this.statsCounter.recordHitsAndMisses(keys, this.cache.get(type, Optional.ofNullable(keys)
+                                                                                            .orElse(Collections.emptyList())
+                                                                                            .stream()
+                                                                                            .filter(key -> key != null && this.isActive(key))
+                                                                                            .collect(Collectors.toList())));
+        }
+        else
+        {
+            return ExpiringCache.super.get(type, keys);
+        }
+    }
+
     @Override
     public TimeDuration getAge(String key)
     {
@@ -130,44 +464,212 @@ public class DurationLimitedCache implements Cache
     @Override
     public void put(String key, Object value)
     {
-        this.cache.put(key, value);
+        if (this.isProactiveExpiry())
+        {
+            this.executeWrite(() ->
+            {
+                this.cache.put(key, value);
+                this.scheduleExpiry(key);
+                return null;
+            });
+        }
+        else
+        {
+            this.cache.put(key, value);
+        }
     }
 
     @Override
     public <V> void putAll(Map<String, V> map)
     {
-        this.cache.putAll(map);
+        if (this.isProactiveExpiry())
+        {
+            this.executeWrite(() ->
+            {
+                this.cache.putAll(map);
+                if (map != null)
+                {
+                    map.keySet()
+                       .forEach(this::scheduleExpiry);
+                }
+                return null;
+            });
+        }
+        else
+        {
+            this.cache.putAll(map);
+        }
     }
 
     @Override
     public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
     {
-        if (this.cache.getAge(key)
-                      .isSmallerThan(this.duration))
+        AtomicBoolean loaded = new AtomicBoolean(false);
+        Supplier<V> loader = this.statsCounter.wrapLoader(supplier);
+        Supplier<V> recordingLoader = () ->
         {
-            return this.cache.computeIfAbsent(key, supplier, type);
+            loaded.set(true);
+            return loader.get();
+        };
+
+        V value;
+        if (this.isRefreshAhead())
+        {
+            if (!this.contains(key))
+            {
+                this.awaitLoad(key);
+            }
+            value = this.computeIfAbsentWithinDuration(key, recordingLoader, type);
+            if (!this.cache.getAge(key)
+                           .isSmallerThan(this.refreshAfterWrite))
+            {
+                this.refresh(key, loader);
+            }
         }
         else
         {
-            return this.cache.computeIfAbsentOrUpdate(key, supplier, previous -> supplier.get(), type);
+            value = this.computeIfAbsentWithinDuration(key, recordingLoader, type);
         }
+        this.statsCounter.recordHitOrMissByLoad(loaded.get());
+        return value;
     }
 
-    @Override
-    public <V> V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction, Class<V> type)
+    private <V> V computeIfAbsentWithinDuration(String key, Supplier<V> supplier, Class<V> type)
     {
-        return this.cache.computeIfAbsentOrUpdate(key, supplier, previous ->
+        if (this.isProactiveExpiry())
         {
-            if (this.cache.getAge(key)
-                          .isSmallerThan(this.duration))
+            V value = this.isActive(key) ? this.cache.get(key, type) : null;
+            if (value != null)
             {
-                return updateFunction.apply(previous);
+                return value;
             }
             else
             {
-                return supplier.get();
+                this.sweep();
+                return this.reload(key, supplier, type);
+            }
+        }
+        else if (this.isWithinDuration(key))
+        {
+            return this.computeIfAbsentOrReload(key, supplier, type);
+        }
+        else
+        {
+            return this.reload(key, supplier, type);
+        }
+    }
+
+    /**
+     * Reloads an absent or expired value, while concurrent callers of the same key wait for the single running load instead of calling their supplier, too
+     * 
+     * @param key
+     * @param supplier
+     * @param type
+     * @return
+     */
+    private <V> V reload(String key, Supplier<V> supplier, Class<V> type)
+    {
+        CompletableFuture<Void> load = new CompletableFuture<>();
+        CompletableFuture<Void> runningLoad = this.keyToLoad.putIfAbsent(key, load);
+        if (runningLoad != null)
+        {
+            runningLoad.join();
+            return this.computeIfAbsentWithinDuration(key, supplier, type);
+        }
+
+        try
+        {
+            return this.computeIfAbsentOrReload(key, supplier, type);
+        }
+        finally
+        {
+            this.keyToLoad.remove(key, load);
+            load.complete(null);
+        }
+    }
+
+    private <V> V computeIfAbsentOrReload(String key, Supplier<V> supplier, Class<V> type)
+    {
+        if (this.isProactiveExpiry())
+        {
+            V value = this.isActive(key) ? this.cache.get(key, type) : null;
+            if (value == null)
+            {
+                value = supplier.get();
+                this.put(key, value);
             }
-        }, type);
+            return value;
+        }
+        else if (this.isWithinDuration(key))
+        {
+            return this.cache.computeIfAbsent(key, supplier, type);
+        }
+        else
+        {
+            V value = supplier.get();
+            this.cache.put(key, value);
+            return value;
+        }
+    }
+
+    private boolean isWithinDuration(String key)
+    {
+        if (this.isProactiveExpiry())
+        {
+            return this.isActive(key);
+        }
+        else
+        {
+            return this.cache.getAge(key)
+                             .isSmallerThan(this.duration);
+        }
+    }
+
+    @Override
+    public <V> V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction, Class<V> type)
+    {
+        if (this.isProactiveExpiry())
+        {
+            return this.executeWrite(() ->
+            {
+                boolean active = this.isActive(key);
+                V value = this.cache.computeIfAbsentOrUpdate(key, supplier, previous -> active ? updateFunction.apply(previous) : supplier.get(), type);
+                this.scheduleExpiry(key);
+                return value;
+            });
+        }
+        else
+        {
+            return this.cache.computeIfAbsentOrUpdate(key, supplier, previous ->
+            {
+                if (this.cache.getAge(key)
+                              .isSmallerThan(this.duration))
+                {
+                    return updateFunction.apply(previous);
+                }
+                else
+                {
+                    return supplier.get();
+                }
+            }, type);
+        }
+    }
+
+    /**
+     * Returns the natively recorded hits, misses, loads and expired evictions combined with the {@link CacheStats} of the underlying {@link Cache}
+     */
+    @Override
+    public CacheStats getStats()
+    {
+        return this.statsCounter.snapshot()
+                                .combine(this.cache.getStats());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DurationLimitedCache [cache=" + this.cache + ", duration=" + this.duration + ", refreshAfterWrite=" + this.refreshAfterWrite
+                + ", expiryWheel=" + this.expiryWheel + "]";
     }
 
 }
@@ -16,55 +16,120 @@
 
 package org.omnaest.utils.cache.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.output.FileWriterWithEncoding;
 import org.apache.commons.lang.StringUtils;
+import org.omnaest.utils.CollectorUtils;
 import org.omnaest.utils.JSONHelper;
 import org.omnaest.utils.cache.Cache;
 import org.omnaest.utils.cache.CacheWithNativeTypeSupport;
+import org.omnaest.utils.cache.internal.SegmentFileStorage.Location;
 import org.omnaest.utils.duration.TimeDuration;
+import org.omnaest.utils.element.bi.BiElement;
 import org.omnaest.utils.optional.NullOptional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * {@link Cache} which uses {@link JSONHelper} to store the cache content within multiple json {@link File}s
+ * <br>
+ * <br>
+ * By default every mutation rewrites the root index. With {@link #withGroupCommit(TimeDuration, int)} concurrent mutations are batched into a single
+ * write of the root index. With {@link #withDeltaLog(double)} only the changes of the root index are appended to a delta log, which is checkpointed into
+ * the root index from time to time. With {@link #withShardedLayout(boolean)} the cache files are distributed over a two level directory hierarchy. With
+ * {@link #withSegmentStorage(long, double)} the values are packed into few large segment files instead of a single file per entry. With
+ * {@link #withGarbageCollection(TimeDuration, int)} cache files which are not referenced by the root index anymore are deleted in the background.
  *
  * @see JsonSingleFileCache
  * @author Omnaest
  * @param <V>
  */
-public class JsonFolderFilesCache extends AbstractCache implements CacheWithNativeTypeSupport
+public class JsonFolderFilesCache extends AbstractCache implements CacheWithNativeTypeSupport, AutoCloseable
 {
-    private static final String       UTF_8                  = "utf-8";
-    private static final Logger       LOG                    = LoggerFactory.getLogger(JsonFolderFilesCache.class);
+    private static final String                    UTF_8                    = "utf-8";
+    private static final Logger                    LOG                      = LoggerFactory.getLogger(JsonFolderFilesCache.class);
+    private static final long                      MINIMUM_CHECKPOINT_SIZE  = 64 * 1024;
+    private static final Pattern                   CACHE_FILE_NAME_PATTERN  = Pattern.compile("([0-9]{1,18})\\.json");
 
-    private File                      cacheDirectory;
+    private File                                   cacheDirectory;
 
-    private AtomicReference<DataRoot> root                   = new AtomicReference<>();
+    private AtomicReference<DataRoot>              root                     = new AtomicReference<>();
 
-    private boolean                   nativeByteArrayStorage = false;
-    private boolean                   nativeStringStorage    = false;
+    private boolean                                nativeByteArrayStorage   = false;
+    private boolean                                nativeStringStorage      = false;
+    private boolean                                shardedLayout            = false;
+
+    private boolean                                groupCommit              = false;
+    private long                                   groupCommitLatency       = 0;
+    private int                                    groupCommitBatchSize     = 1;
+    private final Object                           commitMonitor            = new Object();
+    private long                                   mutationSequence         = 0;
+    private long                                   committedSequence        = 0;
+    private boolean                                commitInProgress         = false;
+    private Map<String, Long>                      keyToPendingSequence     = new ConcurrentHashMap<>();
+    private List<Long>                             pendingFileDeletions     = new ArrayList<>();
+
+    private volatile JsonLinesJournal<DeltaRecord> deltaLog;
+    private boolean                                deltaLogging             = false;
+    private double                                 checkpointRatio;
+    private long                                   checkpointSize           = 0;
+    private List<DeltaRecord>                      pendingDeltaRecords      = new ArrayList<>();
+
+    private volatile SegmentFileStorage            segmentStorage;
+    private boolean                                segmentStorageActive     = false;
+    private long                                   maxSegmentSize           = SegmentFileStorage.DEFAULT_MAX_SEGMENT_SIZE;
+    private double                                 segmentCompactionRatio;
+    private AtomicLong                             segmentGarbage           = new AtomicLong();
+    private final Object                           segmentCompactionLock    = new Object();
+    private AtomicBoolean                          compactionRunning        = new AtomicBoolean();
+    private volatile Future<?>                     compactionTask;
+
+    private int                                    maxDeletionsPerSecond    = 0;
+    private ScheduledFuture<?>                     garbageCollectionTask;
+    private AtomicBoolean                          garbageCollectionRunning = new AtomicBoolean();
+    private AtomicLong                             totalReclaimedBytes      = new AtomicLong();
 
     @Override
     public JsonFolderFilesCache withNativeByteArrayStorage(boolean active)
@@ -80,16 +145,586 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
         return this;
     }
 
+    /**
+     * Activates the sharded layout of the cache files. Instead of storing all cache files as {@code <index>.json} within the cache directory, a cache
+     * file is stored as {@code ab/cd/<index>.json}, where {@code ab} and {@code cd} are the lowest two bytes of the index in hex. This limits the number
+     * of files within a single directory to the number of entries divided by 65536.
+     * <br>
+     * <br>
+     * Cache files of the other layout are still found, so existing caches can be opened with either layout and are migrated by
+     * {@link #migrateFileLayout()}.
+     * 
+     * @param active
+     * @return
+     */
+    public JsonFolderFilesCache withShardedLayout(boolean active)
+    {
+        this.shardedLayout = active;
+        return this;
+    }
+
+    /**
+     * Moves all cache files, which are stored in the other layout, into the current layout
+     * 
+     * @see #withShardedLayout(boolean)
+     * @return the number of moved cache files
+     */
+    public int migrateFileLayout()
+    {
+        int numberOfMovedFiles = 0;
+        for (Long index : new HashSet<>(this.getOrCreateRoot()
+                                            .getData()
+                                            .values()))
+        {
+            synchronized (this.root)
+            {
+                File cacheFile = this.determineCacheFile(index, this.shardedLayout);
+                File otherLayoutCacheFile = this.determineCacheFile(index, !this.shardedLayout);
+                if (!cacheFile.exists() && otherLayoutCacheFile.exists())
+                {
+                    try
+                    {
+                        cacheFile.getParentFile()
+                                 .mkdirs();
+                        Files.move(otherLayoutCacheFile.toPath(), cacheFile.toPath());
+                        numberOfMovedFiles++;
+                    }
+                    catch (IOException e)
+                    {
+                        LOG.error("Failed moving cache file: " + otherLayoutCacheFile, e);
+                    }
+                }
+            }
+        }
+        return numberOfMovedFiles;
+    }
+
+    /**
+     * Activates the segment storage. Instead of writing a single file per entry, the values are appended to segment files of up to the given size and
+     * addressed by their segment, offset and length within the root index, so a read is a single positional read. The native byte[] and
+     * {@link String} storage is applied to the stored value bytes the same way as to single files.
+     * <br>
+     * <br>
+     * Overwritten and removed values are reclaimed by {@link #compactSegments()}, which runs in the background as soon as the size of the overwritten
+     * and removed values exceeds the maximum segment size. A sealed segment is compacted, if at least the given ratio of its size is not referenced
+     * anymore. Values of single files written before remain readable.
+     * 
+     * @param maxSegmentSize
+     * @param compactionRatio
+     * @return
+     */
+    public JsonFolderFilesCache withSegmentStorage(long maxSegmentSize, double compactionRatio)
+    {
+        synchronized (this.segmentCompactionLock)
+        {
+            if (this.segmentStorage != null)
+            {
+                this.segmentStorage.close();
+            }
+            this.maxSegmentSize = maxSegmentSize;
+            this.segmentCompactionRatio = compactionRatio;
+            this.segmentStorage = new SegmentFileStorage(this.determineSegmentDirectory(), maxSegmentSize);
+            this.segmentStorageActive = true;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the {@link SegmentFileStorage}, which is created on first use, as values of former segment storage usages have to be readable, too
+     * 
+     * @return
+     */
+    private SegmentFileStorage getSegmentStorage()
+    {
+        SegmentFileStorage segmentStorage = this.segmentStorage;
+        if (segmentStorage == null)
+        {
+            synchronized (this.segmentCompactionLock)
+            {
+                if (this.segmentStorage == null)
+                {
+                    this.segmentStorage = new SegmentFileStorage(this.determineSegmentDirectory(), this.maxSegmentSize);
+                }
+                segmentStorage = this.segmentStorage;
+            }
+        }
+        return segmentStorage;
+    }
+
+    /**
+     * Copies the still referenced values of all sealed segments, whose unreferenced part reaches the compaction ratio, into the current segment and
+     * deletes these segments afterwards
+     * 
+     * @see #withSegmentStorage(long, double)
+     * @return the number of reclaimed bytes
+     */
+    public long compactSegments()
+    {
+        synchronized (this.segmentCompactionLock)
+        {
+            Map<Integer, Map<String, Location>> segmentToKeyAndLocation = new HashMap<>();
+            this.getOrCreateRoot()
+                .getSegments()
+                .forEach((key, location) -> segmentToKeyAndLocation.computeIfAbsent(location.getSegment(), segment -> new HashMap<>())
+                                                                   .put(key, location));
+
+            long reclaimedBytes = 0;
+            SegmentFileStorage segmentStorage = this.getSegmentStorage();
+            for (int segment : segmentStorage.getSealedSegments())
+            {
+                Map<String, Location> keyToLocation = segmentToKeyAndLocation.getOrDefault(segment, Collections.emptyMap());
+                long segmentSize = segmentStorage.getSize(segment);
+                long referencedSize = keyToLocation.values()
+                                                   .stream()
+                                                   .mapToLong(Location::getLength)
+                                                   .sum();
+                if (segmentSize - referencedSize >= this.segmentCompactionRatio * segmentSize)
+                {
+                    if (this.moveSegmentValues(keyToLocation))
+                    {
+                        segmentStorage.delete(segment);
+                        long reclaimedGarbage = segmentSize - referencedSize;
+                        this.segmentGarbage.updateAndGet(garbage -> Math.max(0, garbage - reclaimedGarbage));
+                        reclaimedBytes += reclaimedGarbage;
+                    }
+                    else
+                    {
+                        LOG.warn("Segment " + segment + " is kept until the next compaction, as not all of its values could be copied");
+                    }
+                }
+            }
+            return reclaimedBytes;
+        }
+    }
+
+    /**
+     * Copies the given values into the current segment and replaces their {@link Location}s within the root index, as long as they have not been
+     * changed meanwhile
+     * 
+     * @param keyToLocation
+     * @return true, if all values have been copied and the source segment can be deleted
+     */
+    private boolean moveSegmentValues(Map<String, Location> keyToLocation)
+    {
+        Map<String, Location> keyToNewLocation = new HashMap<>();
+        AtomicBoolean copyFailed = new AtomicBoolean(false);
+        keyToLocation.forEach((key, location) ->
+        {
+            try
+            {
+                keyToNewLocation.put(key, this.getSegmentStorage()
+                                              .copy(location));
+            }
+            catch (IllegalStateException e)
+            {
+                LOG.error("Failed copying segment value of key: " + key, e);
+                copyFailed.set(true);
+            }
+        });
+        this.statsCounter.recordBytesWritten(keyToNewLocation.values()
+                                                             .stream()
+                                                             .mapToLong(Location::getLength)
+                                                             .sum());
+
+        if (!keyToNewLocation.isEmpty())
+        {
+            // the copies have to be durable before the root index references them and the old segment is deleted
+            this.getSegmentStorage()
+                .force();
+            this.operateOnRootAndGet(root ->
+            {
+                keyToNewLocation.forEach((key, newLocation) ->
+                {
+                    Long index = root.getData()
+                                     .get(key);
+                    if (index != null && root.getSegments()
+                                             .replace(key, keyToLocation.get(key), newLocation))
+                    {
+                        this.recordDelta(DeltaRecord.ofPut(key, index, root.getTypes()
+                                                                           .get(key),
+                                                           newLocation));
+                    }
+                    else
+                    {
+                        this.segmentGarbage.addAndGet(newLocation.getLength());
+                    }
+                });
+                return root;
+            });
+        }
+        return !copyFailed.get();
+    }
+
+    private void compactSegmentsIfNecessary()
+    {
+        if (this.segmentStorageActive && this.segmentGarbage.get() > this.maxSegmentSize && this.compactionRunning.compareAndSet(false, true))
+        {
+            this.compactionTask = CacheExecutors.getWorkers()
+                                                .submit(() ->
+                                                {
+                                                    try
+                                                    {
+                                                        this.compactSegments();
+                                                    }
+                                                    finally
+                                                    {
+                                                        this.compactionRunning.set(false);
+                                                    }
+                                                });
+        }
+    }
+
+    private File determineSegmentDirectory()
+    {
+        return new File(this.cacheDirectory, "segments");
+    }
+
+    /**
+     * Activates the background garbage collection of cache files, which are not referenced by the root index anymore, e.g. files of removed entries or of
+     * entries which lost the race of a concurrent {@link #computeIfAbsent(String, Supplier, Class)}. The garbage collection runs with the given delay
+     * between two runs and deletes at most the given number of files per second, 0 means no limit.
+     * 
+     * @see #collectGarbage()
+     * @param interval
+     * @param maxDeletionsPerSecond
+     * @return
+     */
+    public JsonFolderFilesCache withGarbageCollection(TimeDuration interval, int maxDeletionsPerSecond)
+    {
+        this.cancelGarbageCollection();
+        this.maxDeletionsPerSecond = Math.max(0, maxDeletionsPerSecond);
+        this.garbageCollectionTask = CacheExecutors.scheduleWeaklyWithFixedDelay(this, JsonFolderFilesCache::collectGarbageInBackground,
+                                                                                 interval.as(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    private void cancelGarbageCollection()
+    {
+        if (this.garbageCollectionTask != null)
+        {
+            this.garbageCollectionTask.cancel(false);
+            this.garbageCollectionTask = null;
+        }
+    }
+
+    private void collectGarbageInBackground()
+    {
+        if (this.garbageCollectionRunning.compareAndSet(false, true))
+        {
+            CacheExecutors.getWorkers()
+                          .submit(() ->
+                          {
+                              try
+                              {
+                                  long reclaimedBytes = this.collectGarbage();
+                                  if (reclaimedBytes > 0)
+                                  {
+                                      LOG.info("Reclaimed " + reclaimedBytes + " bytes of orphan cache files within " + this.cacheDirectory);
+                                  }
+                              }
+                              finally
+                              {
+                                  this.garbageCollectionRunning.set(false);
+                              }
+                          });
+        }
+    }
+
+    /**
+     * Deletes all cache files of both layouts, which are not referenced by the root index. Only files with an index up to the highest index handed out
+     * before the scan are considered, since an index is never referenced again after it has been released, and files of higher indexes might still be
+     * written concurrently.
+     * 
+     * @see #withGarbageCollection(TimeDuration, int)
+     * @return the number of reclaimed bytes
+     */
+    public long collectGarbage()
+    {
+        DataRoot root = this.getOrCreateRoot();
+        Set<Long> referencedIndexes;
+        long highestIndex;
+        synchronized (this.root)
+        {
+            referencedIndexes = new HashSet<>(root.getData()
+                                                  .values());
+            // released files are deleted by the next commit of the root index, which still references them until then
+            referencedIndexes.addAll(this.pendingFileDeletions);
+            highestIndex = root.getIndex()
+                               .get();
+        }
+
+        long reclaimedBytes = 0;
+        long numberOfDeletedFiles = 0;
+        long startTime = System.currentTimeMillis();
+        try (Stream<Path> paths = Files.walk(this.cacheDirectory.toPath(), 3))
+        {
+            Iterator<File> cacheFiles = paths.map(Path::toFile)
+                                             .filter(File::isFile)
+                                             .iterator();
+            while (cacheFiles.hasNext())
+            {
+                File cacheFile = cacheFiles.next();
+                Long index = this.determineCacheFileIndex(cacheFile);
+                if (index != null && index <= highestIndex && !referencedIndexes.contains(index))
+                {
+                    long length = cacheFile.length();
+                    if (cacheFile.delete())
+                    {
+                        reclaimedBytes += length;
+                        numberOfDeletedFiles++;
+                        this.totalReclaimedBytes.addAndGet(length);
+                        if (!this.awaitDeletionRateLimit(numberOfDeletedFiles, startTime))
+                        {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException | UncheckedIOException e)
+        {
+            LOG.error("Exception collecting orphan cache files of: " + this.cacheDirectory, e);
+        }
+        return reclaimedBytes;
+    }
+
+    /**
+     * Returns the index of the given file, if it is a cache file of any layout, otherwise null
+     * 
+     * @param file
+     * @return
+     */
+    private Long determineCacheFileIndex(File file)
+    {
+        Matcher matcher = CACHE_FILE_NAME_PATTERN.matcher(file.getName());
+        if (!matcher.matches())
+        {
+            return null;
+        }
+
+        Long index = Long.valueOf(matcher.group(1));
+        boolean isCacheFile = file.equals(this.determineCacheFile(index, false)) || file.equals(this.determineCacheFile(index, true));
+        return isCacheFile ? index : null;
+    }
+
+    /**
+     * Sleeps as long as the given number of deleted files exceeds the maximum deletion rate
+     * 
+     * @return false, if the current thread has been interrupted
+     */
+    private boolean awaitDeletionRateLimit(long numberOfDeletedFiles, long startTime)
+    {
+        if (this.maxDeletionsPerSecond > 0)
+        {
+            long remainingTime = numberOfDeletedFiles * 1000 / this.maxDeletionsPerSecond - (System.currentTimeMillis() - startTime);
+            if (remainingTime > 0)
+            {
+                try
+                {
+                    Thread.sleep(remainingTime);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread()
+                          .interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes reclaimed by all garbage collections of this instance
+     * 
+     * @return
+     */
+    public long getTotalReclaimedBytes()
+    {
+        return this.totalReclaimedBytes.get();
+    }
+
+    /**
+     * Stops the garbage collection, waits for a running segment compaction and closes all open segment files
+     */
+    @Override
+    public void close()
+    {
+        this.cancelGarbageCollection();
+        Future<?> compactionTask = this.compactionTask;
+        if (compactionTask != null)
+        {
+            try
+            {
+                compactionTask.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread()
+                      .interrupt();
+            }
+            catch (ExecutionException e)
+            {
+                LOG.error("Exception compacting segments of cache: " + this.cacheDirectory, e);
+            }
+        }
+        if (this.segmentStorage != null)
+        {
+            this.segmentStorage.close();
+        }
+        if (this.deltaLog != null)
+        {
+            this.deltaLog.close();
+        }
+    }
+
+    /**
+     * Activates the group commit of the root index. A mutation is applied to the root index in memory and the calling thread waits until the root index
+     * is written, but the first waiting thread delays the write up to the given latency or until the given number of mutations is pending, so all
+     * mutations of concurrent threads are written together. The two phase commit of the root index is kept, so every returned mutation is durable.
+     * Reads of a key with a not yet written mutation wait for its commit, so readers never see a mutation which could still get lost.
+     * 
+     * @param maxLatency
+     * @param maxBatchSize
+     * @return
+     */
+    public JsonFolderFilesCache withGroupCommit(TimeDuration maxLatency, int maxBatchSize)
+    {
+        this.groupCommit = true;
+        this.groupCommitLatency = maxLatency.as(TimeUnit.MILLISECONDS);
+        this.groupCommitBatchSize = Math.max(1, maxBatchSize);
+        return this;
+    }
+
+    /**
+     * Activates the delta log of the root index. Every change of the root index is appended as single json line to a delta log next to the root index,
+     * which makes the write cost of a mutation independent of the number of entries. On startup the delta log is replayed on top of the last checkpoint of
+     * the root index. If the delta log grows larger than the given ratio of the root index size, the whole root index is written as new checkpoint and
+     * the delta log is truncated.
+     * 
+     * @param checkpointRatio
+     * @return
+     */
+    public JsonFolderFilesCache withDeltaLog(double checkpointRatio)
+    {
+        this.checkpointRatio = checkpointRatio;
+        this.getDeltaLog();
+        this.deltaLogging = true;
+        return this;
+    }
+
+    /**
+     * Single change of the {@link JsonFolderFilesCache} root index, which contains the absolute state of an entry, so a replay is idempotent
+     * 
+     * @author omnaest
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    protected static class DeltaRecord
+    {
+        public static enum Operation
+        {
+            PUT, REMOVE
+        }
+
+        @JsonProperty
+        private Operation operation;
+
+        @JsonProperty
+        private String    key;
+
+        @JsonProperty
+        private Long      index;
+
+        @JsonProperty
+        private Class<?>  type;
+
+        @JsonProperty
+        private Location  location;
+
+        protected DeltaRecord()
+        {
+            super();
+        }
+
+        public static DeltaRecord ofPut(String key, Long index, Class<?> type)
+        {
+            return ofPut(key, index, type, null);
+        }
+
+        public static DeltaRecord ofPut(String key, Long index, Class<?> type, Location location)
+        {
+            DeltaRecord record = new DeltaRecord();
+            record.operation = Operation.PUT;
+            record.key = key;
+            record.index = index;
+            record.type = type;
+            record.location = location;
+            return record;
+        }
+
+        public static DeltaRecord ofRemove(String key)
+        {
+            DeltaRecord record = new DeltaRecord();
+            record.operation = Operation.REMOVE;
+            record.key = key;
+            return record;
+        }
+
+        public String getKey()
+        {
+            return this.key;
+        }
+
+        public DataRoot applyTo(DataRoot dataRoot)
+        {
+            if (this.operation == Operation.PUT)
+            {
+                dataRoot.getData()
+                        .put(this.key, this.index);
+                if (this.type != null)
+                {
+                    dataRoot.getTypes()
+                            .put(this.key, this.type);
+                }
+                if (this.location != null)
+                {
+                    dataRoot.getSegments()
+                            .put(this.key, this.location);
+                }
+                else
+                {
+                    dataRoot.getSegments()
+                            .remove(this.key);
+                }
+                dataRoot.getIndex()
+                        .accumulateAndGet(this.index, Math::max);
+            }
+            else if (this.operation == Operation.REMOVE)
+            {
+                dataRoot.getData()
+                        .remove(this.key);
+                dataRoot.getTypes()
+                        .remove(this.key);
+                dataRoot.getSegments()
+                        .remove(this.key);
+            }
+            return dataRoot;
+        }
+    }
+
     protected static class DataRoot
     {
         @JsonProperty
-        private AtomicLong                      index = new AtomicLong();
+        private AtomicLong                      index    = new AtomicLong();
+
+        @JsonProperty
+        private ConcurrentMap<String, Long>     data     = new ConcurrentHashMap<>();
 
         @JsonProperty
-        private ConcurrentMap<String, Long>     data  = new ConcurrentHashMap<>();
+        private ConcurrentMap<String, Class<?>> types    = new ConcurrentHashMap<>();
 
         @JsonProperty
-        private ConcurrentMap<String, Class<?>> types = new ConcurrentHashMap<>();
+        private ConcurrentMap<String, Location> segments = new ConcurrentHashMap<>();
 
         public DataRoot()
         {
@@ -106,6 +741,16 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
             return this.types;
         }
 
+        /**
+         * Returns the {@link Location}s of all values stored within segments
+         * 
+         * @return
+         */
+        public Map<String, Location> getSegments()
+        {
+            return this.segments;
+        }
+
         public AtomicLong getIndex()
         {
             return this.index;
@@ -133,16 +778,35 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
     @Override
     public <V> V get(String key, Class<V> type)
     {
-        Long fileIndex = this.getOrCreateRoot()
-                             .getData()
-                             .get(key);
-        return this.readFromSingleCacheFile(fileIndex, type)
+        this.awaitCommitted(key);
+        return this.readValue(this.getOrCreateRoot(), key, type)
                    .orElse(null);
     }
 
+    /**
+     * Resolves all file indices from a single snapshot of the root index and reads the cache files in parallel
+     */
+    @Override
+    public <V> Map<String, V> get(Class<V> type, Collection<String> keys)
+    {
+        Optional.ofNullable(keys)
+                .ifPresent(iterable -> iterable.forEach(this::awaitCommitted));
+        DataRoot root = this.getOrCreateRoot();
+        return Optional.ofNullable(keys)
+                       .orElse(Collections.emptyList())
+                       .parallelStream()
+                       .filter(Objects::nonNull)
+                       .distinct()
+                       .map(key -> BiElement.of(key, this.readValue(root, key, type)
+                                                         .orElse(null)))
+                       .filter(BiElement::hasNoNullValue)
+                       .collect(CollectorUtils.toMapByBiElement());
+    }
+
     @Override
     public boolean contains(String key)
     {
+        this.awaitCommitted(key);
         return this.getOrCreateRoot()
                    .getData()
                    .get(key) != null;
@@ -151,25 +815,113 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
     @Override
     public TimeDuration getAge(String key)
     {
-        Instant modificationDate = Optional.ofNullable(this.getOrCreateRoot()
-                                                           .getData()
+        this.awaitCommitted(key);
+        DataRoot root = this.getOrCreateRoot();
+        Instant modificationDate = Optional.ofNullable(root.getSegments()
                                                            .get(key))
-                                           .map(index -> this.determineCacheFile(index))
-                                           .map(cacheFile -> new Date(cacheFile.lastModified()).toInstant())
-                                           .orElseGet(() -> Instant.now());
+                                           .map(location -> Instant.ofEpochMilli(location.getModified()))
+                                           .orElseGet(() -> Optional.ofNullable(root.getData()
+                                                                                    .get(key))
+                                                                    .map(index -> this.determineExistingCacheFile(index))
+                                                                    .map(cacheFile -> new Date(cacheFile.lastModified()).toInstant())
+                                                                    .orElseGet(() -> Instant.now()));
         return TimeDuration.of(Duration.between(modificationDate, Instant.now()));
     }
 
+    private <V> NullOptional<V> readValue(DataRoot root, String key, Class<V> type)
+    {
+        Location location = root.getSegments()
+                                .get(key);
+        if (location != null)
+        {
+            return this.readFromSegment(root, key, location, type);
+        }
+        else
+        {
+            return this.readFromSingleCacheFile(root.getData()
+                                                    .get(key),
+                                                type);
+        }
+    }
+
+    /**
+     * Reads the value of the given {@link Location}. If the read fails, because the segment has been compacted meanwhile, the read is repeated with the
+     * current {@link Location} of the key.
+     */
+    private <V> NullOptional<V> readFromSegment(DataRoot root, String key, Location location, Class<V> type)
+    {
+        try
+        {
+            byte[] content = this.getSegmentStorage()
+                                  .read(location);
+            this.statsCounter.recordBytesRead(content.length);
+            return NullOptional.ofPresentNullable(this.decodeValue(content, type));
+        }
+        catch (IllegalStateException e)
+        {
+            Location currentLocation = root.getSegments()
+                                           .get(key);
+            if (currentLocation != null && !currentLocation.equals(location))
+            {
+                return this.readFromSegment(root, key, currentLocation, type);
+            }
+            LOG.error("Exception reading segment value", e);
+            return NullOptional.empty();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V decodeValue(byte[] content, Class<V> type)
+    {
+        if (this.shouldBeHandledAsNativeByteArray(type))
+        {
+            return (V) content;
+        }
+        else if (this.shouldBeHandledAsNativeString(type))
+        {
+            return (V) new String(content, StandardCharsets.UTF_8);
+        }
+        else
+        {
+            return JSONHelper.readerDeserializer(type)
+                             .apply(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+        }
+    }
+
+    private byte[] encodeValue(Object value)
+    {
+        Class<?> type = Optional.ofNullable(value)
+                                .map(Object::getClass)
+                                .orElse(null);
+        if (this.shouldBeHandledAsNativeByteArray(type))
+        {
+            return (byte[]) value;
+        }
+        else if (this.shouldBeHandledAsNativeString(type))
+        {
+            return ((String) value).getBytes(StandardCharsets.UTF_8);
+        }
+        else
+        {
+            StringWriter writer = new StringWriter();
+            JSONHelper.prepareAsPrettyPrintWriterConsumer(value)
+                      .accept(writer);
+            return writer.toString()
+                         .getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private <V> NullOptional<V> readFromSingleCacheFile(Long index, Class<V> type)
     {
         return NullOptional.ofNullable(index)
-                           .map(cacheFileIndex -> this.determineCacheFile(cacheFileIndex))
+                           .map(cacheFileIndex -> this.determineExistingCacheFile(cacheFileIndex))
                            .filter(cacheFile -> cacheFile.exists())
                            .flatMap(cacheFile ->
                            {
                                try
                                {
+                                   this.statsCounter.recordBytesRead(cacheFile.length());
                                    if (this.shouldBeHandledAsNativeByteArray(type))
                                    {
                                        return NullOptional.ofPresentNullable((V) FileUtils.readFileToByteArray(cacheFile));
@@ -205,7 +957,46 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
 
     private File determineCacheFile(Long fileIndex)
     {
-        return new File(this.cacheDirectory, "" + fileIndex + ".json");
+        return this.determineCacheFile(fileIndex, this.shardedLayout);
+    }
+
+    private File determineCacheFile(Long fileIndex, boolean sharded)
+    {
+        String fileName = "" + fileIndex + ".json";
+        if (sharded)
+        {
+            File shardDirectory = new File(new File(this.cacheDirectory, toShardName(fileIndex)), toShardName(fileIndex >>> 8));
+            return new File(shardDirectory, fileName);
+        }
+        else
+        {
+            return new File(this.cacheDirectory, fileName);
+        }
+    }
+
+    private static String toShardName(long bits)
+    {
+        return String.format("%02x", bits & 0xFF);
+    }
+
+    /**
+     * Returns the cache file of the current layout, or the cache file of the other layout, if only that one exists
+     * 
+     * @param fileIndex
+     * @return
+     */
+    private File determineExistingCacheFile(Long fileIndex)
+    {
+        File cacheFile = this.determineCacheFile(fileIndex);
+        if (!cacheFile.exists())
+        {
+            File otherLayoutCacheFile = this.determineCacheFile(fileIndex, !this.shardedLayout);
+            if (otherLayoutCacheFile.exists())
+            {
+                return otherLayoutCacheFile;
+            }
+        }
+        return cacheFile;
     }
 
     private Long writeToFileAndGetIndex(Object value)
@@ -222,7 +1013,7 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
         {
             try
             {
-                FileUtils.forceDelete(this.determineCacheFile(index));
+                FileUtils.forceDelete(this.determineExistingCacheFile(index));
             }
             catch (IOException e)
             {
@@ -236,6 +1027,11 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
         try
         {
             File cacheFile = this.determineCacheFile(index);
+            if (this.shardedLayout)
+            {
+                cacheFile.getParentFile()
+                         .mkdirs();
+            }
             if (this.shouldBeHandledAsNativeByteArray(Optional.ofNullable(value)
                                                               .map(Object::getClass)
                                                               .orElse(null)))
@@ -256,6 +1052,7 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
                               .accept(writer);
                 }
             }
+            this.statsCounter.recordBytesWritten(cacheFile.length());
         }
         catch (IOException e)
         {
@@ -268,66 +1065,206 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
     {
         this.operateOnRootAndGet(root ->
         {
-            this.deleteOrphanCacheFile(root.getData()
-                                           .get(key));
-            root.getData()
-                .put(key, this.writeToFileAndGetIndex(value));
-            root.getTypes()
-                .put(key, value != null ? value.getClass() : Void.class);
+            this.putIntoRoot(root, key, value);
             return root;
         });
+        this.compactSegmentsIfNecessary();
+    }
+
+    @Override
+    public <V> void putAll(Map<String, V> map)
+    {
+        if (map != null && !map.isEmpty())
+        {
+            this.operateOnRootAndGet(root ->
+            {
+                map.forEach((key, value) -> this.putIntoRoot(root, key, value));
+                return root;
+            });
+            this.compactSegmentsIfNecessary();
+        }
+    }
 
+    private void putIntoRoot(DataRoot root, String key, Object value)
+    {
+        this.releaseValue(root, key);
+        Class<?> type = value != null ? value.getClass() : Void.class;
+        root.getTypes()
+            .put(key, type);
+        this.storeValue(root, key, value, type);
+    }
+
+    /**
+     * Writes the given value either into a new single file or into the current segment and registers it for the given key within the root index. This
+     * must be called while holding the root lock.
+     * 
+     * @return the new index of the key
+     */
+    private Long storeValue(DataRoot root, String key, Object value, Class<?> type)
+    {
+        Long index;
+        Location location = null;
+        if (this.segmentStorageActive)
+        {
+            index = root.getNextIndex();
+            byte[] content = this.encodeValue(value);
+            location = this.segmentStorage.append(content);
+            this.statsCounter.recordBytesWritten(content.length);
+            root.getSegments()
+                .put(key, location);
+        }
+        else
+        {
+            index = this.writeToFileAndGetIndex(value);
+        }
+        root.getData()
+            .put(key, index);
+        this.recordDelta(DeltaRecord.ofPut(key, index, type, location));
+        return index;
+    }
+
+    /**
+     * Releases the current value of the given key, which deletes its single file after the next commit of the root index or marks its segment value as
+     * garbage. This must be called while holding the root lock.
+     */
+    private void releaseValue(DataRoot root, String key)
+    {
+        Location location = root.getSegments()
+                                .remove(key);
+        if (location != null)
+        {
+            this.segmentGarbage.addAndGet(location.getLength());
+        }
+        else
+        {
+            Optional.ofNullable(root.getData()
+                                    .get(key))
+                    .ifPresent(this.pendingFileDeletions::add);
+        }
+    }
+
+    /**
+     * Registers the given change of the root index, which is appended to the delta log by the next commit. This must be called while holding the root
+     * lock.
+     * 
+     * @param record
+     */
+    private void recordDelta(DeltaRecord record)
+    {
+        if (this.deltaLogging)
+        {
+            this.pendingDeltaRecords.add(record);
+        }
+        if (this.groupCommit)
+        {
+            synchronized (this.commitMonitor)
+            {
+                this.keyToPendingSequence.put(record.getKey(), this.mutationSequence + 1);
+            }
+        }
+    }
+
+    /**
+     * Waits until a pending mutation of the given key is committed, so readers never see a mutation of the group commit which could still get lost
+     * 
+     * @param key
+     */
+    private void awaitCommitted(String key)
+    {
+        if (this.groupCommit && key != null)
+        {
+            Long sequence = this.keyToPendingSequence.get(key);
+            if (sequence != null)
+            {
+                this.awaitCommittedSequence(sequence);
+            }
+        }
+    }
+
+    private void awaitCommittedSequence(long sequence)
+    {
+        synchronized (this.commitMonitor)
+        {
+            while (this.committedSequence < sequence)
+            {
+                try
+                {
+                    this.commitMonitor.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread()
+                          .interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the commit of the root index: " + this.cacheDirectory, e);
+                }
+            }
+        }
     }
 
     @Override
     public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
     {
-        Long index = this.getOrCreateRoot()
-                         .getData()
-                         .get(key);
-
-        if (index == null)
+        return this.singleFlight.execute(key, () ->
         {
-            index = this.operateOnRootAndGet(root ->
+            this.awaitCommitted(key);
+            Long index = this.getOrCreateRoot()
+                             .getData()
+                             .get(key);
+
+            if (index == null)
             {
-                root.getData()
-                    .computeIfAbsent(key, (id) ->
+                V value = supplier.get();
+                index = this.operateOnRootAndGet(root ->
+                {
+                    if (!root.getData()
+                             .containsKey(key))
                     {
-                        V value = supplier.get();
                         if (value != null)
                         {
                             root.getTypes()
                                 .put(key, value.getClass());
                         }
+                        this.storeValue(root, key, value, value != null ? value.getClass() : null);
+                    }
+                    return root;
+                })
+                            .getData()
+                            .get(key);
+            }
 
-                        return this.writeToFileAndGetIndex(value);
-                    });
-                return root;
-            })
-                        .getData()
-                        .get(key);
-        }
-
-        if (index != null)
-        {
-            long fileIndex = index;
-            return this.readFromSingleCacheFile(fileIndex, type)
-                       .orElseGet(() ->
-                       {
-                           V value = supplier.get();
-                           this.writeToSingleCacheFile(value, fileIndex);
-                           return value;
-                       });
-        }
-        else
-        {
-            return null;
-        }
+            if (index != null)
+            {
+                long fileIndex = index;
+                return this.readValue(this.getOrCreateRoot(), key, type)
+                           .orElseGet(() ->
+                           {
+                               V value = supplier.get();
+                               if (this.segmentStorageActive)
+                               {
+                                   this.put(key, value);
+                               }
+                               else
+                               {
+                                   this.writeToSingleCacheFile(value, fileIndex);
+                               }
+                               return value;
+                           });
+            }
+            else
+            {
+                return null;
+            }
+        });
     }
 
     @Override
     public Set<String> keySet()
     {
+        this.keyToPendingSequence.values()
+                                 .stream()
+                                 .mapToLong(Long::longValue)
+                                 .max()
+                                 .ifPresent(this::awaitCommittedSequence);
         return new HashSet<>(this.getOrCreateRoot()
                                  .getData()
                                  .keySet());
@@ -339,8 +1276,15 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
 
         if (retmap == null)
         {
-            this.operateOnRootAndGet(r -> r == null ? this.loadRoot() : null, () -> this.root.get());
-            retmap = this.root.get();
+            // loading the root index changes nothing on disk, so no commit is necessary
+            synchronized (this.root)
+            {
+                if (this.root.get() == null)
+                {
+                    this.root.set(this.loadRoot());
+                }
+                retmap = this.root.get();
+            }
         }
 
         return retmap;
@@ -353,19 +1297,208 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
 
     public DataRoot operateOnRootAndGet(UnaryOperator<DataRoot> updateFunction, Supplier<DataRoot> initialDataRoot)
     {
+        long sequence;
         synchronized (this.root)
         {
             this.root.set(updateFunction.apply(initialDataRoot.get()));
-            this.writeRootCacheFile();
+            if (!this.groupCommit)
+            {
+                this.commitRoot();
+                return this.root.get();
+            }
+
+            synchronized (this.commitMonitor)
+            {
+                sequence = ++this.mutationSequence;
+                this.commitMonitor.notifyAll();
+            }
         }
+        this.awaitGroupCommit(sequence);
         return this.root.get();
     }
 
-    private DataRoot loadRoot()
+    /**
+     * Waits until the root index is written including the mutation with the given sequence. If no other thread is writing the root index, the current
+     * thread becomes the leader of the next commit and writes the root index after the group commit latency or as soon as the batch size is reached.
+     * 
+     * @param sequence
+     */
+    private void awaitGroupCommit(long sequence)
     {
-        return Optional.ofNullable(this.readFromRootCacheFile())
-                       .orElseGet(() -> new DataRoot());
+        synchronized (this.commitMonitor)
+        {
+            while (this.committedSequence < sequence && this.commitInProgress)
+            {
+                try
+                {
+                    this.commitMonitor.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread()
+                          .interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the commit of the root index: " + this.cacheDirectory, e);
+                }
+            }
+            if (this.committedSequence >= sequence)
+            {
+                return;
+            }
+
+            this.commitInProgress = true;
+            this.awaitGroupCommitBatch();
+        }
+
+        try
+        {
+            this.commitGroup();
+        }
+        finally
+        {
+            synchronized (this.commitMonitor)
+            {
+                this.commitInProgress = false;
+                this.commitMonitor.notifyAll();
+            }
+        }
+    }
 
+    private void awaitGroupCommitBatch()
+    {
+        long deadline = System.currentTimeMillis() + this.groupCommitLatency;
+        long remainingLatency = this.groupCommitLatency;
+        while (this.mutationSequence - this.committedSequence < this.groupCommitBatchSize && remainingLatency > 0)
+        {
+            try
+            {
+                this.commitMonitor.wait(remainingLatency);
+            }
+            catch (InterruptedException e)
+            {
+                // the leader has to write the pending mutations anyhow
+                Thread.currentThread()
+                      .interrupt();
+                return;
+            }
+            remainingLatency = deadline - System.currentTimeMillis();
+        }
+    }
+
+    private void commitGroup()
+    {
+        synchronized (this.root)
+        {
+            long sequence;
+            synchronized (this.commitMonitor)
+            {
+                sequence = this.mutationSequence;
+            }
+            this.commitRoot();
+            synchronized (this.commitMonitor)
+            {
+                this.committedSequence = sequence;
+                this.keyToPendingSequence.values()
+                                         .removeIf(pendingSequence -> pendingSequence <= sequence);
+            }
+        }
+    }
+
+    /**
+     * Persists the changes of the root index, either by appending the pending changes to the delta log or by writing the whole root index. Files of
+     * released values are deleted only after the changes are persisted. This must be called while holding the root lock.
+     */
+    private void commitRoot()
+    {
+        if (this.segmentStorageActive)
+        {
+            // appended values have to be durable before the root index references them
+            this.segmentStorage.force();
+        }
+        if (this.deltaLogging)
+        {
+            try
+            {
+                this.pendingDeltaRecords.forEach(record -> this.statsCounter.recordBytesWritten(this.deltaLog.append(record)));
+            }
+            finally
+            {
+                this.pendingDeltaRecords.clear();
+            }
+            this.deletePendingFiles();
+            this.checkpointIfNecessary();
+        }
+        else if (this.writeRootCacheFile())
+        {
+            this.deletePendingFiles();
+            this.clearDeltaLog();
+        }
+    }
+
+    /**
+     * Deletes the files of released values, which are not referenced anymore by the persisted root index
+     */
+    private void deletePendingFiles()
+    {
+        this.pendingFileDeletions.forEach(this::deleteOrphanCacheFile);
+        this.pendingFileDeletions.clear();
+    }
+
+    private void checkpointIfNecessary()
+    {
+        long checkpointThreshold = (long) (this.checkpointRatio * Math.max(this.checkpointSize, MINIMUM_CHECKPOINT_SIZE));
+        if (this.deltaLog.size() > checkpointThreshold && this.writeRootCacheFile())
+        {
+            this.clearDeltaLog();
+        }
+    }
+
+    /**
+     * Removes the delta log after the whole root index has been written, since all its changes are contained in the root index
+     */
+    private void clearDeltaLog()
+    {
+        if (this.deltaLog != null && this.deltaLog.exists())
+        {
+            this.deltaLog.clear();
+        }
+    }
+
+    private JsonLinesJournal<DeltaRecord> getDeltaLog()
+    {
+        JsonLinesJournal<DeltaRecord> deltaLog = this.deltaLog;
+        if (deltaLog == null)
+        {
+            synchronized (this.commitMonitor)
+            {
+                if (this.deltaLog == null)
+                {
+                    this.deltaLog = new JsonLinesJournal<>(this.determineDeltaLogFile(), DeltaRecord.class);
+                }
+                deltaLog = this.deltaLog;
+            }
+        }
+        return deltaLog;
+    }
+
+    private File determineDeltaLogFile()
+    {
+        return new File(this.cacheDirectory, "root.delta");
+    }
+
+    private DataRoot loadRoot()
+    {
+        DataRoot dataRoot = Optional.ofNullable(this.readFromRootCacheFile())
+                                    .orElseGet(() -> new DataRoot());
+        this.checkpointSize = this.determineRootCacheFile()
+                                  .length();
+        if (this.deltaLog != null || this.determineDeltaLogFile()
+                                            .exists())
+        {
+            // a delta log of a former usage has to be replayed, too
+            this.getDeltaLog()
+                .replay(record -> record.applyTo(dataRoot));
+        }
+        return dataRoot;
     }
 
     private DataRoot readFromRootCacheFile()
@@ -377,6 +1510,7 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
             try
             {
                 String json = FileUtils.readFileToString(rootCacheFile, UTF_8);
+                this.statsCounter.recordBytesRead(rootCacheFile.length());
                 retval = StringUtils.isBlank(json) ? null : JSONHelper.readFromString(json, DataRoot.class);
             }
             catch (Exception e)
@@ -388,19 +1522,24 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
         return retval;
     }
 
-    private void writeRootCacheFile()
+    private boolean writeRootCacheFile()
     {
         try
         {
             byte commitIndex = (byte) ((this.determineCommitIndex() + 1) % 2);
-            org.omnaest.utils.FileUtils.toWriterSupplierUTF8(this.determineRootCacheFile(commitIndex))
+            File rootCacheFile = this.determineRootCacheFile(commitIndex);
+            org.omnaest.utils.FileUtils.toWriterSupplierUTF8(rootCacheFile)
                                        .toConsumerWith(JSONHelper.writerSerializer(DataRoot.class))
                                        .accept(this.root.get());
             FileUtils.writeByteArrayToFile(this.determineRootCommitFile(), new byte[] {commitIndex});
+            this.checkpointSize = rootCacheFile.length();
+            this.statsCounter.recordBytesWritten(this.checkpointSize + 1);
+            return true;
         }
         catch (Exception e)
         {
             LOG.error("Exception writing json to cache file: " + this.cacheDirectory, e);
+            return false;
         }
     }
 
@@ -440,6 +1579,7 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
     @Override
     public <V> Class<V> getType(String key)
     {
+        this.awaitCommitted(key);
         return (Class<V>) this.getOrCreateRoot()
                               .getTypes()
                               .get(key);
@@ -458,8 +1598,13 @@ public class JsonFolderFilesCache extends AbstractCache implements CacheWithNati
                  .remove(key);
                 r.getTypes()
                  .remove(key);
+                Optional.ofNullable(r.getSegments()
+                                     .remove(key))
+                        .ifPresent(location -> this.segmentGarbage.addAndGet(location.getLength()));
+                this.recordDelta(DeltaRecord.ofRemove(key));
                 return r;
             });
+            this.compactSegmentsIfNecessary();
         }
 
     }
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.omnaest.utils.JSONHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only journal which stores each record as a single line of json within a {@link File}.
+ * <br>
+ * <br>
+ * For a compaction the journal is rotated by {@link #rotate()}, so that new records are appended to a fresh journal file while the snapshot of the
+ * former state is written. After the snapshot is written, the rotated journal is removed by {@link #deleteRotated()}. {@link #replay(Consumer)} replays
+ * the rotated journal before the current one, which keeps the recovery correct, as long as the records describe the absolute state of an entry. Torn or
+ * corrupt lines, e.g. of a crash during an append, are skipped. A torn last line is terminated before the next append, so it never swallows the
+ * following record.
+ * 
+ * @author omnaest
+ * @param <R>
+ */
+public class JsonLinesJournal<R> implements AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(JsonLinesJournal.class);
+
+    private File                journalFile;
+    private File                rotatedJournalFile;
+    private Class<R>            recordType;
+    private OutputStream        outputStream;
+    private long                size;
+
+    public JsonLinesJournal(File journalFile, Class<R> recordType)
+    {
+        super();
+        this.journalFile = journalFile;
+        this.rotatedJournalFile = new File(journalFile.getPath() + ".old");
+        this.recordType = recordType;
+        this.size = journalFile.length();
+    }
+
+    /**
+     * Appends the given record and returns the number of written bytes
+     * 
+     * @param record
+     * @return
+     */
+    public synchronized long append(R record)
+    {
+        byte[] line = (JSONHelper.serialize(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        try
+        {
+            if (this.outputStream == null)
+            {
+                this.journalFile.getAbsoluteFile()
+                                .getParentFile()
+                                .mkdirs();
+                boolean tornLastLine = !endsWithLineBreak(this.journalFile);
+                this.outputStream = new FileOutputStream(this.journalFile, true);
+                if (tornLastLine)
+                {
+                    this.outputStream.write('\n');
+                    this.size++;
+                }
+            }
+            this.outputStream.write(line);
+            this.outputStream.flush();
+            this.size += line.length;
+            return line.length;
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to append to journal: " + this.journalFile, e);
+        }
+    }
+
+    /**
+     * Replays all records of the rotated and the current journal in the order they have been appended
+     * 
+     * @param recordConsumer
+     */
+    public synchronized void replay(Consumer<R> recordConsumer)
+    {
+        this.replay(this.rotatedJournalFile, recordConsumer);
+        this.replay(this.journalFile, recordConsumer);
+    }
+
+    private void replay(File file, Consumer<R> recordConsumer)
+    {
+        if (!file.isFile())
+        {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))
+        {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+            {
+                lineNumber++;
+                if (StringUtils.isNotBlank(line))
+                {
+                    R record;
+                    try
+                    {
+                        record = JSONHelper.readFromString(line, this.recordType);
+                    }
+                    catch (Exception e)
+                    {
+                        LOG.warn("Skipping corrupt journal record at line " + lineNumber + " of " + file);
+                        continue;
+                    }
+                    recordConsumer.accept(record);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to read journal: " + file, e);
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the current journal file
+     * 
+     * @return
+     */
+    public synchronized long size()
+    {
+        return this.size;
+    }
+
+    public synchronized boolean exists()
+    {
+        return this.journalFile.exists() || this.rotatedJournalFile.exists();
+    }
+
+    /**
+     * Moves the current journal to the rotated journal, so that further records are appended to a new journal file. If a rotated journal is still
+     * present from a failed compaction, the current journal is appended to it.
+     */
+    public synchronized void rotate()
+    {
+        this.closeOutputStream();
+        try
+        {
+            if (this.journalFile.exists())
+            {
+                if (this.rotatedJournalFile.exists())
+                {
+                    if (!endsWithLineBreak(this.rotatedJournalFile))
+                    {
+                        Files.write(this.rotatedJournalFile.toPath(), new byte[] { '\n' }, StandardOpenOption.APPEND);
+                    }
+                    Files.write(this.rotatedJournalFile.toPath(), Files.readAllBytes(this.journalFile.toPath()), StandardOpenOption.APPEND);
+                    Files.delete(this.journalFile.toPath());
+                }
+                else
+                {
+                    Files.move(this.journalFile.toPath(), this.rotatedJournalFile.toPath());
+                }
+            }
+            this.size = 0;
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to rotate journal: " + this.journalFile, e);
+        }
+    }
+
+    public synchronized void deleteRotated()
+    {
+        this.rotatedJournalFile.delete();
+    }
+
+    /**
+     * Deletes the current and the rotated journal
+     */
+    public synchronized void clear()
+    {
+        this.closeOutputStream();
+        this.journalFile.delete();
+        this.rotatedJournalFile.delete();
+        this.size = 0;
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        this.closeOutputStream();
+    }
+
+    /**
+     * Returns true, if the given file is empty, does not exist or its last byte is a line break
+     * 
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    private static boolean endsWithLineBreak(File file) throws IOException
+    {
+        if (!file.isFile() || file.length() == 0)
+        {
+            return true;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"))
+        {
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            return randomAccessFile.read() == '\n';
+        }
+    }
+
+    private void closeOutputStream()
+    {
+        if (this.outputStream != null)
+        {
+            try
+            {
+                this.outputStream.close();
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Unable to close journal: " + this.journalFile, e);
+            }
+            this.outputStream = null;
+        }
+    }
+}
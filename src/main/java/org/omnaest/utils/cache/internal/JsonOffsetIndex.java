@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Byte offset index of a json {@link File} with a root object, which is created by a streaming parse without building any tree.
+ * <br>
+ * <br>
+ * For the nested object of the indexed root field the {@link ValueLocation} of each value is recorded, so that a single value can be read later by
+ * {@link #read(File, ValueLocation)}. All other root fields are kept as raw json.
+ * 
+ * @author omnaest
+ */
+public class JsonOffsetIndex
+{
+    private static final JsonFactory   JSON_FACTORY  = new JsonFactory();
+
+    private Map<String, ValueLocation> locations     = new LinkedHashMap<>();
+    private Map<String, String>        rawRootFields = new LinkedHashMap<>();
+
+    /**
+     * Position of a single json value within a {@link File}
+     * 
+     * @author omnaest
+     */
+    public static class ValueLocation
+    {
+        private long offset;
+        private int  length;
+
+        public ValueLocation(long offset, int length)
+        {
+            super();
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public long getOffset()
+        {
+            return this.offset;
+        }
+
+        public int getLength()
+        {
+            return this.length;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "ValueLocation [offset=" + this.offset + ", length=" + this.length + "]";
+        }
+    }
+
+    private JsonOffsetIndex()
+    {
+        super();
+    }
+
+    /**
+     * Indexes the values of the object within the given root field of the given json {@link File}
+     * 
+     * @param file
+     * @param indexedRootField
+     * @return
+     */
+    public static JsonOffsetIndex of(File file, String indexedRootField)
+    {
+        JsonOffsetIndex index = new JsonOffsetIndex();
+        try (JsonParser parser = JSON_FACTORY.createParser(file))
+        {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+            {
+                throw new IllegalStateException("Json root object expected: " + file);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME)
+            {
+                String rootField = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (indexedRootField.equals(rootField) && token == JsonToken.START_OBJECT)
+                {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME)
+                    {
+                        String key = parser.getCurrentName();
+                        parser.nextToken();
+                        index.locations.put(key, locateCurrentValue(parser));
+                    }
+                }
+                else
+                {
+                    ValueLocation location = locateCurrentValue(parser);
+                    index.rawRootFields.put(rootField, read(file, location));
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to index json file: " + file, e);
+        }
+        return index;
+    }
+
+    private static ValueLocation locateCurrentValue(JsonParser parser) throws IOException
+    {
+        long offset = parser.getTokenLocation()
+                            .getByteOffset();
+        if (parser.currentToken()
+                  .isStructStart())
+        {
+            parser.skipChildren();
+        }
+        else
+        {
+            // completes the lazily parsed string tokens
+            parser.getText();
+        }
+        long endOffset = parser.getCurrentLocation()
+                               .getByteOffset();
+        return new ValueLocation(offset, (int) (endOffset - offset));
+    }
+
+    /**
+     * Reads the json of a single value at the given {@link ValueLocation}
+     * 
+     * @param file
+     * @param location
+     * @return
+     */
+    public static String read(File file, ValueLocation location)
+    {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"))
+        {
+            byte[] data = new byte[location.getLength()];
+            randomAccessFile.seek(location.getOffset());
+            randomAccessFile.readFully(data);
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to read json value from file: " + file, e);
+        }
+    }
+
+    public Map<String, ValueLocation> getLocations()
+    {
+        return this.locations;
+    }
+
+    /**
+     * Returns the raw json of all root fields, which have not been indexed
+     * 
+     * @return
+     */
+    public Map<String, String> getRawRootFields()
+    {
+        return this.rawRootFields;
+    }
+}
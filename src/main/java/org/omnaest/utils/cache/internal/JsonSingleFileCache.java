@@ -34,53 +34,104 @@
 package org.omnaest.utils.cache.internal;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import org.omnaest.utils.FileUtils;
 import org.omnaest.utils.JSONHelper;
 import org.omnaest.utils.RetryUtils;
 import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.Cache.EvictionStrategy;
+import org.omnaest.utils.cache.FlushableCache;
+import org.omnaest.utils.cache.internal.JsonOffsetIndex.ValueLocation;
 import org.omnaest.utils.duration.TimeDuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.fasterxml.jackson.databind.util.RawValue;
 
 /**
  * {@link Cache} which uses {@link JSONHelper} to store the cache content within a single json {@link File}
+ * <br>
+ * <br>
+ * By default every mutation rewrites the whole file. With {@link #withWriteBehind(TimeDuration, int)} the mutations are only applied in memory and the
+ * file is written asynchronously with compact json, so that many mutations are coalesced into a single write. With {@link #withJournal(double)} each
+ * mutation is appended as json line to a {@link JsonLinesJournal} and the cache file is only rewritten as compacted snapshot in the background, if the
+ * journal exceeds the given size ratio. With {@link #withLazyLoading(int)} only the byte offsets of the values are indexed on load and a value is read
+ * from the file, when it is requested first.
  *
  * @see JsonFolderFilesCache
  * @author Omnaest
  * @param <V>
  */
-public class JsonSingleFileCache extends AbstractCache
+public class JsonSingleFileCache extends AbstractCache implements FlushableCache
 {
-    private static final Logger       LOG  = LoggerFactory.getLogger(JsonSingleFileCache.class);
+    private static final Logger             LOG                     = LoggerFactory.getLogger(JsonSingleFileCache.class);
+    private static final long               MINIMUM_COMPACTION_SIZE = 64 * 1024;
 
-    private File                      cacheFile;
+    private File                            cacheFile;
 
-    private AtomicReference<DataRoot> root = new AtomicReference<>();
+    private AtomicReference<DataRoot>       root                    = new AtomicReference<>();
+
+    private volatile boolean                writeBehind             = false;
+    private TimeDuration                    flushInterval;
+    private int                             dirtyThreshold          = Integer.MAX_VALUE;
+    private int                             dirtyCount              = 0;
+    private AtomicBoolean                   flushRequested          = new AtomicBoolean(false);
+    private Object                          snapshotLock            = new Object();
+    private ScheduledFuture<?>              flushTask;
+    private Thread                          shutdownHook;
+
+    private JsonLinesJournal<JournalRecord> journal;
+    private volatile boolean                journaling              = false;
+    private double                          compactionRatio;
+    private long                            snapshotSize            = 0;
+    private AtomicBoolean                   compactionRunning       = new AtomicBoolean(false);
+    private volatile Future<?>              compactionTask;
+
+    private volatile boolean                lazyLoading             = false;
+    private Cache                           decodedValues;
+    private ReadWriteLock                   fileLock                = new ReentrantReadWriteLock();
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     protected static class DataRoot
     {
         @JsonProperty
-        private LinkedHashMap<String, JsonNode> data          = new LinkedHashMap<>();
+        private LinkedHashMap<String, JsonNode>      data          = new LinkedHashMap<>();
 
         @JsonProperty
-        private LinkedHashMap<String, Class<?>> types         = new LinkedHashMap<>();
+        private LinkedHashMap<String, Class<?>>      types         = new LinkedHashMap<>();
 
         @JsonProperty
-        private LinkedHashMap<String, Long>     creationDates = new LinkedHashMap<>();
+        private LinkedHashMap<String, Long>          creationDates = new LinkedHashMap<>();
+
+        /**
+         * Values which have not been read yet from the cache file
+         */
+        @JsonIgnore
+        private LinkedHashMap<String, ValueLocation> lazyData      = new LinkedHashMap<>();
 
         public DataRoot()
         {
@@ -103,23 +154,283 @@ public class JsonSingleFileCache extends AbstractCache
             return this.creationDates;
         }
 
+        @JsonIgnore
+        public LinkedHashMap<String, ValueLocation> getLazyData()
+        {
+            return this.lazyData;
+        }
+
+        public boolean containsKey(String key)
+        {
+            return this.data.containsKey(key) || this.lazyData.containsKey(key);
+        }
+
+        protected DataRoot copy()
+        {
+            DataRoot copy = new DataRoot();
+            copy.data.putAll(this.data);
+            copy.types.putAll(this.types);
+            copy.creationDates.putAll(this.creationDates);
+            copy.lazyData.putAll(this.lazyData);
+            return copy;
+        }
+
+    }
+
+    /**
+     * Single mutation of the {@link JsonSingleFileCache} journal, which contains the absolute state of an entry
+     * 
+     * @author omnaest
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    protected static class JournalRecord
+    {
+        public static enum Operation
+        {
+            PUT, REMOVE
+        }
+
+        @JsonProperty
+        private Operation operation;
+
+        @JsonProperty
+        private String    key;
+
+        @JsonProperty
+        private JsonNode  value;
+
+        @JsonProperty
+        private Class<?>  type;
+
+        @JsonProperty
+        private Long      creationDate;
+
+        protected JournalRecord()
+        {
+            super();
+        }
+
+        public static JournalRecord ofPut(String key, JsonNode value, Class<?> type, long creationDate)
+        {
+            JournalRecord record = new JournalRecord();
+            record.operation = Operation.PUT;
+            record.key = key;
+            record.value = value;
+            record.type = type;
+            record.creationDate = creationDate;
+            return record;
+        }
+
+        public static JournalRecord ofRemove(String key)
+        {
+            JournalRecord record = new JournalRecord();
+            record.operation = Operation.REMOVE;
+            record.key = key;
+            return record;
+        }
+
+        public DataRoot applyTo(DataRoot dataRoot)
+        {
+            if (this.operation == Operation.PUT)
+            {
+                dataRoot.getData()
+                        .put(this.key, this.value);
+                dataRoot.getLazyData()
+                        .remove(this.key);
+                dataRoot.getTypes()
+                        .put(this.key, this.type);
+                dataRoot.getCreationDates()
+                        .put(this.key, this.creationDate);
+            }
+            else if (this.operation == Operation.REMOVE)
+            {
+                dataRoot.getData()
+                        .remove(this.key);
+                dataRoot.getLazyData()
+                        .remove(this.key);
+                dataRoot.getTypes()
+                        .remove(this.key);
+                dataRoot.getCreationDates()
+                        .remove(this.key);
+            }
+            return dataRoot;
+        }
     }
 
     public JsonSingleFileCache(File cacheFile)
     {
         super();
         this.cacheFile = cacheFile;
+        this.journal = new JsonLinesJournal<>(new File(cacheFile.getPath() + ".journal"), JournalRecord.class);
+    }
+
+    /**
+     * Activates the write behind mode. Mutations are only applied in memory and the cache file is written asynchronously with compact json after the
+     * given flush interval or as soon as the given number of mutations is pending. Pending mutations are also written on {@link #flush()},
+     * {@link #close()} and on shutdown of the jvm.
+     * 
+     * @param flushInterval
+     * @param dirtyThreshold
+     * @return
+     */
+    public JsonSingleFileCache withWriteBehind(TimeDuration flushInterval, int dirtyThreshold)
+    {
+        this.close();
+        this.journaling = false;
+        this.dirtyThreshold = Math.max(1, dirtyThreshold);
+        this.flushInterval = flushInterval;
+        this.writeBehind = true;
+        this.startWriteBehind();
+        return this;
+    }
+
+    private void startWriteBehind()
+    {
+        this.flushTask = CacheExecutors.scheduleWeaklyWithFixedDelay(this, JsonSingleFileCache::flush, this.flushInterval.as(TimeUnit.MILLISECONDS),
+                                                                     TimeUnit.MILLISECONDS);
+        this.shutdownHook = CacheExecutors.runWeaklyOnShutdown(this, JsonSingleFileCache::flush);
+    }
+
+    /**
+     * Activates the journal mode. Every mutation is appended as single json line to a journal file next to the cache file, which makes the write cost
+     * independent of the cache size. The cache content is restored by replaying the journal on top of the last snapshot. If the journal grows larger than
+     * the given ratio of the snapshot size, a new snapshot is written in the background and the journal is truncated.
+     * 
+     * @param compactionRatio
+     * @return
+     */
+    public JsonSingleFileCache withJournal(double compactionRatio)
+    {
+        this.close();
+        this.writeBehind = false;
+        this.compactionRatio = compactionRatio;
+        this.journaling = true;
+        return this;
+    }
+
+    /**
+     * Activates the lazy loading mode. The cache file is indexed by a streaming parse, which only records the byte offsets of the values, and each value is
+     * read from the file, when it is requested first. The decoded values of the given number of most recently used keys are kept in memory, so repeated
+     * gets return the same instance without any json conversion. Therefore the returned values must not be modified. An active write behind mode is kept.
+     * 
+     * @param decodedCapacity
+     * @return
+     */
+    public JsonSingleFileCache withLazyLoading(int decodedCapacity)
+    {
+        this.close();
+        synchronized (this.root)
+        {
+            this.decodedValues = new ConcurrentHashMapCache().withCapacityLimit(decodedCapacity, EvictionStrategy.LRU);
+            this.lazyLoading = true;
+            this.root.set(null);
+        }
+        if (this.writeBehind)
+        {
+            this.startWriteBehind();
+        }
+        return this;
+    }
+
+    private static class DecodedValue
+    {
+        private Class<?> type;
+        private Object   source;
+        private Object   value;
+
+        public DecodedValue(Class<?> type, Object source, Object value)
+        {
+            super();
+            this.type = type;
+            this.source = source;
+            this.value = value;
+        }
     }
 
     @Override
     public <V> V get(String key, Class<V> type)
     {
+        if (this.lazyLoading)
+        {
+            return this.getLazily(key, type);
+        }
         return this.readFromJsonNode(this.getOrCreateRoot()
                                          .getData()
                                          .get(key),
                                      type);
     }
 
+    /**
+     * Returns the decoded value of the given key, if its source {@link JsonNode} or {@link ValueLocation} is still the current one. Otherwise the value is
+     * decoded from its source and kept for further gets.
+     * 
+     * @param key
+     * @param type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private <V> V getLazily(String key, Class<V> type)
+    {
+        DecodedValue decodedValue = this.decodedValues.get(key, DecodedValue.class);
+        while (true)
+        {
+            DataRoot dataRoot = this.getOrCreateRoot();
+            Object source = Optional.<Object>ofNullable(dataRoot.getData()
+                                                                .get(key))
+                                    .orElseGet(() -> dataRoot.getLazyData()
+                                                             .get(key));
+            if (source == null)
+            {
+                return null;
+            }
+            else if (decodedValue != null && decodedValue.source == source && decodedValue.type == type)
+            {
+                return (V) decodedValue.value;
+            }
+
+            V value;
+            if (source instanceof JsonNode)
+            {
+                value = this.readFromJsonNode((JsonNode) source, type);
+            }
+            else
+            {
+                String json = this.readLazyJson(key, (ValueLocation) source);
+                if (json == null)
+                {
+                    // the cache file has been replaced meanwhile
+                    continue;
+                }
+                value = JSONHelper.readFromString(json, type);
+            }
+
+            this.decodedValues.put(key, new DecodedValue(type, source, value));
+            return value;
+        }
+    }
+
+    private String readLazyJson(String key, ValueLocation location)
+    {
+        this.fileLock.readLock()
+                     .lock();
+        try
+        {
+            if (this.root.get()
+                         .getLazyData()
+                         .get(key) != location)
+            {
+                return null;
+            }
+            this.statsCounter.recordBytesRead(location.getLength());
+            return JsonOffsetIndex.read(this.cacheFile, location);
+        }
+        finally
+        {
+            this.fileLock.readLock()
+                         .unlock();
+        }
+    }
+
     @Override
     public TimeDuration getAge(String key)
     {
@@ -144,54 +455,104 @@ public class JsonSingleFileCache extends AbstractCache
     @Override
     public void put(String key, Object value)
     {
-        this.operateOnRootAndGet(t ->
+        this.mutate(JournalRecord.ofPut(key, this.convertToJsonNode(value), value.getClass(), System.currentTimeMillis()));
+    }
+
+    private void mutate(JournalRecord record)
+    {
+        if (this.journaling)
         {
-            t.getData()
-             .put(key, this.convertToJsonNode(value));
-            t.getTypes()
-             .put(key, value.getClass());
-            t.getCreationDates()
-             .put(key, System.currentTimeMillis());
-            return t;
-        });
+            synchronized (this.root)
+            {
+                DataRoot dataRoot = this.getOrCreateRoot();
+                this.statsCounter.recordBytesWritten(this.journal.append(record));
+                record.applyTo(dataRoot);
+            }
+            this.compactIfNecessary();
+        }
+        else
+        {
+            this.operateOnRootAndGet(record::applyTo);
+        }
+    }
 
+    private void compactIfNecessary()
+    {
+        long compactionThreshold = (long) (this.compactionRatio * Math.max(this.snapshotSize, MINIMUM_COMPACTION_SIZE));
+        if (this.journal.size() > compactionThreshold && this.compactionRunning.compareAndSet(false, true))
+        {
+            this.compactionTask = CacheExecutors.getWorkers()
+                                                .submit(() ->
+                                                {
+                                                    try
+                                                    {
+                                                        this.compact();
+                                                    }
+                                                    finally
+                                                    {
+                                                        this.compactionRunning.set(false);
+                                                    }
+                                                });
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current content to the cache file and removes the journal records which are contained in the snapshot
+     */
+    private void compact()
+    {
+        synchronized (this.snapshotLock)
+        {
+            DataRoot snapshot;
+            synchronized (this.root)
+            {
+                snapshot = this.getOrCreateRoot()
+                               .copy();
+                this.journal.rotate();
+            }
+
+            if (this.writeCacheFile(snapshot, false))
+            {
+                this.journal.deleteRotated();
+            }
+        }
     }
 
     @Override
     public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
     {
-        return this.readFromJsonNode(Optional.ofNullable(this.getOrCreateRoot()
-                                                             .getData()
-                                                             .get(key))
-                                             .orElseGet(() -> this.operateOnRootAndGet(t ->
-                                             {
-                                                 t.getData()
-                                                  .computeIfAbsent(key, (id) ->
-                                                  {
-                                                      V value = supplier.get();
-                                                      if (value != null)
-                                                      {
-                                                          t.getTypes()
-                                                           .put(key, value.getClass());
-                                                          t.getCreationDates()
-                                                           .put(key, System.currentTimeMillis());
-                                                      }
-                                                      return this.convertToJsonNode(value);
-                                                  });
-                                                 return t;
-                                             })
-                                                                  .getData()
-                                                                  .get(key)),
-                                     type);
+        V value = this.get(key, type);
+        if (value != null)
+        {
+            return value;
+        }
+
+        return this.singleFlight.execute(key, () ->
+        {
+            V existingValue = this.get(key, type);
+            if (existingValue != null)
+            {
+                return existingValue;
+            }
 
+            V computedValue = supplier.get();
+            if (computedValue != null)
+            {
+                this.put(key, computedValue);
+            }
+            return this.readFromJsonNode(this.convertToJsonNode(computedValue), type);
+        });
     }
 
     @Override
     public Set<String> keySet()
     {
-        return new HashSet<>(this.getOrCreateRoot()
-                                 .getData()
-                                 .keySet());
+        DataRoot dataRoot = this.getOrCreateRoot();
+        Set<String> keys = new HashSet<>(dataRoot.getData()
+                                                 .keySet());
+        keys.addAll(dataRoot.getLazyData()
+                            .keySet());
+        return keys;
     }
 
     protected DataRoot getOrCreateRoot()
@@ -200,8 +561,14 @@ public class JsonSingleFileCache extends AbstractCache
 
         if (retmap == null)
         {
-            this.operateOnRootAndGet(r -> r == null ? this.loadRoot() : null, () -> this.root.get());
-            retmap = this.root.get();
+            synchronized (this.root)
+            {
+                if (this.root.get() == null)
+                {
+                    this.root.set(this.loadRoot());
+                }
+                retmap = this.root.get();
+            }
         }
 
         return retmap;
@@ -212,21 +579,154 @@ public class JsonSingleFileCache extends AbstractCache
         return this.operateOnRootAndGet(updateFunction, () -> this.getOrCreateRoot());
     }
 
+    /**
+     * Applies the given update function to the root. All in-memory mutations are serialized on the root, also in the write behind mode, as the update
+     * function may replace the whole {@link DataRoot} and a flush needs a consistent copy of all its maps. Suppliers of computeIfAbsent are called outside
+     * of this lock.
+     * 
+     * @param updateFunction
+     * @param initialDataRoot
+     * @return
+     */
     public DataRoot operateOnRootAndGet(UnaryOperator<DataRoot> updateFunction, Supplier<DataRoot> initialDataRoot)
     {
-        synchronized (this.root)
+        if (this.writeBehind)
         {
-            this.root.set(updateFunction.apply(initialDataRoot.get()));
-            this.writeCacheFile();
+            boolean flushNecessary;
+            synchronized (this.root)
+            {
+                this.root.set(updateFunction.apply(initialDataRoot.get()));
+                this.dirtyCount++;
+                flushNecessary = this.dirtyCount >= this.dirtyThreshold;
+            }
+            if (flushNecessary)
+            {
+                this.requestFlush();
+            }
+        }
+        else
+        {
+            synchronized (this.snapshotLock)
+            {
+                synchronized (this.root)
+                {
+                    this.root.set(updateFunction.apply(initialDataRoot.get()));
+                    if (this.writeCacheFile(this.root.get(), !this.journaling))
+                    {
+                        this.clearJournal();
+                    }
+                }
+            }
         }
         return this.root.get();
     }
 
-    private DataRoot loadRoot()
+    private void requestFlush()
+    {
+        if (this.flushRequested.compareAndSet(false, true))
+        {
+            CacheExecutors.getWorkers()
+                          .execute(() ->
+                          {
+                              this.flushRequested.set(false);
+                              this.flush();
+                          });
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        synchronized (this.snapshotLock)
+        {
+            DataRoot snapshot;
+            int flushedDirtyCount;
+            synchronized (this.root)
+            {
+                if (this.dirtyCount == 0 || this.root.get() == null)
+                {
+                    return;
+                }
+                snapshot = this.root.get()
+                               .copy();
+                flushedDirtyCount = this.dirtyCount;
+                this.dirtyCount = 0;
+            }
+
+            if (this.writeCacheFile(snapshot, false))
+            {
+                this.clearJournal();
+            }
+            else
+            {
+                synchronized (this.root)
+                {
+                    this.dirtyCount += flushedDirtyCount;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (this.flushTask != null)
+        {
+            this.flushTask.cancel(false);
+            this.flushTask = null;
+        }
+        if (this.shutdownHook != null)
+        {
+            CacheExecutors.removeShutdownTask(this.shutdownHook);
+            this.shutdownHook = null;
+        }
+        this.awaitCompaction();
+        this.flush();
+        this.journal.close();
+    }
+
+    private void awaitCompaction()
+    {
+        Future<?> compactionTask = this.compactionTask;
+        if (compactionTask != null)
+        {
+            try
+            {
+                compactionTask.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread()
+                      .interrupt();
+            }
+            catch (ExecutionException e)
+            {
+                LOG.error("Exception compacting journal of file cache: " + this.cacheFile, e);
+            }
+        }
+    }
+
+    /**
+     * Removes the journal after a full snapshot has been written, since all its records are contained in the snapshot
+     */
+    private void clearJournal()
     {
-        return Optional.ofNullable(this.readFromCacheFile())
-                       .orElseGet(() -> new DataRoot());
+        if (this.journal.exists())
+        {
+            this.journal.clear();
+        }
+    }
 
+    private DataRoot loadRoot()
+    {
+        DataRoot dataRoot = Optional.ofNullable(this.lazyLoading ? this.readIndexFromCacheFile() : this.readFromCacheFile())
+                                    .orElseGet(() -> new DataRoot());
+        this.snapshotSize = this.cacheFile.length();
+        if (this.journal.exists())
+        {
+            this.journal.replay(record -> record.applyTo(dataRoot));
+        }
+        return dataRoot;
     }
 
     private DataRoot readFromCacheFile()
@@ -242,6 +742,7 @@ public class JsonSingleFileCache extends AbstractCache
                     {
                         return FileUtils.readFrom(this.cacheFile, JSONHelper.prepareAsReaderToObjectFunction(DataRoot.class));
                     });
+                    this.statsCounter.recordBytesRead(this.cacheFile.length());
                 }
                 catch (Exception e)
                 {
@@ -253,18 +754,168 @@ public class JsonSingleFileCache extends AbstractCache
         return retval;
     }
 
-    private void writeCacheFile()
+    /**
+     * Indexes the values of the cache file and reads all other fields of the {@link DataRoot}
+     * 
+     * @return
+     */
+    private DataRoot readIndexFromCacheFile()
+    {
+        DataRoot retval = null;
+        if (this.cacheFile.exists() && this.cacheFile.isFile())
+        {
+            synchronized (this.cacheFile)
+            {
+                try
+                {
+                    JsonOffsetIndex index = JsonOffsetIndex.of(this.cacheFile, "data");
+                    String json = index.getRawRootFields()
+                                       .entrySet()
+                                       .stream()
+                                       .map(fieldAndJson -> JSONHelper.serialize(fieldAndJson.getKey()) + ":" + fieldAndJson.getValue())
+                                       .collect(Collectors.joining(",", "{", "}"));
+                    retval = JSONHelper.readFromString(json, DataRoot.class);
+                    retval.getLazyData()
+                          .putAll(index.getLocations());
+                    this.statsCounter.recordBytesRead(this.cacheFile.length());
+                }
+                catch (Exception e)
+                {
+                    LOG.error("Exception indexing file cache: " + this.cacheFile, e);
+                    retval = null;
+                }
+            }
+        }
+        return retval;
+    }
+
+    private boolean writeCacheFile(DataRoot dataRoot, boolean pretty)
     {
         try
         {
             synchronized (this.cacheFile)
             {
-                FileUtils.writeTo(this.cacheFile, JSONHelper.prepareAsPrettyPrintWriterConsumer(this.root.get()));
+                File temporaryFile = new File(this.cacheFile.getPath() + ".tmp");
+                DataRoot serializableDataRoot = this.includeLazyData(dataRoot);
+                if (pretty)
+                {
+                    FileUtils.writeTo(temporaryFile, JSONHelper.prepareAsPrettyPrintWriterConsumer(serializableDataRoot));
+                }
+                else
+                {
+                    FileUtils.toWriterSupplierUTF8(temporaryFile)
+                             .toConsumerWith(JSONHelper.writerSerializer(DataRoot.class))
+                             .accept(serializableDataRoot);
+                }
+
+                if (this.lazyLoading)
+                {
+                    JsonOffsetIndex index = JsonOffsetIndex.of(temporaryFile, "data");
+                    synchronized (this.root)
+                    {
+                        this.fileLock.writeLock()
+                                     .lock();
+                        try
+                        {
+                            this.replaceCacheFileBy(temporaryFile);
+                            this.replaceByLazyData(dataRoot, index);
+                        }
+                        finally
+                        {
+                            this.fileLock.writeLock()
+                                         .unlock();
+                        }
+                    }
+                }
+                else
+                {
+                    this.replaceCacheFileBy(temporaryFile);
+                }
+                this.snapshotSize = this.cacheFile.length();
+                this.statsCounter.recordBytesWritten(this.snapshotSize);
             }
+            return true;
         }
         catch (Exception e)
         {
             LOG.error("Exception writing json to cache file: " + this.cacheFile, e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns a copy of the given {@link DataRoot} which contains the not yet loaded values as raw json, or the given {@link DataRoot} itself, if there are
+     * no such values
+     * 
+     * @param dataRoot
+     * @return
+     */
+    private DataRoot includeLazyData(DataRoot dataRoot)
+    {
+        if (dataRoot.getLazyData()
+                    .isEmpty())
+        {
+            return dataRoot;
+        }
+
+        DataRoot serializableDataRoot = dataRoot.copy();
+        this.fileLock.readLock()
+                     .lock();
+        try
+        {
+            dataRoot.getLazyData()
+                    .forEach((key, location) -> serializableDataRoot.getData()
+                                                                    .put(key, new POJONode(new RawValue(JsonOffsetIndex.read(this.cacheFile, location)))));
+        }
+        finally
+        {
+            this.fileLock.readLock()
+                         .unlock();
+        }
+        return serializableDataRoot;
+    }
+
+    /**
+     * Replaces all values of the current root by their location within the new cache file, which have not been modified since the given written
+     * {@link DataRoot} has been taken. This releases the memory of the written {@link JsonNode}s.
+     * 
+     * @param writtenDataRoot
+     * @param index
+     */
+    private void replaceByLazyData(DataRoot writtenDataRoot, JsonOffsetIndex index)
+    {
+        DataRoot currentDataRoot = this.root.get();
+        index.getLocations()
+             .forEach((key, location) ->
+             {
+                 JsonNode writtenJsonNode = writtenDataRoot.getData()
+                                                           .get(key);
+                 ValueLocation writtenLocation = writtenDataRoot.getLazyData()
+                                                                .get(key);
+                 boolean isUnmodified = writtenJsonNode != null ? currentDataRoot.getData()
+                                                                                 .get(key) == writtenJsonNode
+                         : writtenLocation != null && currentDataRoot.getLazyData()
+                                                                     .get(key) == writtenLocation;
+                 if (isUnmodified)
+                 {
+                     // the location is added first, as concurrent lazy reads look into the data first and into the lazy data afterwards
+                     currentDataRoot.getLazyData()
+                                    .put(key, location);
+                     currentDataRoot.getData()
+                                    .remove(key);
+                 }
+             });
+    }
+
+    private void replaceCacheFileBy(File temporaryFile) throws IOException
+    {
+        try
+        {
+            Files.move(temporaryFile.toPath(), this.cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(temporaryFile.toPath(), this.cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -281,19 +932,9 @@ public class JsonSingleFileCache extends AbstractCache
     public void remove(String key)
     {
         if (this.getOrCreateRoot()
-                .getData()
                 .containsKey(key))
         {
-            this.operateOnRootAndGet(r ->
-            {
-                r.getData()
-                 .remove(key);
-                r.getTypes()
-                 .remove(key);
-                r.getCreationDates()
-                 .remove(key);
-                return r;
-            });
+            this.mutate(JournalRecord.ofRemove(key));
         }
 
     }
@@ -1,22 +1,48 @@
 package org.omnaest.utils.cache.internal;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.ClassUtils;
+import org.omnaest.utils.FileUtils;
 import org.omnaest.utils.JSONHelper;
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.Cache.EvictionStrategyProvider;
+import org.omnaest.utils.cache.CacheValueCodec.StandardCacheValueCodec;
+import org.omnaest.utils.cache.FlushableCache;
 import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache.DataMap.Content;
+import org.omnaest.utils.cache.internal.block.LinearHashing;
+import org.omnaest.utils.cache.internal.block.MappedBlockFileStorage;
 import org.omnaest.utils.duration.TimeDuration;
 import org.omnaest.utils.file.storage.RandomAccessLogarithmicBlockFileStorage;
 import org.omnaest.utils.file.storage.StringBlockFileStorage;
@@ -24,15 +50,54 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 
-public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache
+/**
+ * {@link Cache} which distributes the entries by their key hash over a fixed number of rows of a block file storage. Every row contains the json of a
+ * {@link DataMap} with all entries of the row.
+ * <br>
+ * <br>
+ * By default the rows are stored within a {@link RandomAccessLogarithmicBlockFileStorage}. With {@link #withMemoryMappedStorage()} the rows are stored
+ * within a {@link MappedBlockFileStorage} instead, which deserializes a row directly from the memory mapped bytes without any intermediate
+ * {@link String}.
+ * <br>
+ * <br>
+ * The rows are encoded by a {@link StandardRowCodec}, by default as json. The encoding of a row is detected on read, so after switching the
+ * {@link StandardRowCodec} the existing rows are migrated on their next write or all at once by {@link #migrateRows()}.
+ * <br>
+ * <br>
+ * With {@link #withLinearHashing(int)} the number of rows grows with the content. Whenever a written row exceeds the split threshold, the next row of
+ * the {@link LinearHashing} scheme is split into two rows, so every mutation costs at most one additional split of a single row.
+ * <br>
+ * <br>
+ * With {@link #withRowCache(int, EvictionStrategyProvider)} the decoded content of the most recently used rows is kept in memory.
+ * <br>
+ * <br>
+ * Every row is guarded by one of a fixed number of striped {@link ReadWriteLock}s, so mutations of the same row are serialized, while reads and
+ * mutations of rows of different stripes run in parallel.
+ * 
+ * @author omnaest
+ */
+public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache implements FlushableCache
 {
-    private static final Logger    LOG = LoggerFactory.getLogger(RandomAccessLogarithmicBlockFileStorageCache.class);
+    private static final Logger    LOG                    = LoggerFactory.getLogger(RandomAccessLogarithmicBlockFileStorageCache.class);
+    private static final int       NUMBER_OF_LOCK_STRIPES = 64;
 
-    private StringBlockFileStorage fileStorage;
-    private int                    hashCapacity;
+    private File                   cacheDirectory;
+    private int                    initialBlockSize;
+    private RowStorage             rowStorage;
+    private StandardRowCodec       rowCodec               = StandardRowCodec.JSON;
+    private Cache                  rowCache;
+    private volatile LinearHashing linearHashing;
+    private int                    splitThreshold         = -1;
+    private Object                 splitLock              = new Object();
+    private AtomicBoolean          splitRequested         = new AtomicBoolean(false);
+    private ReadWriteLock[]        rowLocks               = IntStream.range(0, NUMBER_OF_LOCK_STRIPES)
+                                                                     .mapToObj(index -> new ReentrantReadWriteLock())
+                                                                     .toArray(ReadWriteLock[]::new);
 
     public RandomAccessLogarithmicBlockFileStorageCache(File cacheDirectory, int hashCapacity)
     {
@@ -42,10 +107,304 @@ public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache
     public RandomAccessLogarithmicBlockFileStorageCache(File cacheDirectory, int hashCapacity, int initialBlockSize)
     {
         super();
-        this.hashCapacity = hashCapacity;
-        this.fileStorage = RandomAccessLogarithmicBlockFileStorage.of(cacheDirectory)
-                                                                  .withInitialBlockSize(initialBlockSize)
-                                                                  .asStringBlockFileStorage();
+        this.cacheDirectory = cacheDirectory;
+        this.initialBlockSize = initialBlockSize;
+        this.linearHashing = LinearHashing.of(hashCapacity);
+        this.rowStorage = new StringRowStorage(RandomAccessLogarithmicBlockFileStorage.of(cacheDirectory)
+                                                                                      .withInitialBlockSize(initialBlockSize)
+                                                                                      .asStringBlockFileStorage());
+    }
+
+    /**
+     * Stores the rows within a {@link MappedBlockFileStorage} in the cache directory. Rows written before by the default storage are not migrated.
+     * 
+     * @return
+     */
+    public RandomAccessLogarithmicBlockFileStorageCache withMemoryMappedStorage()
+    {
+        this.rowStorage.close();
+        this.rowStorage = new MappedRowStorage(MappedBlockFileStorage.of(this.cacheDirectory)
+                                                                     .withInitialBlockSize(this.initialBlockSize));
+        return this;
+    }
+
+    /**
+     * Sets the {@link StandardRowCodec} which encodes the written rows. Rows of any other encoding can still be read.
+     * 
+     * @see #migrateRows()
+     * @param rowCodec
+     * @return
+     */
+    public RandomAccessLogarithmicBlockFileStorageCache withRowCodec(StandardRowCodec rowCodec)
+    {
+        this.rowCodec = rowCodec;
+        return this;
+    }
+
+    /**
+     * Keeps the decoded content of up to the given number of rows in memory, so reads of hot rows need neither a read from the row storage nor any
+     * decoding. The row cache is written through: every mutation writes its row immediately, rows which are only read are never written. The cache
+     * directory must not be modified by any other instance meanwhile.
+     * <br>
+     * <br>
+     * Like within an in memory {@link Cache}, the values of cached rows are shared between all callers of put and get, so they must not be modified.
+     * 
+     * @param capacity
+     *            number of rows, 0 disables the row cache
+     * @param evictionStrategy
+     * @return
+     */
+    public RandomAccessLogarithmicBlockFileStorageCache withRowCache(int capacity, EvictionStrategyProvider evictionStrategy)
+    {
+        this.rowCache = capacity > 0 ? new ConcurrentHashMapCache().withCapacityLimit(capacity, evictionStrategy) : null;
+        return this;
+    }
+
+    /**
+     * Activates the growth of the number of rows by {@link LinearHashing}. The initial number of rows is the hash capacity, the current state of the
+     * scheme is kept within the cache directory. Existing rows of a cache with a fixed hash capacity can be used further.
+     * 
+     * @param splitThresholdInBytes
+     *            size of a written row which triggers the next split
+     * @return
+     */
+    public RandomAccessLogarithmicBlockFileStorageCache withLinearHashing(int splitThresholdInBytes)
+    {
+        synchronized (this.splitLock)
+        {
+            this.splitThreshold = splitThresholdInBytes;
+            this.cacheDirectory.mkdirs();
+            File linearHashingFile = this.getLinearHashingFile();
+            if (linearHashingFile.exists())
+            {
+                this.linearHashing = FileUtils.readFrom(linearHashingFile, JSONHelper.readerDeserializer(LinearHashing.class));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the current number of rows
+     * 
+     * @return
+     */
+    public int getNumberOfRows()
+    {
+        return this.linearHashing.getNumberOfRows();
+    }
+
+    /**
+     * Storage of the json rows
+     * 
+     * @author omnaest
+     */
+    protected static interface RowStorage extends AutoCloseable
+    {
+        /**
+         * Returns the encoded content of the given row or null, if the row is empty
+         * 
+         * @param rowIndex
+         * @return
+         */
+        public ByteBuffer read(int rowIndex);
+
+        /**
+         * Writes the given encoded content into the given row
+         * 
+         * @param rowIndex
+         * @param content
+         */
+        public void write(int rowIndex, byte[] content);
+
+        public void flush();
+
+        @Override
+        public void close();
+    }
+
+    /**
+     * {@link RowStorage} on top of a {@link StringBlockFileStorage}. Json rows are stored as text, binary rows are mapped one to one to the characters of
+     * ISO-8859-1, so they survive the {@link String} conversion unchanged.
+     * 
+     * @author omnaest
+     */
+    private static class StringRowStorage implements RowStorage
+    {
+        private StringBlockFileStorage fileStorage;
+
+        public StringRowStorage(StringBlockFileStorage fileStorage)
+        {
+            super();
+            this.fileStorage = fileStorage;
+        }
+
+        @Override
+        public ByteBuffer read(int rowIndex)
+        {
+            String row = this.fileStorage.read(rowIndex);
+            if (StringUtils.isBlank(row))
+            {
+                return null;
+            }
+            boolean isBinary = row.charAt(0) == (BinaryRowCodec.MAGIC & 0xFF);
+            return ByteBuffer.wrap(row.getBytes(isBinary ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void write(int rowIndex, byte[] content)
+        {
+            boolean isBinary = content.length > 0 && content[0] == BinaryRowCodec.MAGIC;
+            this.fileStorage.write(rowIndex, new String(content, isBinary ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void flush()
+        {
+            // every write goes directly to the file
+        }
+
+        @Override
+        public void close()
+        {
+            // nothing to close
+        }
+    }
+
+    private static class MappedRowStorage implements RowStorage
+    {
+        private MappedBlockFileStorage fileStorage;
+
+        public MappedRowStorage(MappedBlockFileStorage fileStorage)
+        {
+            super();
+            this.fileStorage = fileStorage;
+        }
+
+        @Override
+        public ByteBuffer read(int rowIndex)
+        {
+            return this.fileStorage.read(rowIndex);
+        }
+
+        @Override
+        public void write(int rowIndex, byte[] content)
+        {
+            this.fileStorage.write(rowIndex, content);
+        }
+
+        @Override
+        public void flush()
+        {
+            this.fileStorage.flush();
+        }
+
+        @Override
+        public void close()
+        {
+            this.fileStorage.close();
+        }
+    }
+
+    /**
+     * Encoding of the {@link DataMap} content of a row
+     * 
+     * @see StandardRowCodec
+     * @author omnaest
+     */
+    public static interface RowCodec
+    {
+        public byte[] encode(Map<String, Content> keyToContent);
+
+        public Map<String, Content> decode(ByteBuffer buffer);
+
+        /**
+         * Returns true, if the given encoded row has been written by this {@link RowCodec}
+         * 
+         * @param buffer
+         * @return
+         */
+        public boolean isEncodingOf(ByteBuffer buffer);
+    }
+
+    /**
+     * Available {@link RowCodec}s
+     * 
+     * @author omnaest
+     */
+    public static enum StandardRowCodec implements RowCodec
+    {
+        /**
+         * Encodes a row as pretty printed UTF-8 json, which contains the class name and the modification {@link Date} of every entry
+         */
+        JSON(new JsonRowCodec()),
+
+        /**
+         * Encodes a row in the versioned binary format of the {@link BinaryRowCodec}
+         */
+        BINARY(new BinaryRowCodec());
+
+        private RowCodec codec;
+
+        private StandardRowCodec(RowCodec codec)
+        {
+            this.codec = codec;
+        }
+
+        @Override
+        public byte[] encode(Map<String, Content> keyToContent)
+        {
+            return this.codec.encode(keyToContent);
+        }
+
+        @Override
+        public Map<String, Content> decode(ByteBuffer buffer)
+        {
+            return this.codec.decode(buffer);
+        }
+
+        @Override
+        public boolean isEncodingOf(ByteBuffer buffer)
+        {
+            return this.codec.isEncodingOf(buffer);
+        }
+
+        /**
+         * Returns the {@link StandardRowCodec} which has written the given encoded row
+         * 
+         * @param buffer
+         * @return
+         */
+        public static StandardRowCodec of(ByteBuffer buffer)
+        {
+            return BINARY.isEncodingOf(buffer) ? BINARY : JSON;
+        }
+    }
+
+    private static class JsonRowCodec implements RowCodec
+    {
+        @Override
+        public byte[] encode(Map<String, Content> keyToContent)
+        {
+            Map<String, Content> decodedKeyToContent = new LinkedHashMap<>();
+            keyToContent.forEach((key, content) -> decodedKeyToContent.put(key, content.getEncodedElement() != null ? content.asDecodedContent() : content));
+            return JSONHelper.serialize(decodedKeyToContent, true)
+                             .getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Map<String, Content> decode(ByteBuffer buffer)
+        {
+            Reader reader = new InputStreamReader(new ByteBufferBackedInputStream(buffer.duplicate()), StandardCharsets.UTF_8);
+            return JSONHelper.readerDeserializer(DataMap.class)
+                             .apply(reader)
+                             .getKeyToContent();
+        }
+
+        @Override
+        public boolean isEncodingOf(ByteBuffer buffer)
+        {
+            return !BinaryRowCodec.isBinary(buffer);
+        }
     }
 
     //    @JsonIgnoreProperties(ignoreUnknown = true)
@@ -78,6 +437,18 @@ public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache
             @JsonProperty
             private Date   modifiedDate;
 
+            /**
+             * Value bytes of the {@link StandardCacheValueCodec#BINARY} codec, which are decoded not before the value is requested
+             */
+            @JsonIgnore
+            private byte[] encodedElement;
+
+            /**
+             * Element instance of the stored type, which is resolved not before it is requested the first time
+             */
+            @JsonIgnore
+            private volatile Object resolvedElement;
+
             protected Content()
             {
                 super();
@@ -106,6 +477,59 @@ public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache
                 return this.modifiedDate;
             }
 
+            public static Content ofEncodedElement(byte[] encodedElement, String type, Date modifiedDate)
+            {
+                Content content = new Content(null, type, modifiedDate);
+                content.encodedElement = encodedElement;
+                return content;
+            }
+
+            @JsonIgnore
+            public byte[] getEncodedElement()
+            {
+                return this.encodedElement;
+            }
+
+            /**
+             * Returns the element as instance of its stored type. The instance is resolved only once, so all callers of the same {@link Content} share it.
+             * 
+             * @return
+             */
+            public Object resolveElement()
+            {
+                Object resolvedElement = this.resolvedElement;
+                if (resolvedElement == null)
+                {
+                    resolvedElement = this.decodeElement();
+                    this.resolvedElement = resolvedElement;
+                }
+                return resolvedElement;
+            }
+
+            private Object decodeElement()
+            {
+                try
+                {
+                    Class<?> storedType = ClassUtils.getClass(this.type);
+                    return this.encodedElement != null ? StandardCacheValueCodec.BINARY.decode(this.encodedElement, storedType)
+                            : JSONHelper.toObjectWithType(this.element, storedType);
+                }
+                catch (ClassNotFoundException e)
+                {
+                    throw new IllegalStateException("Unable to deseralize data due to missing class type: " + this.type, e);
+                }
+            }
+
+            /**
+             * Returns a {@link Content} with the decoded element instead of the encoded element bytes
+             * 
+             * @return
+             */
+            public Content asDecodedContent()
+            {
+                return new Content(this.resolveElement(), this.type, this.modifiedDate);
+            }
+
             @Override
             public String toString()
             {
@@ -116,54 +540,186 @@ public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <V> V get(String key, Class<V> type)
     {
         return this.findContent(key)
-                   .map(content ->
-                   {
-                       try
-                       {
-                           Class<?> storedType = ClassUtils.getClass(content.getType());
-                           return (V) JSONHelper.toObjectWithType(content.getElement(), storedType);
-                       }
-                       catch (ClassNotFoundException e)
-                       {
-                           throw new IllegalStateException("Unable to deseralize data due to missing class type: " + content.getType(), e);
-                       }
-                   })
+                   .map(this.<V>createContentToValueMapper())
                    .orElse(null);
     }
 
+    /**
+     * Groups the given keys by their row, so every row is read and deserialized only once
+     */
+    @Override
+    public <V> Map<String, V> get(Class<V> type, Collection<String> keys)
+    {
+        Map<String, V> result = new LinkedHashMap<>();
+        List<String> movedKeys = new ArrayList<>();
+        this.groupByRowIndex(keys)
+            .forEach((rowIndex, rowKeys) -> this.operateOnRow(rowIndex, false, () ->
+            {
+                Map<String, Content> keyToContent = this.findKeyToContent(Optional.of(rowIndex))
+                                                        .orElse(Collections.emptyMap());
+                rowKeys.forEach(key ->
+                {
+                    if (this.isAddressedTo(key, rowIndex))
+                    {
+                        Optional.ofNullable(keyToContent.get(key))
+                                .map(this.<V>createContentToValueMapper())
+                                .ifPresent(value -> result.put(key, value));
+                    }
+                    else
+                    {
+                        movedKeys.add(key);
+                    }
+                });
+                return null;
+            }));
+        movedKeys.forEach(key -> Optional.ofNullable(this.get(key, type))
+                                         .ifPresent(value -> result.put(key, value)));
+        return result;
+    }
+
+    private Map<Integer, List<String>> groupByRowIndex(Collection<String> keys)
+    {
+        return Optional.ofNullable(keys)
+                       .orElse(Collections.emptyList())
+                       .stream()
+                       .filter(Objects::nonNull)
+                       .distinct()
+                       .collect(Collectors.groupingBy(key -> this.determineRowIndex(key)
+                                                                 .get(),
+                                                      LinkedHashMap::new, Collectors.toList()));
+    }
+
     private Optional<Content> findContent(String key)
     {
-        return this.findKeyToContent(key)
-                   .map(keyToContent -> keyToContent.get(key));
+        if (key == null)
+        {
+            return Optional.empty();
+        }
+        return this.operateOnRowOf(key, false, rowIndex -> this.findKeyToContent(Optional.of(rowIndex))
+                                                               .map(keyToContent -> keyToContent.get(key)));
+    }
+
+    /**
+     * Executes the given operation under the read or write lock of the row of the given key. If a concurrent split moves the key into another row before
+     * the lock is acquired, the operation is executed on the new row.
+     * 
+     * @param key
+     * @param exclusive
+     * @param rowOperation
+     * @return
+     */
+    private <R> R operateOnRowOf(String key, boolean exclusive, IntFunction<R> rowOperation)
+    {
+        while (true)
+        {
+            int rowIndex = this.determineRowIndex(key)
+                               .get();
+            Lock lock = this.getRowLock(rowIndex, exclusive);
+            lock.lock();
+            try
+            {
+                if (this.isAddressedTo(key, rowIndex))
+                {
+                    return rowOperation.apply(rowIndex);
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
     }
 
-    private Optional<Map<String, Content>> findKeyToContent(String key)
+    private <R> R operateOnRow(int rowIndex, boolean exclusive, Supplier<R> rowOperation)
     {
-        return this.findKeyToContent(this.determineRowIndex(key));
+        Lock lock = this.getRowLock(rowIndex, exclusive);
+        lock.lock();
+        try
+        {
+            return rowOperation.get();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private Lock getRowLock(int rowIndex, boolean exclusive)
+    {
+        ReadWriteLock lock = this.rowLocks[rowIndex % NUMBER_OF_LOCK_STRIPES];
+        return exclusive ? lock.writeLock() : lock.readLock();
+    }
+
+    private boolean isAddressedTo(String key, int rowIndex)
+    {
+        return this.linearHashing.determineRowIndex(toHash(key)) == rowIndex;
     }
 
     private Optional<Integer> determineRowIndex(String key)
     {
         return Optional.ofNullable(key)
-                       .map(String::hashCode)
-                       .map(hashCode -> Math.abs(hashCode) % this.hashCapacity);
+                       .map(RandomAccessLogarithmicBlockFileStorageCache::toHash)
+                       .map(this.linearHashing::determineRowIndex);
+    }
+
+    private static int toHash(String key)
+    {
+        return Math.abs(key.hashCode()) & Integer.MAX_VALUE;
     }
 
+    /**
+     * Returns the decoded content of the given row, which can be shared with the row cache and must therefore not be modified
+     * 
+     * @see #readKeyToContentForModification(int)
+     * @param rowIndex
+     * @return
+     */
+    @SuppressWarnings("unchecked")
     private Optional<Map<String, Content>> findKeyToContent(Optional<Integer> rowIndex)
     {
-        return rowIndex.map(this.fileStorage::read)
-                       .filter(StringUtils::isNotBlank)
-                       .map(json ->
+        if (this.rowCache == null || !rowIndex.isPresent())
+        {
+            return this.readKeyToContent(rowIndex);
+        }
+
+        String rowKey = String.valueOf(rowIndex.get());
+        Map<String, Content> keyToContent = this.rowCache.get(rowKey, Map.class);
+        if (keyToContent == null)
+        {
+            keyToContent = this.readKeyToContent(rowIndex)
+                               .orElse(Collections.emptyMap());
+            this.rowCache.put(rowKey, keyToContent);
+        }
+        return Optional.of(keyToContent);
+    }
+
+    private Map<String, Content> readKeyToContentForModification(int rowIndex)
+    {
+        return new LinkedHashMap<>(this.findKeyToContent(Optional.of(rowIndex))
+                                       .orElse(Collections.emptyMap()));
+    }
+
+    private Optional<Map<String, Content>> readKeyToContent(Optional<Integer> rowIndex)
+    {
+        return rowIndex.map(this.rowStorage::read)
+                       .filter(ByteBuffer::hasRemaining)
+                       .map(buffer ->
                        {
-                           return JSONHelper.deserializer(DataMap.class)
-                                            .withExceptionHandler(e -> LOG.warn("Illegal json format: " + json, e))
-                                            .apply(json);
-                       })
-                       .map(DataMap::getKeyToContent);
+                           this.statsCounter.recordBytesRead(buffer.remaining());
+                           try
+                           {
+                               return StandardRowCodec.of(buffer)
+                                                      .decode(buffer);
+                           }
+                           catch (Exception e)
+                           {
+                               LOG.warn("Illegal row format in row: " + rowIndex.get(), e);
+                               return null;
+                           }
+                       });
     }
 
     @Override
@@ -202,16 +758,58 @@ public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache
                                                                                         Date.from(Instant.now()))));
     }
 
+    /**
+     * Groups the given entries by their row, so every row is written only once
+     */
+    @Override
+    public <V> void putAll(Map<String, V> map)
+    {
+        if (map != null)
+        {
+            List<String> movedKeys = new ArrayList<>();
+            this.groupByRowIndex(map.keySet())
+                .forEach((rowIndex, rowKeys) -> this.operateOnRow(rowIndex, true, () -> this.modifyRowAndGet(rowIndex, keyToContent ->
+                {
+                    rowKeys.forEach(key ->
+                    {
+                        if (this.isAddressedTo(key, rowIndex))
+                        {
+                            V value = map.get(key);
+                            keyToContent.put(key, new Content(value, value.getClass()
+                                                                          .getCanonicalName(),
+                                                              Date.from(Instant.now())));
+                        }
+                        else
+                        {
+                            movedKeys.add(key);
+                        }
+                    });
+                    return null;
+                })));
+            movedKeys.forEach(key -> this.put(key, map.get(key)));
+            this.splitIfRequested();
+        }
+    }
+
     @Override
     public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
     {
-        return Optional.ofNullable(this.modifyDataMapAndGet(key, keyToContent ->
+        return this.singleFlight.execute(key, () -> this.findContent(key)
+                                                        .map(this.<V>createContentToValueMapper())
+                                                        .orElseGet(() -> this.computeAndWrite(key, supplier)));
+    }
+
+    private <V> V computeAndWrite(String key, Supplier<V> supplier)
+    {
+        V value = supplier.get();
+        if (value == null)
         {
-            V value = supplier.get();
-            return keyToContent.computeIfAbsent(key, k -> new Content(value, value.getClass()
-                                                                                  .getCanonicalName(),
-                                                                      Date.from(Instant.now())));
-        }))
+            return null;
+        }
+        Content content = this.modifyDataMapAndGet(key, keyToContent -> keyToContent.computeIfAbsent(key, k -> new Content(value, value.getClass()
+                                                                                                                                  .getCanonicalName(),
+                                                                                                                      Date.from(Instant.now()))));
+        return Optional.ofNullable(content)
                        .map(this.<V>createContentToValueMapper())
                        .orElse(null);
     }
@@ -219,18 +817,7 @@ public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache
     @SuppressWarnings("unchecked")
     private <V> Function<Content, V> createContentToValueMapper()
     {
-        return content ->
-        {
-            try
-            {
-                Class<?> storedType = ClassUtils.getClass(content.getType());
-                return (V) JSONHelper.toObjectWithType(content.getElement(), storedType);
-            }
-            catch (ClassNotFoundException e)
-            {
-                throw new IllegalStateException("Unable to deseralize data due to missing class type: " + content.getType(), e);
-            }
-        };
+        return content -> (V) content.resolveElement();
     }
 
     @Override
@@ -253,28 +840,190 @@ public class RandomAccessLogarithmicBlockFileStorageCache extends AbstractCache
         R result = null;
         if (key != null)
         {
-            int rowIndex = this.determineRowIndex(key)
-                               .orElse(0);
+            result = this.operateOnRowOf(key, true, rowIndex -> this.modifyRowAndGet(rowIndex, keyToContentMapModifier));
+            this.splitIfRequested();
+        }
+        return result;
+    }
 
-            Map<String, Content> keyToContent = this.findKeyToContent(key)
-                                                    .orElse(new HashMap<>());
-            result = keyToContentMapModifier.apply(keyToContent);
-            String adjustedJson = JSONHelper.serialize(keyToContent, true);
-            this.fileStorage.write(rowIndex, adjustedJson);
+    private <R> R modifyRowAndGet(int rowIndex, Function<Map<String, Content>, R> keyToContentMapModifier)
+    {
+        Map<String, Content> keyToContent = this.readKeyToContentForModification(rowIndex);
+        R result = keyToContentMapModifier.apply(keyToContent);
+        long writtenBytes = this.writeRow(rowIndex, keyToContent);
+        if (this.splitThreshold >= 0 && writtenBytes > this.splitThreshold)
+        {
+            this.splitRequested.set(true);
         }
         return result;
     }
 
+    private long writeRow(int rowIndex, Map<String, Content> keyToContent)
+    {
+        byte[] content = this.rowCodec.encode(keyToContent);
+        this.rowStorage.write(rowIndex, content);
+        this.statsCounter.recordBytesWritten(content.length);
+        if (this.rowCache != null)
+        {
+            this.rowCache.put(String.valueOf(rowIndex), Collections.unmodifiableMap(keyToContent));
+        }
+        return content.length;
+    }
+
+    /**
+     * Rewrites all rows which are not encoded by the current {@link StandardRowCodec}, e.g. after switching from {@link StandardRowCodec#JSON} to
+     * {@link StandardRowCodec#BINARY}. Without this, rows are migrated on their next write.
+     * 
+     * @see #withRowCodec(StandardRowCodec)
+     * @return the number of migrated rows
+     */
+    public int migrateRows()
+    {
+        int numberOfMigratedRows = 0;
+        for (int rowIndex = 0; rowIndex < this.linearHashing.getNumberOfRows(); rowIndex++)
+        {
+            int currentRowIndex = rowIndex;
+            boolean migrated = this.operateOnRow(rowIndex, true, () ->
+            {
+                ByteBuffer buffer = this.rowStorage.read(currentRowIndex);
+                if (buffer == null || !buffer.hasRemaining() || this.rowCodec.isEncodingOf(buffer))
+                {
+                    return false;
+                }
+                this.findKeyToContent(Optional.of(currentRowIndex))
+                    .ifPresent(keyToContent -> this.writeRow(currentRowIndex, keyToContent));
+                return true;
+            });
+            numberOfMigratedRows += migrated ? 1 : 0;
+        }
+        return numberOfMigratedRows;
+    }
+
+    /**
+     * Splits the next row, if a written row exceeded the split threshold. This must not be called while holding any row lock.
+     */
+    private void splitIfRequested()
+    {
+        if (this.splitRequested.compareAndSet(true, false))
+        {
+            this.splitNextRow();
+        }
+    }
+
+    /**
+     * Splits the row at the split pointer of the {@link LinearHashing} under the write locks of the split row and the new row. The moved entries are
+     * written to the new row before the new state is persisted, and the split row is rewritten afterwards, so an interrupted split never loses any entry.
+     */
+    private void splitNextRow()
+    {
+        synchronized (this.splitLock)
+        {
+            LinearHashing linearHashing = this.linearHashing;
+            if (linearHashing.isExhausted())
+            {
+                return;
+            }
+
+            int splitRowIndex = linearHashing.getSplitPointer();
+            int splitTargetRowIndex = linearHashing.getSplitTargetRowIndex();
+            this.operateOnRow(splitRowIndex, true, () -> this.operateOnRow(splitTargetRowIndex, true, () ->
+            {
+                this.splitRow(linearHashing);
+                return null;
+            }));
+        }
+    }
+
+    private void splitRow(LinearHashing linearHashing)
+    {
+        int splitRowIndex = linearHashing.getSplitPointer();
+        Map<String, Content> keyToContent = this.readKeyToContentForModification(splitRowIndex);
+        Map<String, Content> movedKeyToContent = new LinkedHashMap<>();
+        keyToContent.entrySet()
+                    .removeIf(keyAndContent ->
+                    {
+                        boolean isMoved = !linearHashing.isRetainedBySplit(toHash(keyAndContent.getKey()));
+                        if (isMoved)
+                        {
+                            movedKeyToContent.put(keyAndContent.getKey(), keyAndContent.getValue());
+                        }
+                        return isMoved;
+                    });
+
+        this.writeRow(linearHashing.getSplitTargetRowIndex(), movedKeyToContent);
+        this.linearHashing = linearHashing.split();
+        this.writeLinearHashing(this.linearHashing);
+        this.writeRow(splitRowIndex, keyToContent);
+    }
+
+    /**
+     * Writes the given {@link LinearHashing} into a temporary file which then replaces the current file, so a crash never leaves a truncated state behind
+     * 
+     * @param linearHashing
+     */
+    private void writeLinearHashing(LinearHashing linearHashing)
+    {
+        File linearHashingFile = this.getLinearHashingFile();
+        File temporaryFile = new File(linearHashingFile.getPath() + ".tmp");
+        FileUtils.toWriterSupplierUTF8(temporaryFile)
+                 .toConsumerWith(JSONHelper.writerSerializer(LinearHashing.class))
+                 .accept(linearHashing);
+        try
+        {
+            try
+            {
+                Files.move(temporaryFile.toPath(), linearHashingFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temporaryFile.toPath(), linearHashingFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to write linear hashing state: " + linearHashingFile, e);
+        }
+    }
+
+    private File getLinearHashingFile()
+    {
+        return new File(this.cacheDirectory, "linear-hashing.json");
+    }
+
+    /**
+     * Reads the rows one after another under their read locks. Rows which are added by concurrent splits are included. Keys which are not addressed to the
+     * row they are found in are skipped, like {@link #get(String, Class)} does, as they are stale duplicates left behind by an interrupted split.
+     */
     @Override
     public Set<String> keySet()
     {
-        return IntStream.range(0, this.hashCapacity)
-                        .mapToObj(rowIndex -> this.findKeyToContent(Optional.of(rowIndex)))
-                        .filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .map(Map::keySet)
-                        .flatMap(Set::stream)
-                        .collect(Collectors.toSet());
+        Set<String> keys = new HashSet<>();
+        for (int rowIndex = 0; rowIndex < this.linearHashing.getNumberOfRows(); rowIndex++)
+        {
+            int currentRowIndex = rowIndex;
+            this.operateOnRow(rowIndex, false, () -> this.findKeyToContent(Optional.of(currentRowIndex))
+                                                         .map(Map::keySet)
+                                                         .map(rowKeys -> rowKeys.stream()
+                                                                                .filter(key -> this.isAddressedTo(key, currentRowIndex))
+                                                                                .collect(Collectors.toList()))
+                                                         .map(keys::addAll));
+        }
+        return keys;
+    }
+
+    /**
+     * Forces the written rows to the disk
+     */
+    @Override
+    public void flush()
+    {
+        this.rowStorage.flush();
+    }
+
+    @Override
+    public void close()
+    {
+        this.rowStorage.close();
     }
 
 }
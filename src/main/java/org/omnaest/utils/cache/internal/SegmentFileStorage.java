@@ -0,0 +1,392 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Append only storage which packs many values into few large segment files. Every appended value is addressed by its {@link Location} consisting of the
+ * segment, the offset and the length, so a read is a single positional read of an already open {@link FileChannel}.
+ * <br>
+ * <br>
+ * Values are appended to the latest segment, until it exceeds the maximum segment size, then a new segment is started. Overwritten values are never
+ * touched again, instead the owner of the {@link Location}s copies the still referenced values of a sealed segment by {@link #copy(Location)} and
+ * deletes the segment afterwards by {@link #delete(int)}. Appended values are durable only after {@link #force()}, which the owner has to call before it
+ * persists any {@link Location} of them.
+ * 
+ * @author omnaest
+ */
+public class SegmentFileStorage implements AutoCloseable
+{
+    public static final long                DEFAULT_MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final Logger             LOG                      = LoggerFactory.getLogger(SegmentFileStorage.class);
+    private static final String             SEGMENT_FILE_SUFFIX      = ".segment";
+
+    private final File                      directory;
+    private final long                      maxSegmentSize;
+    private final Map<Integer, FileChannel> readChannels             = new ConcurrentHashMap<>();
+    private FileChannel                     writeChannel;
+    private int                             currentSegment           = -1;
+    private long                            currentSegmentSize;
+    private boolean                         unforcedAppends          = false;
+
+    /**
+     * Address of a single value within a {@link SegmentFileStorage}
+     * 
+     * @author omnaest
+     */
+    public static class Location
+    {
+        @JsonProperty
+        private int  segment;
+
+        @JsonProperty
+        private long offset;
+
+        @JsonProperty
+        private int  length;
+
+        @JsonProperty
+        private long modified;
+
+        protected Location()
+        {
+            super();
+        }
+
+        public Location(int segment, long offset, int length, long modified)
+        {
+            super();
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.modified = modified;
+        }
+
+        public int getSegment()
+        {
+            return this.segment;
+        }
+
+        public long getOffset()
+        {
+            return this.offset;
+        }
+
+        public int getLength()
+        {
+            return this.length;
+        }
+
+        /**
+         * Returns the epoch milliseconds, when the value has been appended originally
+         * 
+         * @return
+         */
+        public long getModified()
+        {
+            return this.modified;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(this.segment, this.offset, this.length, this.modified);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Location))
+            {
+                return false;
+            }
+            Location other = (Location) obj;
+            return this.segment == other.segment && this.offset == other.offset && this.length == other.length && this.modified == other.modified;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Location [segment=" + this.segment + ", offset=" + this.offset + ", length=" + this.length + ", modified=" + this.modified + "]";
+        }
+
+    }
+
+    public SegmentFileStorage(File directory, long maxSegmentSize)
+    {
+        super();
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * Appends the given value to the current segment
+     * 
+     * @param value
+     * @return
+     */
+    public Location append(byte[] value)
+    {
+        return this.append(value, System.currentTimeMillis());
+    }
+
+    /**
+     * Appends the value of the given {@link Location} to the current segment and keeps its modification time
+     * 
+     * @param location
+     * @return
+     */
+    public Location copy(Location location)
+    {
+        return this.append(this.read(location), location.getModified());
+    }
+
+    private synchronized Location append(byte[] value, long modified)
+    {
+        try
+        {
+            if (this.writeChannel == null || (this.currentSegmentSize > 0 && this.currentSegmentSize + value.length > this.maxSegmentSize))
+            {
+                this.openNextSegment();
+            }
+
+            long offset = this.currentSegmentSize;
+            ByteBuffer buffer = ByteBuffer.wrap(value);
+            while (buffer.hasRemaining())
+            {
+                this.writeChannel.write(buffer, offset + buffer.position());
+            }
+            this.currentSegmentSize += value.length;
+            this.unforcedAppends = true;
+            return new Location(this.currentSegment, offset, value.length, modified);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to append to segment " + this.currentSegment + " of " + this.directory, e);
+        }
+    }
+
+    private void openNextSegment() throws IOException
+    {
+        if (this.writeChannel == null)
+        {
+            this.currentSegment = this.getSegments()
+                                      .stream()
+                                      .mapToInt(Integer::intValue)
+                                      .max()
+                                      .orElse(0);
+        }
+        else
+        {
+            this.force();
+            this.writeChannel.close();
+            this.currentSegment++;
+        }
+
+        this.directory.mkdirs();
+        this.writeChannel = FileChannel.open(this.determineSegmentFile(this.currentSegment)
+                                                 .toPath(),
+                                             StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.currentSegmentSize = this.writeChannel.size();
+        if (this.currentSegmentSize > 0 && this.currentSegmentSize >= this.maxSegmentSize)
+        {
+            this.openNextSegment();
+        }
+    }
+
+    /**
+     * Forces all values appended since the last call to be written to the disk
+     */
+    public synchronized void force()
+    {
+        if (this.unforcedAppends && this.writeChannel != null)
+        {
+            try
+            {
+                this.writeChannel.force(true);
+                this.unforcedAppends = false;
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException("Unable to force segment " + this.currentSegment + " of " + this.directory, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the value of the given {@link Location} by a single positional read
+     * 
+     * @param location
+     * @return
+     */
+    public byte[] read(Location location)
+    {
+        try
+        {
+            FileChannel channel = this.readChannels.computeIfAbsent(location.getSegment(), this::openReadChannel);
+            ByteBuffer buffer = ByteBuffer.allocate(location.getLength());
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer, location.getOffset() + buffer.position()) < 0)
+                {
+                    throw new IOException("Unexpected end of segment");
+                }
+            }
+            return buffer.array();
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            throw new IllegalStateException("Unable to read " + location + " of " + this.directory, e);
+        }
+    }
+
+    private FileChannel openReadChannel(int segment)
+    {
+        try
+        {
+            return FileChannel.open(this.determineSegmentFile(segment)
+                                        .toPath(),
+                                    StandardOpenOption.READ);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to open segment " + segment + " of " + this.directory, e);
+        }
+    }
+
+    /**
+     * Returns the segment new values are currently appended to, or -1 if no value has been appended yet
+     * 
+     * @return
+     */
+    public synchronized int getCurrentSegment()
+    {
+        return this.currentSegment;
+    }
+
+    /**
+     * Returns all segments which exist within the storage directory
+     * 
+     * @return
+     */
+    public SortedSet<Integer> getSegments()
+    {
+        SortedSet<Integer> segments = new TreeSet<>();
+        Arrays.asList(Optional.ofNullable(this.directory.listFiles())
+                              .orElse(new File[0]))
+              .stream()
+              .map(File::getName)
+              .filter(name -> name.endsWith(SEGMENT_FILE_SUFFIX))
+              .map(name -> StringUtils.removeEnd(name, SEGMENT_FILE_SUFFIX))
+              .filter(StringUtils::isNumeric)
+              .map(Integer::valueOf)
+              .forEach(segments::add);
+        return segments;
+    }
+
+    /**
+     * Returns all segments which will never be appended to again, which are all segments before the latest one
+     * 
+     * @return
+     */
+    public synchronized SortedSet<Integer> getSealedSegments()
+    {
+        SortedSet<Integer> segments = this.getSegments();
+        int latestSegment = Math.max(this.currentSegment, segments.isEmpty() ? 0 : segments.last());
+        return segments.headSet(latestSegment);
+    }
+
+    public long getSize(int segment)
+    {
+        return this.determineSegmentFile(segment)
+                   .length();
+    }
+
+    /**
+     * Deletes the given segment, which must not be the current segment anymore
+     * 
+     * @param segment
+     */
+    public void delete(int segment)
+    {
+        synchronized (this)
+        {
+            if (segment == this.currentSegment)
+            {
+                throw new IllegalArgumentException("The current segment must not be deleted: " + segment);
+            }
+        }
+        this.closeChannel(this.readChannels.remove(segment));
+        if (!this.determineSegmentFile(segment)
+                 .delete())
+        {
+            LOG.warn("Unable to delete segment " + segment + " of " + this.directory);
+        }
+    }
+
+    private File determineSegmentFile(int segment)
+    {
+        return new File(this.directory, segment + SEGMENT_FILE_SUFFIX);
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        this.force();
+        this.closeChannel(this.writeChannel);
+        this.writeChannel = null;
+        this.readChannels.keySet()
+                         .forEach(segment -> this.closeChannel(this.readChannels.remove(segment)));
+    }
+
+    private void closeChannel(FileChannel channel)
+    {
+        if (channel != null)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Unable to close segment of " + this.directory, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Coordinates concurrent operations on the same cache key.
+ * <br>
+ * <br>
+ * {@link #execute(String, Supplier)} runs an operation only once for all concurrent callers of the same key. The first caller executes the operation and
+ * all further callers wait for and share its result. {@link #executeExclusively(String, Supplier)} serializes operations of the same key, which is
+ * necessary for read-modify-write operations where every caller has to apply its own modification.
+ * 
+ * @author omnaest
+ */
+public class SingleFlight
+{
+    private static final int    NUMBER_OF_STRIPES = 64;
+
+    private Map<String, Flight> keyToFlight       = new ConcurrentHashMap<>();
+    private Lock[]              stripes           = new Lock[NUMBER_OF_STRIPES];
+
+    private static class Flight
+    {
+        private CompletableFuture<Object> result = new CompletableFuture<>();
+        private Thread                    owner  = Thread.currentThread();
+    }
+
+    public SingleFlight()
+    {
+        super();
+        for (int ii = 0; ii < NUMBER_OF_STRIPES; ii++)
+        {
+            this.stripes[ii] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Executes the given operation, if no other operation of the same key is in flight. Otherwise waits for the result of the operation in flight. A
+     * reentrant call of the same thread executes the operation directly.
+     * 
+     * @param key
+     * @param operation
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String key, Supplier<V> operation)
+    {
+        if (key == null)
+        {
+            return operation.get();
+        }
+
+        Flight flight = new Flight();
+        Flight existingFlight = this.keyToFlight.putIfAbsent(key, flight);
+        if (existingFlight == null)
+        {
+            try
+            {
+                V result = operation.get();
+                flight.result.complete(result);
+                return result;
+            }
+            catch (Throwable e)
+            {
+                flight.result.completeExceptionally(e);
+                throw e;
+            }
+            finally
+            {
+                this.keyToFlight.remove(key, flight);
+            }
+        }
+        else if (existingFlight.owner == Thread.currentThread())
+        {
+            return operation.get();
+        }
+        else
+        {
+            return (V) this.await(existingFlight);
+        }
+    }
+
+    private Object await(Flight flight)
+    {
+        try
+        {
+            return flight.result.join();
+        }
+        catch (CompletionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            else
+            {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /**
+     * Executes the given operation exclusively for the given key. Operations of different keys can share the same lock, so the operation should not wait for
+     * other threads.
+     * 
+     * @param key
+     * @param operation
+     * @return
+     */
+    public <R> R executeExclusively(String key, Supplier<R> operation)
+    {
+        Lock lock = this.stripes[key != null ? Math.floorMod(key.hashCode(), NUMBER_OF_STRIPES) : 0];
+        lock.lock();
+        try
+        {
+            return operation.get();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.omnaest.utils.cache.Cache;
+
+/**
+ * {@link CacheDecorator} which ensures that concurrent {@link #computeIfAbsent(String, Supplier, Class)} calls for the same key execute the
+ * {@link Supplier} only once and that {@link #computeIfAbsentOrUpdate(String, Supplier, UnaryOperator, Class)} calls for the same key do not overlap.
+ * 
+ * @see SingleFlight
+ * @author omnaest
+ */
+public class SingleFlightCacheDecorator extends CacheDecorator
+{
+    private SingleFlight singleFlight = new SingleFlight();
+
+    public SingleFlightCacheDecorator(Cache cache)
+    {
+        super(cache);
+    }
+
+    @Override
+    public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
+    {
+        return this.singleFlight.execute(key, () -> super.computeIfAbsent(key, supplier, type));
+    }
+
+    @Override
+    public <V> V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction, Class<V> type)
+    {
+        return this.singleFlight.executeExclusively(key, () -> super.computeIfAbsentOrUpdate(key, supplier, updateFunction, type));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SingleFlightCacheDecorator [" + super.toString() + "]";
+    }
+
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.omnaest.utils.cache.CacheStats;
+import org.omnaest.utils.cache.CacheStats.Operation;
+import org.omnaest.utils.cache.UnaryCache;
+import org.omnaest.utils.cache.internal.stats.StatsCounter;
+
+/**
+ * {@link UnaryCacheDecorator} which records the {@link CacheStats} of all operations
+ * 
+ * @see UnaryCache#asStatsRecordingCache()
+ * @author omnaest
+ * @param <V>
+ */
+public class StatsRecordingUnaryCacheDecorator<V> extends UnaryCacheDecorator<V>
+{
+    private StatsCounter statsCounter = new StatsCounter();
+
+    public StatsRecordingUnaryCacheDecorator(UnaryCache<V> cache)
+    {
+        super(cache);
+    }
+
+    @Override
+    public V get(String key)
+    {
+        return this.statsCounter.timed(Operation.GET, () -> this.statsCounter.recordHitOrMiss(super.get(key)));
+    }
+
+    @Override
+    public Map<String, V> get(String... keys)
+    {
+        return this.get(Arrays.asList(keys));
+    }
+
+    @Override
+    public Map<String, V> get(Collection<String> keys)
+    {
+        return this.statsCounter.recordHitsAndMisses(keys, super.get(keys));
+    }
+
+    @Override
+    public void put(String key, V value)
+    {
+        this.statsCounter.timed(Operation.PUT, () -> super.put(key, value));
+    }
+
+    @Override
+    public void putAll(Map<String, V> map)
+    {
+        this.statsCounter.timed(Operation.PUT, () -> super.putAll(map));
+    }
+
+    @Override
+    public V computeIfAbsent(String key, Supplier<V> supplier)
+    {
+        return this.statsCounter.timed(Operation.COMPUTE, () ->
+        {
+            AtomicBoolean loaded = new AtomicBoolean(false);
+            Supplier<V> loader = this.statsCounter.wrapLoader(supplier);
+            V result = super.computeIfAbsent(key, () ->
+            {
+                loaded.set(true);
+                return loader.get();
+            });
+            this.statsCounter.recordHitOrMissByLoad(loaded.get());
+            return result;
+        });
+    }
+
+    @Override
+    public V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction)
+    {
+        return this.statsCounter.timed(Operation.COMPUTE, () ->
+        {
+            AtomicBoolean loaded = new AtomicBoolean(false);
+            Supplier<V> loader = this.statsCounter.wrapLoader(supplier);
+            V result = super.computeIfAbsentOrUpdate(key, () ->
+            {
+                loaded.set(true);
+                return loader.get();
+            }, updateFunction);
+            this.statsCounter.recordHitOrMissByLoad(loaded.get());
+            return result;
+        });
+    }
+
+    @Override
+    public Map<String, V> computeAllIfAbsent(Collection<String> keys, Function<Set<String>, Map<String, V>> bulkLoader)
+    {
+        return super.computeAllIfAbsent(keys, missingKeys -> this.statsCounter.wrapLoader(() -> bulkLoader.apply(missingKeys))
+                                                                              .get());
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        this.statsCounter.timed(Operation.REMOVE, () -> super.remove(key));
+    }
+
+    @Override
+    public void removeAll(Iterable<String> keys)
+    {
+        this.statsCounter.timed(Operation.REMOVE, () -> super.removeAll(keys));
+    }
+
+    @Override
+    public CacheStats getStats()
+    {
+        return this.statsCounter.snapshot()
+                                .combine(super.getStats());
+    }
+
+}
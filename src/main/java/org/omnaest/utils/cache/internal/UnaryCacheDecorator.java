@@ -21,6 +21,7 @@ import java.util.Set;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
+import org.omnaest.utils.cache.CacheStats;
 import org.omnaest.utils.cache.UnaryCache;
 
 public class UnaryCacheDecorator<V> implements UnaryCache<V>
@@ -117,4 +118,10 @@ public class UnaryCacheDecorator<V> implements UnaryCache<V>
         return this.cache.get(keys);
     }
 
+    @Override
+    public CacheStats getStats()
+    {
+        return this.cache.getStats();
+    }
+
 }
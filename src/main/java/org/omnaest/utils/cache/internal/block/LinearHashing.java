@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.block;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Immutable addressing state of a linear hashing scheme. The rows are split one after another in a round, each split moves about half of the entries of
+ * the row at the split pointer into a new row at the end. Rows before the split pointer are addressed with the doubled modulus of the next round, so the
+ * number of rows grows by one with every split and no rehash of all rows is ever necessary.
+ * 
+ * @author omnaest
+ */
+public class LinearHashing
+{
+    @JsonProperty
+    private int initialNumberOfRows;
+
+    @JsonProperty
+    private int level;
+
+    @JsonProperty
+    private int splitPointer;
+
+    protected LinearHashing()
+    {
+        super();
+    }
+
+    public LinearHashing(int initialNumberOfRows, int level, int splitPointer)
+    {
+        super();
+        this.initialNumberOfRows = initialNumberOfRows;
+        this.level = level;
+        this.splitPointer = splitPointer;
+    }
+
+    public static LinearHashing of(int initialNumberOfRows)
+    {
+        return new LinearHashing(Math.max(1, initialNumberOfRows), 0, 0);
+    }
+
+    public int getInitialNumberOfRows()
+    {
+        return this.initialNumberOfRows;
+    }
+
+    public int getLevel()
+    {
+        return this.level;
+    }
+
+    public int getSplitPointer()
+    {
+        return this.splitPointer;
+    }
+
+    /**
+     * Returns the row index for the given non negative hash
+     * 
+     * @param hash
+     * @return
+     */
+    public int determineRowIndex(int hash)
+    {
+        long roundModulus = this.getNumberOfRowsOfRound();
+        int rowIndex = (int) (hash % roundModulus);
+        if (rowIndex < this.splitPointer)
+        {
+            rowIndex = (int) (hash % (roundModulus * 2));
+        }
+        return rowIndex;
+    }
+
+    /**
+     * Returns the current number of rows
+     * 
+     * @return
+     */
+    public int getNumberOfRows()
+    {
+        return (int) (this.getNumberOfRowsOfRound() + this.splitPointer);
+    }
+
+    /**
+     * Returns the index of the new row which receives the moved entries of the next split
+     * 
+     * @return
+     */
+    public int getSplitTargetRowIndex()
+    {
+        return (int) (this.getNumberOfRowsOfRound() + this.splitPointer);
+    }
+
+    /**
+     * Returns true, if the entry with the given hash stays in the split row during the next split, false if it moves to the
+     * {@link #getSplitTargetRowIndex()}
+     * 
+     * @param hash
+     * @return
+     */
+    public boolean isRetainedBySplit(int hash)
+    {
+        return hash % (this.getNumberOfRowsOfRound() * 2) == this.splitPointer;
+    }
+
+    /**
+     * Returns true, if a further split would exceed the maximum number of rows
+     * 
+     * @return
+     */
+    public boolean isExhausted()
+    {
+        return this.getNumberOfRowsOfRound() + this.splitPointer >= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the state after the split of the row at the current split pointer
+     * 
+     * @return
+     */
+    public LinearHashing split()
+    {
+        if (this.splitPointer + 1 >= this.getNumberOfRowsOfRound())
+        {
+            return new LinearHashing(this.initialNumberOfRows, this.level + 1, 0);
+        }
+        return new LinearHashing(this.initialNumberOfRows, this.level, this.splitPointer + 1);
+    }
+
+    private long getNumberOfRowsOfRound()
+    {
+        return (long) this.initialNumberOfRows << this.level;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LinearHashing [initialNumberOfRows=" + this.initialNumberOfRows + ", level=" + this.level + ", splitPointer=" + this.splitPointer + "]";
+    }
+}
@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.block;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Block file storage which keeps every row within a single block of a data file and accesses the blocks via memory mapped regions of
+ * {@link FileChannel#map(MapMode, long, long)}. The block sizes are the initial block size multiplied by a power of two. A row is overwritten in place as
+ * long as it fits into its block, otherwise it is moved into a block of the next sufficient size, so the number of relocations grows only logarithmically
+ * with the row size. Released blocks are reused for further relocations as long as the storage is open. The released blocks are kept in memory only
+ * and are not part of the index file, so after reopening the storage they are never reused again and their space within the data file is lost.
+ * <br>
+ * <br>
+ * The index file consists of a header with the end of the allocated data, followed by the offset, the length and the block size of every row. Reads
+ * return a read only view of the mapped row bytes, so a read of a row is a page cache hit without any copy into the heap. Rows of different index
+ * positions can be read and written concurrently, but the caller has to ensure that a row is not read or written while it is written.
+ * <br>
+ * <br>
+ * {@link #close()} drops all mapped regions, which are unmapped by the garbage collector as soon as no view returned by {@link #read(int)} is referenced
+ * anymore. They are not unmapped explicitly, as any access of a still referenced view would crash the virtual machine then.
+ * 
+ * @author omnaest
+ */
+public class MappedBlockFileStorage implements AutoCloseable
+{
+    public static final int                      DEFAULT_INITIAL_BLOCK_SIZE = 1024;
+    public static final int                      DEFAULT_REGION_SIZE        = 64 * 1024 * 1024;
+
+    private static final int                     MAGIC                      = 0x4d424653;
+    private static final int                     INDEX_HEADER_SIZE          = 16;
+    private static final int                     INDEX_ENTRY_SIZE           = 16;
+    private static final int                     INITIAL_NUMBER_OF_ROWS     = 1024;
+
+    private final FileChannel                    indexChannel;
+    private final FileChannel                    dataChannel;
+    private final int                            regionSize;
+    private final Map<Integer, MappedByteBuffer> regions                    = new ConcurrentHashMap<>();
+    private final Map<Integer, Deque<Long>>      releasedBlocks             = new HashMap<>();
+    private volatile MappedByteBuffer            index;
+    private int                                  initialBlockSize           = DEFAULT_INITIAL_BLOCK_SIZE;
+    private long                                 dataEnd;
+
+    public MappedBlockFileStorage(File directory, int regionSize)
+    {
+        super();
+        this.regionSize = regionSize;
+        try
+        {
+            directory.mkdirs();
+            this.indexChannel = FileChannel.open(new File(directory, "index.mbs").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                 StandardOpenOption.WRITE);
+            this.dataChannel = FileChannel.open(new File(directory, "blocks.mbs").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE);
+            boolean isNew = this.indexChannel.size() == 0;
+            this.index = this.mapIndex(Math.max(this.indexChannel.size(), INDEX_HEADER_SIZE + (long) INITIAL_NUMBER_OF_ROWS * INDEX_ENTRY_SIZE));
+            if (isNew)
+            {
+                this.index.putInt(0, MAGIC);
+            }
+            else if (this.index.getInt(0) != MAGIC)
+            {
+                throw new IllegalStateException("Unknown index file format in directory: " + directory);
+            }
+            this.dataEnd = this.index.getLong(8);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to open mapped block file storage in directory: " + directory, e);
+        }
+    }
+
+    public static MappedBlockFileStorage of(File directory)
+    {
+        return new MappedBlockFileStorage(directory, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Sets the size of the smallest block in bytes. Already allocated blocks keep their size.
+     * 
+     * @param initialBlockSize
+     * @return
+     */
+    public MappedBlockFileStorage withInitialBlockSize(int initialBlockSize)
+    {
+        if (initialBlockSize > 0)
+        {
+            this.initialBlockSize = Math.min(initialBlockSize, this.regionSize);
+        }
+        return this;
+    }
+
+    /**
+     * Returns a read only view of the mapped bytes of the given row or null, if the row has never been written
+     * 
+     * @param rowIndex
+     * @return
+     */
+    public ByteBuffer read(int rowIndex)
+    {
+        MappedByteBuffer index = this.getIndex();
+        long position = toIndexPosition(rowIndex);
+        if (rowIndex < 0 || position + INDEX_ENTRY_SIZE > index.capacity())
+        {
+            return null;
+        }
+
+        int blockSize = index.getInt((int) position + 12);
+        if (blockSize == 0)
+        {
+            return null;
+        }
+        long offset = index.getLong((int) position);
+        int length = index.getInt((int) position + 8);
+        int regionOffset = (int) (offset % this.regionSize);
+        ByteBuffer region = this.getRegion(offset)
+                                .duplicate();
+        ((Buffer) region).position(regionOffset)
+                         .limit(regionOffset + length);
+        return region.slice()
+                     .asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the given content into the block of the given row. If the content does not fit into the current block, the row is moved into a new block.
+     * 
+     * @param rowIndex
+     * @param content
+     * @return
+     * @throws IllegalArgumentException
+     *             if the content exceeds the region size
+     */
+    public MappedBlockFileStorage write(int rowIndex, byte[] content)
+    {
+        if (content.length > this.regionSize)
+        {
+            throw new IllegalArgumentException("Row of " + content.length + " bytes exceeds the region size of " + this.regionSize + " bytes");
+        }
+
+        long offset;
+        int blockSize;
+        synchronized (this)
+        {
+            this.getIndex();
+            this.ensureIndexCapacity(rowIndex);
+            int position = (int) toIndexPosition(rowIndex);
+            offset = this.index.getLong(position);
+            blockSize = this.index.getInt(position + 12);
+            if (content.length > blockSize || blockSize == 0)
+            {
+                if (blockSize > 0)
+                {
+                    this.releasedBlocks.computeIfAbsent(blockSize, size -> new ArrayDeque<>())
+                                       .add(offset);
+                }
+                blockSize = this.determineBlockSize(content.length);
+                offset = this.allocateBlock(blockSize);
+            }
+        }
+
+        // the block is owned by the row, so the copy does not block writes of other rows
+        ByteBuffer region = this.getRegion(offset)
+                                .duplicate();
+        ((Buffer) region).position((int) (offset % this.regionSize));
+        region.put(content);
+
+        synchronized (this)
+        {
+            int position = (int) toIndexPosition(rowIndex);
+            this.index.putLong(position, offset);
+            this.index.putInt(position + 8, content.length);
+            this.index.putInt(position + 12, blockSize);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of rows the index can hold without growing
+     * 
+     * @return
+     */
+    public int getRowCapacity()
+    {
+        return (int) ((this.getIndex()
+                           .capacity() - INDEX_HEADER_SIZE) / INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Forces all mapped regions and the index to be written to the disk
+     */
+    public synchronized void flush()
+    {
+        MappedByteBuffer index = this.getIndex();
+        this.regions.values()
+                    .forEach(MappedByteBuffer::force);
+        index.force();
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (this.index == null)
+        {
+            return;
+        }
+
+        this.flush();
+        this.regions.clear();
+        this.index = null;
+        try
+        {
+            this.indexChannel.close();
+            this.dataChannel.close();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Unable to close mapped block file storage", e);
+        }
+    }
+
+    private MappedByteBuffer getIndex()
+    {
+        MappedByteBuffer index = this.index;
+        if (index == null)
+        {
+            throw new IllegalStateException("Mapped block file storage is already closed");
+        }
+        return index;
+    }
+
+    private int determineBlockSize(int length)
+    {
+        int blockSize = this.initialBlockSize;
+        while (blockSize < length)
+        {
+            blockSize = (int) Math.min((long) blockSize * 2, this.regionSize);
+        }
+        return blockSize;
+    }
+
+    private long allocateBlock(int blockSize)
+    {
+        Deque<Long> released = this.releasedBlocks.get(blockSize);
+        if (released != null && !released.isEmpty())
+        {
+            return released.poll();
+        }
+
+        if (this.dataEnd % this.regionSize + blockSize > this.regionSize)
+        {
+            // blocks never span two regions
+            this.dataEnd = (this.dataEnd / this.regionSize + 1) * this.regionSize;
+        }
+        long offset = this.dataEnd;
+        this.dataEnd += blockSize;
+        this.index.putLong(8, this.dataEnd);
+        return offset;
+    }
+
+    private MappedByteBuffer getRegion(long offset)
+    {
+        return this.regions.computeIfAbsent((int) (offset / this.regionSize), regionIndex ->
+        {
+            try
+            {
+                return this.dataChannel.map(MapMode.READ_WRITE, (long) regionIndex * this.regionSize, this.regionSize);
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException("Unable to map region " + regionIndex + " of the block file", e);
+            }
+        });
+    }
+
+    private void ensureIndexCapacity(int rowIndex)
+    {
+        if (rowIndex < 0)
+        {
+            throw new IllegalArgumentException("Negative row index: " + rowIndex);
+        }
+
+        long requiredSize = toIndexPosition(rowIndex) + INDEX_ENTRY_SIZE;
+        if (requiredSize > this.index.capacity())
+        {
+            try
+            {
+                this.index.force();
+                this.index = this.mapIndex(Math.max(requiredSize, 2L * this.index.capacity()));
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException("Unable to grow the index file", e);
+            }
+        }
+    }
+
+    private MappedByteBuffer mapIndex(long size) throws IOException
+    {
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException("Index file exceeds the maximum size of " + Integer.MAX_VALUE + " bytes");
+        }
+        return this.indexChannel.map(MapMode.READ_WRITE, 0, size);
+    }
+
+    private static long toIndexPosition(int rowIndex)
+    {
+        return INDEX_HEADER_SIZE + (long) rowIndex * INDEX_ENTRY_SIZE;
+    }
+}
@@ -15,30 +15,81 @@
  ******************************************************************************/
 package org.omnaest.utils.cache.internal.capacity;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 import org.omnaest.utils.AssertionUtils;
 import org.omnaest.utils.cache.CacheBase;
+import org.omnaest.utils.cache.CapacityLimitedCache.Weigher;
+import org.omnaest.utils.cache.internal.stats.StatsCounter;
 
+/**
+ * Enforces a capacity limit on a {@link CacheBase}.
+ * <br>
+ * <br>
+ * The limiter tracks the keys and weights of all entries itself, so the bound is validated on every insert without calling {@link CacheBase#size()} or
+ * {@link CacheBase#keySet()} of the wrapped cache. Only the first access reads the {@link CacheBase#keySet()} once to register the already existing entries.
+ * If the bound is exceeded, the {@link EvictionStrategyHandler} determines a batch of keys to evict, which size is given by the eviction ratio, so the
+ * eviction costs are amortized constant per insert.
+ * <br>
+ * <br>
+ * Beside the number of entries a weight limit can be defined, e.g. based on the byte size of the values, see {@link Weigher}.
+ * 
+ * @author omnaest
+ */
 public class CacheCapacityLimiter
 {
-    private int                     capacity;
-    private double                  evictionRatio    = 0.3;
+    private int                      capacity         = Integer.MAX_VALUE;
+    private long                     maximumWeight    = Long.MAX_VALUE;
+    private double                   evictionRatio    = 0.3;
+
+    private CacheBase                cache;
+    private Function<String, Object> existingValueReader;
+
+    private Weigher                  weigher          = null;
+    private EvictionStrategyHandler  evictionStrategy = new RandomEvictionStrategy();
 
-    private CacheBase               cache;
+    private Map<String, Long>        keyToWeight      = new ConcurrentHashMap<>();
+    private AtomicInteger            size             = new AtomicInteger();
+    private AtomicLong               weight           = new AtomicLong();
+    private AtomicLong               evictionCount    = new AtomicLong();
+    private StatsCounter             statsCounter     = new StatsCounter();
 
-    private AtomicLong              counter          = new AtomicLong();
-    private EvictionStrategyHandler evictionStrategy = new RandomEvictionStrategy();
+    private volatile boolean         initialized      = false;
+    private Lock                     evictionLock     = new ReentrantLock();
 
-    public CacheCapacityLimiter(CacheBase cache)
+    /**
+     * @param cache
+     *            the capacity limited cache which is used to remove the evicted entries
+     * @param existingValueReader
+     *            reads the values of already existing entries, which is only needed for their weight if a {@link Weigher} is defined
+     */
+    public CacheCapacityLimiter(CacheBase cache, Function<String, Object> existingValueReader)
     {
         super();
         this.cache = cache;
+        this.existingValueReader = existingValueReader;
     }
 
     public CacheCapacityLimiter setCapacity(int capacity)
     {
         this.capacity = capacity;
+        this.evictionStrategy.onCapacityChange(capacity);
+        return this;
+    }
+
+    public CacheCapacityLimiter setWeightLimit(long maximumWeight, Weigher weigher)
+    {
+        AssertionUtils.assertIsNotNull("A weigher must be provided", weigher);
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.initialized = false;
         return this;
     }
 
@@ -52,42 +103,183 @@ public class CacheCapacityLimiter
     {
         AssertionUtils.assertIsNotNull("A eviction strategy must be provided", evictionStrategy);
         this.evictionStrategy = evictionStrategy;
+        this.evictionStrategy.onCapacityChange(this.capacity);
+        return this;
+    }
+
+    /**
+     * Sets the {@link StatsCounter} which records the evictions
+     * 
+     * @param statsCounter
+     * @return
+     */
+    public CacheCapacityLimiter setStatsCounter(StatsCounter statsCounter)
+    {
+        AssertionUtils.assertIsNotNull("A stats counter must be provided", statsCounter);
+        this.statsCounter = statsCounter;
         return this;
     }
 
-    public void incrementCounterAndValidateCapacity()
+    public void notifyRead(String key)
     {
-        this.incrementCounterAndValidateCapacity(1);
+        this.evictionStrategy.onRead(key);
     }
 
-    public void incrementCounterAndValidateCapacity(int increment)
+    /**
+     * Registers the written entry and evicts other entries, if the capacity or weight limit is exceeded
+     * 
+     * @param key
+     * @param value
+     */
+    public void notifyWrite(String key, Object value)
     {
-        long counter = this.counter.addAndGet(increment);
-        long evictionVolume = this.determineEvictionVolume();
-        if (counter % evictionVolume == 0)
+        this.ensureInitialized();
+        this.register(key, value);
+        this.evictionStrategy.onWrite(key);
+        this.enforceLimit();
+    }
+
+    public void notifyRemove(String key)
+    {
+        Long previousWeight = this.keyToWeight.remove(key);
+        if (previousWeight != null)
         {
-            this.validateCapacity();
+            this.size.decrementAndGet();
+            this.weight.addAndGet(-previousWeight);
         }
+        this.evictionStrategy.onRemove(key);
     }
 
-    private int determineEvictionVolume()
+    public void notifyClear()
+    {
+        this.keyToWeight.clear();
+        this.size.set(0);
+        this.weight.set(0);
+        this.evictionStrategy.onClear();
+    }
+
+    /**
+     * Returns the number of entries tracked by this {@link CacheCapacityLimiter}
+     * 
+     * @return
+     */
+    public int getSize()
     {
-        return (int) (this.capacity * this.evictionRatio);
+        this.ensureInitialized();
+        return this.size.get();
     }
 
-    private void validateCapacity()
+    /**
+     * Returns the total weight of the entries tracked by this {@link CacheCapacityLimiter}
+     * 
+     * @return
+     */
+    public long getWeight()
     {
-        if (this.cache.size() > this.capacity)
+        this.ensureInitialized();
+        return this.weight.get();
+    }
+
+    /**
+     * Returns the number of evicted entries
+     * 
+     * @return
+     */
+    public long getEvictionCount()
+    {
+        return this.evictionCount.get();
+    }
+
+    private void register(String key, Object value)
+    {
+        long entryWeight = this.weigher != null ? Math.max(0, this.weigher.weigh(key, value)) : 1;
+        Long previousWeight = this.keyToWeight.put(key, entryWeight);
+        if (previousWeight == null)
+        {
+            this.size.incrementAndGet();
+        }
+        this.weight.addAndGet(entryWeight - (previousWeight != null ? previousWeight : 0));
+    }
+
+    private void ensureInitialized()
+    {
+        if (!this.initialized)
+        {
+            this.evictionLock.lock();
+            try
+            {
+                if (!this.initialized)
+                {
+                    this.keyToWeight.clear();
+                    this.size.set(0);
+                    this.weight.set(0);
+                    for (String key : this.cache.keySet())
+                    {
+                        this.register(key, this.weigher != null ? this.existingValueReader.apply(key) : null);
+                    }
+                    this.initialized = true;
+                }
+            }
+            finally
+            {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    private boolean isLimitExceeded()
+    {
+        return this.size.get() > this.capacity || this.weight.get() > this.maximumWeight;
+    }
+
+    private void enforceLimit()
+    {
+        if (this.isLimitExceeded())
+        {
+            this.evictionLock.lock();
+            try
+            {
+                while (this.isLimitExceeded())
+                {
+                    Set<String> evictKeys = this.evictionStrategy.determineEvictKeys(this.determineEvictionVolume(), this.keyToWeight.keySet());
+                    if (evictKeys.isEmpty())
+                    {
+                        break;
+                    }
+                    // the removal notifies this limiter itself, so the keys are not removed from the tracking here
+                    this.cache.removeAll(evictKeys);
+                    this.evictionCount.addAndGet(evictKeys.size());
+                    this.statsCounter.recordEvictions(evictKeys.size());
+                }
+            }
+            finally
+            {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    private int determineEvictionVolume()
+    {
+        int volume = 1;
+        if (this.size.get() > this.capacity)
+        {
+            volume = Math.max(volume, this.size.get() - this.capacity + (int) (this.capacity * this.evictionRatio));
+        }
+        if (this.weight.get() > this.maximumWeight)
         {
-            this.cache.removeAll(this.evictionStrategy.determineEvictKeys(this.determineEvictionVolume(), this.cache.keySet()));
+            double averageWeight = this.weight.get() / (double) Math.max(1, this.size.get());
+            long excessWeight = this.weight.get() - (long) (this.maximumWeight * (1.0 - this.evictionRatio));
+            volume = Math.max(volume, (int) Math.ceil(excessWeight / Math.max(1.0, averageWeight)));
         }
+        return Math.min(volume, Math.max(1, this.size.get()));
     }
 
     @Override
     public String toString()
     {
-        return "CacheCapacityLimiter [capacity=" + this.capacity + ", evictionRatio=" + this.evictionRatio + ", counter=" + this.counter + ", evictionStrategy="
-               + this.evictionStrategy + "]";
+        return "CacheCapacityLimiter [capacity=" + this.capacity + ", maximumWeight=" + this.maximumWeight + ", evictionRatio=" + this.evictionRatio
+                + ", size=" + this.size + ", weight=" + this.weight + ", evictionStrategy=" + this.evictionStrategy + "]";
     }
 
 }
@@ -17,7 +17,65 @@ package org.omnaest.utils.cache.internal.capacity;
 
 import java.util.Set;
 
+/**
+ * Strategy which determines the keys to evict from a capacity limited cache.
+ * <br>
+ * <br>
+ * Stateful strategies can track the recency and frequency of accesses via the notification methods, which are called by the capacity limited cache
+ * wrappers.
+ * 
+ * @see CacheCapacityLimiter
+ * @author omnaest
+ */
 public interface EvictionStrategyHandler
 {
     public Set<String> determineEvictKeys(int volume, Set<String> keys);
+
+    /**
+     * Called if the capacity of the cache is changed
+     * 
+     * @param capacity
+     */
+    public default void onCapacityChange(int capacity)
+    {
+        // do nothing
+    }
+
+    /**
+     * Called for every read of the given key, regardless if the key is present in the cache or not
+     * 
+     * @param key
+     */
+    public default void onRead(String key)
+    {
+        // do nothing
+    }
+
+    /**
+     * Called for every write of the given key
+     * 
+     * @param key
+     */
+    public default void onWrite(String key)
+    {
+        // do nothing
+    }
+
+    /**
+     * Called if the given key is removed from the cache
+     * 
+     * @param key
+     */
+    public default void onRemove(String key)
+    {
+        // do nothing
+    }
+
+    /**
+     * Called if the cache is cleared
+     */
+    public default void onClear()
+    {
+        // do nothing
+    }
 }
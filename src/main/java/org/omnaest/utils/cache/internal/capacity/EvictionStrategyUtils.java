@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.capacity;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Helper for the {@link EvictionStrategyHandler} implementations
+ * 
+ * @author omnaest
+ */
+class EvictionStrategyUtils
+{
+    private EvictionStrategyUtils()
+    {
+        super();
+    }
+
+    /**
+     * Returns up to the given volume of keys which are present in the cache but unknown to the tracking structure of a strategy. Those keys have not been
+     * accessed since the strategy was created and are therefore the coldest keys. The lookup is skipped, if all cache keys are tracked.
+     * 
+     * @param volume
+     * @param keys
+     * @param trackedKeys
+     * @return a mutable {@link Set}
+     */
+    static Set<String> determineUntrackedKeys(int volume, Collection<String> keys, Collection<String> trackedKeys)
+    {
+        Set<String> untrackedKeys = new LinkedHashSet<>();
+        if (keys.size() > trackedKeys.size())
+        {
+            for (String key : keys)
+            {
+                if (untrackedKeys.size() >= volume)
+                {
+                    break;
+                }
+                if (!trackedKeys.contains(key))
+                {
+                    untrackedKeys.add(key);
+                }
+            }
+        }
+        return untrackedKeys;
+    }
+}
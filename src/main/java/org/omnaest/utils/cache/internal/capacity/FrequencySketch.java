@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.capacity;
+
+/**
+ * Count-Min sketch with 4-bit counters which estimates the access frequency of keys within a fixed memory footprint. All counters are halved after a
+ * sample period of ten times the maximum size, so that the sketch adapts to a changing access distribution.
+ * <br>
+ * <br>
+ * Each long of the table holds 16 counters, every key maps to 4 counters in 4 different table slots.
+ * 
+ * @see WindowTinyLfuEvictionStrategy
+ * @author omnaest
+ */
+public class FrequencySketch
+{
+    private static final long[] SEEDS      = new long[] { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long   RESET_MASK = 0x7777777777777777L;
+    private static final int    MAXIMUM    = 15;
+    private static final int    MAX_TABLE  = 1 << 30;
+
+    private long[]              table;
+    private int                 tableMask;
+    private int                 samplePeriod;
+    private int                 sampleCount;
+
+    public FrequencySketch(int maximumSize)
+    {
+        super();
+        this.ensureCapacity(maximumSize);
+    }
+
+    /**
+     * Resizes the sketch for the given maximum size, the current frequencies are discarded if the table size changes. Table size and sample period saturate,
+     * so very large maximum sizes like {@link Integer#MAX_VALUE} do not overflow.
+     * 
+     * @param maximumSize
+     */
+    public final void ensureCapacity(int maximumSize)
+    {
+        int size = (int) Math.min(MAX_TABLE, Math.max(16, Long.highestOneBit(Math.max(1L, maximumSize) - 1) << 1));
+        if (this.table == null || this.table.length != size)
+        {
+            this.table = new long[size];
+            this.tableMask = size - 1;
+            this.sampleCount = 0;
+        }
+        this.samplePeriod = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(1, maximumSize));
+    }
+
+    /**
+     * Returns the estimated number of accesses of the given key, which is at most 15
+     * 
+     * @param key
+     * @return
+     */
+    public int frequency(String key)
+    {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAXIMUM;
+        for (int ii = 0; ii < 4; ii++)
+        {
+            int index = this.determineIndex(hash, ii);
+            int count = (int) ((this.table[index] >>> ((start + ii) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments the estimated number of accesses of the given key
+     * 
+     * @param key
+     */
+    public void increment(String key)
+    {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean incremented = false;
+        for (int ii = 0; ii < 4; ii++)
+        {
+            incremented |= this.incrementAt(this.determineIndex(hash, ii), start + ii);
+        }
+
+        if (incremented && ++this.sampleCount >= this.samplePeriod)
+        {
+            this.reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter)
+    {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((this.table[index] & mask) != mask)
+        {
+            this.table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset()
+    {
+        for (int ii = 0; ii < this.table.length; ii++)
+        {
+            this.table[ii] = (this.table[ii] >>> 1) & RESET_MASK;
+        }
+        this.sampleCount /= 2;
+    }
+
+    private int determineIndex(int hash, int depth)
+    {
+        long value = (hash + SEEDS[depth]) * SEEDS[depth];
+        value += value >>> 32;
+        return ((int) value) & this.tableMask;
+    }
+
+    private static int spread(int hash)
+    {
+        int value = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        value = ((value >>> 16) ^ value) * 0x45d9f3b;
+        return (value >>> 16) ^ value;
+    }
+}
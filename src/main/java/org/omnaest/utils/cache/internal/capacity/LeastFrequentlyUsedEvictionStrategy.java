@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.capacity;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * {@link EvictionStrategyHandler} which evicts the least frequently accessed keys first. Keys with the same access frequency are evicted in least recently
+ * used order. Keys which are present in the cache but have never been accessed through the capacity limited cache are evicted before all tracked keys.
+ * 
+ * @author omnaest
+ */
+public class LeastFrequentlyUsedEvictionStrategy implements EvictionStrategyHandler
+{
+    private Map<String, Long>                    keyToFrequency  = new HashMap<>();
+    private TreeMap<Long, LinkedHashSet<String>> frequencyToKeys = new TreeMap<>();
+
+    @Override
+    public synchronized void onRead(String key)
+    {
+        if (this.keyToFrequency.containsKey(key))
+        {
+            this.incrementFrequency(key);
+        }
+    }
+
+    @Override
+    public synchronized void onWrite(String key)
+    {
+        this.incrementFrequency(key);
+    }
+
+    @Override
+    public synchronized void onRemove(String key)
+    {
+        Long frequency = this.keyToFrequency.remove(key);
+        if (frequency != null)
+        {
+            this.removeFromFrequencyBucket(key, frequency);
+        }
+    }
+
+    @Override
+    public synchronized void onClear()
+    {
+        this.keyToFrequency.clear();
+        this.frequencyToKeys.clear();
+    }
+
+    private void incrementFrequency(String key)
+    {
+        Long previousFrequency = this.keyToFrequency.get(key);
+        long frequency = previousFrequency != null ? previousFrequency + 1 : 1;
+        if (previousFrequency != null)
+        {
+            this.removeFromFrequencyBucket(key, previousFrequency);
+        }
+        this.keyToFrequency.put(key, frequency);
+        this.frequencyToKeys.computeIfAbsent(frequency, f -> new LinkedHashSet<>())
+                            .add(key);
+    }
+
+    private void removeFromFrequencyBucket(String key, long frequency)
+    {
+        Set<String> bucket = this.frequencyToKeys.get(frequency);
+        if (bucket != null)
+        {
+            bucket.remove(key);
+            if (bucket.isEmpty())
+            {
+                this.frequencyToKeys.remove(frequency);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Set<String> determineEvictKeys(int volume, Set<String> keys)
+    {
+        Set<String> evictKeys = EvictionStrategyUtils.determineUntrackedKeys(volume, keys, this.keyToFrequency.keySet());
+
+        Iterator<Entry<Long, LinkedHashSet<String>>> bucketIterator = this.frequencyToKeys.entrySet()
+                                                                                          .iterator();
+        while (evictKeys.size() < volume && bucketIterator.hasNext())
+        {
+            Iterator<String> keyIterator = bucketIterator.next()
+                                                         .getValue()
+                                                         .iterator();
+            while (evictKeys.size() < volume && keyIterator.hasNext())
+            {
+                String key = keyIterator.next();
+                keyIterator.remove();
+                this.keyToFrequency.remove(key);
+                if (keys.contains(key))
+                {
+                    evictKeys.add(key);
+                }
+            }
+            if (!keyIterator.hasNext())
+            {
+                bucketIterator.remove();
+            }
+        }
+        return evictKeys;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LeastFrequentlyUsedEvictionStrategy";
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.capacity;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link EvictionStrategyHandler} which evicts the least recently read or written keys first. Keys which are present in the cache but have never been
+ * accessed through the capacity limited cache are evicted before all tracked keys.
+ * 
+ * @author omnaest
+ */
+public class LeastRecentlyUsedEvictionStrategy implements EvictionStrategyHandler
+{
+    private Map<String, Boolean> accessOrder = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Override
+    public synchronized void onRead(String key)
+    {
+        this.accessOrder.get(key);
+    }
+
+    @Override
+    public synchronized void onWrite(String key)
+    {
+        this.accessOrder.put(key, true);
+    }
+
+    @Override
+    public synchronized void onRemove(String key)
+    {
+        this.accessOrder.remove(key);
+    }
+
+    @Override
+    public synchronized void onClear()
+    {
+        this.accessOrder.clear();
+    }
+
+    @Override
+    public synchronized Set<String> determineEvictKeys(int volume, Set<String> keys)
+    {
+        Set<String> evictKeys = EvictionStrategyUtils.determineUntrackedKeys(volume, keys, this.accessOrder.keySet());
+
+        Iterator<String> iterator = this.accessOrder.keySet()
+                                                    .iterator();
+        while (evictKeys.size() < volume && iterator.hasNext())
+        {
+            String key = iterator.next();
+            iterator.remove();
+            if (keys.contains(key))
+            {
+                evictKeys.add(key);
+            }
+        }
+        return evictKeys;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LeastRecentlyUsedEvictionStrategy";
+    }
+}
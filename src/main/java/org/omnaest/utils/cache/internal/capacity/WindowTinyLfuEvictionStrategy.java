@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.capacity;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * {@link EvictionStrategyHandler} implementing the W-TinyLFU admission and eviction policy.
+ * <br>
+ * <br>
+ * New keys enter a small least recently used admission window of about 1% of the capacity. Keys falling out of the window become admission candidates
+ * which have to compete against the least recently used key of the probation segment of the main space. The key with the lower estimated access frequency
+ * of the {@link FrequencySketch} is evicted. Keys which are accessed again while in probation are promoted into the protected segment, which holds 80% of
+ * the main space.
+ * <br>
+ * <br>
+ * Reads of absent keys are recorded in the {@link FrequencySketch} as well, so that frequently requested keys win the admission once they are written.
+ * 
+ * @author omnaest
+ */
+public class WindowTinyLfuEvictionStrategy implements EvictionStrategyHandler
+{
+    private static final double   WINDOW_RATIO      = 0.01;
+    private static final double   PROTECTED_RATIO   = 0.8;
+
+    private FrequencySketch       sketch            = new FrequencySketch(16);
+
+    private LinkedHashSet<String> window            = new LinkedHashSet<>();
+    private LinkedHashSet<String> candidates        = new LinkedHashSet<>();
+    private LinkedHashSet<String> probation         = new LinkedHashSet<>();
+    private LinkedHashSet<String> protectedKeys     = new LinkedHashSet<>();
+
+    private int                   capacity          = Integer.MAX_VALUE;
+    private int                   maximumTracked    = 0;
+    private int                   windowCapacity    = 1;
+    private int                   protectedCapacity = 1;
+
+    @Override
+    public synchronized void onCapacityChange(int capacity)
+    {
+        this.capacity = capacity;
+        this.resize();
+    }
+
+    /**
+     * Sizes the {@link FrequencySketch} and the segments by the capacity, but at most by the largest number of tracked keys. Weight only limits keep the
+     * capacity at {@link Integer#MAX_VALUE}, which would otherwise lead to a huge admission window.
+     */
+    private void resize()
+    {
+        int size = Math.min(this.capacity, Math.max(16, this.maximumTracked));
+        this.sketch.ensureCapacity(size);
+        this.windowCapacity = Math.max(1, (int) (size * WINDOW_RATIO));
+        this.protectedCapacity = Math.max(1, (int) ((size - this.windowCapacity) * PROTECTED_RATIO));
+    }
+
+    private void trackGrowth()
+    {
+        int tracked = this.window.size() + this.candidates.size() + this.probation.size() + this.protectedKeys.size();
+        if (tracked > this.maximumTracked)
+        {
+            this.maximumTracked = tracked;
+            if (tracked <= this.capacity)
+            {
+                this.resize();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onRead(String key)
+    {
+        this.sketch.increment(key);
+        this.touch(key);
+    }
+
+    @Override
+    public synchronized void onWrite(String key)
+    {
+        this.sketch.increment(key);
+        if (!this.touch(key))
+        {
+            this.window.add(key);
+            this.trackGrowth();
+            this.shrinkWindow();
+        }
+    }
+
+    private boolean touch(String key)
+    {
+        if (this.window.remove(key))
+        {
+            this.window.add(key);
+            return true;
+        }
+        else if (this.candidates.remove(key) || this.probation.remove(key))
+        {
+            this.protectedKeys.add(key);
+            this.shrinkProtected();
+            return true;
+        }
+        else if (this.protectedKeys.remove(key))
+        {
+            this.protectedKeys.add(key);
+            return true;
+        }
+        return false;
+    }
+
+    private void shrinkWindow()
+    {
+        while (this.window.size() > this.windowCapacity)
+        {
+            this.candidates.add(removeFirst(this.window));
+        }
+    }
+
+    private void shrinkProtected()
+    {
+        while (this.protectedKeys.size() > this.protectedCapacity)
+        {
+            this.probation.add(removeFirst(this.protectedKeys));
+        }
+    }
+
+    @Override
+    public synchronized void onRemove(String key)
+    {
+        if (!this.window.remove(key) && !this.candidates.remove(key) && !this.probation.remove(key))
+        {
+            this.protectedKeys.remove(key);
+        }
+    }
+
+    @Override
+    public synchronized void onClear()
+    {
+        this.window.clear();
+        this.candidates.clear();
+        this.probation.clear();
+        this.protectedKeys.clear();
+    }
+
+    @Override
+    public synchronized Set<String> determineEvictKeys(int volume, Set<String> keys)
+    {
+        Set<String> evictKeys = EvictionStrategyUtils.determineUntrackedKeys(volume, keys, new TrackedKeys());
+        while (evictKeys.size() < volume)
+        {
+            String key = this.determineNextEvictKey();
+            if (key == null)
+            {
+                break;
+            }
+            if (keys.contains(key))
+            {
+                evictKeys.add(key);
+            }
+        }
+        return evictKeys;
+    }
+
+    private String determineNextEvictKey()
+    {
+        String candidate = first(this.candidates);
+        String victim = this.probation.isEmpty() ? first(this.protectedKeys) : first(this.probation);
+        if (candidate != null && victim != null)
+        {
+            this.candidates.remove(candidate);
+            if (this.sketch.frequency(candidate) > this.sketch.frequency(victim))
+            {
+                this.onRemove(victim);
+                this.probation.add(candidate);
+                return victim;
+            }
+            else
+            {
+                return candidate;
+            }
+        }
+        else if (candidate != null)
+        {
+            this.candidates.remove(candidate);
+            return candidate;
+        }
+        else if (victim != null)
+        {
+            this.onRemove(victim);
+            return victim;
+        }
+        else
+        {
+            String key = first(this.window);
+            this.window.remove(key);
+            return key;
+        }
+    }
+
+    private static String first(Set<String> keys)
+    {
+        Iterator<String> iterator = keys.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static String removeFirst(Set<String> keys)
+    {
+        Iterator<String> iterator = keys.iterator();
+        String key = iterator.next();
+        iterator.remove();
+        return key;
+    }
+
+    /**
+     * Read only view of all tracked keys used for the detection of untracked keys
+     * 
+     * @author omnaest
+     */
+    private class TrackedKeys extends AbstractCollection<String>
+    {
+        @Override
+        public boolean contains(Object key)
+        {
+            return WindowTinyLfuEvictionStrategy.this.window.contains(key) || WindowTinyLfuEvictionStrategy.this.candidates.contains(key)
+                    || WindowTinyLfuEvictionStrategy.this.probation.contains(key) || WindowTinyLfuEvictionStrategy.this.protectedKeys.contains(key);
+        }
+
+        @Override
+        public int size()
+        {
+            return WindowTinyLfuEvictionStrategy.this.window.size() + WindowTinyLfuEvictionStrategy.this.candidates.size()
+                    + WindowTinyLfuEvictionStrategy.this.probation.size() + WindowTinyLfuEvictionStrategy.this.protectedKeys.size();
+        }
+
+        @Override
+        public Iterator<String> iterator()
+        {
+            return Stream.of(WindowTinyLfuEvictionStrategy.this.window, WindowTinyLfuEvictionStrategy.this.candidates,
+                             WindowTinyLfuEvictionStrategy.this.probation, WindowTinyLfuEvictionStrategy.this.protectedKeys)
+                         .flatMap(Set::stream)
+                         .iterator();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "WindowTinyLfuEvictionStrategy [window=" + this.window.size() + ", candidates=" + this.candidates.size() + ", probation="
+                + this.probation.size() + ", protected=" + this.protectedKeys.size() + "]";
+    }
+}
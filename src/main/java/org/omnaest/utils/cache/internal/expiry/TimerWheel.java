@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.expiry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timer wheel which indexes keys by their expiry time.
+ * <br>
+ * <br>
+ * The wheel consists of {@value #NUMBER_OF_LEVELS} levels with {@value #NUMBER_OF_SLOTS} slots each. A slot of the first level spans a single tick, a
+ * slot of every further level spans all slots of the level below. Scheduling and cancelling a key costs constant time. {@link #advance(long)} only visits the
+ * slots which have been passed since the last call, expires the keys of those slots and cascades not yet expired keys of the higher levels down to the
+ * lower levels.
+ * 
+ * @author omnaest
+ */
+public class TimerWheel
+{
+    private static final int        SLOT_BITS        = 6;
+    private static final int        NUMBER_OF_SLOTS  = 1 << SLOT_BITS;
+    private static final int        SLOT_MASK        = NUMBER_OF_SLOTS - 1;
+    private static final int        NUMBER_OF_LEVELS = 5;
+
+    private long                    tickDuration;
+    private long                    currentTick;
+
+    private List<List<Set<String>>> levels           = new ArrayList<>();
+    private Map<String, Timer>      keyToTimer       = new HashMap<>();
+
+    private static class Timer
+    {
+        private long expiryTime;
+        private int  level;
+        private int  slot;
+
+        public Timer(long expiryTime)
+        {
+            super();
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    /**
+     * @param tickDuration
+     *            duration of a single tick in the same unit as the time values given to the other methods
+     * @param currentTime
+     */
+    public TimerWheel(long tickDuration, long currentTime)
+    {
+        super();
+        this.tickDuration = Math.max(1, tickDuration);
+        this.currentTick = currentTime / this.tickDuration;
+        for (int level = 0; level < NUMBER_OF_LEVELS; level++)
+        {
+            List<Set<String>> slots = new ArrayList<>(NUMBER_OF_SLOTS);
+            for (int slot = 0; slot < NUMBER_OF_SLOTS; slot++)
+            {
+                slots.add(new HashSet<>());
+            }
+            this.levels.add(slots);
+        }
+    }
+
+    /**
+     * Schedules the given key for the given expiry time, a previous schedule of the key is replaced
+     * 
+     * @param key
+     * @param expiryTime
+     */
+    public synchronized void schedule(String key, long expiryTime)
+    {
+        this.cancel(key);
+        Timer timer = new Timer(expiryTime);
+        this.keyToTimer.put(key, timer);
+        this.place(key, timer);
+    }
+
+    private void place(String key, Timer timer)
+    {
+        long expiryTick = Math.max(timer.expiryTime / this.tickDuration, this.currentTick);
+        long delta = expiryTick - this.currentTick;
+        int level = 0;
+        while (level < NUMBER_OF_LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1))))
+        {
+            level++;
+        }
+        timer.level = level;
+        timer.slot = (int) ((expiryTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        this.levels.get(level)
+                   .get(timer.slot)
+                   .add(key);
+    }
+
+    /**
+     * Removes the given key from the wheel
+     * 
+     * @param key
+     */
+    public synchronized void cancel(String key)
+    {
+        Timer timer = this.keyToTimer.remove(key);
+        if (timer != null)
+        {
+            this.levels.get(timer.level)
+                       .get(timer.slot)
+                       .remove(key);
+        }
+    }
+
+    /**
+     * Returns true, if the given key is scheduled and not expired at the given time
+     * 
+     * @param key
+     * @param time
+     * @return
+     */
+    public synchronized boolean isActive(String key, long time)
+    {
+        Timer timer = this.keyToTimer.get(key);
+        return timer != null && timer.expiryTime > time;
+    }
+
+    public synchronized void clear()
+    {
+        this.keyToTimer.clear();
+        this.levels.forEach(slots -> slots.forEach(Set::clear));
+    }
+
+    /**
+     * Advances the wheel to the given time and removes and returns all keys which are expired at that time
+     * 
+     * @param time
+     * @return
+     */
+    public synchronized Set<String> advance(long time)
+    {
+        Set<String> expiredKeys = new HashSet<>();
+
+        long previousTick = this.currentTick;
+        long tick = time / this.tickDuration;
+        if (tick > previousTick)
+        {
+            this.currentTick = tick;
+            for (int level = 0; level < NUMBER_OF_LEVELS; level++)
+            {
+                int shift = SLOT_BITS * level;
+                long previousIndex = previousTick >>> shift;
+                long index = tick >>> shift;
+                if (index == previousIndex && level > 0)
+                {
+                    break;
+                }
+                long numberOfSlots = Math.min(index - previousIndex + 1, NUMBER_OF_SLOTS);
+                for (long slotIndex = index - numberOfSlots + 1; slotIndex <= index; slotIndex++)
+                {
+                    this.expireOrCascade(level, (int) (slotIndex & SLOT_MASK), time, expiredKeys);
+                }
+            }
+        }
+        else
+        {
+            this.expireOrCascade(0, (int) (this.currentTick & SLOT_MASK), time, expiredKeys);
+        }
+
+        return expiredKeys;
+    }
+
+    private void expireOrCascade(int level, int slot, long time, Set<String> expiredKeys)
+    {
+        Set<String> keys = this.levels.get(level)
+                                      .set(slot, new HashSet<>());
+        for (String key : keys)
+        {
+            Timer timer = this.keyToTimer.get(key);
+            if (timer.expiryTime <= time)
+            {
+                this.keyToTimer.remove(key);
+                expiredKeys.add(key);
+            }
+            else
+            {
+                this.place(key, timer);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of scheduled keys
+     * 
+     * @return
+     */
+    public synchronized int size()
+    {
+        return this.keyToTimer.size();
+    }
+
+    /**
+     * Returns a copy of all scheduled keys
+     * 
+     * @return
+     */
+    public synchronized Set<String> keySet()
+    {
+        return Collections.unmodifiableSet(new HashSet<>(this.keyToTimer.keySet()));
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "TimerWheel [tickDuration=" + this.tickDuration + ", currentTick=" + this.currentTick + ", size=" + this.keyToTimer.size() + "]";
+    }
+
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.omnaest.utils.JSONHelper;
+import org.omnaest.utils.cache.CacheValueCodec;
+
+/**
+ * {@link CacheValueCodec} which writes a leading type tag byte followed by the native representation of {@link String}s, byte arrays, {@link Long}s,
+ * {@link Integer}s, {@link Double}s and {@link Boolean}s. All other values are encoded as UTF-8 json.
+ * <br>
+ * <br>
+ * If the decoded value is not an instance of the requested type, it is converted by {@link JSONHelper#toObjectWithType(Object, Class)}.
+ * 
+ * @author omnaest
+ */
+public class BinaryCacheValueCodec implements CacheValueCodec
+{
+    private static final byte NULL    = 0;
+    private static final byte STRING  = 1;
+    private static final byte BYTES   = 2;
+    private static final byte LONG    = 3;
+    private static final byte INTEGER = 4;
+    private static final byte DOUBLE  = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte JSON    = 7;
+
+    @Override
+    public byte[] encode(Object value)
+    {
+        if (value == null)
+        {
+            return new byte[] { NULL };
+        }
+        else if (value instanceof String)
+        {
+            return this.encodeWithTag(STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        else if (value instanceof byte[])
+        {
+            return this.encodeWithTag(BYTES, (byte[]) value);
+        }
+        else if (value instanceof Long)
+        {
+            return ByteBuffer.allocate(9)
+                             .put(LONG)
+                             .putLong((Long) value)
+                             .array();
+        }
+        else if (value instanceof Integer)
+        {
+            return ByteBuffer.allocate(5)
+                             .put(INTEGER)
+                             .putInt((Integer) value)
+                             .array();
+        }
+        else if (value instanceof Double)
+        {
+            return ByteBuffer.allocate(9)
+                             .put(DOUBLE)
+                             .putDouble((Double) value)
+                             .array();
+        }
+        else if (value instanceof Boolean)
+        {
+            return new byte[] { BOOLEAN, (byte) (((Boolean) value) ? 1 : 0) };
+        }
+        else
+        {
+            return this.encodeWithTag(JSON, JSONHelper.serialize(value)
+                                                      .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private byte[] encodeWithTag(byte tag, byte[] data)
+    {
+        byte[] result = new byte[data.length + 1];
+        result[0] = tag;
+        System.arraycopy(data, 0, result, 1, data.length);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> V decode(byte[] data, Class<V> type)
+    {
+        if (data == null || data.length == 0)
+        {
+            return null;
+        }
+
+        byte tag = data[0];
+        if (tag == JSON)
+        {
+            return JSONHelper.readFromString(new String(data, 1, data.length - 1, StandardCharsets.UTF_8), type);
+        }
+
+        Object value = this.decodeNative(tag, data);
+        if (value == null || type == null || type.isInstance(value))
+        {
+            return (V) value;
+        }
+        else
+        {
+            return JSONHelper.toObjectWithType(value, type);
+        }
+    }
+
+    private Object decodeNative(byte tag, byte[] data)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+        switch (tag)
+        {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+            case BYTES:
+                return Arrays.copyOfRange(data, 1, data.length);
+            case LONG:
+                return buffer.getLong();
+            case INTEGER:
+                return buffer.getInt();
+            case DOUBLE:
+                return buffer.getDouble();
+            case BOOLEAN:
+                return data[1] != 0;
+            default:
+                throw new IllegalStateException("Unknown type tag: " + tag);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.offheap;
+
+import java.nio.charset.StandardCharsets;
+
+import org.omnaest.utils.JSONHelper;
+import org.omnaest.utils.cache.CacheValueCodec;
+
+/**
+ * {@link CacheValueCodec} which encodes all values as UTF-8 json using the {@link JSONHelper}
+ * 
+ * @author omnaest
+ */
+public class JsonCacheValueCodec implements CacheValueCodec
+{
+    @Override
+    public byte[] encode(Object value)
+    {
+        return JSONHelper.serialize(value)
+                         .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <V> V decode(byte[] data, Class<V> type)
+    {
+        return JSONHelper.readFromString(new String(data, StandardCharsets.UTF_8), type);
+    }
+}
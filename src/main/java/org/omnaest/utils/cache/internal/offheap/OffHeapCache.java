@@ -0,0 +1,388 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.offheap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.CacheValueCodec;
+import org.omnaest.utils.cache.internal.AbstractCache;
+import org.omnaest.utils.duration.TimeDuration;
+
+/**
+ * {@link Cache} which holds the encoded values outside of the java heap within direct {@link java.nio.ByteBuffer} slabs of a {@link SlabStore}. The
+ * keys are located by an {@link OffHeapHashIndex}, which is also held in a direct buffer, so that the heap usage does not grow with the number of
+ * entries.
+ * <br>
+ * <br>
+ * The values are encoded by the given {@link CacheValueCodec}. The slabs never exceed the given byte capacity, if the capacity is reached the oldest slab
+ * is recycled and its entries are evicted. Overwritten and removed entries are only dropped from the index, their bytes are reclaimed not before the
+ * recycling reaches their slab. A null value is stored as entry without any value bytes, so it is not recomputed by
+ * {@link #computeIfAbsent(String, Supplier, Class)}.
+ * 
+ * @author omnaest
+ */
+public class OffHeapCache extends AbstractCache
+{
+    private static final int             MINIMUM_SLAB_SIZE = 64 * 1024;
+    private static final int             MAXIMUM_SLAB_SIZE = 64 * 1024 * 1024;
+    private static final int             NUMBER_OF_SLABS   = 16;
+    private static final Object          NULL_VALUE        = new Object();
+    private static final byte[]          NO_DATA           = new byte[0];
+
+    private final CacheValueCodec        codec;
+    private final SlabStore              slabStore;
+    private final OffHeapHashIndex       index             = new OffHeapHashIndex();
+    private final List<Class<?>>         types             = new ArrayList<>();
+    private final Map<Class<?>, Integer> typeToId          = new HashMap<>();
+    private final ReadWriteLock          lock              = new ReentrantReadWriteLock();
+    private final LongConsumer           evictionHandler   = this::evict;
+
+    public OffHeapCache(long capacityInBytes, CacheValueCodec codec)
+    {
+        super();
+        this.codec = codec;
+        this.slabStore = new SlabStore(capacityInBytes, determineSlabSize(capacityInBytes));
+    }
+
+    private static int determineSlabSize(long capacityInBytes)
+    {
+        long slabSize = Math.max(Math.min(capacityInBytes, MINIMUM_SLAB_SIZE), Math.min(MAXIMUM_SLAB_SIZE, capacityInBytes / NUMBER_OF_SLABS));
+        return (int) Math.max(1, slabSize);
+    }
+
+    private static byte[] encodeKey(String key)
+    {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private int findSlot(String key, byte[] keyBytes)
+    {
+        return this.index.find(OffHeapHashIndex.hash(key), location -> this.slabStore.isKeyEqualTo(location, keyBytes));
+    }
+
+    private void evict(long location)
+    {
+        int slot = this.index.find(this.slabStore.getHash(location), indexedLocation -> indexedLocation == location);
+        if (slot >= 0)
+        {
+            this.index.remove(slot);
+            this.statsCounter.recordEvictions(1);
+        }
+    }
+
+    private int determineTypeId(Object value)
+    {
+        Class<?> type = value != null ? value.getClass() : Void.class;
+        return this.typeToId.computeIfAbsent(type, newType ->
+        {
+            this.types.add(newType);
+            return this.types.size() - 1;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> V get(String key, Class<V> type)
+    {
+        Object value = this.find(key, type);
+        return value != NULL_VALUE ? (V) value : null;
+    }
+
+    /**
+     * Returns the decoded value of the given key, {@link #NULL_VALUE} for a stored null value or null, if the key is not present
+     * 
+     * @param key
+     * @param type
+     * @return
+     */
+    private Object find(String key, Class<?> type)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+
+        byte[] data;
+        this.lock.readLock()
+                 .lock();
+        try
+        {
+            int slot = this.findSlot(key, encodeKey(key));
+            if (slot < 0)
+            {
+                return null;
+            }
+            long location = this.index.getLocation(slot);
+            if (this.types.get(this.slabStore.getTypeId(location)) == Void.class)
+            {
+                return NULL_VALUE;
+            }
+            data = this.slabStore.getValue(location);
+        }
+        finally
+        {
+            this.lock.readLock()
+                     .unlock();
+        }
+
+        this.statsCounter.recordBytesRead(data.length);
+        return this.codec.decode(data, type);
+    }
+
+    @Override
+    public boolean contains(String key)
+    {
+        if (key == null)
+        {
+            return false;
+        }
+
+        this.lock.readLock()
+                 .lock();
+        try
+        {
+            return this.findSlot(key, encodeKey(key)) >= 0;
+        }
+        finally
+        {
+            this.lock.readLock()
+                     .unlock();
+        }
+    }
+
+    @Override
+    public TimeDuration getAge(String key)
+    {
+        long creationTime = System.currentTimeMillis();
+        if (key != null)
+        {
+            this.lock.readLock()
+                     .lock();
+            try
+            {
+                int slot = this.findSlot(key, encodeKey(key));
+                if (slot >= 0)
+                {
+                    creationTime = this.slabStore.getTimestamp(this.index.getLocation(slot));
+                }
+            }
+            finally
+            {
+                this.lock.readLock()
+                         .unlock();
+            }
+        }
+        return TimeDuration.of(System.currentTimeMillis() - creationTime, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> Class<V> getType(String key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+
+        this.lock.readLock()
+                 .lock();
+        try
+        {
+            int slot = this.findSlot(key, encodeKey(key));
+            return slot >= 0 ? (Class<V>) this.types.get(this.slabStore.getTypeId(this.index.getLocation(slot))) : null;
+        }
+        finally
+        {
+            this.lock.readLock()
+                     .unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, Object value)
+    {
+        byte[] keyBytes = encodeKey(key);
+        byte[] data = value != null ? this.codec.encode(value) : NO_DATA;
+        int hash = OffHeapHashIndex.hash(key);
+
+        this.lock.writeLock()
+                 .lock();
+        try
+        {
+            long location = this.slabStore.write(hash, keyBytes, data, this.determineTypeId(value), System.currentTimeMillis(), this.evictionHandler);
+            int slot = this.index.find(hash, indexedLocation -> indexedLocation != location && this.slabStore.isKeyEqualTo(indexedLocation, keyBytes));
+            if (slot >= 0)
+            {
+                this.index.setLocation(slot, location);
+            }
+            else
+            {
+                this.index.insert(hash, location);
+            }
+        }
+        finally
+        {
+            this.lock.writeLock()
+                     .unlock();
+        }
+
+        this.statsCounter.recordBytesWritten(data.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <V> V computeIfAbsent(String key, Supplier<V> supplier, Class<V> type)
+    {
+        Object value = this.find(key, type);
+        if (value != null)
+        {
+            return value != NULL_VALUE ? (V) value : null;
+        }
+
+        return this.singleFlight.execute(key, () ->
+        {
+            Object existingValue = this.find(key, type);
+            if (existingValue != null)
+            {
+                return existingValue != NULL_VALUE ? (V) existingValue : null;
+            }
+
+            V computedValue = supplier.get();
+            this.put(key, computedValue);
+            return computedValue;
+        });
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        this.lock.readLock()
+                 .lock();
+        try
+        {
+            Set<String> keys = new HashSet<>();
+            this.index.forEachLocation(location -> keys.add(this.slabStore.getKey(location)));
+            return keys;
+        }
+        finally
+        {
+            this.lock.readLock()
+                     .unlock();
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        this.lock.readLock()
+                 .lock();
+        try
+        {
+            return this.index.size();
+        }
+        finally
+        {
+            this.lock.readLock()
+                     .unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return this.size() == 0;
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        if (key == null)
+        {
+            return;
+        }
+
+        this.lock.writeLock()
+                 .lock();
+        try
+        {
+            int slot = this.findSlot(key, encodeKey(key));
+            if (slot >= 0)
+            {
+                this.index.remove(slot);
+            }
+        }
+        finally
+        {
+            this.lock.writeLock()
+                     .unlock();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        this.lock.writeLock()
+                 .lock();
+        try
+        {
+            this.index.clear();
+            this.slabStore.clear();
+        }
+        finally
+        {
+            this.lock.writeLock()
+                     .unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the currently allocated off heap slabs
+     * 
+     * @return
+     */
+    public long getAllocatedBytes()
+    {
+        this.lock.readLock()
+                 .lock();
+        try
+        {
+            return this.slabStore.getAllocatedBytes();
+        }
+        finally
+        {
+            this.lock.readLock()
+                     .unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OffHeapCache [size=" + this.size() + ", allocatedBytes=" + this.getAllocatedBytes() + ", codec=" + this.codec + "]";
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Open addressing hash index with linear probing, whose slots are held within a direct {@link ByteBuffer}. Each slot contains the hash of a key and
+ * the location of the record of the key within the {@link SlabStore}.
+ * <br>
+ * <br>
+ * The index does not compare keys itself, instead the caller provides a {@link LongPredicate} which decides, if the record at a location matches. Not
+ * thread safe.
+ * 
+ * @author omnaest
+ */
+public class OffHeapHashIndex
+{
+    private static final int SLOT_SIZE        = 12;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAXIMUM_CAPACITY = 1 << 27;
+
+    private ByteBuffer       slots;
+    private int              capacity;
+    private int              size;
+
+    public OffHeapHashIndex()
+    {
+        super();
+        this.clear();
+    }
+
+    public static int hash(String key)
+    {
+        int hashCode = key.hashCode();
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    /**
+     * Returns the slot of the record with the given hash, which is accepted by the given location {@link LongPredicate}, or -1
+     * 
+     * @param hash
+     * @param locationMatcher
+     * @return
+     */
+    public int find(int hash, LongPredicate locationMatcher)
+    {
+        int mask = this.capacity - 1;
+        for (int slot = hash & mask; !this.isEmpty(slot); slot = (slot + 1) & mask)
+        {
+            if (this.getHash(slot) == hash && locationMatcher.test(this.getLocation(slot)))
+            {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts a new slot for the given hash and location. The caller has to ensure, that there is no matching slot present.
+     * 
+     * @param hash
+     * @param location
+     */
+    public void insert(int hash, long location)
+    {
+        if (this.size >= this.capacity / 4 * 3)
+        {
+            this.resize(this.capacity << 1);
+        }
+        this.insertUnchecked(hash, location);
+        this.size++;
+    }
+
+    private void insertUnchecked(int hash, long location)
+    {
+        int mask = this.capacity - 1;
+        int slot = hash & mask;
+        while (!this.isEmpty(slot))
+        {
+            slot = (slot + 1) & mask;
+        }
+        this.setSlot(slot, hash, location);
+    }
+
+    private void resize(int capacity)
+    {
+        if (capacity > MAXIMUM_CAPACITY)
+        {
+            throw new IllegalStateException("Maximum index capacity of " + MAXIMUM_CAPACITY + " keys exceeded");
+        }
+
+        ByteBuffer previousSlots = this.slots;
+        int previousCapacity = this.capacity;
+        this.allocate(capacity);
+        for (int slot = 0; slot < previousCapacity; slot++)
+        {
+            long storedLocation = previousSlots.getLong(slot * SLOT_SIZE + 4);
+            if (storedLocation != 0)
+            {
+                this.insertUnchecked(previousSlots.getInt(slot * SLOT_SIZE), storedLocation - 1);
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        this.capacity = capacity;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    }
+
+    public long getLocation(int slot)
+    {
+        return this.slots.getLong(slot * SLOT_SIZE + 4) - 1;
+    }
+
+    public void setLocation(int slot, long location)
+    {
+        this.slots.putLong(slot * SLOT_SIZE + 4, location + 1);
+    }
+
+    private int getHash(int slot)
+    {
+        return this.slots.getInt(slot * SLOT_SIZE);
+    }
+
+    private boolean isEmpty(int slot)
+    {
+        return this.slots.getLong(slot * SLOT_SIZE + 4) == 0;
+    }
+
+    private void setSlot(int slot, int hash, long location)
+    {
+        this.slots.putInt(slot * SLOT_SIZE, hash);
+        this.setLocation(slot, location);
+    }
+
+    /**
+     * Removes the given slot and shifts the following slots of the same probe sequence backwards
+     * 
+     * @param slot
+     */
+    public void remove(int slot)
+    {
+        int mask = this.capacity - 1;
+        int freeSlot = slot;
+        for (int currentSlot = (slot + 1) & mask; !this.isEmpty(currentSlot); currentSlot = (currentSlot + 1) & mask)
+        {
+            int hash = this.getHash(currentSlot);
+            int homeSlot = hash & mask;
+            boolean isMovable = freeSlot <= currentSlot ? homeSlot <= freeSlot || homeSlot > currentSlot : homeSlot <= freeSlot && homeSlot > currentSlot;
+            if (isMovable)
+            {
+                this.setSlot(freeSlot, hash, this.getLocation(currentSlot));
+                freeSlot = currentSlot;
+            }
+        }
+        this.slots.putLong(freeSlot * SLOT_SIZE + 4, 0);
+        this.size--;
+    }
+
+    public void forEachLocation(LongConsumer locationConsumer)
+    {
+        for (int slot = 0; slot < this.capacity; slot++)
+        {
+            if (!this.isEmpty(slot))
+            {
+                locationConsumer.accept(this.getLocation(slot));
+            }
+        }
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public void clear()
+    {
+        this.size = 0;
+        this.allocate(INITIAL_CAPACITY);
+    }
+}
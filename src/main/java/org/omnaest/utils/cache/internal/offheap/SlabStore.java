@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.offheap;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongConsumer;
+
+/**
+ * Append only record storage within a ring of direct {@link ByteBuffer} slabs. The slabs are allocated lazily until the byte capacity is reached,
+ * afterwards the oldest slab is recycled and all its records are handed to an eviction {@link LongConsumer} before they are overwritten.
+ * <br>
+ * <br>
+ * A record consists of a header with the key hash, the key length, the value length, the type id and the write timestamp, followed by the UTF-8 key
+ * bytes and the value bytes. Records are addressed by their location, which combines the slab index and the offset within the slab. Not thread safe.
+ * 
+ * @author omnaest
+ */
+public class SlabStore
+{
+    private static final int   HEADER_SIZE   = 24;
+
+    private final int          slabSize;
+    private final ByteBuffer[] slabs;
+    private final int[]        slabLimits;
+    private int                currentSlab   = 0;
+    private int                writePosition = 0;
+
+    public SlabStore(long capacityInBytes, int slabSize)
+    {
+        super();
+        this.slabSize = slabSize;
+        int numberOfSlabs = (int) Math.max(1, Math.min(Integer.MAX_VALUE, capacityInBytes / slabSize));
+        this.slabs = new ByteBuffer[numberOfSlabs];
+        this.slabLimits = new int[numberOfSlabs];
+    }
+
+    /**
+     * Appends a new record and returns its location. If the current slab is full, the next slab of the ring is used and all records of it are handed to
+     * the given eviction {@link LongConsumer} before it is reused.
+     * 
+     * @param hash
+     * @param key
+     * @param value
+     * @param typeId
+     * @param timestamp
+     * @param evictionHandler
+     * @return
+     * @throws IllegalArgumentException
+     *             if the record is larger than a single slab
+     */
+    public long write(int hash, byte[] key, byte[] value, int typeId, long timestamp, LongConsumer evictionHandler)
+    {
+        int length = HEADER_SIZE + key.length + value.length;
+        if (length > this.slabSize)
+        {
+            throw new IllegalArgumentException("Record of " + length + " bytes exceeds the slab size of " + this.slabSize + " bytes");
+        }
+
+        if (this.slabs[this.currentSlab] == null)
+        {
+            this.slabs[this.currentSlab] = ByteBuffer.allocateDirect(this.slabSize);
+        }
+        else if (this.writePosition + length > this.slabSize)
+        {
+            this.currentSlab = (this.currentSlab + 1) % this.slabs.length;
+            this.writePosition = 0;
+            if (this.slabs[this.currentSlab] == null)
+            {
+                this.slabs[this.currentSlab] = ByteBuffer.allocateDirect(this.slabSize);
+            }
+            else
+            {
+                this.evict(this.currentSlab, evictionHandler);
+            }
+        }
+
+        ByteBuffer slab = this.slabs[this.currentSlab];
+        int offset = this.writePosition;
+        slab.putInt(offset, hash);
+        slab.putInt(offset + 4, key.length);
+        slab.putInt(offset + 8, value.length);
+        slab.putInt(offset + 12, typeId);
+        slab.putLong(offset + 16, timestamp);
+        write(slab, offset + HEADER_SIZE, key);
+        write(slab, offset + HEADER_SIZE + key.length, value);
+
+        this.writePosition += length;
+        this.slabLimits[this.currentSlab] = this.writePosition;
+        return toLocation(this.currentSlab, offset);
+    }
+
+    private void evict(int slabIndex, LongConsumer evictionHandler)
+    {
+        ByteBuffer slab = this.slabs[slabIndex];
+        int limit = this.slabLimits[slabIndex];
+        for (int offset = 0; offset < limit; offset += HEADER_SIZE + slab.getInt(offset + 4) + slab.getInt(offset + 8))
+        {
+            evictionHandler.accept(toLocation(slabIndex, offset));
+        }
+        this.slabLimits[slabIndex] = 0;
+    }
+
+    /**
+     * Copies the given content into the slab at the given offset. A duplicate is used, as the absolute bulk methods of {@link ByteBuffer} are not available
+     * before Java 13.
+     * 
+     * @param slab
+     * @param offset
+     * @param content
+     */
+    private static void write(ByteBuffer slab, int offset, byte[] content)
+    {
+        ByteBuffer buffer = slab.duplicate();
+        ((Buffer) buffer).position(offset);
+        buffer.put(content);
+    }
+
+    private static void read(ByteBuffer slab, int offset, byte[] content)
+    {
+        ByteBuffer buffer = slab.duplicate();
+        ((Buffer) buffer).position(offset);
+        buffer.get(content);
+    }
+
+    private static long toLocation(int slabIndex, int offset)
+    {
+        return ((long) slabIndex << 32) | offset;
+    }
+
+    private ByteBuffer getSlab(long location)
+    {
+        return this.slabs[(int) (location >>> 32)];
+    }
+
+    private static int getOffset(long location)
+    {
+        return (int) location;
+    }
+
+    public int getHash(long location)
+    {
+        return this.getSlab(location)
+                   .getInt(getOffset(location));
+    }
+
+    public int getTypeId(long location)
+    {
+        return this.getSlab(location)
+                   .getInt(getOffset(location) + 12);
+    }
+
+    public long getTimestamp(long location)
+    {
+        return this.getSlab(location)
+                   .getLong(getOffset(location) + 16);
+    }
+
+    public int getRecordLength(long location)
+    {
+        ByteBuffer slab = this.getSlab(location);
+        int offset = getOffset(location);
+        return HEADER_SIZE + slab.getInt(offset + 4) + slab.getInt(offset + 8);
+    }
+
+    public String getKey(long location)
+    {
+        ByteBuffer slab = this.getSlab(location);
+        int offset = getOffset(location);
+        byte[] key = new byte[slab.getInt(offset + 4)];
+        read(slab, offset + HEADER_SIZE, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    public boolean isKeyEqualTo(long location, byte[] key)
+    {
+        ByteBuffer slab = this.getSlab(location);
+        int offset = getOffset(location);
+        if (slab.getInt(offset + 4) != key.length)
+        {
+            return false;
+        }
+
+        int keyOffset = offset + HEADER_SIZE;
+        for (int ii = 0; ii < key.length; ii++)
+        {
+            if (slab.get(keyOffset + ii) != key[ii])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] getValue(long location)
+    {
+        ByteBuffer slab = this.getSlab(location);
+        int offset = getOffset(location);
+        int keyLength = slab.getInt(offset + 4);
+        byte[] value = new byte[slab.getInt(offset + 8)];
+        read(slab, offset + HEADER_SIZE + keyLength, value);
+        return value;
+    }
+
+    /**
+     * Returns the number of bytes of all allocated slabs
+     * 
+     * @return
+     */
+    public long getAllocatedBytes()
+    {
+        long allocatedBytes = 0;
+        for (ByteBuffer slab : this.slabs)
+        {
+            allocatedBytes += slab != null ? this.slabSize : 0;
+        }
+        return allocatedBytes;
+    }
+
+    public void clear()
+    {
+        for (int ii = 0; ii < this.slabs.length; ii++)
+        {
+            this.slabs[ii] = null;
+            this.slabLimits[ii] = 0;
+        }
+        this.currentSlab = 0;
+        this.writePosition = 0;
+    }
+}
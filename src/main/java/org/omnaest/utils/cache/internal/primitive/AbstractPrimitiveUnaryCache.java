@@ -0,0 +1,587 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.primitive;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.omnaest.utils.cache.PrimitiveUnaryCache;
+import org.omnaest.utils.cache.internal.SingleFlight;
+import org.omnaest.utils.duration.TimeDuration;
+
+/**
+ * Base of a {@link PrimitiveUnaryCache} which holds its keys within an open addressing hash table with linear probing. The values are held by the
+ * subclasses within a primitive array of the same capacity, so that a key at slot i has its value at slot i of the value array.
+ * <br>
+ * <br>
+ * Removals shift the following entries of the same probe sequence backwards, so that no tombstones are necessary. All operations are guarded by a
+ * {@link StampedLock}, whose read and write locks do not allocate.
+ * 
+ * @author omnaest
+ * @param <V>
+ */
+public abstract class AbstractPrimitiveUnaryCache<V> implements PrimitiveUnaryCache<V>
+{
+    private static final int     DEFAULT_INITIAL_CAPACITY = 16;
+    private static final int     MAXIMUM_CAPACITY         = 1 << 30;
+
+    protected final StampedLock  lock                     = new StampedLock();
+    protected final SingleFlight singleFlight             = new SingleFlight();
+
+    private String[]             keys;
+    private long[]               timestamps;
+    private int                  size;
+    private int                  resizeThreshold;
+
+    protected AbstractPrimitiveUnaryCache()
+    {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    protected AbstractPrimitiveUnaryCache(int initialCapacity)
+    {
+        super();
+        this.allocate(determineCapacity(initialCapacity));
+    }
+
+    private static int determineCapacity(int expectedSize)
+    {
+        int capacity = DEFAULT_INITIAL_CAPACITY;
+        while (capacity < MAXIMUM_CAPACITY && capacity / 2 < expectedSize)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity)
+    {
+        this.keys = new String[capacity];
+        this.timestamps = this.timestamps != null ? new long[capacity] : null;
+        this.resizeThreshold = capacity / 4 * 3;
+        this.allocateValues(capacity);
+    }
+
+    /**
+     * Replaces the current value array by a new one with the given capacity and returns the former value array, which is null on the first allocation
+     * 
+     * @param capacity
+     * @return
+     */
+    protected abstract Object allocateValues(int capacity);
+
+    /**
+     * Copies the value at the source slot of the given former value array to the target slot of the current value array
+     * 
+     * @param sourceValues
+     * @param sourceSlot
+     * @param targetSlot
+     */
+    protected abstract void transferValue(Object sourceValues, int sourceSlot, int targetSlot);
+
+    /**
+     * Moves a value within the current value array
+     * 
+     * @param sourceSlot
+     * @param targetSlot
+     */
+    protected abstract void moveValue(int sourceSlot, int targetSlot);
+
+    protected abstract V getBoxedValue(int slot);
+
+    protected abstract void setBoxedValue(int slot, V value);
+
+    private static int hash(String key)
+    {
+        int hashCode = key.hashCode();
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    /**
+     * Returns the slot of the given key or -1, if the key is not present. Requires at least the read lock.
+     * 
+     * @param key
+     * @return
+     */
+    protected int findSlot(String key)
+    {
+        if (key == null)
+        {
+            return -1;
+        }
+
+        String[] keys = this.keys;
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask)
+        {
+            String currentKey = keys[slot];
+            if (currentKey == null)
+            {
+                return -1;
+            }
+            else if (currentKey.equals(key))
+            {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the given key. If the key is not present it is inserted and -(slot + 1) is returned, so that the caller has to initialize the
+     * value. Requires the write lock.
+     * 
+     * @param key
+     * @return
+     */
+    protected int insertSlot(String key)
+    {
+        int slot = this.findSlot(key);
+        if (slot >= 0)
+        {
+            return slot;
+        }
+
+        if (this.size >= this.resizeThreshold)
+        {
+            this.resize(this.keys.length << 1);
+        }
+
+        int freeSlot = this.findFreeSlot(key);
+        this.keys[freeSlot] = key;
+        this.size++;
+        return -(freeSlot + 1);
+    }
+
+    protected static int toSlot(int insertedSlot)
+    {
+        return insertedSlot >= 0 ? insertedSlot : -(insertedSlot + 1);
+    }
+
+    private int findFreeSlot(String key)
+    {
+        String[] keys = this.keys;
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity)
+    {
+        if (capacity > MAXIMUM_CAPACITY)
+        {
+            throw new IllegalStateException("Maximum capacity of " + MAXIMUM_CAPACITY + " keys exceeded");
+        }
+
+        String[] previousKeys = this.keys;
+        long[] previousTimestamps = this.timestamps;
+        this.keys = new String[capacity];
+        this.timestamps = previousTimestamps != null ? new long[capacity] : null;
+        this.resizeThreshold = capacity / 4 * 3;
+        Object previousValues = this.allocateValues(capacity);
+
+        for (int slot = 0; slot < previousKeys.length; slot++)
+        {
+            String key = previousKeys[slot];
+            if (key != null)
+            {
+                int targetSlot = this.findFreeSlot(key);
+                this.keys[targetSlot] = key;
+                if (previousTimestamps != null)
+                {
+                    this.timestamps[targetSlot] = previousTimestamps[slot];
+                }
+                this.transferValue(previousValues, slot, targetSlot);
+            }
+        }
+    }
+
+    /**
+     * Removes the key at the given slot and shifts all following entries of the probe sequence backwards. Requires the write lock.
+     * 
+     * @param slot
+     */
+    protected void removeSlot(int slot)
+    {
+        String[] keys = this.keys;
+        int mask = keys.length - 1;
+        int freeSlot = slot;
+        for (int currentSlot = (slot + 1) & mask; keys[currentSlot] != null; currentSlot = (currentSlot + 1) & mask)
+        {
+            int homeSlot = hash(keys[currentSlot]) & mask;
+            boolean isMovable = freeSlot <= currentSlot ? homeSlot <= freeSlot || homeSlot > currentSlot : homeSlot <= freeSlot && homeSlot > currentSlot;
+            if (isMovable)
+            {
+                keys[freeSlot] = keys[currentSlot];
+                if (this.timestamps != null)
+                {
+                    this.timestamps[freeSlot] = this.timestamps[currentSlot];
+                }
+                this.moveValue(currentSlot, freeSlot);
+                freeSlot = currentSlot;
+            }
+        }
+        keys[freeSlot] = null;
+        this.size--;
+    }
+
+    /**
+     * Records the current time as last write of the given slot, if timestamps are active. Requires the write lock.
+     * 
+     * @param slot
+     */
+    protected void touch(int slot)
+    {
+        if (this.timestamps != null)
+        {
+            this.timestamps[slot] = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public boolean contains(String key)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            return this.findSlot(key) >= 0;
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public TimeDuration getAge(String key)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            if (slot < 0 || this.timestamps == null)
+            {
+                return null;
+            }
+            return TimeDuration.of(System.currentTimeMillis() - this.timestamps[slot], TimeUnit.MILLISECONDS);
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public PrimitiveUnaryCache<V> withTimestamps(boolean active)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            if (active && this.timestamps == null)
+            {
+                this.timestamps = new long[this.keys.length];
+                long now = System.currentTimeMillis();
+                for (int slot = 0; slot < this.keys.length; slot++)
+                {
+                    if (this.keys[slot] != null)
+                    {
+                        this.timestamps[slot] = now;
+                    }
+                }
+            }
+            else if (!active)
+            {
+                this.timestamps = null;
+            }
+            return this;
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V get(String key)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            return slot >= 0 ? this.getBoxedValue(slot) : null;
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Map<String, V> get(String... keys)
+    {
+        return this.get(keys != null ? Arrays.asList(keys) : null);
+    }
+
+    @Override
+    public Map<String, V> get(Collection<String> keys)
+    {
+        Map<String, V> keyToValue = new LinkedHashMap<>();
+        if (keys != null)
+        {
+            long stamp = this.lock.readLock();
+            try
+            {
+                for (String key : keys)
+                {
+                    int slot = this.findSlot(key);
+                    if (slot >= 0)
+                    {
+                        keyToValue.put(key, this.getBoxedValue(slot));
+                    }
+                }
+            }
+            finally
+            {
+                this.lock.unlockRead(stamp);
+            }
+        }
+        return keyToValue;
+    }
+
+    @Override
+    public Supplier<V> getSupplier(String key)
+    {
+        return () -> this.get(key);
+    }
+
+    @Override
+    public void put(String key, V value)
+    {
+        if (value == null)
+        {
+            this.remove(key);
+            return;
+        }
+
+        long stamp = this.lock.writeLock();
+        try
+        {
+            this.putUnlocked(key, value);
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void putUnlocked(String key, V value)
+    {
+        int slot = toSlot(this.insertSlot(key));
+        this.setBoxedValue(slot, value);
+        this.touch(slot);
+    }
+
+    @Override
+    public void putAll(Map<String, V> map)
+    {
+        if (map != null)
+        {
+            long stamp = this.lock.writeLock();
+            try
+            {
+                map.forEach((key, value) ->
+                {
+                    if (key != null && value != null)
+                    {
+                        this.putUnlocked(key, value);
+                    }
+                });
+            }
+            finally
+            {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(String key, Supplier<V> supplier)
+    {
+        V value = this.get(key);
+        if (value != null)
+        {
+            return value;
+        }
+
+        return this.singleFlight.execute(key, () ->
+        {
+            V existingValue = this.get(key);
+            if (existingValue != null)
+            {
+                return existingValue;
+            }
+
+            V computedValue = supplier.get();
+            this.put(key, computedValue);
+            return computedValue;
+        });
+    }
+
+    /**
+     * The given {@link Supplier} and update function are called while the write lock is held, which makes the operation atomic
+     */
+    @Override
+    public V computeIfAbsentOrUpdate(String key, Supplier<V> supplier, UnaryOperator<V> updateFunction)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            V value = slot >= 0 ? updateFunction.apply(this.getBoxedValue(slot)) : supplier.get();
+            if (value != null)
+            {
+                this.putUnlocked(key, value);
+            }
+            else if (slot >= 0)
+            {
+                this.removeSlot(slot);
+            }
+            return value;
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void remove(String key)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            if (slot >= 0)
+            {
+                this.removeSlot(slot);
+            }
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void removeAll(Iterable<String> keys)
+    {
+        if (keys != null)
+        {
+            long stamp = this.lock.writeLock();
+            try
+            {
+                for (String key : keys)
+                {
+                    int slot = this.findSlot(key);
+                    if (slot >= 0)
+                    {
+                        this.removeSlot(slot);
+                    }
+                }
+            }
+            finally
+            {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            Set<String> keySet = new LinkedHashSet<>(this.size * 2);
+            for (String key : this.keys)
+            {
+                if (key != null)
+                {
+                    keySet.add(key);
+                }
+            }
+            return keySet;
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return this.size() == 0;
+    }
+
+    @Override
+    public int size()
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            return this.size;
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            this.size = 0;
+            this.allocate(DEFAULT_INITIAL_CAPACITY);
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.getClass()
+                   .getSimpleName()
+               + " [size=" + this.size() + "]";
+    }
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.primitive;
+
+import java.util.function.ToDoubleFunction;
+
+import org.omnaest.utils.cache.DoubleCache;
+
+/**
+ * {@link DoubleCache} which holds its values within a double[] parallel to the open addressing key table
+ * 
+ * @see AbstractPrimitiveUnaryCache
+ * @author omnaest
+ */
+public class OpenAddressingDoubleCache extends AbstractPrimitiveUnaryCache<Double> implements DoubleCache
+{
+    private double[] values;
+
+    public OpenAddressingDoubleCache()
+    {
+        super();
+    }
+
+    public OpenAddressingDoubleCache(int expectedSize)
+    {
+        super(expectedSize);
+    }
+
+    @Override
+    protected Object allocateValues(int capacity)
+    {
+        double[] previousValues = this.values;
+        this.values = new double[capacity];
+        return previousValues;
+    }
+
+    @Override
+    protected void transferValue(Object sourceValues, int sourceSlot, int targetSlot)
+    {
+        this.values[targetSlot] = ((double[]) sourceValues)[sourceSlot];
+    }
+
+    @Override
+    protected void moveValue(int sourceSlot, int targetSlot)
+    {
+        this.values[targetSlot] = this.values[sourceSlot];
+    }
+
+    @Override
+    protected Double getBoxedValue(int slot)
+    {
+        return this.values[slot];
+    }
+
+    @Override
+    protected void setBoxedValue(int slot, Double value)
+    {
+        this.values[slot] = value;
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            return slot >= 0 ? this.values[slot] : defaultValue;
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void putDouble(String key, double value)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            int slot = toSlot(this.insertSlot(key));
+            this.values[slot] = value;
+            this.touch(slot);
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public double addAndGet(String key, double delta)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            int insertedSlot = this.insertSlot(key);
+            int slot = toSlot(insertedSlot);
+            double value = (insertedSlot >= 0 ? this.values[slot] : 0.0) + delta;
+            this.values[slot] = value;
+            this.touch(slot);
+            return value;
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public double computeDoubleIfAbsent(String key, ToDoubleFunction<String> mappingFunction)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            if (slot >= 0)
+            {
+                return this.values[slot];
+            }
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+
+        return this.singleFlight.execute(key, () ->
+        {
+            long readStamp = this.lock.readLock();
+            try
+            {
+                int slot = this.findSlot(key);
+                if (slot >= 0)
+                {
+                    return this.values[slot];
+                }
+            }
+            finally
+            {
+                this.lock.unlockRead(readStamp);
+            }
+
+            double value = mappingFunction.applyAsDouble(key);
+            this.putDouble(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public OpenAddressingDoubleCache withTimestamps(boolean active)
+    {
+        super.withTimestamps(active);
+        return this;
+    }
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.primitive;
+
+import java.util.function.ToIntFunction;
+
+import org.omnaest.utils.cache.IntCache;
+
+/**
+ * {@link IntCache} which holds its values within a int[] parallel to the open addressing key table
+ * 
+ * @see AbstractPrimitiveUnaryCache
+ * @author omnaest
+ */
+public class OpenAddressingIntCache extends AbstractPrimitiveUnaryCache<Integer> implements IntCache
+{
+    private int[] values;
+
+    public OpenAddressingIntCache()
+    {
+        super();
+    }
+
+    public OpenAddressingIntCache(int expectedSize)
+    {
+        super(expectedSize);
+    }
+
+    @Override
+    protected Object allocateValues(int capacity)
+    {
+        int[] previousValues = this.values;
+        this.values = new int[capacity];
+        return previousValues;
+    }
+
+    @Override
+    protected void transferValue(Object sourceValues, int sourceSlot, int targetSlot)
+    {
+        this.values[targetSlot] = ((int[]) sourceValues)[sourceSlot];
+    }
+
+    @Override
+    protected void moveValue(int sourceSlot, int targetSlot)
+    {
+        this.values[targetSlot] = this.values[sourceSlot];
+    }
+
+    @Override
+    protected Integer getBoxedValue(int slot)
+    {
+        return this.values[slot];
+    }
+
+    @Override
+    protected void setBoxedValue(int slot, Integer value)
+    {
+        this.values[slot] = value;
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            return slot >= 0 ? this.values[slot] : defaultValue;
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void putInt(String key, int value)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            int slot = toSlot(this.insertSlot(key));
+            this.values[slot] = value;
+            this.touch(slot);
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int addAndGet(String key, int delta)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            int insertedSlot = this.insertSlot(key);
+            int slot = toSlot(insertedSlot);
+            int value = (insertedSlot >= 0 ? this.values[slot] : 0) + delta;
+            this.values[slot] = value;
+            this.touch(slot);
+            return value;
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int computeIntIfAbsent(String key, ToIntFunction<String> mappingFunction)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            if (slot >= 0)
+            {
+                return this.values[slot];
+            }
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+
+        return this.singleFlight.execute(key, () ->
+        {
+            long readStamp = this.lock.readLock();
+            try
+            {
+                int slot = this.findSlot(key);
+                if (slot >= 0)
+                {
+                    return this.values[slot];
+                }
+            }
+            finally
+            {
+                this.lock.unlockRead(readStamp);
+            }
+
+            int value = mappingFunction.applyAsInt(key);
+            this.putInt(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public OpenAddressingIntCache withTimestamps(boolean active)
+    {
+        super.withTimestamps(active);
+        return this;
+    }
+}
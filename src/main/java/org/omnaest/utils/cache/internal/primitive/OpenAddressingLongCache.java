@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.primitive;
+
+import java.util.function.ToLongFunction;
+
+import org.omnaest.utils.cache.LongCache;
+
+/**
+ * {@link LongCache} which holds its values within a long[] parallel to the open addressing key table
+ * 
+ * @see AbstractPrimitiveUnaryCache
+ * @author omnaest
+ */
+public class OpenAddressingLongCache extends AbstractPrimitiveUnaryCache<Long> implements LongCache
+{
+    private long[] values;
+
+    public OpenAddressingLongCache()
+    {
+        super();
+    }
+
+    public OpenAddressingLongCache(int expectedSize)
+    {
+        super(expectedSize);
+    }
+
+    @Override
+    protected Object allocateValues(int capacity)
+    {
+        long[] previousValues = this.values;
+        this.values = new long[capacity];
+        return previousValues;
+    }
+
+    @Override
+    protected void transferValue(Object sourceValues, int sourceSlot, int targetSlot)
+    {
+        this.values[targetSlot] = ((long[]) sourceValues)[sourceSlot];
+    }
+
+    @Override
+    protected void moveValue(int sourceSlot, int targetSlot)
+    {
+        this.values[targetSlot] = this.values[sourceSlot];
+    }
+
+    @Override
+    protected Long getBoxedValue(int slot)
+    {
+        return this.values[slot];
+    }
+
+    @Override
+    protected void setBoxedValue(int slot, Long value)
+    {
+        this.values[slot] = value;
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            return slot >= 0 ? this.values[slot] : defaultValue;
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void putLong(String key, long value)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            int slot = toSlot(this.insertSlot(key));
+            this.values[slot] = value;
+            this.touch(slot);
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long addAndGet(String key, long delta)
+    {
+        long stamp = this.lock.writeLock();
+        try
+        {
+            int insertedSlot = this.insertSlot(key);
+            int slot = toSlot(insertedSlot);
+            long value = (insertedSlot >= 0 ? this.values[slot] : 0L) + delta;
+            this.values[slot] = value;
+            this.touch(slot);
+            return value;
+        }
+        finally
+        {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long computeLongIfAbsent(String key, ToLongFunction<String> mappingFunction)
+    {
+        long stamp = this.lock.readLock();
+        try
+        {
+            int slot = this.findSlot(key);
+            if (slot >= 0)
+            {
+                return this.values[slot];
+            }
+        }
+        finally
+        {
+            this.lock.unlockRead(stamp);
+        }
+
+        return this.singleFlight.execute(key, () ->
+        {
+            long readStamp = this.lock.readLock();
+            try
+            {
+                int slot = this.findSlot(key);
+                if (slot >= 0)
+                {
+                    return this.values[slot];
+                }
+            }
+            finally
+            {
+                this.lock.unlockRead(readStamp);
+            }
+
+            long value = mappingFunction.applyAsLong(key);
+            this.putLong(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public OpenAddressingLongCache withTimestamps(boolean active)
+    {
+        super.withTimestamps(active);
+        return this;
+    }
+}
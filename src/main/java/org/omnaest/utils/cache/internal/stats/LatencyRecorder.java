@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.omnaest.utils.cache.LatencyHistogram;
+
+/**
+ * Records latencies into the power of two buckets of a {@link LatencyHistogram} using a {@link LongAdder} per bucket, so concurrent recordings do not
+ * contend on a single counter
+ * 
+ * @author omnaest
+ */
+public class LatencyRecorder
+{
+    private LongAdder[] buckets   = new LongAdder[LatencyHistogram.NUMBER_OF_BUCKETS];
+    private LongAdder   totalTime = new LongAdder();
+
+    public LatencyRecorder()
+    {
+        super();
+        for (int bucketIndex = 0; bucketIndex < this.buckets.length; bucketIndex++)
+        {
+            this.buckets[bucketIndex] = new LongAdder();
+        }
+    }
+
+    public void record(long latencyInNanos)
+    {
+        this.buckets[LatencyHistogram.determineBucketIndex(latencyInNanos)].increment();
+        this.totalTime.add(latencyInNanos);
+    }
+
+    public boolean isEmpty()
+    {
+        return this.totalTime.sum() == 0 && this.buckets[0].sum() == 0;
+    }
+
+    public LatencyHistogram snapshot()
+    {
+        long[] bucketCounts = new long[this.buckets.length];
+        for (int bucketIndex = 0; bucketIndex < this.buckets.length; bucketIndex++)
+        {
+            bucketCounts[bucketIndex] = this.buckets[bucketIndex].sum();
+        }
+        return new LatencyHistogram(bucketCounts, this.totalTime.sum());
+    }
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.stats;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.omnaest.utils.cache.CacheStats;
+import org.omnaest.utils.cache.CacheStats.Operation;
+import org.omnaest.utils.cache.LatencyHistogram;
+
+/**
+ * Mutable recorder of {@link CacheStats}. All counters are {@link LongAdder}s which are striped internally, so recording on the hot path of a cache adds
+ * only a few uncontended increments.
+ * 
+ * @see #snapshot()
+ * @author omnaest
+ */
+public class StatsCounter
+{
+    private LongAdder                       hitCount         = new LongAdder();
+    private LongAdder                       missCount        = new LongAdder();
+    private LongAdder                       loadSuccessCount = new LongAdder();
+    private LongAdder                       loadFailureCount = new LongAdder();
+    private LongAdder                       totalLoadTime    = new LongAdder();
+    private LongAdder                       evictionCount    = new LongAdder();
+    private LongAdder                       bytesRead        = new LongAdder();
+    private LongAdder                       bytesWritten     = new LongAdder();
+    private Map<Operation, LatencyRecorder> latencyRecorders = new EnumMap<>(Operation.class);
+
+    public StatsCounter()
+    {
+        super();
+        for (Operation operation : Operation.values())
+        {
+            this.latencyRecorders.put(operation, new LatencyRecorder());
+        }
+    }
+
+    /**
+     * Records a hit if the given value is not null, otherwise a miss
+     * 
+     * @param value
+     * @return the given value
+     */
+    public <V> V recordHitOrMiss(V value)
+    {
+        if (value != null)
+        {
+            this.hitCount.increment();
+        }
+        else
+        {
+            this.missCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Records a miss if a value had to be loaded, otherwise a hit
+     * 
+     * @param loaded
+     */
+    public void recordHitOrMissByLoad(boolean loaded)
+    {
+        if (loaded)
+        {
+            this.missCount.increment();
+        }
+        else
+        {
+            this.hitCount.increment();
+        }
+    }
+
+    /**
+     * Records the present keys of the given bulk read result as hits and all other requested keys as misses
+     * 
+     * @param keys
+     * @param result
+     * @return the given result
+     */
+    public <M extends Map<String, ?>> M recordHitsAndMisses(Collection<String> keys, M result)
+    {
+        long numberOfKeys = Optional.ofNullable(keys)
+                                    .map(Collection::stream)
+                                    .map(stream -> stream.filter(Objects::nonNull)
+                                                         .distinct()
+                                                         .count())
+                                    .orElse(0L);
+        int numberOfHits = result != null ? result.size() : 0;
+        this.hitCount.add(numberOfHits);
+        this.missCount.add(Math.max(0, numberOfKeys - numberOfHits));
+        return result;
+    }
+
+    public void recordLoadSuccess(long loadTimeInNanos)
+    {
+        this.loadSuccessCount.increment();
+        this.totalLoadTime.add(loadTimeInNanos);
+    }
+
+    public void recordLoadFailure(long loadTimeInNanos)
+    {
+        this.loadFailureCount.increment();
+        this.totalLoadTime.add(loadTimeInNanos);
+    }
+
+    public void recordEvictions(long count)
+    {
+        this.evictionCount.add(count);
+    }
+
+    public void recordBytesRead(long bytes)
+    {
+        this.bytesRead.add(bytes);
+    }
+
+    public void recordBytesWritten(long bytes)
+    {
+        this.bytesWritten.add(bytes);
+    }
+
+    public void recordLatency(Operation operation, long latencyInNanos)
+    {
+        this.latencyRecorders.get(operation)
+                             .record(latencyInNanos);
+    }
+
+    /**
+     * Wraps the given loading {@link Supplier}, so the number of loads and the load time are recorded when the {@link Supplier} is called. A load which
+     * returns null or throws an exception is recorded as failure.
+     * 
+     * @param supplier
+     * @return
+     */
+    public <V> Supplier<V> wrapLoader(Supplier<V> supplier)
+    {
+        return () ->
+        {
+            long startTime = System.nanoTime();
+            V value = null;
+            try
+            {
+                value = supplier.get();
+                return value;
+            }
+            finally
+            {
+                long loadTime = System.nanoTime() - startTime;
+                if (value != null)
+                {
+                    this.recordLoadSuccess(loadTime);
+                }
+                else
+                {
+                    this.recordLoadFailure(loadTime);
+                }
+            }
+        };
+    }
+
+    /**
+     * Executes the given operation and records its latency
+     * 
+     * @param operation
+     * @param execution
+     * @return
+     */
+    public <R> R timed(Operation operation, Supplier<R> execution)
+    {
+        long startTime = System.nanoTime();
+        try
+        {
+            return execution.get();
+        }
+        finally
+        {
+            this.recordLatency(operation, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Similar to {@link #timed(Operation, Supplier)} for operations without result
+     * 
+     * @param operation
+     * @param execution
+     */
+    public void timed(Operation operation, Runnable execution)
+    {
+        this.timed(operation, () ->
+        {
+            execution.run();
+            return null;
+        });
+    }
+
+    public CacheStats snapshot()
+    {
+        Map<Operation, LatencyHistogram> operationToLatencyHistogram = new EnumMap<>(Operation.class);
+        this.latencyRecorders.forEach((operation, latencyRecorder) ->
+        {
+            if (!latencyRecorder.isEmpty())
+            {
+                operationToLatencyHistogram.put(operation, latencyRecorder.snapshot());
+            }
+        });
+        return new CacheStats(this.hitCount.sum(), this.missCount.sum(), this.loadSuccessCount.sum(), this.loadFailureCount.sum(),
+                              this.totalLoadTime.sum(), this.evictionCount.sum(), this.bytesRead.sum(), this.bytesWritten.sum(),
+                              operationToLatencyHistogram);
+    }
+}
@@ -40,10 +40,18 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -55,12 +63,15 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import org.omnaest.utils.cache.Cache;
 import org.omnaest.utils.cache.Cache.EvictionStrategy;
+import org.omnaest.utils.cache.CacheValueCodec.StandardCacheValueCodec;
 import org.omnaest.utils.cache.CapacityLimitedUnaryCache;
 import org.omnaest.utils.cache.SingleElementCache;
 import org.omnaest.utils.cache.UnaryCache;
 import org.omnaest.utils.cache.internal.ConcurrentHashMapCache;
 import org.omnaest.utils.cache.internal.JsonFolderFilesCache;
 import org.omnaest.utils.cache.internal.JsonSingleFileCache;
+import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache;
+import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache.StandardRowCodec;
 import org.omnaest.utils.duration.TimeDuration;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -107,6 +118,7 @@ public class CacheUtilsTest
         File tempDirectory2 = FileUtils.createRandomTempDirectory();
         File tempDirectory3 = FileUtils.createRandomTempDirectory();
         File tempDirectory4 = FileUtils.createRandomTempDirectory();
+        File tempDirectory5 = FileUtils.createRandomTempDirectory();
         Supplier<Cache> supplier1 = () -> new ConcurrentHashMapCache();
         Supplier<Cache> supplier2 = () -> new JsonSingleFileCache(tempFile);
         Supplier<Cache> supplier3 = () -> new JsonFolderFilesCache(tempDirectory1);
@@ -116,7 +128,39 @@ public class CacheUtilsTest
         Supplier<Cache> supplier6 = () -> new JsonSingleFileCache(tempFile).asDurationLimitedCache(TimeDuration.of(1, TimeUnit.HOURS));
         Supplier<Cache> supplier7 = () -> new JsonFolderFilesCache(tempDirectory3).asDurationLimitedCache(TimeDuration.of(1, TimeUnit.HOURS));
         Supplier<Cache> supplier8 = () -> CacheUtils.newRandomAccessLogarithmicBlockFileStorageCache(tempDirectory4, 10);
-        return Arrays.<Supplier<Cache>>asList(supplier1, supplier2, supplier3, supplier4, supplier5, supplier6, supplier7, supplier8)
+        Supplier<Cache> supplier9 = () -> CacheUtils.newOffHeapCache(16 * 1024 * 1024);
+        Supplier<Cache> supplier10 = () -> CacheUtils.newOffHeapCache(16 * 1024 * 1024, StandardCacheValueCodec.JSON);
+        Supplier<Cache> supplier11 = () -> CacheUtils.newWriteBehindJsonFileCache(new File(tempDirectory5, UUID.randomUUID() + ".json"), TimeDuration.of(100, TimeUnit.MILLISECONDS), 10);
+        Supplier<Cache> supplier12 = () -> CacheUtils.newJournaledJsonFileCache(new File(tempDirectory5, UUID.randomUUID() + ".json"));
+        Supplier<Cache> supplier13 = () -> CacheUtils.newLazyJsonFileCache(new File(tempDirectory5, UUID.randomUUID() + ".json"), 100);
+        Supplier<Cache> supplier14 = () -> CacheUtils.newMemoryMappedBlockFileStorageCache(new File(tempDirectory5, UUID.randomUUID()
+                                                                                                                      .toString()),
+                                                                                            10);
+        Supplier<Cache> supplier15 = () -> CacheUtils.newLinearHashingBlockFileStorageCache(new File(tempDirectory5, UUID.randomUUID()
+                                                                                                                       .toString()),
+                                                                                             2, 500);
+        Supplier<Cache> supplier16 = () -> new RandomAccessLogarithmicBlockFileStorageCache(new File(tempDirectory5, UUID.randomUUID()
+                                                                                                                         .toString()),
+                                                                                            10).withMemoryMappedStorage()
+                                                                                               .withRowCodec(StandardRowCodec.BINARY);
+        Supplier<Cache> supplier17 = () -> new RandomAccessLogarithmicBlockFileStorageCache(new File(tempDirectory5, UUID.randomUUID()
+                                                                                                                         .toString()),
+                                                                                            2).withLinearHashing(500)
+                                                                                              .withRowCache(2, EvictionStrategy.LRU);
+        Supplier<Cache> supplier18 = () -> CacheUtils.newGroupCommitJsonFolderCache(new File(tempDirectory5, UUID.randomUUID()
+                                                                                                                       .toString()),
+                                                                                     TimeDuration.of(2, TimeUnit.MILLISECONDS), 10);
+        Supplier<Cache> supplier19 = () -> CacheUtils.newDeltaLogJsonFolderCache(new File(tempDirectory5, UUID.randomUUID()
+                                                                                                                    .toString()),
+                                                                                  0.01);
+        Supplier<Cache> supplier20 = () -> CacheUtils.newShardedJsonFolderCache(new File(tempDirectory5, UUID.randomUUID()
+                                                                                                                  .toString()));
+        Supplier<Cache> supplier21 = () -> CacheUtils.newSegmentJsonFolderCache(new File(tempDirectory5, UUID.randomUUID()
+                                                                                                                  .toString()),
+                                                                                 1024, 0.5)
+                                                     .withNativeStringStorage(true);
+        return Arrays.<Supplier<Cache>>asList(supplier1, supplier2, supplier3, supplier4, supplier5, supplier6, supplier7, supplier8, supplier9, supplier10,
+                                              supplier11, supplier12, supplier13, supplier14, supplier15, supplier16, supplier17, supplier18, supplier19, supplier20, supplier21)
                      .stream()
                      .collect(Collectors.toList());
     }
@@ -162,6 +206,15 @@ public class CacheUtilsTest
         assertFalse(stringCache.isEmpty());
     }
 
+    @Test
+    public void testGetType() throws Exception
+    {
+        Cache cache = this.cacheSupplier.get();
+        cache.put("key1", new Value("test"));
+        assertEquals(Value.class, cache.getType("key1"));
+        assertNull(cache.getType("key2"));
+    }
+
     @Test
     public void testRemove() throws Exception
     {
@@ -184,6 +237,93 @@ public class CacheUtilsTest
         assertEquals("value1", value.getValue());
     }
 
+    @Test
+    public void testComputeAllIfAbsent() throws Exception
+    {
+        this.cache.put("key1", new Value("value1"));
+        AtomicInteger counter = new AtomicInteger();
+        Map<String, Value> keyToValue = this.cache.computeAllIfAbsent(Arrays.asList("key1", "key2", "key3", "key4"), keys ->
+        {
+            counter.incrementAndGet();
+            assertEquals(SetUtils.toSet("key2", "key3", "key4"), keys);
+            return keys.stream()
+                       .filter(key -> !key.equals("key4"))
+                       .collect(Collectors.toMap(key -> key, key -> new Value("loaded" + key)));
+        });
+        assertEquals(1, counter.get());
+        assertEquals(SetUtils.toSet("key1", "key2", "key3"), keyToValue.keySet());
+        assertEquals("value1", keyToValue.get("key1")
+                                         .getValue());
+        assertEquals("loadedkey2", keyToValue.get("key2")
+                                             .getValue());
+        assertEquals("loadedkey3", this.cache.get("key3")
+                                             .getValue());
+        assertEquals(3, this.cache.get(Arrays.asList("key1", "key2", "key3", "key4"))
+                                  .size());
+    }
+
+    @Test
+    public void testComputeIfAbsentConcurrently() throws Exception
+    {
+        Cache cache = this.cacheSupplier.get()
+                                        .asSingleFlightCache();
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<Value>> futures = new ArrayList<>();
+            for (int ii = 0; ii < 8; ii++)
+            {
+                futures.add(executorService.submit(() ->
+                {
+                    latch.await();
+                    return cache.computeIfAbsent("key1", () ->
+                    {
+                        ThreadUtils.sleepSilently(50, TimeUnit.MILLISECONDS);
+                        return new Value("value" + counter.incrementAndGet());
+                    }, Value.class);
+                }));
+            }
+            latch.countDown();
+            for (Future<Value> future : futures)
+            {
+                assertEquals("value1", future.get()
+                                             .getValue());
+            }
+            assertEquals(1, counter.get());
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testComputeIfAbsentOrUpdateConcurrently() throws Exception
+    {
+        Cache cache = this.cacheSupplier.get();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int ii = 0; ii < 20; ii++)
+            {
+                futures.add(executorService.submit(() -> cache.computeIfAbsentOrUpdate("counter", () -> 1, value -> value + 1, Integer.class)));
+            }
+            for (Future<Integer> future : futures)
+            {
+                future.get();
+            }
+            assertEquals(20, cache.get("counter", Integer.class)
+                                  .intValue());
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
     @Test
     public void testToCapacityLimitedUnaryCache() throws Exception
     {
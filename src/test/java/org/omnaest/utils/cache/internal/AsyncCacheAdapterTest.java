@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.omnaest.utils.CacheUtils;
+import org.omnaest.utils.MapUtils;
+import org.omnaest.utils.cache.AsyncCache;
+import org.omnaest.utils.cache.AsyncUnaryCache;
+import org.omnaest.utils.cache.Cache;
+
+/**
+ * @see AsyncCacheAdapter
+ * @author omnaest
+ */
+public class AsyncCacheAdapterTest
+{
+    private Cache      cache      = CacheUtils.newConcurrentInMemoryCache();
+    private AsyncCache asyncCache = this.cache.asAsyncCache();
+
+    @Test
+    public void testGetAndPut() throws Exception
+    {
+        assertNull(this.asyncCache.getAsync("key1", String.class)
+                                  .get());
+        this.asyncCache.putAsync("key1", "value1")
+                       .get();
+        assertEquals("value1", this.asyncCache.getAsync("key1", String.class)
+                                              .get());
+        assertEquals("value1", this.cache.get("key1", String.class));
+
+        this.asyncCache.removeAsync("key1")
+                       .get();
+        assertEquals(false, this.asyncCache.containsAsync("key1")
+                                           .get());
+    }
+
+    @Test
+    public void testComputeIfAbsentAsync() throws Exception
+    {
+        AtomicInteger counter = new AtomicInteger();
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> result1 = this.asyncCache.computeIfAbsentAsync("key1", key ->
+        {
+            counter.incrementAndGet();
+            return load;
+        }, String.class);
+        CompletableFuture<String> result2 = this.asyncCache.computeIfAbsentAsync("key1", key ->
+        {
+            counter.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        }, String.class);
+        assertSame(result1, result2);
+
+        load.complete("value1");
+        assertEquals("value1", result1.get());
+        assertEquals("value1", this.cache.get("key1", String.class));
+        assertEquals(1, counter.get());
+
+        assertEquals("value1", this.asyncCache.computeIfAbsentAsync("key1", key -> CompletableFuture.completedFuture("other"), String.class)
+                                              .get());
+    }
+
+    @Test
+    public void testComputeIfAbsentAsyncWithFailedLoad() throws Exception
+    {
+        IllegalStateException exception = new IllegalStateException("load failed");
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> result = this.asyncCache.computeIfAbsentAsync("key1", key -> load, String.class);
+        load.completeExceptionally(exception);
+
+        assertSame(exception, result.handle((value, throwable) -> throwable)
+                                    .get());
+        assertTrue(result.isCompletedExceptionally());
+        assertNull(this.cache.get("key1", String.class));
+    }
+
+    @Test
+    public void testComputeAllIfAbsentAsync() throws Exception
+    {
+        this.cache.put("key1", "value1");
+        Map<String, String> result = this.asyncCache.computeAllIfAbsentAsync(Arrays.asList("key1", "key2"),
+                                                                             key -> CompletableFuture.completedFuture("loaded" + key), String.class)
+                                                    .get();
+        assertEquals(MapUtils.builder()
+                             .put("key1", "value1")
+                             .put("key2", "loadedkey2")
+                             .build(),
+                     result);
+    }
+
+    @Test
+    public void testAsyncUnaryCache() throws Exception
+    {
+        AsyncUnaryCache<String> asyncUnaryCache = this.asyncCache.asAsyncUnaryCache(String.class);
+        asyncUnaryCache.putAsync("key1", "value1")
+                       .get();
+        assertEquals("value1", asyncUnaryCache.getAsync("key1")
+                                              .get());
+        assertEquals("value2", asyncUnaryCache.computeIfAbsentAsync("key2", key -> CompletableFuture.completedFuture("value2"))
+                                              .get());
+        assertEquals("value2", this.cache.get("key2", String.class));
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache.DataMap.Content;
+
+/**
+ * @see BinaryRowCodec
+ * @author omnaest
+ */
+public class BinaryRowCodecTest
+{
+    private BinaryRowCodec codec = new BinaryRowCodec();
+
+    @Test
+    public void testEncodeAndDecode() throws Exception
+    {
+        Map<String, Content> keyToContent = new LinkedHashMap<>();
+        keyToContent.put("string", new Content("value", String.class.getName(), new Date(1000L)));
+        keyToContent.put(StringUtils.repeat("long key ", 50), new Content(StringUtils.repeat("\u00e4", 1000), String.class.getName(), new Date(2000L)));
+        keyToContent.put("long", new Content(42L, Long.class.getName(), null));
+        keyToContent.put("list", new Content(Arrays.asList("a", "b"), Arrays.asList()
+                                                                            .getClass()
+                                                                            .getName(),
+                                             new Date(3000L)));
+
+        byte[] encoded = this.codec.encode(keyToContent);
+        assertEquals(BinaryRowCodec.MAGIC, encoded[0]);
+        assertTrue(this.codec.isEncodingOf(ByteBuffer.wrap(encoded)));
+        assertFalse(this.codec.isEncodingOf(ByteBuffer.wrap("{}".getBytes(StandardCharsets.UTF_8))));
+
+        Map<String, Content> decoded = this.codec.decode(ByteBuffer.wrap(encoded));
+        assertEquals(4, decoded.size());
+        assertEquals("value", decoded.get("string")
+                                     .resolveElement());
+        assertEquals(new Date(1000L), decoded.get("string")
+                                             .getModifiedDate());
+        assertEquals(StringUtils.repeat("\u00e4", 1000), decoded.get(StringUtils.repeat("long key ", 50))
+                                                                .resolveElement());
+        assertEquals(42L, decoded.get("long")
+                                 .resolveElement());
+        assertNull(decoded.get("long")
+                          .getModifiedDate());
+        assertEquals(Arrays.asList("a", "b"), (List<?>) decoded.get("list")
+                                                               .resolveElement());
+
+        assertArrayEquals(encoded, this.codec.encode(decoded));
+    }
+
+    @Test
+    public void testUnchangedValuesAreNotEncodedAgain() throws Exception
+    {
+        Map<String, Content> keyToContent = new LinkedHashMap<>();
+        keyToContent.put("key", new Content("value", String.class.getName(), new Date()));
+        Map<String, Content> decoded = this.codec.decode(ByteBuffer.wrap(this.codec.encode(keyToContent)));
+        byte[] encodedElement = decoded.get("key")
+                                       .getEncodedElement();
+        Map<String, Content> redecoded = this.codec.decode(ByteBuffer.wrap(this.codec.encode(decoded)));
+        assertArrayEquals(encodedElement, redecoded.get("key")
+                                                   .getEncodedElement());
+        assertSame(encodedElement, decoded.get("key")
+                                          .getEncodedElement());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnsupportedVersion() throws Exception
+    {
+        this.codec.decode(ByteBuffer.wrap(new byte[] { BinaryRowCodec.MAGIC, 99, 0, 0 }));
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.omnaest.utils.ThreadUtils;
+
+/**
+ * @see ConcurrentHashMapCache
+ * @author omnaest
+ */
+public class ConcurrentHashMapCacheTest
+{
+    @Test
+    public void testNullValue() throws Exception
+    {
+        ConcurrentHashMapCache cache = new ConcurrentHashMapCache();
+        cache.put("key1", null);
+        assertTrue(cache.contains("key1"));
+        assertNull(cache.get("key1", String.class));
+        assertNull(cache.getType("key1"));
+        assertNull(cache.computeIfAbsent("key1", () -> "value1", String.class));
+    }
+
+    @Test
+    public void testConcurrentPutAndRemove() throws Exception
+    {
+        ConcurrentHashMapCache cache = new ConcurrentHashMapCache();
+        int numberOfThreads = 8;
+        int numberOfKeys = 16;
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        try
+        {
+            CountDownLatch latch = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < numberOfThreads; thread++)
+            {
+                int currentThread = thread;
+                futures.add(executorService.submit(() ->
+                {
+                    latch.await();
+                    for (int ii = 0; ii < 20000; ii++)
+                    {
+                        String key = "key" + (ii % numberOfKeys);
+                        if ((ii + currentThread) % 3 == 0)
+                        {
+                            cache.remove(key);
+                        }
+                        else if ((ii + currentThread) % 3 == 1)
+                        {
+                            cache.put(key, "value" + ii);
+                        }
+                        else
+                        {
+                            cache.computeIfAbsentOrUpdate("counter", () -> 1, value -> value + 1, Integer.class);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            latch.countDown();
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+
+        int expectedCounter = 0;
+        for (int thread = 0; thread < numberOfThreads; thread++)
+        {
+            for (int ii = 0; ii < 20000; ii++)
+            {
+                expectedCounter += (ii + thread) % 3 == 2 ? 1 : 0;
+            }
+        }
+        assertEquals(expectedCounter, cache.get("counter", Integer.class)
+                                           .intValue());
+
+        ThreadUtils.sleepSilently(50, TimeUnit.MILLISECONDS);
+        for (String key : cache.keySet())
+        {
+            assertTrue(key, cache.getAge(key)
+                                 .as(TimeUnit.MILLISECONDS) >= 50);
+        }
+    }
+}
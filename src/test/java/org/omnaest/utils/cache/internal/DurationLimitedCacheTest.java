@@ -16,8 +16,17 @@
 package org.omnaest.utils.cache.internal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.omnaest.utils.CacheUtils;
@@ -62,4 +71,164 @@ public class DurationLimitedCacheTest
         assertEquals("value2", this.cache.computeIfAbsentOrUpdate("key1", () -> "value2", v -> v, String.class));
     }
 
+    @Test
+    public void testProactiveExpiry() throws Exception
+    {
+        Cache sourceCache = CacheUtils.newConcurrentInMemoryCache();
+        sourceCache.put("key0", "value0");
+        Cache cache = sourceCache.asExpiringCache(TimeDuration.of(300, TimeUnit.MILLISECONDS))
+                                 .withProactiveExpiry(TimeDuration.of(50, TimeUnit.MILLISECONDS));
+
+        cache.put("key1", "value1");
+        assertEquals("value1", cache.get("key1", String.class));
+        assertEquals(2, cache.size());
+
+        ThreadUtils.sleepSilently(500, TimeUnit.MILLISECONDS);
+        assertFalse(cache.contains("key1"));
+        assertTrue(sourceCache.isEmpty());
+        assertTrue(cache.keySet()
+                        .isEmpty());
+
+        assertEquals("value2", cache.computeIfAbsent("key1", () -> "value2", String.class));
+        assertEquals(1, sourceCache.size());
+    }
+
+    @Test
+    public void testProactiveExpiryDuringSlowLoad() throws Exception
+    {
+        Cache cache = CacheUtils.newConcurrentInMemoryCache()
+                                .asExpiringCache(TimeDuration.of(300, TimeUnit.MILLISECONDS))
+                                .withProactiveExpiry(TimeDuration.of(50, TimeUnit.MILLISECONDS));
+
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadReleased = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try
+        {
+            Future<String> load = executorService.submit(() -> cache.computeIfAbsent("key1", () ->
+            {
+                loadStarted.countDown();
+                try
+                {
+                    loadReleased.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread()
+                          .interrupt();
+                }
+                return "value1";
+            }, String.class));
+            loadStarted.await();
+
+            Future<Integer> write = executorService.submit(() ->
+            {
+                cache.put("key2", "value2");
+                return cache.size();
+            });
+            assertEquals(1, write.get(1, TimeUnit.SECONDS)
+                                 .intValue());
+
+            loadReleased.countDown();
+            assertEquals("value1", load.get());
+            assertEquals(2, cache.size());
+        }
+        finally
+        {
+            loadReleased.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRefreshAfterWrite() throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        Cache cache = CacheUtils.newConcurrentInMemoryCache()
+                                .asExpiringCache(TimeDuration.of(1000, TimeUnit.MILLISECONDS))
+                                .withRefreshAfterWrite(TimeDuration.of(300, TimeUnit.MILLISECONDS));
+
+        assertEquals("value1", cache.computeIfAbsent("key1", () -> "value" + counter.incrementAndGet(), String.class));
+        ThreadUtils.sleepSilently(400, TimeUnit.MILLISECONDS);
+
+        for (int ii = 0; ii < 10; ii++)
+        {
+            assertEquals("value1", cache.computeIfAbsent("key1", () ->
+            {
+                ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+                latch.countDown();
+                return "value" + counter.incrementAndGet();
+            }, String.class));
+        }
+
+        latch.await();
+        ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+        assertEquals(2, counter.get());
+        assertEquals("value2", cache.computeIfAbsent("key1", () -> "value" + counter.incrementAndGet(), String.class));
+
+        ThreadUtils.sleepSilently(1200, TimeUnit.MILLISECONDS);
+        assertEquals("value3", cache.computeIfAbsent("key1", () -> "value" + counter.incrementAndGet(), String.class));
+    }
+
+    @Test
+    public void testConcurrentReloadAfterExpiry() throws Exception
+    {
+        AtomicInteger counter = new AtomicInteger();
+        this.cache.put("key1", "value0");
+        ThreadUtils.sleepSilently(400, TimeUnit.MILLISECONDS);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int ii = 0; ii < 8; ii++)
+            {
+                futures.add(executorService.submit(() ->
+                {
+                    latch.await();
+                    return this.cache.computeIfAbsent("key1", () ->
+                    {
+                        ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+                        return "value" + counter.incrementAndGet();
+                    }, String.class);
+                }));
+            }
+            latch.countDown();
+
+            for (Future<String> future : futures)
+            {
+                assertEquals("value1", future.get());
+            }
+            assertEquals(1, counter.get());
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRefreshFinishingAfterExpiry() throws Exception
+    {
+        AtomicInteger counter = new AtomicInteger();
+        Cache cache = CacheUtils.newConcurrentInMemoryCache()
+                                .asExpiringCache(TimeDuration.of(300, TimeUnit.MILLISECONDS))
+                                .withRefreshAfterWrite(TimeDuration.of(100, TimeUnit.MILLISECONDS));
+
+        assertEquals("value1", cache.computeIfAbsent("key1", () -> "value" + counter.incrementAndGet(), String.class));
+        ThreadUtils.sleepSilently(150, TimeUnit.MILLISECONDS);
+
+        assertEquals("value1", cache.computeIfAbsent("key1", () ->
+        {
+            ThreadUtils.sleepSilently(400, TimeUnit.MILLISECONDS);
+            return "value" + counter.incrementAndGet();
+        }, String.class));
+        ThreadUtils.sleepSilently(250, TimeUnit.MILLISECONDS);
+
+        assertEquals("value2", cache.computeIfAbsent("key1", () -> "value" + counter.incrementAndGet(), String.class));
+        assertEquals(2, counter.get());
+    }
+
 }
@@ -18,8 +18,19 @@ package org.omnaest.utils.cache.internal;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
@@ -86,4 +97,332 @@ public class JsonFolderFilesCacheTest
         assertTrue(cache.getAge("key1")
                         .as(TimeUnit.MILLISECONDS) >= 1000);
     }
+
+    @Test
+    public void testGroupCommitVisibility() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        Cache cache = CacheUtils.newGroupCommitJsonFolderCache(cacheDirectory, TimeDuration.of(500, TimeUnit.MILLISECONDS), 100);
+
+        long startTime = System.currentTimeMillis();
+        assertEquals(null, cache.get("key1", String.class));
+        assertTrue(System.currentTimeMillis() - startTime < 250);
+        assertEquals(false, new File(cacheDirectory, "root.commit").exists());
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<?> put = executorService.submit(() -> cache.put("key1", "value1"));
+            ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+            assertEquals("value1", cache.get("key1", String.class));
+            assertTrue(new File(cacheDirectory, "root.commit").exists());
+            put.get();
+
+            List<File> valueFiles = this.listValueFiles(cacheDirectory);
+            assertEquals(1, valueFiles.size());
+            put = executorService.submit(() -> cache.put("key1", "value2"));
+            ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+            assertTrue(valueFiles.get(0)
+                                 .exists());
+            put.get();
+            assertEquals(false, valueFiles.get(0)
+                                          .exists());
+            assertEquals("value2", cache.get("key1", String.class));
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    private List<File> listValueFiles(File cacheDirectory)
+    {
+        return Arrays.asList(cacheDirectory.listFiles((directory, name) -> name.matches("[0-9]+\\.json")));
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception
+    {
+        int numberOfThreads = 8;
+        int numberOfKeysPerThread = 25;
+
+        Cache sequentialCache = CacheUtils.newJsonFolderCache(FileUtils.createRandomTempDirectory());
+        for (int thread = 0; thread < numberOfThreads; thread++)
+        {
+            for (int ii = 0; ii < numberOfKeysPerThread; ii++)
+            {
+                sequentialCache.put("key" + thread + "_" + ii, "value" + ii);
+            }
+        }
+
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        Cache cache = CacheUtils.newGroupCommitJsonFolderCache(cacheDirectory, TimeDuration.of(20, TimeUnit.MILLISECONDS), numberOfThreads);
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        try
+        {
+            CountDownLatch latch = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < numberOfThreads; thread++)
+            {
+                int currentThread = thread;
+                futures.add(executorService.submit(() ->
+                {
+                    latch.await();
+                    for (int ii = 0; ii < numberOfKeysPerThread; ii++)
+                    {
+                        cache.put("key" + currentThread + "_" + ii, "value" + ii);
+                    }
+                    return null;
+                }));
+            }
+            latch.countDown();
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+
+        assertTrue(cache.getStats()
+                        .getBytesWritten() < sequentialCache.getStats()
+                                                            .getBytesWritten()
+                                             / 2);
+
+        Cache reopenedCache = CacheUtils.newJsonFolderCache(cacheDirectory);
+        assertEquals(numberOfThreads * numberOfKeysPerThread, reopenedCache.size());
+        for (int thread = 0; thread < numberOfThreads; thread++)
+        {
+            for (int ii = 0; ii < numberOfKeysPerThread; ii++)
+            {
+                assertEquals("value" + ii, reopenedCache.get("key" + thread + "_" + ii, String.class));
+            }
+        }
+    }
+
+    @Test
+    public void testDeltaLog() throws Exception
+    {
+        Cache fullRootCache = CacheUtils.newJsonFolderCache(FileUtils.createRandomTempDirectory());
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        Cache cache = CacheUtils.newDeltaLogJsonFolderCache(cacheDirectory);
+        for (int ii = 0; ii < 200; ii++)
+        {
+            fullRootCache.put("key" + ii, "value" + ii);
+            cache.put("key" + ii, "value" + ii);
+        }
+        cache.put("key1", "other");
+        cache.remove("key2");
+        assertTrue(new File(cacheDirectory, "root.delta").isFile());
+        assertTrue(cache.getStats()
+                        .getBytesWritten() < fullRootCache.getStats()
+                                                          .getBytesWritten()
+                                             / 2);
+
+        Cache reopenedCache = CacheUtils.newDeltaLogJsonFolderCache(cacheDirectory);
+        assertEquals(199, reopenedCache.size());
+        assertEquals("other", reopenedCache.get("key1", String.class));
+        assertEquals(null, reopenedCache.get("key2", String.class));
+        assertEquals("value199", reopenedCache.get("key199", String.class));
+        assertEquals(String.class, reopenedCache.getType("key199"));
+        reopenedCache.put("key200", "value200");
+        assertEquals("value199", reopenedCache.get("key199", String.class));
+
+        Cache fullRootReopenedCache = CacheUtils.newJsonFolderCache(cacheDirectory);
+        assertEquals(200, fullRootReopenedCache.size());
+        assertEquals("value200", fullRootReopenedCache.get("key200", String.class));
+        fullRootReopenedCache.put("key201", "value201");
+        assertTrue(!new File(cacheDirectory, "root.delta").exists());
+        assertEquals(201, CacheUtils.newJsonFolderCache(cacheDirectory)
+                                    .size());
+    }
+
+    @Test
+    public void testDeltaLogCheckpoint() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        Cache cache = CacheUtils.newDeltaLogJsonFolderCache(cacheDirectory, 0.01);
+        for (int ii = 0; ii < 100; ii++)
+        {
+            cache.put("key" + ii, "value" + ii);
+        }
+        File deltaLogFile = new File(cacheDirectory, "root.delta");
+        assertTrue(deltaLogFile.length() < 0.01 * 64 * 1024 + 200);
+
+        Cache reopenedCache = CacheUtils.newJsonFolderCache(cacheDirectory);
+        assertEquals(100, reopenedCache.size());
+        for (int ii = 0; ii < 100; ii++)
+        {
+            assertEquals("value" + ii, reopenedCache.get("key" + ii, String.class));
+        }
+    }
+
+    @Test
+    public void testShardedLayout() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        Cache flatCache = CacheUtils.newJsonFolderCache(cacheDirectory);
+        for (int ii = 0; ii < 10; ii++)
+        {
+            flatCache.put("key" + ii, "value" + ii);
+        }
+        assertTrue(new File(cacheDirectory, "1.json").isFile());
+
+        JsonFolderFilesCache shardedCache = new JsonFolderFilesCache(cacheDirectory).withShardedLayout(true);
+        assertEquals("value0", shardedCache.get("key0", String.class));
+        shardedCache.put("key10", "value10");
+        assertTrue(new File(cacheDirectory, "0b/00/11.json").isFile());
+        assertEquals(10, shardedCache.migrateFileLayout());
+        assertEquals(0, shardedCache.migrateFileLayout());
+        assertTrue(!new File(cacheDirectory, "1.json").exists());
+        assertTrue(new File(cacheDirectory, "01/00/1.json").isFile());
+        for (int ii = 0; ii <= 10; ii++)
+        {
+            assertEquals("value" + ii, shardedCache.get("key" + ii, String.class));
+        }
+        assertTrue(new File(cacheDirectory, "02/00/2.json").isFile());
+        shardedCache.put("key1", "other");
+        assertTrue(!new File(cacheDirectory, "02/00/2.json").exists());
+
+        Cache reopenedFlatCache = CacheUtils.newJsonFolderCache(cacheDirectory);
+        assertEquals("other", reopenedFlatCache.get("key1", String.class));
+        assertEquals("value10", reopenedFlatCache.get("key10", String.class));
+    }
+
+    @Test
+    public void testSegmentStorage() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        JsonFolderFilesCache cache = new JsonFolderFilesCache(cacheDirectory).withSegmentStorage(256, 0.5)
+                                                                             .withNativeByteArrayStorage(true)
+                                                                             .withNativeStringStorage(true);
+        cache.put("bytes", new byte[] { 1, 2, 3 });
+        cache.put("text", "\u00e4\u00f6\u00fc");
+        cache.put("list", Arrays.asList("value1", "value2"));
+        String padding = StringUtils.repeat("x", 50);
+        for (int ii = 0; ii < 50; ii++)
+        {
+            cache.put("key" + (ii % 5), "value" + ii + padding);
+        }
+        cache.remove("key4");
+
+        assertTrue(!new File(cacheDirectory, "1.json").exists());
+        assertTrue(new File(cacheDirectory, "segments").isDirectory());
+        assertEquals(Arrays.toString(new byte[] { 1, 2, 3 }), Arrays.toString(cache.get("bytes", byte[].class)));
+        assertEquals("\u00e4\u00f6\u00fc", cache.get("text", String.class));
+        assertEquals(Arrays.asList("value1", "value2"), cache.get("list", List.class));
+        assertEquals("value48" + padding, cache.get("key3", String.class));
+        assertEquals(null, cache.get("key4", String.class));
+
+        long reclaimedBytes = cache.compactSegments();
+        for (int ii = 0; ii < 10 && reclaimedBytes > 0; ii++)
+        {
+            reclaimedBytes = cache.compactSegments();
+        }
+        assertEquals(0, reclaimedBytes);
+        assertTrue(Arrays.stream(new File(cacheDirectory, "segments").listFiles())
+                         .mapToLong(File::length)
+                         .sum() < 1024);
+        assertEquals(Arrays.toString(new byte[] { 1, 2, 3 }), Arrays.toString(cache.get("bytes", byte[].class)));
+        assertEquals("value45" + padding, cache.get("key0", String.class));
+        cache.close();
+
+        JsonFolderFilesCache reopenedCache = new JsonFolderFilesCache(cacheDirectory).withNativeByteArrayStorage(true)
+                                                                                     .withNativeStringStorage(true);
+        assertEquals(7, reopenedCache.size());
+        assertEquals("\u00e4\u00f6\u00fc", reopenedCache.get("text", String.class));
+        assertEquals(Arrays.asList("value1", "value2"), reopenedCache.get("list", List.class));
+        assertEquals("value48" + padding, reopenedCache.get("key3", String.class));
+        reopenedCache.put("key4", "value");
+        assertEquals("value", reopenedCache.get("key4", String.class));
+        assertEquals("value45" + padding, reopenedCache.get("key0", String.class));
+        reopenedCache.close();
+    }
+
+    @Test
+    public void testSegmentCompactionKeepsSegmentWithFailedCopy() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        JsonFolderFilesCache cache = new JsonFolderFilesCache(cacheDirectory).withSegmentStorage(256, 0.5)
+                                                                             .withNativeStringStorage(true);
+        String value = StringUtils.repeat("x", 60);
+        cache.put("key1", value);
+        cache.put("key2", value);
+        cache.put("key3", value);
+        cache.put("key0", value);
+        cache.put("key1", value);
+        cache.put("key2", value);
+        cache.put("key3", value);
+
+        File firstSegmentFile = Arrays.stream(new File(cacheDirectory, "segments").listFiles())
+                                      .min(Comparator.comparing(File::getName))
+                                      .get();
+        try (RandomAccessFile file = new RandomAccessFile(firstSegmentFile, "rw"))
+        {
+            file.setLength(200);
+        }
+
+        cache.compactSegments();
+        assertTrue(firstSegmentFile.exists());
+        cache.close();
+    }
+
+    @Test
+    public void testPlainLayoutWithoutSegmentsAndDeltaLog() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        JsonFolderFilesCache cache = new JsonFolderFilesCache(cacheDirectory);
+        cache.put("key1", "value1");
+        assertEquals(0, cache.compactSegments());
+        cache.close();
+
+        assertEquals(false, new File(cacheDirectory, "segments").exists());
+        assertEquals(false, new File(cacheDirectory, "root.delta").exists());
+        assertEquals("value1", new JsonFolderFilesCache(cacheDirectory).get("key1", String.class));
+    }
+
+    @Test
+    public void testGarbageCollection() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        JsonFolderFilesCache cache = new JsonFolderFilesCache(cacheDirectory);
+        for (int ii = 1; ii <= 5; ii++)
+        {
+            cache.put("key" + ii, "value" + ii);
+        }
+        cache.remove("key2");
+        cache.remove("key4");
+        File inFlightFile = new File(cacheDirectory, "100.json");
+        org.apache.commons.io.FileUtils.writeStringToFile(inFlightFile, "\"value100\"", StandardCharsets.UTF_8);
+
+        long orphanSize = new File(cacheDirectory, "2.json").length() + new File(cacheDirectory, "4.json").length();
+        assertEquals(orphanSize, cache.collectGarbage());
+        assertEquals(0, cache.collectGarbage());
+        assertTrue(!new File(cacheDirectory, "2.json").exists());
+        assertTrue(!new File(cacheDirectory, "4.json").exists());
+        assertTrue(inFlightFile.exists());
+        assertTrue(new File(cacheDirectory, "root.commit").exists());
+        assertEquals("value1", cache.get("key1", String.class));
+        assertEquals("value5", cache.get("key5", String.class));
+
+        JsonFolderFilesCache shardedCache = new JsonFolderFilesCache(cacheDirectory).withShardedLayout(true)
+                                                                                    .withGarbageCollection(TimeDuration.of(10, TimeUnit.MILLISECONDS),
+                                                                                                           100);
+        shardedCache.put("key6", "value6");
+        shardedCache.remove("key1");
+        shardedCache.remove("key6");
+        File shardedOrphanFile = new File(cacheDirectory, "06/00/6.json");
+        for (int ii = 0; ii < 200 && (new File(cacheDirectory, "1.json").exists() || shardedOrphanFile.exists()); ii++)
+        {
+            ThreadUtils.sleepSilently(10, TimeUnit.MILLISECONDS);
+        }
+        shardedCache.close();
+        assertTrue(shardedCache.getTotalReclaimedBytes() > 0);
+        assertTrue(!new File(cacheDirectory, "1.json").exists());
+        assertTrue(!shardedOrphanFile.exists());
+        assertEquals("value3", shardedCache.get("key3", String.class));
+        assertEquals("value5", shardedCache.get("key5", String.class));
+    }
 }
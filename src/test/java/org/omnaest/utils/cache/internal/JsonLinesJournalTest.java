@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.omnaest.utils.FileUtils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * @see JsonLinesJournal
+ * @author omnaest
+ */
+public class JsonLinesJournalTest
+{
+    protected static class Record
+    {
+        @JsonProperty
+        private String key;
+
+        protected Record()
+        {
+            super();
+        }
+
+        public Record(String key)
+        {
+            super();
+            this.key = key;
+        }
+
+        public String getKey()
+        {
+            return this.key;
+        }
+    }
+
+    @Test
+    public void testAppendAndReplay() throws Exception
+    {
+        File journalFile = new File(FileUtils.createRandomTempDirectory(), "journal.log");
+        try (JsonLinesJournal<Record> journal = new JsonLinesJournal<>(journalFile, Record.class))
+        {
+            journal.append(new Record("key1"));
+            journal.append(new Record("key2"));
+            assertEquals(journalFile.length(), journal.size());
+        }
+
+        assertEquals(Arrays.asList("key1", "key2"), this.replay(journalFile));
+    }
+
+    @Test
+    public void testAppendAfterTornLastLine() throws Exception
+    {
+        File journalFile = new File(FileUtils.createRandomTempDirectory(), "journal.log");
+        try (JsonLinesJournal<Record> journal = new JsonLinesJournal<>(journalFile, Record.class))
+        {
+            journal.append(new Record("key1"));
+        }
+        Files.write(journalFile.toPath(), "{\"key\":\"ke".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (JsonLinesJournal<Record> journal = new JsonLinesJournal<>(journalFile, Record.class))
+        {
+            journal.append(new Record("key2"));
+            assertEquals(journalFile.length(), journal.size());
+        }
+
+        assertEquals(Arrays.asList("key1", "key2"), this.replay(journalFile));
+    }
+
+    private List<String> replay(File journalFile)
+    {
+        List<String> keys = new ArrayList<>();
+        try (JsonLinesJournal<Record> journal = new JsonLinesJournal<>(journalFile, Record.class))
+        {
+            journal.replay(record -> keys.add(record.getKey()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.omnaest.utils.CacheUtils;
+import org.omnaest.utils.FileUtils;
+import org.omnaest.utils.ThreadUtils;
+import org.omnaest.utils.cache.FlushableCache;
+import org.omnaest.utils.duration.TimeDuration;
+
+/**
+ * @see JsonSingleFileCache
+ * @author omnaest
+ */
+public class JsonSingleFileCacheTest
+{
+    @Test
+    public void testWriteBehindFlush() throws Exception
+    {
+        File cacheFile = new File(FileUtils.createRandomTempDirectory(), "cache.json");
+        FlushableCache cache = CacheUtils.newWriteBehindJsonFileCache(cacheFile, TimeDuration.of(1, TimeUnit.HOURS), 1000);
+        IntStream.range(0, 100)
+                 .forEach(index -> cache.put("key" + (index % 10), "value" + index));
+        assertEquals("value99", cache.get("key9", String.class));
+        assertFalse(cacheFile.exists());
+
+        cache.flush();
+        JsonSingleFileCache reloadedCache = new JsonSingleFileCache(cacheFile);
+        assertEquals(10, reloadedCache.size());
+        assertEquals("value99", reloadedCache.get("key9", String.class));
+
+        cache.remove("key9");
+        cache.close();
+        assertNull(new JsonSingleFileCache(cacheFile).get("key9", String.class));
+    }
+
+    @Test
+    public void testWriteBehindDirtyThreshold() throws Exception
+    {
+        File cacheFile = new File(FileUtils.createRandomTempDirectory(), "cache.json");
+        FlushableCache cache = CacheUtils.newWriteBehindJsonFileCache(cacheFile, TimeDuration.of(1, TimeUnit.HOURS), 5);
+        IntStream.range(0, 5)
+                 .forEach(index -> cache.put("key" + index, "value" + index));
+
+        for (int ii = 0; ii < 50 && new JsonSingleFileCache(cacheFile).size() < 5; ii++)
+        {
+            ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(5, new JsonSingleFileCache(cacheFile).size());
+        cache.close();
+    }
+
+    @Test
+    public void testWriteBehindFlushInterval() throws Exception
+    {
+        File cacheFile = new File(FileUtils.createRandomTempDirectory(), "cache.json");
+        FlushableCache cache = CacheUtils.newWriteBehindJsonFileCache(cacheFile, TimeDuration.of(100, TimeUnit.MILLISECONDS), 1000);
+        cache.put("key1", "value1");
+
+        for (int ii = 0; ii < 50 && !cacheFile.exists(); ii++)
+        {
+            ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(cacheFile.exists());
+        assertEquals("value1", new JsonSingleFileCache(cacheFile).get("key1", String.class));
+        cache.close();
+    }
+
+    @Test
+    public void testJournal() throws Exception
+    {
+        File cacheFile = new File(FileUtils.createRandomTempDirectory(), "cache.json");
+        File journalFile = new File(cacheFile.getPath() + ".journal");
+        FlushableCache cache = CacheUtils.newJournaledJsonFileCache(cacheFile);
+        IntStream.range(0, 100)
+                 .forEach(index -> cache.put("key" + (index % 10), "value" + index));
+        cache.remove("key0");
+        cache.close();
+        assertFalse(cacheFile.exists());
+        assertTrue(journalFile.exists());
+
+        Files.write(journalFile.toPath(), "{\"operation\":\"PUT\",\"ke".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        JsonSingleFileCache reloadedCache = new JsonSingleFileCache(cacheFile);
+        assertEquals(9, reloadedCache.size());
+        assertNull(reloadedCache.get("key0", String.class));
+        assertEquals("value99", reloadedCache.get("key9", String.class));
+        assertEquals(String.class, reloadedCache.getType("key9"));
+
+        reloadedCache.put("key0", "value0");
+        assertFalse(journalFile.exists());
+        assertEquals(10, new JsonSingleFileCache(cacheFile).size());
+    }
+
+    @Test
+    public void testJournalCompaction() throws Exception
+    {
+        File cacheFile = new File(FileUtils.createRandomTempDirectory(), "cache.json");
+        File journalFile = new File(cacheFile.getPath() + ".journal");
+        FlushableCache cache = CacheUtils.newJournaledJsonFileCache(cacheFile, 1.0);
+        String value = StringUtils.repeat("x", 100);
+        IntStream.range(0, 2000)
+                 .forEach(index -> cache.put("key" + (index % 100), value + index));
+
+        for (int ii = 0; ii < 50 && !cacheFile.exists(); ii++)
+        {
+            ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+        }
+        cache.close();
+        assertTrue(cacheFile.exists());
+        assertTrue(journalFile.length() < 2000 * value.length());
+
+        JsonSingleFileCache reloadedCache = new JsonSingleFileCache(cacheFile);
+        assertEquals(100, reloadedCache.size());
+        assertEquals(value + 1999, reloadedCache.get("key99", String.class));
+    }
+
+    @Test
+    public void testLazyLoading() throws Exception
+    {
+        File cacheFile = new File(FileUtils.createRandomTempDirectory(), "cache.json");
+        JsonSingleFileCache writingCache = new JsonSingleFileCache(cacheFile);
+        IntStream.range(0, 10)
+                 .forEach(index -> writingCache.put("key" + index, Arrays.asList("value" + index, "\u00e4\u00f6\u00fc" + index)));
+
+        FlushableCache cache = CacheUtils.newLazyJsonFileCache(cacheFile, 5);
+        assertEquals(10, cache.size());
+        assertEquals(new HashSet<>(writingCache.keySet()), cache.keySet());
+
+        List<?> value = cache.get("key3", List.class);
+        assertEquals(Arrays.asList("value3", "\u00e4\u00f6\u00fc3"), value);
+        assertSame(value, cache.get("key3", List.class));
+
+        cache.put("key3", Arrays.asList("other"));
+        assertEquals(Arrays.asList("other"), cache.get("key3", List.class));
+        assertEquals(Arrays.asList("value4", "\u00e4\u00f6\u00fc4"), cache.get("key4", List.class));
+        cache.remove("key5");
+        assertNull(cache.get("key5", List.class));
+        assertEquals(writingCache.getType("key6"), cache.getType("key6"));
+
+        JsonSingleFileCache reloadedCache = new JsonSingleFileCache(cacheFile);
+        assertEquals(9, reloadedCache.size());
+        assertEquals(Arrays.asList("other"), reloadedCache.get("key3", List.class));
+        assertEquals(Arrays.asList("value9", "\u00e4\u00f6\u00fc9"), reloadedCache.get("key9", List.class));
+    }
+
+    @Test
+    public void testLazyLoadingWithWriteBehind() throws Exception
+    {
+        File cacheFile = new File(FileUtils.createRandomTempDirectory(), "cache.json");
+        JsonSingleFileCache cache = new JsonSingleFileCache(cacheFile).withWriteBehind(TimeDuration.of(100, TimeUnit.MILLISECONDS), 1000)
+                                                                      .withLazyLoading(10);
+        cache.put("key1", "value1");
+
+        for (int ii = 0; ii < 50 && !cacheFile.exists(); ii++)
+        {
+            ThreadUtils.sleepSilently(100, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(cacheFile.exists());
+        assertEquals("value1", new JsonSingleFileCache(cacheFile).get("key1", String.class));
+
+        cache.put("key2", "value2");
+        cache.close();
+        assertEquals("value2", new JsonSingleFileCache(cacheFile).withLazyLoading(10)
+                                                                 .get("key2", String.class));
+    }
+
+    @Test
+    public void testLazyLoadingWithJournal() throws Exception
+    {
+        File cacheFile = new File(FileUtils.createRandomTempDirectory(), "cache.json");
+        JsonSingleFileCache cache = new JsonSingleFileCache(cacheFile).withJournal(1.0)
+                                                                      .withLazyLoading(10);
+        String value = StringUtils.repeat("x", 100);
+        IntStream.range(0, 2000)
+                 .forEach(index -> cache.put("key" + (index % 100), value + index));
+        assertEquals(value + 1950, cache.get("key50", String.class));
+        cache.close();
+
+        FlushableCache reloadedCache = new JsonSingleFileCache(cacheFile).withJournal(1.0)
+                                                                         .withLazyLoading(10);
+        assertEquals(100, reloadedCache.size());
+        assertEquals(value + 1999, reloadedCache.get("key99", String.class));
+        assertEquals(value + 1900, reloadedCache.computeIfAbsent("key0", () -> "other", String.class));
+        assertEquals("other", reloadedCache.computeIfAbsent("key100", () -> "other", String.class));
+        reloadedCache.close();
+    }
+}
@@ -2,10 +2,23 @@ package org.omnaest.utils.cache.internal;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 import org.omnaest.utils.FileUtils;
 import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.Cache.EvictionStrategy;
+import org.omnaest.utils.cache.FlushableCache;
+import org.omnaest.utils.cache.internal.RandomAccessLogarithmicBlockFileStorageCache.StandardRowCodec;
 
 public class RandomAccessLogarithmicBlockFileStorageCacheTest
 {
@@ -21,4 +34,222 @@ public class RandomAccessLogarithmicBlockFileStorageCacheTest
         assertEquals("I love you!", this.cache.get("1", String.class));
     }
 
+    @Test
+    public void testMemoryMappedStorage() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        FlushableCache cache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, 10, 64).withMemoryMappedStorage();
+        assertNull(cache.get("1", String.class));
+        for (int ii = 0; ii < 100; ii++)
+        {
+            cache.put("key" + ii, Arrays.asList("value" + ii, "\u00e4\u00f6\u00fc"));
+        }
+        assertEquals(Arrays.asList("value42", "\u00e4\u00f6\u00fc"), cache.get("key42", List.class));
+        cache.remove("key42");
+        assertNull(cache.get("key42", List.class));
+        cache.close();
+
+        Cache reopenedCache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, 10).withMemoryMappedStorage();
+        assertEquals(99, reopenedCache.size());
+        assertEquals(Arrays.asList("value99", "\u00e4\u00f6\u00fc"), reopenedCache.get("key99", List.class));
+    }
+
+    @Test
+    public void testLinearHashing() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        RandomAccessLogarithmicBlockFileStorageCache cache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, 2).withLinearHashing(2000);
+        for (int ii = 0; ii < 1000; ii++)
+        {
+            cache.put("key" + ii, "value" + ii);
+        }
+        assertTrue(cache.getNumberOfRows() > 50);
+        assertEquals(1000, cache.size());
+        assertTrue(new File(cacheDirectory, "linear-hashing.json").exists());
+        assertEquals(false, new File(cacheDirectory, "linear-hashing.json.tmp").exists());
+        for (int ii = 0; ii < 1000; ii++)
+        {
+            assertEquals("value" + ii, cache.get("key" + ii, String.class));
+        }
+
+        RandomAccessLogarithmicBlockFileStorageCache reopenedCache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory,
+                                                                                                                      2).withLinearHashing(2000);
+        assertEquals(cache.getNumberOfRows(), reopenedCache.getNumberOfRows());
+        assertEquals("value999", reopenedCache.get("key999", String.class));
+        reopenedCache.remove("key999");
+        assertEquals(999, reopenedCache.keySet()
+                                       .size());
+    }
+
+    @Test
+    public void testKeySetSkipsStaleDuplicatesOfSplitRows() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        RandomAccessLogarithmicBlockFileStorageCache cache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, 2).withLinearHashing(2000);
+        for (int ii = 0; ii < 1000; ii++)
+        {
+            cache.put("key" + ii, "value" + ii);
+        }
+        cache.close();
+
+        // a cache without the linear hashing state writes into the initial rows, like a split which has been interrupted before cleaning up the split row
+        RandomAccessLogarithmicBlockFileStorageCache initialRowsCache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, 2);
+        initialRowsCache.put("key999", "stale");
+        initialRowsCache.close();
+
+        RandomAccessLogarithmicBlockFileStorageCache reopenedCache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory,
+                                                                                                                      2).withLinearHashing(2000);
+        assertEquals("value999", reopenedCache.get("key999", String.class));
+        reopenedCache.remove("key999");
+        assertEquals(null, reopenedCache.get("key999", String.class));
+        assertEquals(false, reopenedCache.keySet()
+                                         .contains("key999"));
+        assertEquals(999, reopenedCache.keySet()
+                                       .size());
+    }
+
+    @Test
+    public void testConcurrentMutations() throws Exception
+    {
+        this.assertConcurrentMutations(new RandomAccessLogarithmicBlockFileStorageCache(FileUtils.createRandomTempDirectory(), 2));
+        this.assertConcurrentMutations(new RandomAccessLogarithmicBlockFileStorageCache(FileUtils.createRandomTempDirectory(), 2).withMemoryMappedStorage());
+        this.assertConcurrentMutations(new RandomAccessLogarithmicBlockFileStorageCache(FileUtils.createRandomTempDirectory(), 2).withMemoryMappedStorage()
+                                                                                                                                  .withLinearHashing(2000));
+    }
+
+    private void assertConcurrentMutations(Cache cache) throws Exception
+    {
+        int numberOfThreads = 8;
+        int numberOfKeysPerThread = 200;
+        CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < numberOfThreads; thread++)
+            {
+                int currentThread = thread;
+                futures.add(executorService.submit(() ->
+                {
+                    latch.await();
+                    for (int ii = 0; ii < numberOfKeysPerThread; ii++)
+                    {
+                        String key = "key" + currentThread + "_" + ii;
+                        cache.put(key, "value" + ii);
+                        assertEquals("value" + ii, cache.get(key, String.class));
+                        assertEquals("value" + (ii / 2), cache.get("key" + currentThread + "_" + (ii / 2), String.class));
+                        cache.remove("key" + currentThread + "_" + (ii - 100));
+                    }
+                    return null;
+                }));
+            }
+            latch.countDown();
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+
+        assertEquals(numberOfThreads * 100, cache.size());
+        for (int thread = 0; thread < numberOfThreads; thread++)
+        {
+            for (int ii = 100; ii < numberOfKeysPerThread; ii++)
+            {
+                assertEquals("value" + ii, cache.get("key" + thread + "_" + ii, String.class));
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryRowCodecAndMigration() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        FlushableCache jsonCache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, 10).withMemoryMappedStorage();
+        for (int ii = 0; ii < 100; ii++)
+        {
+            jsonCache.put("key" + ii, Arrays.asList("value" + ii, "\u00e4\u00f6\u00fc"));
+        }
+        jsonCache.close();
+
+        RandomAccessLogarithmicBlockFileStorageCache binaryCache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory,
+                                                                                                                    10).withMemoryMappedStorage()
+                                                                                                                       .withRowCodec(StandardRowCodec.BINARY);
+        assertEquals(Arrays.asList("value1", "\u00e4\u00f6\u00fc"), binaryCache.get("key1", List.class));
+        binaryCache.put("key1", "other");
+        assertEquals("other", binaryCache.get("key1", String.class));
+        assertEquals(9, binaryCache.migrateRows());
+        assertEquals(0, binaryCache.migrateRows());
+        assertEquals(100, binaryCache.size());
+        assertEquals(Arrays.asList("value99", "\u00e4\u00f6\u00fc"), binaryCache.get("key99", List.class));
+        assertEquals(String.class, binaryCache.getType("key1"));
+        assertTrue(binaryCache.getAge("key99") != null);
+
+        binaryCache.withRowCodec(StandardRowCodec.JSON);
+        assertEquals(10, binaryCache.migrateRows());
+        assertEquals(Arrays.asList("value99", "\u00e4\u00f6\u00fc"), binaryCache.get("key99", List.class));
+        assertEquals("other", binaryCache.get("key1", String.class));
+    }
+
+    @Test
+    public void testBinaryRowCodecWithStringStorage() throws Exception
+    {
+        Cache cache = new RandomAccessLogarithmicBlockFileStorageCache(FileUtils.createRandomTempDirectory(), 10).withRowCodec(StandardRowCodec.BINARY);
+        cache.put("key1", "\u00e4\u00f6\u00fc\u20ac");
+        cache.put("key2", new byte[] { -1, 0, 1, (byte) 0xB1 });
+        cache.put("key3", 42L);
+        assertEquals("\u00e4\u00f6\u00fc\u20ac", cache.get("key1", String.class));
+        assertEquals(42L, cache.get("key3", Long.class)
+                               .longValue());
+        assertEquals(Arrays.toString(new byte[] { -1, 0, 1, (byte) 0xB1 }), Arrays.toString(cache.get("key2", byte[].class)));
+    }
+
+    @Test
+    public void testRowCache() throws Exception
+    {
+        File cacheDirectory = FileUtils.createRandomTempDirectory();
+        RandomAccessLogarithmicBlockFileStorageCache cache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory,
+                                                                                                              2).withLinearHashing(200)
+                                                                                                                .withRowCache(4, EvictionStrategy.LRU);
+        for (int ii = 0; ii < 50; ii++)
+        {
+            cache.put("key" + ii, "value" + ii);
+        }
+        assertTrue(cache.getNumberOfRows() > 2);
+
+        assertEquals("value1", cache.get("key1", String.class));
+        long bytesRead = cache.getStats()
+                              .getBytesRead();
+        assertTrue(cache.contains("key1"));
+        assertEquals("value1", cache.get("key1", String.class));
+        assertEquals(String.class, cache.getType("key1"));
+        assertEquals(bytesRead, cache.getStats()
+                                     .getBytesRead());
+
+        cache.put("key1", "other");
+        assertEquals("other", cache.get("key1", String.class));
+        assertEquals(bytesRead, cache.getStats()
+                                     .getBytesRead());
+        cache.remove("key2");
+        assertNull(cache.get("key2", String.class));
+
+        cache.put("list", Arrays.asList("value1", "value2"));
+        assertEquals(Arrays.asList("value1", "value2"), cache.get("list", List.class));
+        assertTrue(cache.get("list", List.class) == cache.get("list", List.class));
+        cache.remove("list");
+
+        Cache reopenedCache = new RandomAccessLogarithmicBlockFileStorageCache(cacheDirectory, 2).withLinearHashing(200);
+        assertEquals("other", reopenedCache.get("key1", String.class));
+        assertNull(reopenedCache.get("key2", String.class));
+        assertEquals(49, reopenedCache.size());
+        for (int ii = 3; ii < 50; ii++)
+        {
+            assertEquals("value" + ii, cache.get("key" + ii, String.class));
+            assertEquals("value" + ii, reopenedCache.get("key" + ii, String.class));
+        }
+    }
+
 }
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.omnaest.utils.FileUtils;
+import org.omnaest.utils.cache.internal.SegmentFileStorage.Location;
+
+/**
+ * @see SegmentFileStorage
+ * @author omnaest
+ */
+public class SegmentFileStorageTest
+{
+    @Test
+    public void testAppendAndRead() throws Exception
+    {
+        File directory = FileUtils.createRandomTempDirectory();
+        try (SegmentFileStorage storage = new SegmentFileStorage(directory, 10))
+        {
+            Location location1 = storage.append("value1".getBytes(StandardCharsets.UTF_8));
+            Location location2 = storage.append("value2".getBytes(StandardCharsets.UTF_8));
+            Location location3 = storage.append("value3".getBytes(StandardCharsets.UTF_8));
+            assertEquals(0, location1.getSegment());
+            assertEquals(1, location2.getSegment());
+            assertEquals(0, location2.getOffset());
+            assertEquals(6, location2.getLength());
+            assertEquals("value1", new String(storage.read(location1), StandardCharsets.UTF_8));
+            assertEquals("value3", new String(storage.read(location3), StandardCharsets.UTF_8));
+            assertEquals(Arrays.asList(0, 1), Arrays.asList(storage.getSealedSegments()
+                                                                   .toArray()));
+
+            Location copiedLocation = storage.copy(location1);
+            assertEquals(3, copiedLocation.getSegment());
+            assertEquals(location1.getModified(), copiedLocation.getModified());
+            storage.delete(0);
+            assertFalse(new File(directory, "0.segment").exists());
+            assertEquals("value1", new String(storage.read(copiedLocation), StandardCharsets.UTF_8));
+        }
+
+        try (SegmentFileStorage storage = new SegmentFileStorage(directory, 10))
+        {
+            Location location = storage.append("abc".getBytes(StandardCharsets.UTF_8));
+            assertEquals(3, location.getSegment());
+            assertEquals(6, location.getOffset());
+            assertTrue(storage.getSegments()
+                              .contains(1));
+        }
+    }
+}
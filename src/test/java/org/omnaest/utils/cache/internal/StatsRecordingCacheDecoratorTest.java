@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.omnaest.utils.CacheUtils;
+import org.omnaest.utils.FileUtils;
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.Cache.EvictionStrategy;
+import org.omnaest.utils.cache.CacheStats;
+import org.omnaest.utils.cache.CacheStats.Operation;
+import org.omnaest.utils.cache.LatencyHistogram;
+import org.omnaest.utils.cache.UnaryCache;
+
+/**
+ * @see StatsRecordingCacheDecorator
+ * @author omnaest
+ */
+public class StatsRecordingCacheDecoratorTest
+{
+    @Test
+    public void testGetStats() throws Exception
+    {
+        Cache cache = CacheUtils.newConcurrentInMemoryCache()
+                                .asStatsRecordingCache();
+
+        cache.put("key1", "value1");
+        assertEquals("value1", cache.get("key1", String.class));
+        assertEquals(null, cache.get("key2", String.class));
+        assertEquals("value1", cache.computeIfAbsent("key1", () -> "other", String.class));
+        assertEquals("value3", cache.computeIfAbsent("key3", () -> "value3", String.class));
+        assertEquals(2, cache.get(String.class, Arrays.asList("key1", "key3", "key4"))
+                             .size());
+
+        CacheStats stats = cache.getStats();
+        assertEquals(4, stats.getHitCount());
+        assertEquals(3, stats.getMissCount());
+        assertEquals(4.0 / 7.0, stats.getHitRatio(), 0.0001);
+        assertEquals(1, stats.getLoadSuccessCount());
+        assertEquals(0, stats.getLoadFailureCount());
+        assertEquals(2, stats.getLatencyHistogram(Operation.GET)
+                             .getCount());
+        assertEquals(1, stats.getLatencyHistogram(Operation.PUT)
+                             .getCount());
+        assertEquals(2, stats.getLatencyHistogram(Operation.COMPUTE)
+                             .getCount());
+    }
+
+    @Test
+    public void testUnaryCacheStats() throws Exception
+    {
+        UnaryCache<String> cache = CacheUtils.newConcurrentInMemoryCache()
+                                             .asUnaryCache(String.class)
+                                             .asStatsRecordingCache();
+        cache.computeIfAbsent("key1", () -> null);
+        cache.computeIfAbsent("key2", () -> "value2");
+        cache.get("key2");
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(1, stats.getLoadSuccessCount());
+        assertEquals(1, stats.getLoadFailureCount());
+    }
+
+    @Test
+    public void testNativeStats() throws Exception
+    {
+        Cache cache = CacheUtils.newJsonFolderCache(FileUtils.createRandomTempDirectory())
+                                .withCapacityLimit(2, EvictionStrategy.LRU)
+                                .withEvictionRatio(0.1);
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+        cache.get("key3", String.class);
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getEvictionCount());
+        assertEquals(1, stats.getHitCount());
+        assertTrue(stats.getBytesWritten() > 0);
+        assertTrue(stats.getBytesRead() > 0);
+    }
+
+    @Test
+    public void testLatencyHistogram() throws Exception
+    {
+        long[] bucketCounts = new long[LatencyHistogram.NUMBER_OF_BUCKETS];
+        bucketCounts[LatencyHistogram.determineBucketIndex(1000)] = 99;
+        bucketCounts[LatencyHistogram.determineBucketIndex(1000000)] = 1;
+        LatencyHistogram histogram = new LatencyHistogram(bucketCounts, 99 * 1000 + 1000000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1024, histogram.getPercentile(0.5)
+                                    .as(TimeUnit.NANOSECONDS));
+        assertEquals(1024, histogram.getPercentile(0.99)
+                                    .as(TimeUnit.NANOSECONDS));
+        assertEquals(1 << 20, histogram.getPercentile(1.0)
+                                       .as(TimeUnit.NANOSECONDS));
+        assertEquals(200, histogram.plus(histogram)
+                                   .getCount());
+    }
+}
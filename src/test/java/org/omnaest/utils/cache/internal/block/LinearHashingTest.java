@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.block;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @see LinearHashing
+ * @author omnaest
+ */
+public class LinearHashingTest
+{
+    @Test
+    public void testSplit() throws Exception
+    {
+        LinearHashing linearHashing = LinearHashing.of(3);
+        assertEquals(3, linearHashing.getNumberOfRows());
+        assertEquals(5 % 3, linearHashing.determineRowIndex(5));
+
+        Random random = new Random(1);
+        int[] hashes = random.ints(1000, 0, Integer.MAX_VALUE)
+                             .toArray();
+        for (int split = 0; split < 20; split++)
+        {
+            LinearHashing nextLinearHashing = linearHashing.split();
+            assertEquals(linearHashing.getNumberOfRows() + 1, nextLinearHashing.getNumberOfRows());
+            for (int hash : hashes)
+            {
+                int rowIndex = linearHashing.determineRowIndex(hash);
+                int nextRowIndex = nextLinearHashing.determineRowIndex(hash);
+                assertTrue(nextRowIndex < nextLinearHashing.getNumberOfRows());
+                if (rowIndex == linearHashing.getSplitPointer())
+                {
+                    int expectedRowIndex = linearHashing.isRetainedBySplit(hash) ? rowIndex : linearHashing.getSplitTargetRowIndex();
+                    assertEquals(expectedRowIndex, nextRowIndex);
+                }
+                else
+                {
+                    assertEquals(rowIndex, nextRowIndex);
+                }
+            }
+            linearHashing = nextLinearHashing;
+        }
+        assertEquals(2, linearHashing.getLevel());
+        assertEquals(11, linearHashing.getSplitPointer());
+        assertEquals(23, linearHashing.getNumberOfRows());
+    }
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.block;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.omnaest.utils.FileUtils;
+
+/**
+ * @see MappedBlockFileStorage
+ * @author omnaest
+ */
+public class MappedBlockFileStorageTest
+{
+    @Test
+    public void testWriteAndRead() throws Exception
+    {
+        File directory = FileUtils.createRandomTempDirectory();
+        MappedBlockFileStorage storage = MappedBlockFileStorage.of(directory)
+                                                               .withInitialBlockSize(16);
+        assertNull(storage.read(0));
+        storage.write(0, this.toBytes("abc"));
+        storage.write(1, this.toBytes("def"));
+        assertEquals("abc", this.toString(storage.read(0)));
+        assertEquals("def", this.toString(storage.read(1)));
+
+        storage.write(0, this.toBytes(StringUtils.repeat("x", 100)));
+        storage.write(1, this.toBytes("g"));
+        assertEquals(StringUtils.repeat("x", 100), this.toString(storage.read(0)));
+        assertEquals("g", this.toString(storage.read(1)));
+
+        storage.write(5000, this.toBytes("large index"));
+        assertTrue(storage.getRowCapacity() > 5000);
+        storage.close();
+
+        MappedBlockFileStorage reopenedStorage = MappedBlockFileStorage.of(directory);
+        assertEquals(StringUtils.repeat("x", 100), this.toString(reopenedStorage.read(0)));
+        assertEquals("g", this.toString(reopenedStorage.read(1)));
+        assertEquals("large index", this.toString(reopenedStorage.read(5000)));
+        assertNull(reopenedStorage.read(2));
+        assertNull(reopenedStorage.read(100000));
+        reopenedStorage.close();
+    }
+
+    @Test
+    public void testReadIsReadOnlyView() throws Exception
+    {
+        MappedBlockFileStorage storage = MappedBlockFileStorage.of(FileUtils.createRandomTempDirectory());
+        storage.write(0, this.toBytes("abc"));
+        ByteBuffer buffer = storage.read(0);
+        assertTrue(buffer.isReadOnly());
+        assertEquals(3, buffer.remaining());
+        storage.close();
+    }
+
+    @Test
+    public void testReleasedBlocksAndRegionBoundaries() throws Exception
+    {
+        File directory = FileUtils.createRandomTempDirectory();
+        MappedBlockFileStorage storage = new MappedBlockFileStorage(directory, 256).withInitialBlockSize(64);
+        for (int ii = 0; ii < 20; ii++)
+        {
+            storage.write(ii, this.toBytes(StringUtils.repeat("a", 10 * ii)));
+        }
+        for (int ii = 0; ii < 20; ii++)
+        {
+            assertEquals(StringUtils.repeat("a", 10 * ii), this.toString(storage.read(ii)));
+        }
+
+        File otherDirectory = FileUtils.createRandomTempDirectory();
+        MappedBlockFileStorage otherStorage = new MappedBlockFileStorage(otherDirectory, 256).withInitialBlockSize(64);
+        otherStorage.write(0, this.toBytes(StringUtils.repeat("a", 100)));
+        otherStorage.write(0, this.toBytes(StringUtils.repeat("a", 200)));
+        otherStorage.write(1, this.toBytes(StringUtils.repeat("b", 100)));
+        assertEquals(StringUtils.repeat("a", 200), this.toString(otherStorage.read(0)));
+        assertEquals(StringUtils.repeat("b", 100), this.toString(otherStorage.read(1)));
+        assertEquals(512, new File(otherDirectory, "blocks.mbs").length());
+        otherStorage.close();
+        storage.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadAfterClose() throws Exception
+    {
+        MappedBlockFileStorage storage = MappedBlockFileStorage.of(FileUtils.createRandomTempDirectory());
+        storage.write(0, this.toBytes("abc"));
+        storage.close();
+        storage.close();
+        storage.read(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRowLargerThanRegion() throws Exception
+    {
+        MappedBlockFileStorage storage = new MappedBlockFileStorage(FileUtils.createRandomTempDirectory(), 256);
+        try
+        {
+            storage.write(0, new byte[257]);
+        }
+        finally
+        {
+            assertFalse(storage.read(0) != null);
+            storage.close();
+        }
+    }
+
+    private byte[] toBytes(String value)
+    {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String toString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
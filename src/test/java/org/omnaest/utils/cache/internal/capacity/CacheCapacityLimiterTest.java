@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.capacity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.omnaest.utils.CacheUtils;
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.Cache.EvictionStrategy;
+import org.omnaest.utils.cache.Cache.EvictionStrategyProvider;
+import org.omnaest.utils.cache.CapacityLimitedCache;
+import org.omnaest.utils.cache.CapacityLimitedCache.Weigher;
+import org.omnaest.utils.cache.internal.CacheDecorator;
+
+/**
+ * @see CacheCapacityLimiter
+ * @author omnaest
+ */
+public class CacheCapacityLimiterTest
+{
+    @Test
+    public void testCapacityIsEnforcedOnEveryInsert() throws Exception
+    {
+        AtomicInteger keySetCalls = new AtomicInteger();
+        Cache delegate = new CacheDecorator(CacheUtils.newConcurrentInMemoryCache())
+        {
+            @Override
+            public Set<String> keySet()
+            {
+                keySetCalls.incrementAndGet();
+                return super.keySet();
+            }
+        };
+        delegate.put("existing", "value");
+
+        CapacityLimitedCache cache = delegate.withCapacityLimit(100, EvictionStrategy.LRU);
+        for (int ii = 0; ii < 1000; ii++)
+        {
+            cache.put("key" + ii, "value" + ii);
+            assertTrue(delegate.size() <= 100);
+        }
+        assertEquals(false, cache.contains("existing"));
+        assertTrue(cache.contains("key999"));
+
+        int keySetCallsAfterInserts = keySetCalls.get();
+        cache.put("key1000", "value1000");
+        assertEquals(keySetCallsAfterInserts, keySetCalls.get());
+    }
+
+    @Test
+    public void testWeightLimit() throws Exception
+    {
+        CapacityLimitedCache cache = CacheUtils.newConcurrentInMemoryCache()
+                                               .withCapacityLimit(Integer.MAX_VALUE, EvictionStrategy.LRU)
+                                               .withWeightLimit(1000, (key, value) -> ((byte[]) value).length)
+                                               .withEvictionRatio(0.1);
+        for (int ii = 0; ii < 100; ii++)
+        {
+            cache.put("key" + ii, new byte[100]);
+            assertTrue(cache.size() <= 10);
+        }
+        assertTrue(cache.size() >= 9);
+        assertTrue(cache.contains("key99"));
+    }
+
+    @Test
+    public void testComputeIfAbsentHitIsNoWrite() throws Exception
+    {
+        AtomicInteger weighCalls = new AtomicInteger();
+        CapacityLimitedCache cache = CacheUtils.newConcurrentInMemoryCache()
+                                               .withCapacityLimit(2, EvictionStrategy.LRU)
+                                               .withWeightLimit(1000, (key, value) -> weighCalls.incrementAndGet());
+        assertEquals("value1", cache.computeIfAbsent("key1", () -> "value1", String.class));
+        cache.put("key2", "value2");
+        int weighCallsBeforeHit = weighCalls.get();
+
+        assertEquals("value1", cache.computeIfAbsent("key1", () -> "other", String.class));
+        assertEquals(weighCallsBeforeHit, weighCalls.get());
+
+        cache.put("key3", "value3");
+        assertTrue(cache.contains("key1"));
+        assertEquals(false, cache.contains("key2"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testSerializedJsonSizeWeigher() throws Exception
+    {
+        Weigher weigher = Weigher.serializedJsonSize();
+        assertEquals(4, weigher.weigh("k", new byte[3]));
+        assertEquals(4, weigher.weigh("k", "abc"));
+        assertEquals(4, weigher.weigh("k", 123));
+    }
+
+    @Test
+    public void testBulkGetNotifiesAllRequestedKeys() throws Exception
+    {
+        List<String> readKeys = new ArrayList<>();
+        EvictionStrategyProvider evictionStrategy = () -> new EvictionStrategyHandler()
+        {
+            @Override
+            public Set<String> determineEvictKeys(int volume, Set<String> keys)
+            {
+                return Collections.emptySet();
+            }
+
+            @Override
+            public void onRead(String key)
+            {
+                readKeys.add(key);
+            }
+        };
+        CapacityLimitedCache cache = CacheUtils.newConcurrentInMemoryCache()
+                                               .withCapacityLimit(10, evictionStrategy);
+        cache.put("key1", "value1");
+
+        assertEquals(1, cache.get(String.class, Arrays.asList("key1", "key2", null))
+                             .size());
+        assertEquals(Arrays.asList("key1", "key2"), readKeys);
+    }
+}
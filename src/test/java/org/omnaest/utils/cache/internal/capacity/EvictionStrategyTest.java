@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.capacity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.omnaest.utils.CacheUtils;
+import org.omnaest.utils.cache.Cache;
+import org.omnaest.utils.cache.Cache.EvictionStrategy;
+import org.omnaest.utils.cache.CapacityLimitedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the hit ratios of the {@link EvictionStrategy}s for a skewed (zipf distributed) key access pattern
+ * 
+ * @author omnaest
+ */
+public class EvictionStrategyTest
+{
+    private static final Logger LOG                = LoggerFactory.getLogger(EvictionStrategyTest.class);
+
+    private static final int    NUMBER_OF_KEYS     = 5000;
+    private static final int    CAPACITY           = 250;
+    private static final int    NUMBER_OF_REQUESTS = 100000;
+
+    @Test
+    public void testHitRatioWithSkewedDistribution() throws Exception
+    {
+        Map<EvictionStrategy, Double> strategyToHitRatio = Arrays.asList(EvictionStrategy.values())
+                                                                 .stream()
+                                                                 .collect(Collectors.toMap(Function.identity(), this::determineHitRatio));
+        LOG.info("Hit ratios: " + strategyToHitRatio);
+
+        double randomHitRatio = strategyToHitRatio.get(EvictionStrategy.RANDOM);
+        assertTrue(strategyToHitRatio.get(EvictionStrategy.LRU) >= randomHitRatio * 0.95);
+        assertTrue(strategyToHitRatio.get(EvictionStrategy.LFU) > randomHitRatio);
+        assertTrue(strategyToHitRatio.get(EvictionStrategy.W_TINY_LFU) > randomHitRatio);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception
+    {
+        CapacityLimitedCache cache = CacheUtils.newConcurrentInMemoryCache()
+                                               .withCapacityLimit(10, EvictionStrategy.LRU)
+                                               .withEvictionRatio(0.1);
+        for (int ii = 0; ii < 10; ii++)
+        {
+            cache.put("key" + ii, ii);
+        }
+        cache.get("key0", Integer.class);
+        cache.put("key10", 10);
+        cache.put("key11", 11);
+
+        assertTrue(cache.contains("key0"));
+        assertEquals(false, cache.contains("key1"));
+    }
+
+    @Test
+    public void testWindowTinyLfuWithWeightLimitOnly() throws Exception
+    {
+        CapacityLimitedCache cache = CacheUtils.newConcurrentInMemoryCache()
+                                               .withCapacityLimit(Integer.MAX_VALUE, EvictionStrategy.W_TINY_LFU)
+                                               .withWeightLimit(1000, (key, value) -> ((byte[]) value).length)
+                                               .withEvictionRatio(0.1);
+        cache.put("hot", new byte[100]);
+        cache.put("key", new byte[100]);
+        for (int ii = 0; ii < 20; ii++)
+        {
+            cache.get("hot", byte[].class);
+        }
+        for (int ii = 0; ii < 100; ii++)
+        {
+            cache.put("key" + ii, new byte[100]);
+            assertTrue(cache.size() <= 10);
+        }
+
+        assertTrue(cache.contains("hot"));
+    }
+
+    @Test
+    public void testFrequencySketch() throws Exception
+    {
+        FrequencySketch sketch = new FrequencySketch(100);
+        for (int ii = 0; ii < 10; ii++)
+        {
+            sketch.increment("hot");
+        }
+        sketch.increment("cold");
+
+        assertEquals(10, sketch.frequency("hot"));
+        assertTrue(sketch.frequency("cold") <= 2);
+        assertTrue(sketch.frequency("unknown") <= 1);
+    }
+
+    private double determineHitRatio(EvictionStrategy evictionStrategy)
+    {
+        Cache cache = CacheUtils.newConcurrentInMemoryCache()
+                                .withCapacityLimit(CAPACITY, evictionStrategy);
+        ZipfDistribution distribution = new ZipfDistribution(NUMBER_OF_KEYS, 1.0, new Random(12345));
+
+        int hits = 0;
+        for (int ii = 0; ii < NUMBER_OF_REQUESTS; ii++)
+        {
+            String key = "key" + distribution.next();
+            if (cache.get(key, String.class) != null)
+            {
+                hits++;
+            }
+            else
+            {
+                cache.put(key, key);
+            }
+        }
+        return hits / (double) NUMBER_OF_REQUESTS;
+    }
+
+    private static class ZipfDistribution
+    {
+        private double[] cumulativeProbabilities;
+        private Random   random;
+
+        public ZipfDistribution(int numberOfElements, double exponent, Random random)
+        {
+            this.random = random;
+            this.cumulativeProbabilities = new double[numberOfElements];
+            double sum = 0.0;
+            for (int ii = 0; ii < numberOfElements; ii++)
+            {
+                sum += 1.0 / Math.pow(ii + 1, exponent);
+                this.cumulativeProbabilities[ii] = sum;
+            }
+            for (int ii = 0; ii < numberOfElements; ii++)
+            {
+                this.cumulativeProbabilities[ii] /= sum;
+            }
+        }
+
+        public int next()
+        {
+            int index = Arrays.binarySearch(this.cumulativeProbabilities, this.random.nextDouble());
+            return index >= 0 ? index : Math.min(-index - 1, this.cumulativeProbabilities.length - 1);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.expiry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @see TimerWheel
+ * @author omnaest
+ */
+public class TimerWheelTest
+{
+    @Test
+    public void testAdvance() throws Exception
+    {
+        TimerWheel timerWheel = new TimerWheel(10, 0);
+        timerWheel.schedule("key1", 25);
+        timerWheel.schedule("key2", 1000);
+        timerWheel.schedule("key3", 1000000);
+        assertEquals(3, timerWheel.size());
+
+        assertEquals(Collections.emptySet(), timerWheel.advance(20));
+        assertEquals(Collections.singleton("key1"), timerWheel.advance(30));
+        assertTrue(timerWheel.isActive("key2", 999));
+        assertFalse(timerWheel.isActive("key2", 1000));
+        assertEquals(Collections.singleton("key2"), timerWheel.advance(1005));
+        assertEquals(Collections.emptySet(), timerWheel.advance(999999));
+        assertEquals(Collections.singleton("key3"), timerWheel.advance(1000000));
+        assertEquals(0, timerWheel.size());
+    }
+
+    @Test
+    public void testRescheduleAndCancel() throws Exception
+    {
+        TimerWheel timerWheel = new TimerWheel(1, 0);
+        timerWheel.schedule("key1", 10);
+        timerWheel.schedule("key2", 10);
+        timerWheel.schedule("key3", 10);
+        timerWheel.schedule("key1", 5000);
+        timerWheel.cancel("key2");
+
+        assertEquals(Collections.singleton("key3"), timerWheel.advance(100));
+        assertEquals(Collections.singleton("key1"), timerWheel.keySet());
+
+        Set<String> expiredKeys = new HashSet<>();
+        for (long time = 200; time <= 6000; time += 200)
+        {
+            expiredKeys.addAll(timerWheel.advance(time));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("key1")), expiredKeys);
+    }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.offheap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.omnaest.utils.cache.CacheValueCodec;
+import org.omnaest.utils.cache.CacheValueCodec.StandardCacheValueCodec;
+
+/**
+ * @see OffHeapCache
+ * @author omnaest
+ */
+public class OffHeapCacheTest
+{
+    @Test
+    public void testCapacityLimit() throws Exception
+    {
+        int capacity = 16 * 64 * 1024;
+        OffHeapCache cache = new OffHeapCache(capacity, StandardCacheValueCodec.BINARY);
+        String value = String.join("", Collections.nCopies(1000, "x"));
+        IntStream.range(0, 10000)
+                 .forEach(index -> cache.put("key" + index, value));
+
+        assertTrue(cache.getAllocatedBytes() <= capacity);
+        assertTrue(cache.size() < 10000);
+        assertTrue(cache.size() > 500);
+        assertEquals(value, cache.get("key9999", String.class));
+        assertFalse(cache.contains("key0"));
+        assertNull(cache.get("key0", String.class));
+        assertEquals(10000 - cache.size(), cache.getStats()
+                                                 .getEvictionCount());
+        assertEquals(cache.size(), cache.keySet()
+                                        .size());
+    }
+
+    @Test
+    public void testOverwriteAndRemove() throws Exception
+    {
+        OffHeapCache cache = new OffHeapCache(1024 * 1024, StandardCacheValueCodec.BINARY);
+        IntStream.range(0, 5000)
+                 .forEach(index -> cache.put("key" + (index % 100), index));
+        assertEquals(100, cache.size());
+        assertEquals(Integer.valueOf(4999), cache.get("key99", Integer.class));
+        assertEquals(Integer.class, cache.getType("key99"));
+
+        IntStream.range(0, 50)
+                 .forEach(index -> cache.remove("key" + index));
+        assertEquals(50, cache.size());
+        assertNull(cache.get("key1", Integer.class));
+        assertEquals(Integer.valueOf(4950), cache.get("key50", Integer.class));
+
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testNullValue() throws Exception
+    {
+        OffHeapCache cache = new OffHeapCache(1024 * 1024, StandardCacheValueCodec.BINARY);
+        AtomicInteger counter = new AtomicInteger();
+        for (int ii = 0; ii < 3; ii++)
+        {
+            assertNull(cache.computeIfAbsent("key1", () ->
+            {
+                counter.incrementAndGet();
+                return null;
+            }, String.class));
+        }
+        assertEquals(1, counter.get());
+        assertTrue(cache.contains("key1"));
+        assertNull(cache.get("key1", String.class));
+
+        cache.put("key1", "value1");
+        assertEquals("value1", cache.computeIfAbsent("key1", () -> "other", String.class));
+    }
+
+    @Test
+    public void testBinaryCodec() throws Exception
+    {
+        CacheValueCodec codec = StandardCacheValueCodec.BINARY;
+        assertEquals("abc", codec.decode(codec.encode("abc"), String.class));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, codec.decode(codec.encode(new byte[] { 1, 2, 3 }), byte[].class));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), codec.decode(codec.encode(Long.MAX_VALUE), Long.class));
+        assertEquals(Long.valueOf(12), codec.decode(codec.encode(12), Long.class));
+        assertEquals(Double.valueOf(1.5), codec.decode(codec.encode(1.5), Double.class));
+        assertEquals(Boolean.TRUE, codec.decode(codec.encode(true), Boolean.class));
+        assertNull(codec.decode(codec.encode(null), String.class));
+        assertEquals(Arrays.asList("a", "b"), codec.decode(codec.encode(Arrays.asList("a", "b")), List.class));
+    }
+
+    @Test
+    public void testJsonCodec() throws Exception
+    {
+        CacheValueCodec codec = StandardCacheValueCodec.JSON;
+        assertEquals("abc", codec.decode(codec.encode("abc"), String.class));
+        assertEquals(Arrays.asList("a", "b"), codec.decode(codec.encode(Arrays.asList("a", "b")), List.class));
+    }
+}
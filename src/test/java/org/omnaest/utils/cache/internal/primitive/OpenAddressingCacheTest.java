@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2021 Danny Kunz
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.omnaest.utils.cache.internal.primitive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.omnaest.utils.CacheUtils;
+import org.omnaest.utils.cache.DoubleCache;
+import org.omnaest.utils.cache.IntCache;
+import org.omnaest.utils.cache.LongCache;
+
+/**
+ * @see OpenAddressingLongCache
+ * @see OpenAddressingIntCache
+ * @see OpenAddressingDoubleCache
+ * @author omnaest
+ */
+public class OpenAddressingCacheTest
+{
+    @Test
+    public void testPutGetAndRemoveAgainstHashMap() throws Exception
+    {
+        LongCache cache = CacheUtils.newLongCache();
+        Map<String, Long> map = new HashMap<>();
+        Random random = new Random(1);
+        for (int ii = 0; ii < 100000; ii++)
+        {
+            String key = "key" + random.nextInt(2000);
+            if (random.nextInt(3) == 0)
+            {
+                cache.remove(key);
+                map.remove(key);
+            }
+            else
+            {
+                long value = random.nextLong();
+                cache.putLong(key, value);
+                map.put(key, value);
+            }
+        }
+
+        assertEquals(map.size(), cache.size());
+        assertEquals(map.keySet(), cache.keySet());
+        map.forEach((key, value) -> assertEquals(value.longValue(), cache.getLong(key, -1)));
+        assertEquals(map, cache.get(map.keySet()));
+    }
+
+    @Test
+    public void testLongCache() throws Exception
+    {
+        LongCache cache = CacheUtils.newLongCache(4);
+        assertEquals(-1, cache.getLong("key1", -1));
+        assertNull(cache.get("key1"));
+
+        IntStream.range(0, 100)
+                 .forEach(index -> cache.addAndGet("key" + (index % 10), 1));
+        assertEquals(10, cache.size());
+        assertEquals(10, cache.getLong("key1", -1));
+        assertEquals(Long.valueOf(10), cache.get("key5"));
+
+        cache.put("key1", null);
+        assertFalse(cache.contains("key1"));
+        assertEquals(5, cache.addAndGet("key1", 5));
+
+        AtomicInteger counter = new AtomicInteger();
+        assertEquals(42, cache.computeLongIfAbsent("key11", key -> 42 + counter.getAndIncrement()));
+        assertEquals(42, cache.computeLongIfAbsent("key11", key -> 42 + counter.getAndIncrement()));
+        assertEquals(1, counter.get());
+
+        assertEquals(Long.valueOf(43), cache.computeIfAbsentOrUpdate("key11", () -> 0L, value -> value + 1));
+
+        cache.clear();
+        assertTrue(cache.isEmpty());
+        assertEquals(-1, cache.getLong("key1", -1));
+    }
+
+    @Test
+    public void testIntCache() throws Exception
+    {
+        IntCache cache = CacheUtils.newIntCache();
+        cache.putInt("key1", 1);
+        cache.put("key2", 2);
+        assertEquals(1, cache.getInt("key1", 0));
+        assertEquals(Integer.valueOf(2), cache.get("key2"));
+        assertEquals(4, cache.addAndGet("key2", 2));
+        cache.removeAll(cache.keySet());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testDoubleCache() throws Exception
+    {
+        DoubleCache cache = CacheUtils.newDoubleCache();
+        cache.putDouble("key1", 1.5);
+        assertEquals(1.5, cache.getDouble("key1", 0.0), 0.0);
+        assertEquals(2.0, cache.addAndGet("key1", 0.5), 0.0);
+        assertEquals(0.25, cache.computeDoubleIfAbsent("key2", key -> 0.25), 0.0);
+        assertEquals(Double.NaN, cache.getDouble("key3", Double.NaN), 0.0);
+    }
+
+    @Test
+    public void testTimestamps() throws Exception
+    {
+        LongCache cache = CacheUtils.newLongCache();
+        cache.putLong("key1", 1);
+        assertNull(cache.getAge("key1"));
+
+        cache.withTimestamps(true);
+        assertNotNull(cache.getAge("key1"));
+        IntStream.range(0, 100)
+                 .forEach(index -> cache.putLong("key" + index, index));
+        cache.remove("key50");
+        assertNotNull(cache.getAge("key99"));
+        assertNull(cache.getAge("key50"));
+
+        cache.withTimestamps(false);
+        assertNull(cache.getAge("key1"));
+    }
+}